@@ -0,0 +1,148 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Generates realistic student datasets for the benchmarks
+ * Names and courses follow a skewed (Zipf-like) popularity distribution and marks a clamped
+ * normal distribution, so index selectivity resembles a real roster instead of uniform noise
+ */
+public class BenchmarkData {
+    private static final String[] FIRST_NAMES = {"James", "Mary", "Mohammed", "Olivia", "Wei", "Sofia", "Liam",
+            "Emma", "Noah", "Ava", "Aarav", "Isabella", "Lucas", "Mia", "Hiroshi", "Amelia", "Mateo", "Harper",
+            "Ethan", "Chloe", "Arjun", "Zara", "Daniel", "Priya", "Oliver", "Fatima", "Elijah", "Yuki", "Henry",
+            "Aisha", "Samuel", "Grace", "Diego", "Nora", "Kwame", "Elena", "Ivan", "Leila", "Tomasz", "Ingrid"};
+    private static final String[] LAST_NAMES = {"Smith", "Wang", "Garcia", "Johnson", "Kumar", "Brown",
+            "Nguyen", "Martinez", "Williams", "Khan", "Jones", "Li", "Rodriguez", "Davis", "Patel", "Miller",
+            "Kim", "Lopez", "Wilson", "Singh", "Anderson", "Chen", "Taylor", "Hernandez", "Thomas", "Sato",
+            "Moore", "Okafor", "Jackson", "Novak", "White", "Ivanova", "Harris", "Silva", "Clark", "Müller",
+            "Lewis", "Rossi", "Walker", "Dubois", "Young", "Kowalski", "King", "Haddad", "Wright", "Jensen"};
+    private static final String[] COURSES = {"Computer Science", "Business Administration", "Mathematics",
+            "Mechanical Engineering", "Psychology", "Biology", "Economics", "Electrical Engineering", "Physics",
+            "Chemistry", "Nursing", "English Literature", "History", "Political Science", "Civil Engineering",
+            "Data Science", "Architecture", "Philosophy", "Music", "Astronomy"};
+
+    private static final double[] FIRST_NAME_WEIGHTS = zipfWeights(FIRST_NAMES.length, 0.9);
+    private static final double[] LAST_NAME_WEIGHTS = zipfWeights(LAST_NAMES.length, 0.8);
+    private static final double[] COURSE_WEIGHTS = zipfWeights(COURSES.length, 1.1);
+
+    private final SplittableRandom random;
+
+    public BenchmarkData(long seed) {
+        this.random = new SplittableRandom(seed);
+    }
+
+    /**
+     * Build a service holding the given number of generated students
+     * Loads through addBatch in fixed-size chunks so setup stays fast even at 10M students
+     * @param size Number of students (the service's five sample students are removed)
+     * @return Populated service
+     */
+    public StudentService populate(int size) {
+        return populate(size, new ListStudentRepository());
+    }
+
+    /**
+     * Build a service on a given storage backend holding the given number of generated students
+     * @param size Number of students (the service's five sample students are removed)
+     * @param repository Empty repository for the service
+     * @return Populated service
+     */
+    public StudentService populate(int size, StudentRepository repository) {
+        StudentService service = new StudentService(repository);
+        for (Student sample : service.getAllStudents()) {
+            service.deleteStudent(sample.getId());
+        }
+
+        int chunk = 100_000;
+        for (int loaded = 0; loaded < size; loaded += chunk) {
+            int count = Math.min(chunk, size - loaded);
+            List<Student> batch = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                batch.add(nextStudent());
+            }
+            service.addBatch(batch);
+        }
+        return service;
+    }
+
+    /**
+     * Generate one unsaved student
+     * @return Student with a placeholder ID
+     */
+    public Student nextStudent() {
+        return new Student(0, nextName(), nextMarks(), nextCourse());
+    }
+
+    public String nextName() {
+        String first = FIRST_NAMES[pick(FIRST_NAME_WEIGHTS)];
+        String last = LAST_NAMES[pick(LAST_NAME_WEIGHTS)];
+        if (random.nextInt(5) == 0) {
+            return first + " " + (char) ('A' + random.nextInt(26)) + ". " + last; // Middle initial
+        }
+        return first + " " + last;
+    }
+
+    public String nextCourse() {
+        return COURSES[pick(COURSE_WEIGHTS)];
+    }
+
+    // Normal around 68 with a standard deviation of 14, rounded to half marks like hand grading
+    public double nextMarks() {
+        double gaussian = Math.sqrt(-2 * Math.log(1 - random.nextDouble())) * Math.cos(2 * Math.PI * random.nextDouble());
+        double marks = Math.round((68 + 14 * gaussian) * 2) / 2.0;
+        return Math.max(0, Math.min(100, marks));
+    }
+
+    /**
+     * Name queries with a spread of selectivity: common surname, full name, rare name, short and missing
+     * @return Query strings
+     */
+    public static String[] nameQueries() {
+        return new String[]{"smith", "olivia wang", "ingrid jensen", "ar", "nobody-matches"};
+    }
+
+    /**
+     * Name prefixes from broad to narrow, and one that matches nobody
+     * @return Prefix strings
+     */
+    public static String[] namePrefixes() {
+        return new String[]{"o", "olivia w", "ingrid jensen", "zz"};
+    }
+
+    /**
+     * Course queries from broad to narrow
+     * @return Query strings
+     */
+    public static String[] courseQueries() {
+        return new String[]{"engineering", "computer science", "astronomy", "ph"};
+    }
+
+    public int nextInt(int bound) {
+        return random.nextInt(bound);
+    }
+
+    private int pick(double[] cumulativeWeights) {
+        double roll = random.nextDouble();
+        for (int i = 0; i < cumulativeWeights.length; i++) {
+            if (roll < cumulativeWeights[i]) {
+                return i;
+            }
+        }
+        return cumulativeWeights.length - 1;
+    }
+
+    // Cumulative weights proportional to 1 / rank^exponent
+    private static double[] zipfWeights(int count, double exponent) {
+        double[] weights = new double[count];
+        double total = 0;
+        for (int i = 0; i < count; i++) {
+            total += 1 / Math.pow(i + 1, exponent);
+            weights[i] = total;
+        }
+        for (int i = 0; i < count; i++) {
+            weights[i] /= total;
+        }
+        return weights;
+    }
+}
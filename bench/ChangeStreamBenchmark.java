@@ -0,0 +1,158 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.SplittableRandom;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.Stream;
+
+/**
+ * Measures what change stream subscribers cost the write path
+ * A writer thread updates random students' marks for a fixed time while a number of fast subscribers
+ * consume every change, optionally next to one slow subscriber that spends a fixed time on each change.
+ * Each setting runs on a fresh service and reports writes per second, update latency, changes
+ * delivered per subscriber and how far behind the writer the subscribers were at the end
+ *
+ *   java ChangeStreamBenchmark [--size 100000] [--seconds 3] [--subscribers 0,1,4] [--slow-micros 100]
+ */
+public class ChangeStreamBenchmark {
+    public static void main(String[] args) throws Exception {
+        int size = 100_000;
+        double seconds = 3;
+        int[] subscriberCounts = {0, 1, 4};
+        long slowMicros = 100;
+
+        for (int i = 0; i < args.length; i++) {
+            String value = i + 1 < args.length ? args[i + 1] : "";
+            switch (args[i]) {
+                case "--size": size = Integer.parseInt(value); i++; break;
+                case "--seconds": seconds = Double.parseDouble(value); i++; break;
+                case "--subscribers": subscriberCounts = Stream.of(value.split(",")).mapToInt(Integer::parseInt)
+                        .toArray(); i++; break;
+                case "--slow-micros": slowMicros = Long.parseLong(value); i++; break;
+                default: throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+
+        System.out.printf(Locale.ROOT, "size=%d seconds=%.1f slow=%dus%n", size, seconds, slowMicros);
+        System.out.printf("%-6s | %-5s | %-12s | %-12s | %-12s | %-14s | %-10s%n", "FAST", "SLOW", "WRITES/SEC",
+                "P50 (us)", "P99 (us)", "FAST RECEIVED", "SLOW LAG");
+        for (int fast : subscriberCounts) {
+            run(size, seconds, fast, -1);
+            if (fast > 0) {
+                run(size, seconds, fast, slowMicros);
+            }
+        }
+    }
+
+    /**
+     * Subscriber that counts changes, requesting them in batches and optionally working on each one
+     */
+    private static final class Counter implements Flow.Subscriber<StudentChange> {
+        private static final int BATCH = 256;
+
+        final AtomicLong received = new AtomicLong();
+        final CountDownLatch done = new CountDownLatch(1);
+        final long workNanos;
+        volatile long lastSequence;
+        volatile Throwable error;
+        private Flow.Subscription subscription;
+        private int outstanding;
+
+        Counter(long workNanos) {
+            this.workNanos = workNanos;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            outstanding = BATCH;
+            subscription.request(BATCH);
+        }
+
+        @Override
+        public void onNext(StudentChange change) {
+            if (workNanos > 0) {
+                LockSupport.parkNanos(workNanos);
+            }
+            lastSequence = change.getSequence();
+            received.incrementAndGet();
+            if (--outstanding == BATCH / 2) {
+                outstanding += BATCH;
+                subscription.request(BATCH);
+            }
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            error = throwable;
+            done.countDown();
+        }
+
+        @Override
+        public void onComplete() {
+            done.countDown();
+        }
+    }
+
+    // One setting: slowMicros below 0 runs without the slow subscriber
+    private static void run(int size, double seconds, int fast, long slowMicros) throws Exception {
+        StudentService service = new StudentService();
+        int firstId = load(service, size);
+        StudentChangeStream stream = service.changes();
+
+        List<Counter> counters = new ArrayList<>();
+        for (int i = 0; i < fast; i++) {
+            counters.add(new Counter(0));
+        }
+        Counter slow = slowMicros < 0 ? null : new Counter(TimeUnit.MICROSECONDS.toNanos(slowMicros));
+        for (Counter counter : counters) {
+            stream.subscribe(counter);
+        }
+        if (slow != null) {
+            stream.subscribe(slow);
+        }
+
+        Histogram latency = new Histogram();
+        SplittableRandom random = new SplittableRandom(42);
+        long deadline = System.nanoTime() + (long) (seconds * 1e9);
+        long begin = System.nanoTime();
+        while (System.nanoTime() < deadline) {
+            long start = System.nanoTime();
+            service.updateStudent(firstId + random.nextInt(size), null, null, random.nextInt(1001) / 10.0);
+            latency.record(System.nanoTime() - start);
+        }
+        double elapsed = (System.nanoTime() - begin) / 1e9;
+        long latest = stream.getLatestSequence();
+        long slowLag = slow == null ? 0 : latest - slow.lastSequence;
+        String slowState = slow == null ? "-" : slow.error != null ? "lost" : String.valueOf(slowLag);
+
+        // Closing completes each fast subscriber once it has caught up
+        service.close();
+        long fastReceived = 0;
+        for (Counter counter : counters) {
+            counter.done.await(30, TimeUnit.SECONDS);
+            fastReceived += counter.received.get();
+        }
+
+        System.out.printf(Locale.ROOT, "%-6d | %-5s | %-12.0f | %-12.2f | %-12.2f | %-14d | %-10s%n", fast,
+                slow == null ? "no" : "yes", latency.getCount() / elapsed, latency.getValueAtPercentile(50) / 1e3,
+                latency.getValueAtPercentile(99) / 1e3, fast == 0 ? 0 : fastReceived / fast, slowState);
+    }
+
+    // Replace the sample students with generated ones and return the first ID
+    private static int load(StudentService service, int size) {
+        for (Student sample : service.getAllStudents()) {
+            service.deleteStudent(sample.getId());
+        }
+        BenchmarkData data = new BenchmarkData(42);
+        List<Student> batch = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            batch.add(data.nextStudent());
+        }
+        return service.addBatch(batch).get(0).getId();
+    }
+}
@@ -0,0 +1,88 @@
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Measures StudentService throughput under a mixed read/write workload
+ * Runs the same workload with 1 to N threads and prints operations per second
+ *
+ * Usage: java ContentionBenchmark [students] [writePercent] [maxThreads] [seconds]
+ */
+public class ContentionBenchmark {
+    private static final String[] COURSES = {"Computer Science", "Mathematics", "Physics", "Chemistry", "Biology"};
+
+    public static void main(String[] args) throws InterruptedException {
+        int students = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        int writePercent = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        int maxThreads = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+        int seconds = args.length > 3 ? Integer.parseInt(args[3]) : 3;
+
+        System.out.printf("students=%d writes=%d%% seconds=%d%n", students, writePercent, seconds);
+        System.out.printf("%-8s | %-14s | %-14s%n", "THREADS", "OPS/SEC", "OPS/SEC/THREAD");
+
+        for (int threads = 1; threads <= maxThreads; threads *= 2) {
+            double opsPerSecond = run(students, writePercent, threads, seconds);
+            System.out.printf("%-8d | %-14.0f | %-14.0f%n", threads, opsPerSecond, opsPerSecond / threads);
+            if (threads < maxThreads && threads * 2 > maxThreads) {
+                threads = maxThreads / 2; // Always finish with exactly maxThreads
+            }
+        }
+    }
+
+    private static double run(int studentCount, int writePercent, int threads, int seconds)
+            throws InterruptedException {
+        StudentService service = new StudentService();
+        for (int i = 0; i < studentCount; i++) {
+            service.addStudent("Student " + i, COURSES[i % COURSES.length], i % 101);
+        }
+        int firstId = 1001;
+
+        LongAdder operations = new LongAdder();
+        CountDownLatch start = new CountDownLatch(1);
+        long deadline = System.nanoTime() + seconds * 1_000_000_000L + 100_000_000L;
+        Thread[] workers = new Thread[threads];
+
+        for (int t = 0; t < threads; t++) {
+            workers[t] = new Thread(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                awaitQuietly(start);
+                long done = 0;
+                while (System.nanoTime() < deadline) {
+                    int id = firstId + random.nextInt(service.getNextStudentId() - firstId);
+                    int roll = random.nextInt(100);
+                    if (roll < writePercent / 2) {
+                        service.updateStudent(id, null, null, (double) random.nextInt(101));
+                    } else if (roll < writePercent) {
+                        // Delete and re-add keeps the dataset size stable
+                        if (service.deleteStudent(id)) {
+                            service.addStudent("Student " + id, COURSES[id % COURSES.length], random.nextInt(101));
+                        }
+                    } else if (roll < 95) {
+                        service.findStudentById(id);
+                    } else {
+                        service.searchByGrade("A");
+                    }
+                    done++;
+                }
+                operations.add(done);
+            });
+            workers[t].start();
+        }
+
+        long begin = System.nanoTime();
+        start.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        double elapsedSeconds = (System.nanoTime() - begin) / 1e9;
+        return operations.sum() / elapsedSeconds;
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
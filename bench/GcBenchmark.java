@@ -0,0 +1,149 @@
+import com.sun.management.GarbageCollectionNotificationInfo;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import javax.management.NotificationEmitter;
+import javax.management.NotificationListener;
+import javax.management.openmbean.CompositeData;
+
+/**
+ * Compares garbage collector behavior of heap-resident and off-heap student repositories
+ * Loads a repository with generated students, then runs a read-heavy workload that keeps a window of
+ * recent results alive, so young collections promote objects and the old generation has to be
+ * collected too. Reports every pause seen during the workload and the time of a full collection
+ *
+ * Run once per repository, each in a fresh JVM so heaps do not mix, and with a fixed heap size so the
+ * collector sizes its young generation the same way for every repository:
+ *   java -Xms4g -Xmx4g GcBenchmark [--size 10000000] [--repository list|packed|offheap|file] [--seconds 20]
+ */
+public class GcBenchmark {
+    private static final int RETAINED_WINDOW = 200_000; // Recent reads kept alive to feed the old generation
+
+    private static volatile long sink;
+
+    public static void main(String[] args) throws Exception {
+        int size = 10_000_000;
+        String repositoryName = "list";
+        double seconds = 20;
+
+        for (int i = 0; i < args.length; i++) {
+            String value = i + 1 < args.length ? args[i + 1] : "";
+            switch (args[i]) {
+                case "--size": size = Integer.parseInt(value); i++; break;
+                case "--repository": repositoryName = value; i++; break;
+                case "--seconds": seconds = Double.parseDouble(value); i++; break;
+                default: throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+
+        Path file = null;
+        StudentRepository repository;
+        switch (repositoryName) {
+            case "list": repository = new ListStudentRepository(); break;
+            case "packed": repository = new PackedStudentRepository(size); break;
+            case "offheap": repository = new OffHeapStudentRepository(); break;
+            case "file":
+                file = Files.createTempFile("students", ".offheap");
+                repository = new OffHeapStudentRepository(file);
+                break;
+            default: throw new IllegalArgumentException("Unknown repository: " + repositoryName);
+        }
+
+        try {
+            long loadStart = System.nanoTime();
+            load(repository, size);
+            long loadMillis = (System.nanoTime() - loadStart) / 1_000_000;
+            long fullGcMillis = fullCollection();
+            Runtime runtime = Runtime.getRuntime();
+            System.out.printf(Locale.ROOT, "repository=%s size=%d load=%d ms heap=%.1f MB full-gc=%d ms%n",
+                    repositoryName, size, loadMillis, (runtime.totalMemory() - runtime.freeMemory()) / 1e6, fullGcMillis);
+
+            List<Long> pauses = new ArrayList<>();
+            List<NotificationEmitter> emitters = new ArrayList<>();
+            NotificationListener listener = (notification, handback) -> {
+                if (notification.getType().equals(GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION)) {
+                    GarbageCollectionNotificationInfo info =
+                            GarbageCollectionNotificationInfo.from((CompositeData) notification.getUserData());
+                    synchronized (pauses) {
+                        pauses.add(info.getGcInfo().getDuration());
+                    }
+                }
+            };
+            for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+                if (collector instanceof NotificationEmitter) {
+                    ((NotificationEmitter) collector).addNotificationListener(listener, null, null);
+                    emitters.add((NotificationEmitter) collector);
+                }
+            }
+
+            long reads = churn(repository, size, (long) (seconds * 1e9));
+            fullGcMillis = fullCollection();
+
+            for (NotificationEmitter emitter : emitters) {
+                emitter.removeNotificationListener(listener);
+            }
+            synchronized (pauses) {
+                long[] sorted = pauses.stream().mapToLong(Long::longValue).sorted().toArray();
+                long total = 0;
+                for (long pause : sorted) total += pause;
+                System.out.printf(Locale.ROOT, "reads=%d (%.0f/s) collections=%d total-pause=%d ms p50=%d ms p99=%d ms "
+                                + "max=%d ms full-gc=%d ms%n", reads, reads / seconds, sorted.length, total,
+                        percentile(sorted, 50), percentile(sorted, 99), percentile(sorted, 100), fullGcMillis);
+            }
+        } finally {
+            repository.close();
+            if (file != null) {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+
+    // Fill the repository directly, so the service's search indexes do not hide the repository's own footprint
+    private static void load(StudentRepository repository, int size) {
+        BenchmarkData data = new BenchmarkData(42);
+        repository.reserve(size);
+        for (int i = 0; i < size; i++) {
+            Student student = data.nextStudent();
+            student.setId(1001 + i);
+            repository.add(student);
+        }
+    }
+
+    // Random reads rendered to text for a while, keeping the latest rows alive; returns the number of reads
+    private static long churn(StudentRepository repository, int size, long nanos) {
+        BenchmarkData data = new BenchmarkData(7);
+        String[] window = new String[RETAINED_WINDOW];
+        long reads = 0;
+        long checksum = 0;
+        long end = System.nanoTime() + nanos;
+        while (System.nanoTime() < end) {
+            for (int i = 0; i < 10_000; i++) {
+                // Keep the rendered row rather than the student, so every repository retains the same objects
+                String row = repository.studentAt(data.nextInt(size)).toString();
+                window[(int) (reads++ % RETAINED_WINDOW)] = row;
+                checksum += row.length();
+            }
+        }
+        sink += checksum;
+        return reads;
+    }
+
+    private static long fullCollection() {
+        long start = System.nanoTime();
+        System.gc();
+        return (System.nanoTime() - start) / 1_000_000;
+    }
+
+    private static long percentile(long[] sorted, int percentile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(percentile / 100.0 * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(sorted.length - 1, index))];
+    }
+}
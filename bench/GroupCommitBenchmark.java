@@ -0,0 +1,210 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.SplittableRandom;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.stream.Stream;
+
+/**
+ * Measures durable write throughput and commit latency of the group-commit write queue
+ * Producer threads update random students' marks for a fixed time, each keeping a window of writes in
+ * flight, against a journaled service in a temporary directory. Every batch size and delay setting
+ * runs on a fresh service, after a baseline that calls updateStudent directly on a journal that
+ * fsyncs every record. Latency runs from queueing a write to its future completing, once it is on disk
+ *
+ *   java GroupCommitBenchmark [--size 10000] [--producers 4] [--window 64] [--seconds 3]
+ *                             [--batches 1,16,64,256] [--delays 0,100,1000]
+ */
+public class GroupCommitBenchmark {
+    public static void main(String[] args) throws Exception {
+        int size = 10_000;
+        int producers = 4;
+        int window = 64;
+        double seconds = 3;
+        int[] batches = {1, 16, 64, 256};
+        long[] delays = {0, 100, 1000};
+
+        for (int i = 0; i < args.length; i++) {
+            String value = i + 1 < args.length ? args[i + 1] : "";
+            switch (args[i]) {
+                case "--size": size = Integer.parseInt(value); i++; break;
+                case "--producers": producers = Integer.parseInt(value); i++; break;
+                case "--window": window = Integer.parseInt(value); i++; break;
+                case "--seconds": seconds = Double.parseDouble(value); i++; break;
+                case "--batches": batches = Stream.of(value.split(",")).mapToInt(Integer::parseInt).toArray(); i++;
+                    break;
+                case "--delays": delays = Stream.of(value.split(",")).mapToLong(Long::parseLong).toArray(); i++;
+                    break;
+                default: throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+
+        System.out.printf(Locale.ROOT, "size=%d producers=%d window=%d seconds=%.1f%n", size, producers, window,
+                seconds);
+        System.out.printf("%-8s | %-10s | %-12s | %-10s | %-10s | %-12s | %-12s%n", "BATCH", "DELAY (us)", "WRITES/SEC",
+                "FSYNCS", "AVG GROUP", "P50 (ms)", "P99 (ms)");
+        report("direct", "-", direct(size, producers, seconds));
+        for (int batch : batches) {
+            for (long delay : delays) {
+                report(String.valueOf(batch), String.valueOf(delay),
+                        queued(size, producers, window, seconds, batch, delay));
+            }
+        }
+    }
+
+    /**
+     * Outcome of one run
+     */
+    private static final class Result {
+        final double writesPerSecond;
+        final long syncs;
+        final Histogram latency;
+
+        Result(double writesPerSecond, long syncs, Histogram latency) {
+            this.writesPerSecond = writesPerSecond;
+            this.syncs = syncs;
+            this.latency = latency;
+        }
+    }
+
+    private static void report(String batch, String delay, Result result) {
+        long writes = result.latency.getCount();
+        System.out.printf(Locale.ROOT, "%-8s | %-10s | %-12.0f | %-10d | %-10.1f | %-12.3f | %-12.3f%n", batch, delay,
+                result.writesPerSecond, result.syncs, result.syncs == 0 ? 0.0 : (double) writes / result.syncs,
+                result.latency.getValueAtPercentile(50) / 1e6, result.latency.getValueAtPercentile(99) / 1e6);
+    }
+
+    // Each producer calls updateStudent itself, waiting for the journal to fsync its own record
+    private static Result direct(int size, int producers, double seconds) throws Exception {
+        Path directory = Files.createTempDirectory("group-commit");
+        try {
+            StudentService service =
+                    new StudentService(new StudentStorage(directory, 1, 0), new ListStudentRepository());
+            try {
+                int firstId = load(service, size);
+                Histogram latency = new Histogram();
+                long syncsBefore = service.getStorage().getJournalSyncCount();
+                double elapsed = runProducers(producers, seconds, random -> {
+                    long start = System.nanoTime();
+                    service.updateStudent(firstId + random.nextInt(size), null, null, random.nextInt(1001) / 10.0);
+                    latency.record(System.nanoTime() - start);
+                });
+                long syncs = service.getStorage().getJournalSyncCount() - syncsBefore;
+                return new Result(latency.getCount() / elapsed, syncs, latency);
+            } finally {
+                service.close();
+            }
+        } finally {
+            delete(directory);
+        }
+    }
+
+    // Producers queue updates and wait for the oldest of their writes once the window is full
+    private static Result queued(int size, int producers, int window, double seconds, int batch, long delay)
+            throws Exception {
+        Path directory = Files.createTempDirectory("group-commit");
+        try {
+            StudentService service =
+                    new StudentService(StudentStorage.withManualSync(directory), new ListStudentRepository());
+            try {
+                int firstId = load(service, size);
+                long syncsBefore = service.getStorage().getJournalSyncCount();
+                double elapsed;
+                Histogram latency;
+                long drainStart;
+                try (StudentWriteQueue queue = new StudentWriteQueue(service, producers * window, batch, delay)) {
+                    elapsed = runProducers(producers, seconds, new Producer() {
+                        private final ThreadLocal<ArrayDeque<CompletableFuture<Boolean>>> inFlight =
+                                ThreadLocal.withInitial(ArrayDeque::new);
+
+                        @Override
+                        public void write(SplittableRandom random) {
+                            ArrayDeque<CompletableFuture<Boolean>> pending = inFlight.get();
+                            if (pending.size() == window) {
+                                pending.poll().join();
+                            }
+                            pending.add(queue.updateStudent(firstId + random.nextInt(size), null, null,
+                                    random.nextInt(1001) / 10.0));
+                        }
+                    });
+                    latency = queue.getCommitLatency();
+                    drainStart = System.nanoTime();
+                } // Closing commits what is still in flight, so every queued write is counted
+                elapsed += (System.nanoTime() - drainStart) / 1e9;
+                long syncs = service.getStorage().getJournalSyncCount() - syncsBefore;
+                return new Result(latency.getCount() / elapsed, syncs, latency);
+            } finally {
+                service.close();
+            }
+        } finally {
+            delete(directory);
+        }
+    }
+
+    private interface Producer {
+        void write(SplittableRandom random);
+    }
+
+    // Runs the producers for the given time and returns the elapsed seconds
+    private static double runProducers(int producers, double seconds, Producer producer) throws InterruptedException {
+        CountDownLatch start = new CountDownLatch(1);
+        long nanos = (long) (seconds * 1e9);
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < producers; t++) {
+            long seed = 100 + t;
+            threads.add(new Thread(() -> {
+                SplittableRandom random = new SplittableRandom(seed);
+                long deadline = awaitStart(start) + nanos;
+                while (System.nanoTime() < deadline) {
+                    producer.write(random);
+                }
+            }));
+        }
+
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        long begin = System.nanoTime();
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        return (System.nanoTime() - begin) / 1e9;
+    }
+
+    // Replace the sample students with generated ones and return the first ID
+    private static int load(StudentService service, int size) {
+        for (Student sample : service.getAllStudents()) {
+            service.deleteStudent(sample.getId());
+        }
+        BenchmarkData data = new BenchmarkData(42);
+        List<Student> batch = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            batch.add(data.nextStudent());
+        }
+        return service.addBatch(batch).get(0).getId();
+    }
+
+    private static long awaitStart(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return System.nanoTime();
+    }
+
+    private static void delete(Path directory) throws IOException {
+        try (Stream<Path> paths = Files.walk(directory)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+}
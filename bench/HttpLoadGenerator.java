@@ -0,0 +1,160 @@
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Closed-loop load generator for StudentHttpServer
+ * Each virtual-thread client sends a request, waits for the response and repeats; the mix is
+ * 70% lookups by ID, 15% name searches, 5% statistics, 5% adds and 5% updates
+ * Prints throughput and latency percentiles
+ *
+ * Usage: java HttpLoadGenerator [baseUrl|-] [clients] [seconds] [students]
+ * With "-" (the default) a server holding the given number of generated students is started in-process
+ */
+public class HttpLoadGenerator {
+    private static final Pattern ID_PATTERN = Pattern.compile("\"id\":(\\d+)");
+
+    public static void main(String[] args) throws Exception {
+        String baseUrl = args.length > 0 ? args[0] : "-";
+        int clients = args.length > 1 ? Integer.parseInt(args[1]) : 64;
+        int seconds = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+        int students = args.length > 3 ? Integer.parseInt(args[3]) : 100_000;
+
+        StudentHttpServer server = null;
+        if (baseUrl.equals("-")) {
+            if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+                System.setProperty("sun.net.httpserver.nodelay", "true"); // As Main does for --serve
+            }
+            server = new StudentHttpServer(new BenchmarkData(42).populate(students), new InetSocketAddress("localhost", 0));
+            server.start();
+            baseUrl = "http://localhost:" + server.getPort();
+        }
+
+        try {
+            HttpClient client = HttpClient.newBuilder()
+                    .version(HttpClient.Version.HTTP_1_1)
+                    .executor(Executors.newVirtualThreadPerTaskExecutor())
+                    .build();
+            int[] ids = sampleIds(client, baseUrl);
+            if (ids.length == 0) {
+                throw new IllegalStateException("Server has no students to query");
+            }
+
+            System.out.printf("url=%s clients=%d seconds=%d%n", baseUrl, clients, seconds);
+            run(client, baseUrl, ids, clients, 2, false); // Warm-up
+            run(client, baseUrl, ids, clients, seconds, true);
+        } finally {
+            if (server != null) {
+                server.close();
+            }
+        }
+    }
+
+    private static int[] sampleIds(HttpClient client, String baseUrl) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + "/students?limit=10000"))
+                .header("Accept", "application/x-ndjson").build();
+        String body = client.send(request, HttpResponse.BodyHandlers.ofString()).body();
+        Matcher matcher = ID_PATTERN.matcher(body);
+        int[] ids = new int[10_000];
+        int count = 0;
+        while (matcher.find() && count < ids.length) {
+            ids[count++] = Integer.parseInt(matcher.group(1));
+        }
+        return Arrays.copyOf(ids, count);
+    }
+
+    private static void run(HttpClient client, String baseUrl, int[] ids, int clients, int seconds, boolean report)
+            throws InterruptedException {
+        String[] names = BenchmarkData.nameQueries();
+        long[][] latencies = new long[clients][];
+        int[] counts = new int[clients];
+        LongAdder errors = new LongAdder();
+        long deadline = System.nanoTime() + seconds * 1_000_000_000L;
+
+        long start = System.nanoTime();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int c = 0; c < clients; c++) {
+                int clientIndex = c;
+                executor.submit(() -> {
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    long[] samples = new long[1024];
+                    int count = 0;
+                    while (System.nanoTime() < deadline) {
+                        HttpRequest request = nextRequest(baseUrl, ids, names, random);
+                        long sent = System.nanoTime();
+                        try {
+                            int status = client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+                            if (status >= 400 && status != 404) { // 404: ID deleted by another test
+                                errors.increment();
+                            }
+                        } catch (Exception e) {
+                            errors.increment();
+                        }
+                        if (count == samples.length) {
+                            samples = Arrays.copyOf(samples, count * 2);
+                        }
+                        samples[count++] = System.nanoTime() - sent;
+                    }
+                    latencies[clientIndex] = samples;
+                    counts[clientIndex] = count;
+                });
+            }
+        }
+        double elapsed = (System.nanoTime() - start) / 1e9;
+        if (!report) return;
+
+        int total = 0;
+        for (int count : counts) total += count;
+        long[] all = new long[total];
+        int offset = 0;
+        for (int c = 0; c < clients; c++) {
+            System.arraycopy(latencies[c], 0, all, offset, counts[c]);
+            offset += counts[c];
+        }
+        Arrays.sort(all);
+
+        System.out.printf("requests=%d errors=%d throughput=%.0f req/s%n", total, errors.sum(), total / elapsed);
+        System.out.printf("latency ms: p50=%.3f p90=%.3f p99=%.3f p99.9=%.3f max=%.3f%n",
+                percentile(all, 50), percentile(all, 90), percentile(all, 99), percentile(all, 99.9),
+                all.length == 0 ? 0.0 : all[all.length - 1] / 1e6);
+    }
+
+    private static HttpRequest nextRequest(String baseUrl, int[] ids, String[] names, ThreadLocalRandom random) {
+        int roll = random.nextInt(100);
+        int id = ids[random.nextInt(ids.length)];
+        if (roll < 70) {
+            return HttpRequest.newBuilder(URI.create(baseUrl + "/students/" + id)).build();
+        } else if (roll < 85) {
+            String name = URLEncoder.encode(names[random.nextInt(names.length)], StandardCharsets.UTF_8);
+            return HttpRequest.newBuilder(URI.create(baseUrl + "/students/search?name=" + name)).build();
+        } else if (roll < 90) {
+            return HttpRequest.newBuilder(URI.create(baseUrl + "/statistics")).build();
+        } else if (roll < 95) {
+            String body = "{\"name\":\"Load Test " + random.nextInt(1_000_000) + "\",\"course\":\"Physics\",\"marks\":"
+                    + random.nextInt(101) + "}";
+            return HttpRequest.newBuilder(URI.create(baseUrl + "/students"))
+                    .POST(HttpRequest.BodyPublishers.ofString(body)).build();
+        } else {
+            String body = "{\"marks\":" + random.nextInt(101) + "}";
+            return HttpRequest.newBuilder(URI.create(baseUrl + "/students/" + id))
+                    .PUT(HttpRequest.BodyPublishers.ofString(body)).build();
+        }
+    }
+
+    private static double percentile(long[] sorted, double percentile) {
+        if (sorted.length == 0) return 0.0;
+        int index = (int) Math.min(sorted.length - 1, Math.ceil(percentile / 100.0 * sorted.length) - 1);
+        return sorted[Math.max(0, index)] / 1e6;
+    }
+}
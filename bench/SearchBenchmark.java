@@ -0,0 +1,109 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Compares indexed searchByName/searchByCourse with the original full-scan search
+ * Runs each query set at 10k, 100k and 1M students and prints the average time per query
+ *
+ * Usage: java SearchBenchmark [sizes...]
+ */
+public class SearchBenchmark {
+    private static final String[] FIRST_NAMES = {"Alice", "Bob", "Carol", "David", "Emma", "Frank", "Grace",
+            "Henry", "Isla", "Jack", "Karen", "Liam", "Mia", "Noah", "Olivia", "Peter", "Quinn", "Ruby",
+            "Sam", "Tara", "Umar", "Vera", "Will", "Xena", "Yusuf", "Zoe"};
+    private static final String[] LAST_NAMES = {"Johnson", "Smith", "Davis", "Wilson", "Brown", "Taylor",
+            "Anderson", "Thomas", "Moore", "Martin", "Jackson", "White", "Harris", "Clark", "Lewis", "Walker",
+            "Young", "King", "Wright", "Scott", "Green", "Baker", "Adams", "Nelson", "Hill", "Campbell"};
+    private static final String[] COURSES = {"Computer Science", "Mathematics", "Physics", "Chemistry",
+            "Biology", "Economics", "History", "Literature"};
+    private static final String[] NAME_QUERIES = {"son", "ali", "Emma Brown", "ck", "noah w", "xyz"};
+    private static final String[] COURSE_QUERIES = {"phys", "science", "ma", "history"};
+
+    public static void main(String[] args) {
+        int[] sizes = {10_000, 100_000, 1_000_000};
+        if (args.length > 0) {
+            sizes = new int[args.length];
+            for (int i = 0; i < args.length; i++) {
+                sizes[i] = Integer.parseInt(args[i]);
+            }
+        }
+
+        System.out.printf("%-10s | %-8s | %-14s | %-14s | %-8s%n", "STUDENTS", "FIELD", "INDEXED (us)", "SCAN (us)",
+                "SPEEDUP");
+        for (int size : sizes) {
+            StudentService service = populate(size);
+            List<Student> snapshot = service.getAllStudents();
+
+            double indexedName = time(() -> {
+                for (String query : NAME_QUERIES) service.searchByName(query);
+            }) / NAME_QUERIES.length;
+            double scanName = time(() -> {
+                for (String query : NAME_QUERIES) scanByName(snapshot, query);
+            }) / NAME_QUERIES.length;
+            print(size, "name", indexedName, scanName);
+
+            double indexedCourse = time(() -> {
+                for (String query : COURSE_QUERIES) service.searchByCourse(query);
+            }) / COURSE_QUERIES.length;
+            double scanCourse = time(() -> {
+                for (String query : COURSE_QUERIES) scanByCourse(snapshot, query);
+            }) / COURSE_QUERIES.length;
+            print(size, "course", indexedCourse, scanCourse);
+        }
+    }
+
+    static StudentService populate(int size) {
+        Random random = new Random(42);
+        StudentService service = new StudentService();
+        for (int i = 0; i < size; i++) {
+            String name = FIRST_NAMES[random.nextInt(FIRST_NAMES.length)] + " "
+                    + LAST_NAMES[random.nextInt(LAST_NAMES.length)];
+            service.addStudent(name, COURSES[random.nextInt(COURSES.length)], random.nextInt(1001) / 10.0);
+        }
+        return service;
+    }
+
+    // The search implementation StudentService used before the trigram index
+    static List<Student> scanByName(List<Student> students, String name) {
+        List<Student> results = new ArrayList<>();
+        String searchName = name.toLowerCase().trim();
+        for (Student student : students) {
+            if (student.getName().toLowerCase().contains(searchName)) {
+                results.add(student);
+            }
+        }
+        return results;
+    }
+
+    static List<Student> scanByCourse(List<Student> students, String course) {
+        List<Student> results = new ArrayList<>();
+        String searchCourse = course.toLowerCase().trim();
+        for (Student student : students) {
+            if (student.getCourse().toLowerCase().contains(searchCourse)) {
+                results.add(student);
+            }
+        }
+        return results;
+    }
+
+    // Average microseconds per run after a warm-up, repeated for at least half a second
+    private static double time(Runnable task) {
+        for (int i = 0; i < 3; i++) {
+            task.run();
+        }
+        int runs = 0;
+        long start = System.nanoTime();
+        long elapsed;
+        do {
+            task.run();
+            runs++;
+            elapsed = System.nanoTime() - start;
+        } while (elapsed < 500_000_000L);
+        return elapsed / 1_000.0 / runs;
+    }
+
+    private static void print(int size, String field, double indexed, double scan) {
+        System.out.printf("%-10d | %-8s | %-14.1f | %-14.1f | %-7.1fx%n", size, field, indexed, scan, scan / indexed);
+    }
+}
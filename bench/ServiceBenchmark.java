@@ -0,0 +1,554 @@
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Locale;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Benchmark suite for the StudentService hot paths
+ * Each benchmark runs warm-up and measurement iterations per dataset size, then the results are
+ * printed as a table and written as JSON in the same layout JMH uses, so regression tooling that
+ * reads JMH results can compare runs between releases
+ *
+ * Usage: java -Xmx8g ServiceBenchmark [--sizes 1000,10000,100000,1000000] [--benchmarks name,...]
+ *        [--warmup 3] [--iterations 5] [--time 1] [--threads N] [--repository list|packed|offheap]
+ *        [--metrics on|off] [--query-cache 0] [--out benchmark-results.json]
+ * Datasets of 10M students need a heap of roughly 12 GB with the list repository
+ *
+ * The heap retained by each dataset is printed with its setup time, so running once per
+ * repository compares both the memory footprint and the scan throughput of the backends
+ *
+ * Operation metrics are recorded by default; running once with --metrics off and once with
+ * --metrics on measures what recording costs each operation
+ *
+ * The query cache is off by default; --query-cache N turns it on with room for N students, so the
+ * searches and statistics are answered from it between writes and the writes pay for invalidation
+ */
+public class ServiceBenchmark {
+    private static final String[] GRADES = {"A+", "A", "B", "C", "D", "F"};
+    private static final int BATCH_SIZE = 1_000; // Students per batch operation
+
+    private static volatile long sink; // Keeps results observable so the JIT cannot drop the work
+
+    /**
+     * One benchmarked operation
+     */
+    private abstract static class Benchmark {
+        final String name;
+        final int threads;
+
+        Benchmark(String name, int threads) {
+            this.name = name;
+            this.threads = threads;
+        }
+
+        // Perform the operation a number of times; this is the only timed part
+        abstract void run(int invocations);
+
+        // Undo side effects of run() outside the timed region
+        void reset() {
+        }
+
+        // Most invocations one timed call may perform (limits the damage of destructive operations)
+        int maxInvocations() {
+            return 1 << 20;
+        }
+
+        boolean isThroughput() {
+            return threads > 1;
+        }
+    }
+
+    /**
+     * Dataset shared by every benchmark of one size
+     */
+    private static class State {
+        final int size;
+        final BenchmarkData data;
+        final StudentService service;
+        int[] liveIds;
+        int liveCount;
+
+        State(int size, String repository, boolean metrics, long queryCache) {
+            this.size = size;
+            this.data = new BenchmarkData(42);
+            this.service = data.populate(size, newRepository(repository, size));
+            service.getMetrics().setEnabled(metrics);
+            service.setQueryCacheSize(queryCache);
+            service.getMetrics().reset();
+            this.liveIds = new int[size];
+            for (Student student : service.getAllStudents()) {
+                liveIds[liveCount++] = student.getId();
+            }
+        }
+
+        int randomLiveId() {
+            return liveIds[data.nextInt(liveCount)];
+        }
+    }
+
+    /**
+     * Measured scores of one benchmark at one size
+     */
+    private static class Result {
+        final Benchmark benchmark;
+        final int size;
+        final String repository;
+        final boolean metrics;
+        final long queryCache;
+        final double[] scores;
+        final double mean;
+        final double error;
+
+        Result(Benchmark benchmark, int size, String repository, boolean metrics, long queryCache, double[] scores) {
+            this.benchmark = benchmark;
+            this.size = size;
+            this.repository = repository;
+            this.metrics = metrics;
+            this.queryCache = queryCache;
+            this.scores = scores;
+
+            double total = 0;
+            for (double score : scores) total += score;
+            this.mean = total / scores.length;
+
+            double squares = 0;
+            for (double score : scores) squares += (score - mean) * (score - mean);
+            this.error = scores.length < 2 ? Double.NaN
+                    : studentT999(scores.length - 1) * Math.sqrt(squares / (scores.length - 1)) / Math.sqrt(scores.length);
+        }
+
+        String unit() {
+            return benchmark.isThroughput() ? "ops/s" : "us/op";
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        int[] sizes = {1_000, 10_000, 100_000, 1_000_000};
+        List<String> selected = new ArrayList<>();
+        int warmup = 3;
+        int iterations = 5;
+        double seconds = 1;
+        int threads = Math.max(2, Runtime.getRuntime().availableProcessors());
+        String repository = "list";
+        boolean metrics = true;
+        long queryCache = 0;
+        Path out = Paths.get("benchmark-results.json");
+
+        for (int i = 0; i < args.length; i++) {
+            String value = i + 1 < args.length ? args[i + 1] : "";
+            switch (args[i]) {
+                case "--sizes": sizes = Arrays.stream(value.split(",")).mapToInt(Integer::parseInt).toArray(); i++; break;
+                case "--benchmarks": selected.addAll(Arrays.asList(value.split(","))); i++; break;
+                case "--warmup": warmup = Integer.parseInt(value); i++; break;
+                case "--iterations": iterations = Integer.parseInt(value); i++; break;
+                case "--time": seconds = Double.parseDouble(value); i++; break;
+                case "--threads": threads = Integer.parseInt(value); i++; break;
+                case "--repository": newRepository(value, 0); repository = value; i++; break;
+                case "--metrics": metrics = parseSwitch(value); i++; break;
+                case "--query-cache": queryCache = Long.parseLong(value); i++; break;
+                case "--out": out = Paths.get(value); i++; break;
+                default: throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+        if (iterations < 1) {
+            throw new IllegalArgumentException("At least one measurement iteration is required");
+        }
+
+        long iterationNanos = (long) (seconds * 1e9);
+        List<Result> results = new ArrayList<>();
+        for (int size : sizes) {
+            long heapBefore = usedHeap();
+            long setupStart = System.nanoTime();
+            State state = new State(size, repository, metrics, queryCache);
+            long setupMillis = (System.nanoTime() - setupStart) / 1_000_000;
+            System.out.printf(Locale.ROOT,
+                    "%n# size=%d repository=%s metrics=%s query-cache=%d (setup %d ms, heap %.1f MB)%n", size, repository, metrics ? "on" : "off", queryCache, setupMillis, (usedHeap() - heapBefore) / 1e6);
+
+            for (Benchmark benchmark : benchmarks(state, threads)) {
+                if (!selected.isEmpty() && !selected.contains(benchmark.name)) continue;
+
+                for (int i = 0; i < warmup; i++) {
+                    measure(benchmark, iterationNanos);
+                }
+                double[] scores = new double[iterations];
+                for (int i = 0; i < iterations; i++) {
+                    scores[i] = measure(benchmark, iterationNanos);
+                }
+                Result result = new Result(benchmark, size, repository, metrics, queryCache, scores);
+                results.add(result);
+                System.out.printf(Locale.ROOT, "%-26s %10d %6s %4d %16.3f +- %12.3f %s%n", benchmark.name, size,
+                        benchmark.isThroughput() ? "thrpt" : "avgt", iterations, result.mean, result.error, result.unit());
+            }
+        }
+
+        Files.write(out, toJson(results, warmup, iterations, seconds).getBytes(StandardCharsets.UTF_8));
+        System.out.println("\nResults written to " + out.toAbsolutePath());
+    }
+
+    private static List<Benchmark> benchmarks(State state, int threads) {
+        StudentService service = state.service;
+        String[] nameQueries = BenchmarkData.nameQueries();
+        String[] courseQueries = BenchmarkData.courseQueries();
+        String[] namePrefixes = BenchmarkData.namePrefixes();
+        List<Benchmark> benchmarks = new ArrayList<>();
+
+        benchmarks.add(new Benchmark("findStudentById", 1) {
+            void run(int invocations) {
+                long found = 0;
+                for (int i = 0; i < invocations; i++) {
+                    if (service.findStudentById(state.randomLiveId()) != null) found++;
+                }
+                sink += found;
+            }
+        });
+        benchmarks.add(new Benchmark("searchByName", 1) {
+            int next;
+
+            void run(int invocations) {
+                long found = 0;
+                for (int i = 0; i < invocations; i++) {
+                    found += service.searchByName(nameQueries[next++ % nameQueries.length]).size();
+                }
+                sink += found;
+            }
+        });
+        benchmarks.add(new Benchmark("searchByCourse", 1) {
+            int next;
+
+            void run(int invocations) {
+                long found = 0;
+                for (int i = 0; i < invocations; i++) {
+                    found += service.searchByCourse(courseQueries[next++ % courseQueries.length]).size();
+                }
+                sink += found;
+            }
+        });
+        benchmarks.add(new Benchmark("searchByGrade", 1) {
+            int next;
+
+            void run(int invocations) {
+                long found = 0;
+                for (int i = 0; i < invocations; i++) {
+                    found += service.searchByGrade(GRADES[next++ % GRADES.length]).size();
+                }
+                sink += found;
+            }
+        });
+        benchmarks.add(new Benchmark("getStatistics", 1) {
+            void run(int invocations) {
+                long total = 0;
+                for (int i = 0; i < invocations; i++) {
+                    total += service.getStatistics().getPassingStudents();
+                }
+                sink += total;
+            }
+        });
+        benchmarks.add(new Benchmark("recomputeStatistics", 1) {
+            void run(int invocations) {
+                long total = 0;
+                for (int i = 0; i < invocations; i++) {
+                    total += service.recomputeStatistics(false).getPassingStudents();
+                }
+                sink += total;
+            }
+        });
+        benchmarks.add(new Benchmark("recomputeStatisticsParallel", 1) {
+            void run(int invocations) {
+                long total = 0;
+                for (int i = 0; i < invocations; i++) {
+                    total += service.recomputeStatistics(true).getPassingStudents();
+                }
+                sink += total;
+            }
+        });
+        benchmarks.add(new Benchmark("scanQuery", 1) {
+            // Two-letter names have no trigrams, so the planner has to scan every student
+            final StudentQuery query = StudentQuery.all().nameContains("ar").courseContains("engineering")
+                    .minMarks(60).orderBy(StudentPage.Order.NAME).limit(20);
+
+            void run(int invocations) {
+                long total = 0;
+                for (int i = 0; i < invocations; i++) {
+                    total += service.query(query).size();
+                }
+                sink += total;
+            }
+        });
+        benchmarks.add(new Benchmark("getStudentsSortedByMarks", 1) {
+            void run(int invocations) {
+                long total = 0;
+                for (int i = 0; i < invocations; i++) {
+                    total += service.getStudentsSortedByMarks().size();
+                }
+                sink += total;
+            }
+        });
+        benchmarks.add(new Benchmark("getStudentsSortedByName", 1) {
+            void run(int invocations) {
+                long total = 0;
+                for (int i = 0; i < invocations; i++) {
+                    total += service.getStudentsSortedByName().size();
+                }
+                sink += total;
+            }
+        });
+        benchmarks.add(new Benchmark("searchByNamePrefix", 1) {
+            int next;
+
+            // First page of each prefix, as a type-ahead box would ask for
+            void run(int invocations) {
+                long found = 0;
+                for (int i = 0; i < invocations; i++) {
+                    found += service.searchByNamePrefix(namePrefixes[next++ % namePrefixes.length], null, 20)
+                            .getStudents().size();
+                }
+                sink += found;
+            }
+        });
+        benchmarks.add(new Benchmark("deleteStudent", 1) {
+            int deleted;
+
+            void run(int invocations) {
+                for (int i = 0; i < invocations; i++) {
+                    // Move a random live ID past the live range so it is never picked twice
+                    int index = state.data.nextInt(state.liveCount);
+                    int id = state.liveIds[index];
+                    state.liveIds[index] = state.liveIds[--state.liveCount];
+                    if (service.deleteStudent(id)) deleted++;
+                }
+            }
+
+            void reset() {
+                readd(state, deleted);
+                deleted = 0;
+            }
+
+            int maxInvocations() {
+                return Math.max(1, Math.min(1_000, state.size / 20));
+            }
+        });
+        // One batch of BATCH_SIZE changes per operation; compare with BATCH_SIZE times the single-record scores
+        benchmarks.add(new Benchmark("updateMarksBatch", 1) {
+            void run(int invocations) {
+                long changed = 0;
+                for (int i = 0; i < invocations; i++) {
+                    Map<Integer, Double> marks = new HashMap<>();
+                    for (int j = 0; j < BATCH_SIZE; j++) {
+                        marks.put(state.randomLiveId(), state.data.nextMarks());
+                    }
+                    changed += service.updateMarksBatch(marks);
+                }
+                sink += changed;
+            }
+        });
+        benchmarks.add(new Benchmark("deleteBatch", 1) {
+            int deleted;
+
+            void run(int invocations) {
+                for (int i = 0; i < invocations; i++) {
+                    List<Integer> ids = new ArrayList<>(BATCH_SIZE);
+                    for (int j = 0; j < BATCH_SIZE; j++) {
+                        int index = state.data.nextInt(state.liveCount);
+                        ids.add(state.liveIds[index]);
+                        state.liveIds[index] = state.liveIds[--state.liveCount];
+                    }
+                    deleted += service.deleteBatch(ids);
+                }
+            }
+
+            void reset() {
+                readd(state, deleted);
+                deleted = 0;
+            }
+
+            // Never delete more than a twentieth of the dataset before it is refilled
+            int maxInvocations() {
+                return Math.max(1, state.size / 20 / BATCH_SIZE);
+            }
+        });
+        benchmarks.add(mixed("mixedReadHeavy", state, threads, 5, nameQueries));
+        benchmarks.add(mixed("mixedWriteHeavy", state, threads, 50, nameQueries));
+        return benchmarks;
+    }
+
+    // Re-add as many students as were deleted so the dataset keeps its size
+    private static void readd(State state, int count) {
+        List<Student> replacements = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            replacements.add(state.data.nextStudent());
+        }
+        for (Student student : state.service.addBatch(replacements)) {
+            state.liveIds[state.liveCount++] = student.getId();
+        }
+    }
+
+    // Concurrent mix of lookups, searches and statistics with updates, deletes and re-adds
+    private static Benchmark mixed(String name, State state, int threads, int writePercent, String[] nameQueries) {
+        StudentService service = state.service;
+        int firstId = state.liveIds[0]; // Generated students were added with consecutive IDs
+        return new Benchmark(name, threads) {
+            void run(int invocations) {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                long observed = 0;
+                for (int i = 0; i < invocations; i++) {
+                    int id = firstId + random.nextInt(service.getNextStudentId() - firstId);
+                    int roll = random.nextInt(100);
+                    if (roll < writePercent / 2) {
+                        service.updateStudent(id, null, null, (double) random.nextInt(201) / 2);
+                    } else if (roll < writePercent) {
+                        Student student = service.findStudentById(id);
+                        if (student != null && service.deleteStudent(id)) {
+                            service.addStudent(student.getName(), student.getCourse(), student.getMarks());
+                        }
+                    } else if (roll < writePercent + (100 - writePercent) * 90 / 100) {
+                        if (service.findStudentById(id) != null) observed++;
+                    } else if (roll < 98) {
+                        observed += service.searchByName(nameQueries[random.nextInt(nameQueries.length)]).size();
+                    } else {
+                        observed += service.getStatistics().getTotalStudents();
+                    }
+                }
+                sink += observed;
+            }
+        };
+    }
+
+    // Run one iteration; returns microseconds per operation, or operations per second for multi-threaded runs
+    private static double measure(Benchmark benchmark, long iterationNanos) {
+        if (benchmark.isThroughput()) {
+            return measureThroughput(benchmark, iterationNanos);
+        }
+
+        long timed = 0;
+        long operations = 0;
+        int invocations = 1;
+        while (timed < iterationNanos) {
+            long start = System.nanoTime();
+            benchmark.run(invocations);
+            long elapsed = System.nanoTime() - start;
+            benchmark.reset();
+
+            timed += elapsed;
+            operations += invocations;
+            // Grow the batch until timer overhead is negligible
+            if (elapsed < 1_000_000 && invocations < benchmark.maxInvocations()) {
+                invocations = Math.min(invocations * 2, benchmark.maxInvocations());
+            }
+        }
+        return timed / 1_000.0 / operations;
+    }
+
+    private static double measureThroughput(Benchmark benchmark, long iterationNanos) {
+        LongAdder operations = new LongAdder();
+        long deadline = System.nanoTime() + iterationNanos;
+        Thread[] workers = new Thread[benchmark.threads];
+        long start = System.nanoTime();
+        for (int t = 0; t < workers.length; t++) {
+            workers[t] = new Thread(() -> {
+                long done = 0;
+                while (System.nanoTime() < deadline) {
+                    benchmark.run(64);
+                    done += 64;
+                }
+                operations.add(done);
+            });
+            workers[t].start();
+        }
+        for (Thread worker : workers) {
+            try {
+                worker.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while waiting for benchmark threads", e);
+            }
+        }
+        return operations.sum() / ((System.nanoTime() - start) / 1e9);
+    }
+
+    // Two-sided 99.9% quantile of Student's t distribution, as JMH reports score errors
+    private static double studentT999(int degreesOfFreedom) {
+        double[] table = {636.619, 31.599, 12.924, 8.610, 6.869, 5.959, 5.408, 5.041, 4.781, 4.587,
+                4.437, 4.318, 4.221, 4.140, 4.073, 4.015, 3.965, 3.922, 3.883, 3.850};
+        return degreesOfFreedom <= table.length ? table[degreesOfFreedom - 1] : 3.291;
+    }
+
+    private static StudentRepository newRepository(String name, int size) {
+        switch (name) {
+            case "list": return new ListStudentRepository();
+            case "packed": return new PackedStudentRepository(size);
+            case "offheap": return new OffHeapStudentRepository();
+            default: throw new IllegalArgumentException("Unknown repository: " + name);
+        }
+    }
+
+    private static boolean parseSwitch(String value) {
+        switch (value) {
+            case "on": return true;
+            case "off": return false;
+            default: throw new IllegalArgumentException("Expected on or off: " + value);
+        }
+    }
+
+    // Heap still in use after a full collection
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private static String toJson(List<Result> results, int warmup, int iterations, double seconds) {
+        StringBuilder json = new StringBuilder("[\n");
+        for (int r = 0; r < results.size(); r++) {
+            Result result = results.get(r);
+            json.append("    {\n");
+            json.append("        \"benchmark\" : \"ServiceBenchmark.").append(result.benchmark.name).append("\",\n");
+            json.append("        \"mode\" : \"").append(result.benchmark.isThroughput() ? "thrpt" : "avgt").append("\",\n");
+            json.append("        \"threads\" : ").append(result.benchmark.threads).append(",\n");
+            json.append("        \"forks\" : 0,\n");
+            json.append("        \"jvm\" : \"").append(System.getProperty("java.home").replace("\\", "\\\\")).append("\",\n");
+            json.append("        \"jdkVersion\" : \"").append(System.getProperty("java.version")).append("\",\n");
+            json.append("        \"vmName\" : \"").append(System.getProperty("java.vm.name")).append("\",\n");
+            json.append("        \"warmupIterations\" : ").append(warmup).append(",\n");
+            json.append("        \"warmupTime\" : \"").append(seconds).append(" s\",\n");
+            json.append("        \"measurementIterations\" : ").append(iterations).append(",\n");
+            json.append("        \"measurementTime\" : \"").append(seconds).append(" s\",\n");
+            json.append("        \"params\" : {\n");
+            json.append("            \"size\" : \"").append(result.size).append("\",\n");
+            json.append("            \"repository\" : \"").append(result.repository).append("\",\n");
+            json.append("            \"metrics\" : \"").append(result.metrics ? "on" : "off").append("\",\n");
+            json.append("            \"queryCache\" : \"").append(result.queryCache).append("\"\n");
+            json.append("        },\n");
+            json.append("        \"primaryMetric\" : {\n");
+            json.append("            \"score\" : ").append(number(result.mean)).append(",\n");
+            json.append("            \"scoreError\" : ").append(number(result.error)).append(",\n");
+            json.append("            \"scoreConfidence\" : [\n");
+            json.append("                ").append(number(result.mean - result.error)).append(",\n");
+            json.append("                ").append(number(result.mean + result.error)).append("\n");
+            json.append("            ],\n");
+            json.append("            \"scoreUnit\" : \"").append(result.unit()).append("\",\n");
+            json.append("            \"rawData\" : [\n                [\n");
+            for (int i = 0; i < result.scores.length; i++) {
+                json.append("                    ").append(number(result.scores[i]))
+                        .append(i + 1 < result.scores.length ? ",\n" : "\n");
+            }
+            json.append("                ]\n            ]\n        }\n");
+            json.append(r + 1 < results.size() ? "    },\n" : "    }\n");
+        }
+        return json.append("]\n").toString();
+    }
+
+    private static String number(double value) {
+        return Double.isNaN(value) ? "\"NaN\"" : Double.toString(value);
+    }
+}
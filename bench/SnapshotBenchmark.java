@@ -0,0 +1,161 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.SplittableRandom;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Measures read throughput while a writer keeps changing students, reading through the service's
+ * locks and through snapshots
+ * One writer thread updates random students' marks without pause, and reader threads run one read
+ * workload for a fixed time; every workload runs once against the locked service methods and once
+ * against the latest StudentSnapshot. Writes per second are printed too, since the writer pays for
+ * publishing each snapshot
+ *
+ * Workloads:
+ *   find       - one ID lookup
+ *   statistics - getStatistics
+ *   report     - statistics, the top 10 students and 10 ID lookups, which only agree with each other
+ *                when read from one snapshot
+ *
+ *   java -Xmx8g SnapshotBenchmark [--size 1000000] [--readers 2] [--seconds 5] [--workloads find,statistics,report]
+ */
+public class SnapshotBenchmark {
+    private static volatile long sink;
+
+    private interface Reader {
+        void read(StudentService service, SplittableRandom random, int firstId, int size);
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        int size = 1_000_000;
+        int readers = 2;
+        double seconds = 5;
+        String[] workloads = {"find", "statistics", "report"};
+
+        for (int i = 0; i < args.length; i++) {
+            String value = i + 1 < args.length ? args[i + 1] : "";
+            switch (args[i]) {
+                case "--size": size = Integer.parseInt(value); i++; break;
+                case "--readers": readers = Integer.parseInt(value); i++; break;
+                case "--seconds": seconds = Double.parseDouble(value); i++; break;
+                case "--workloads": workloads = value.split(","); i++; break;
+                default: throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+
+        System.out.printf(Locale.ROOT, "size=%d readers=%d seconds=%.1f%n", size, readers, seconds);
+        System.out.printf("%-12s | %-8s | %-14s | %-14s%n", "WORKLOAD", "MODE", "READS/SEC", "WRITES/SEC");
+        for (String workload : workloads) {
+            for (boolean snapshots : new boolean[] {false, true}) {
+                StudentService service = new BenchmarkData(42).populate(size);
+                if (snapshots) {
+                    service.snapshot(); // Every write publishes a new version from now on
+                }
+                double[] rates = run(service, size, reader(workload, snapshots), readers, seconds);
+                System.out.printf(Locale.ROOT, "%-12s | %-8s | %-14.0f | %-14.0f%n", workload,
+                        snapshots ? "snapshot" : "locked", rates[0], rates[1]);
+            }
+        }
+    }
+
+    private static Reader reader(String workload, boolean snapshots) {
+        switch (workload) {
+            case "find":
+                return snapshots
+                        ? (service, random, firstId, size) ->
+                                consume(service.snapshot().findStudentById(firstId + random.nextInt(size)))
+                        : (service, random, firstId, size) ->
+                                consume(service.findStudentById(firstId + random.nextInt(size)));
+            case "statistics":
+                return snapshots
+                        ? (service, random, firstId, size) ->
+                                sink += service.snapshot().getStatistics().getTotalStudents()
+                        : (service, random, firstId, size) -> sink += service.getStatistics().getTotalStudents();
+            case "report":
+                return snapshots ? SnapshotBenchmark::snapshotReport : SnapshotBenchmark::lockedReport;
+            default:
+                throw new IllegalArgumentException("Unknown workload: " + workload);
+        }
+    }
+
+    // Each call takes the lock on its own, so a write can land between any two of them
+    private static void lockedReport(StudentService service, SplittableRandom random, int firstId, int size) {
+        sink += service.getStatistics().getTotalStudents();
+        sink += service.getTopStudents(10).size();
+        for (int i = 0; i < 10; i++) {
+            consume(service.findStudentById(firstId + random.nextInt(size)));
+        }
+    }
+
+    private static void snapshotReport(StudentService service, SplittableRandom random, int firstId, int size) {
+        StudentSnapshot snapshot = service.snapshot();
+        sink += snapshot.getStatistics().getTotalStudents();
+        sink += snapshot.getTopStudents(10).size();
+        for (int i = 0; i < 10; i++) {
+            consume(snapshot.findStudentById(firstId + random.nextInt(size)));
+        }
+    }
+
+    // Returns reads per second and writes per second
+    private static double[] run(StudentService service, int size, Reader reader, int readers, double seconds)
+            throws InterruptedException {
+        int firstId = service.getNextStudentId() - size;
+        LongAdder reads = new LongAdder();
+        LongAdder writes = new LongAdder();
+        CountDownLatch start = new CountDownLatch(1);
+        long nanos = (long) (seconds * 1e9);
+
+        List<Thread> threads = new ArrayList<>();
+        threads.add(new Thread(() -> {
+            SplittableRandom random = new SplittableRandom(1);
+            long deadline = awaitStart(start) + nanos;
+            long done = 0;
+            while (System.nanoTime() < deadline) {
+                service.updateStudent(firstId + random.nextInt(size), null, null, random.nextInt(1001) / 10.0);
+                done++;
+            }
+            writes.add(done);
+        }));
+        for (int t = 0; t < readers; t++) {
+            long seed = 100 + t;
+            threads.add(new Thread(() -> {
+                SplittableRandom random = new SplittableRandom(seed);
+                long deadline = awaitStart(start) + nanos;
+                long done = 0;
+                while (System.nanoTime() < deadline) {
+                    reader.read(service, random, firstId, size);
+                    done++;
+                }
+                reads.add(done);
+            }));
+        }
+
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        long begin = System.nanoTime();
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        double elapsedSeconds = (System.nanoTime() - begin) / 1e9;
+        return new double[] {reads.sum() / elapsedSeconds, writes.sum() / elapsedSeconds};
+    }
+
+    private static void consume(Student student) {
+        if (student != null) {
+            sink += student.getId();
+        }
+    }
+
+    private static long awaitStart(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return System.nanoTime();
+    }
+}
@@ -0,0 +1,112 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Workload the JMH benchmarks run, on a service populated by BenchmarkData
+ * Lives in the unnamed package so it can use the application classes; see jmh.Workload
+ */
+public class StudentServiceWorkload implements jmh.Workload {
+    private static final String[] GRADES = {"A+", "A", "B", "C", "D", "F"};
+
+    private final String[] nameQueries = BenchmarkData.nameQueries();
+    private BenchmarkData data;
+    private StudentService service;
+    private int size;
+    private int firstId;
+    private int[] liveIds;
+    private int liveCount;
+
+    @Override
+    public void setUp(int size, long seed) {
+        this.size = size;
+        this.data = new BenchmarkData(seed);
+        this.service = data.populate(size);
+        service.getMetrics().reset();
+        this.liveIds = new int[size];
+        for (Student student : service.getAllStudents()) {
+            liveIds[liveCount++] = student.getId();
+        }
+        this.firstId = liveIds[0]; // Generated students are added with consecutive IDs
+    }
+
+    @Override
+    public long findStudentById() {
+        return service.findStudentById(randomLiveId()) != null ? 1 : 0;
+    }
+
+    @Override
+    public long searchByName() {
+        return service.searchByName(nameQueries[ThreadLocalRandom.current().nextInt(nameQueries.length)]).size();
+    }
+
+    @Override
+    public long searchByGrade() {
+        return service.searchByGrade(GRADES[ThreadLocalRandom.current().nextInt(GRADES.length)]).size();
+    }
+
+    @Override
+    public long getStatistics() {
+        return service.getStatistics().getPassingStudents();
+    }
+
+    @Override
+    public long getStudentsSortedByMarks() {
+        return service.getStudentsSortedByMarks().size();
+    }
+
+    @Override
+    public long deleteStudent() {
+        // Move a random live ID past the live range so it is never picked twice
+        int index = data.nextInt(liveCount);
+        int id = liveIds[index];
+        liveIds[index] = liveIds[--liveCount];
+        return service.deleteStudent(id) ? 1 : 0;
+    }
+
+    @Override
+    public void refill(int spare) {
+        int target = size + spare;
+        if (liveIds.length < target) {
+            liveIds = Arrays.copyOf(liveIds, target);
+        }
+        List<Student> replacements = new ArrayList<>(target - liveCount);
+        for (int i = liveCount; i < target; i++) {
+            replacements.add(data.nextStudent());
+        }
+        for (Student student : service.addBatch(replacements)) {
+            liveIds[liveCount++] = student.getId();
+        }
+    }
+
+    @Override
+    public long mixed(int writePercent) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int id = firstId + random.nextInt(service.getNextStudentId() - firstId);
+        int roll = random.nextInt(100);
+        if (roll < writePercent / 2) {
+            return service.updateStudent(id, null, null, (double) random.nextInt(201) / 2) ? 1 : 0;
+        } else if (roll < writePercent) {
+            Student student = service.findStudentById(id);
+            if (student != null && service.deleteStudent(id)) {
+                return service.addStudent(student.getName(), student.getCourse(), student.getMarks()).getId();
+            }
+            return 0;
+        } else if (roll < writePercent + (100 - writePercent) * 90 / 100) {
+            return service.findStudentById(id) != null ? 1 : 0;
+        } else if (roll < 98) {
+            return service.searchByName(nameQueries[random.nextInt(nameQueries.length)]).size();
+        }
+        return service.getStatistics().getTotalStudents();
+    }
+
+    @Override
+    public void tearDown() throws Exception {
+        service.close();
+    }
+
+    private int randomLiveId() {
+        return liveIds[ThreadLocalRandom.current().nextInt(liveCount)];
+    }
+}
@@ -0,0 +1,117 @@
+package jmh;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH benchmarks for the StudentService hot paths, over generated datasets of 1k to 1M students
+ * Single operations report average time; the read-heavy and write-heavy mixes run on four threads
+ * and report throughput
+ *
+ * Usage: java -jar jmh/target/benchmarks.jar -rf json -rff jmh-result.json [-p size=1000,100000]
+ * A 10M dataset is opt-in with -p size=10000000 and needs a heap of roughly 12 GB
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx12g")
+public class StudentServiceBenchmark {
+    private static final int DELETES_PER_BATCH = 10_000;
+
+    @Param({"1000", "10000", "100000", "1000000"})
+    public int size;
+
+    private Workload workload;
+
+    /**
+     * Tops the service up to its dataset plus one batch of spare students before each deleteStudent
+     * iteration, outside the timed region, so the dataset never shrinks below its size
+     */
+    @State(Scope.Thread)
+    public static class Deletes {
+        @Setup(Level.Iteration)
+        public void refill(StudentServiceBenchmark benchmark) {
+            benchmark.workload.refill(DELETES_PER_BATCH);
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        workload = Workload.load();
+        workload.setUp(size, 42);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        workload.tearDown();
+    }
+
+    @Benchmark
+    public long findStudentById() {
+        return workload.findStudentById();
+    }
+
+    @Benchmark
+    public long searchByName() {
+        return workload.searchByName();
+    }
+
+    @Benchmark
+    public long searchByGrade() {
+        return workload.searchByGrade();
+    }
+
+    @Benchmark
+    public long getStatistics() {
+        return workload.getStatistics();
+    }
+
+    @Benchmark
+    public long getStudentsSortedByMarks() {
+        return workload.getStudentsSortedByMarks();
+    }
+
+    /**
+     * Time to delete DELETES_PER_BATCH students one at a time; each iteration is one batch
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 5, batchSize = DELETES_PER_BATCH)
+    @Measurement(iterations = 10, batchSize = DELETES_PER_BATCH)
+    public long deleteStudent(Deletes deletes) {
+        return workload.deleteStudent();
+    }
+
+    @Benchmark
+    @Threads(4)
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    public long mixedReadHeavy() {
+        return workload.mixed(5);
+    }
+
+    @Benchmark
+    @Threads(4)
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    public long mixedWriteHeavy() {
+        return workload.mixed(50);
+    }
+}
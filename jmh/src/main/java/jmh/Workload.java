@@ -0,0 +1,60 @@
+package jmh;
+
+/**
+ * StudentService operations timed by the JMH benchmarks
+ * The application classes live in the unnamed package, which JMH benchmarks cannot be in and cannot
+ * import, so the benchmarks load the implementation by name and call it through this interface.
+ * Only one implementation is ever loaded, so the JIT inlines every call
+ *
+ * Each method performs one operation and returns something derived from its result, which the
+ * benchmark hands back to JMH so the work cannot be eliminated
+ */
+public interface Workload {
+    /**
+     * Load the implementation next to the application classes
+     * @return New, empty workload
+     */
+    static Workload load() {
+        try {
+            return (Workload) Class.forName("StudentServiceWorkload").getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("StudentServiceWorkload is missing from the benchmark jar", e);
+        }
+    }
+
+    /**
+     * Build the dataset, with Zipf-skewed names and courses and normally distributed marks
+     * @param size Number of students
+     * @param seed Seed of the generated data
+     */
+    void setUp(int size, long seed);
+
+    long findStudentById();
+
+    long searchByName();
+
+    long searchByGrade();
+
+    long getStatistics();
+
+    long getStudentsSortedByMarks();
+
+    // Deletes a random live student; refill puts the deleted ones back
+    long deleteStudent();
+
+    /**
+     * Add students until the whole dataset and some spare students are live
+     * @param spare Students that can be deleted before the dataset shrinks below its size
+     */
+    void refill(int spare);
+
+    /**
+     * One operation of a concurrent mix: lookups, name searches and statistics, with updates and
+     * deletes followed by re-adds; safe to call from several threads
+     * @param writePercent Share of operations that write
+     * @return Value derived from the result
+     */
+    long mixed(int writePercent);
+
+    void tearDown() throws Exception;
+}
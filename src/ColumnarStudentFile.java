@@ -0,0 +1,425 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+/**
+ * Read-only columnar file of student records, opened through memory mapping
+ * Ids, marks and dictionary codes are stored as primitive columns so queries
+ * only materialize the students they return
+ */
+public class ColumnarStudentFile implements AutoCloseable {
+    private static final int MAGIC = 0x5352434C; // "SRCL"
+    private static final int VERSION = 1;
+
+    // Section order in the header table
+    private static final int IDS = 0;
+    private static final int MARKS = 1;
+    private static final int COURSE_CODES = 2;
+    private static final int NAME_CODES = 3;
+    private static final int MARKS_ORDER = 4;
+    private static final int NAME_ORDER = 5;
+    private static final int COURSE_DICTIONARY = 6;
+    private static final int NAME_DICTIONARY = 7;
+    private static final int SECTION_COUNT = 8;
+
+    private static final int HEADER_SIZE = 16 + SECTION_COUNT * 16;
+
+    private final FileChannel channel;
+    private final int rowCount;
+    private final IntBuffer ids;
+    private final DoubleBuffer marks;
+    private final IntBuffer courseCodes;
+    private final IntBuffer nameCodes;
+    private final IntBuffer marksOrder; // Rows by marks, highest first
+    private final IntBuffer nameOrder;  // Rows by name, case-insensitive
+    private final String[] courses;     // Course dictionary is tiny, so decode it once
+    private final IntBuffer nameOffsets;
+    private final ByteBuffer nameBytes;
+
+    private ColumnarStudentFile(FileChannel channel) throws IOException {
+        this.channel = channel;
+
+        ByteBuffer header = map(0, HEADER_SIZE);
+        if (header.getInt(0) != MAGIC) {
+            throw new IOException("Not a columnar student file");
+        }
+        if (header.getInt(4) != VERSION) {
+            throw new IOException("Unsupported columnar file version: " + header.getInt(4));
+        }
+        this.rowCount = header.getInt(8);
+
+        this.ids = section(header, IDS).asIntBuffer();
+        this.marks = section(header, MARKS).asDoubleBuffer();
+        this.courseCodes = section(header, COURSE_CODES).asIntBuffer();
+        this.nameCodes = section(header, NAME_CODES).asIntBuffer();
+        this.marksOrder = section(header, MARKS_ORDER).asIntBuffer();
+        this.nameOrder = section(header, NAME_ORDER).asIntBuffer();
+
+        ByteBuffer courseDictionary = section(header, COURSE_DICTIONARY);
+        int courseCount = courseDictionary.getInt(0);
+        IntBuffer courseOffsets = slice(courseDictionary, 4, (courseCount + 1) * 4).asIntBuffer();
+        ByteBuffer courseBytes = slice(courseDictionary, 4 + (courseCount + 1) * 4,
+                courseDictionary.capacity() - 4 - (courseCount + 1) * 4);
+        this.courses = new String[courseCount];
+        for (int i = 0; i < courseCount; i++) {
+            courses[i] = decode(courseBytes, courseOffsets.get(i), courseOffsets.get(i + 1));
+        }
+
+        ByteBuffer nameDictionary = section(header, NAME_DICTIONARY);
+        int nameCount = nameDictionary.getInt(0);
+        this.nameOffsets = slice(nameDictionary, 4, (nameCount + 1) * 4).asIntBuffer();
+        this.nameBytes = slice(nameDictionary, 4 + (nameCount + 1) * 4,
+                nameDictionary.capacity() - 4 - (nameCount + 1) * 4);
+    }
+
+    /**
+     * Open a columnar file for read-only queries
+     * @param file File written by {@link #write(Path, Collection)}
+     * @return Opened file
+     * @throws IOException if the file cannot be mapped or is not a columnar student file
+     */
+    public static ColumnarStudentFile open(Path file) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            return new ColumnarStudentFile(channel);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Write students to a columnar file, replacing any existing file
+     * Rows are stored in ID order; marks and name orderings are precomputed
+     * @param file Target file
+     * @param students Students to write
+     * @throws IOException if the file cannot be written
+     */
+    public static void write(Path file, Collection<Student> students) throws IOException {
+        Student[] rows = students.toArray(new Student[0]);
+        Arrays.sort(rows, Comparator.comparingInt(Student::getId));
+        int rowCount = rows.length;
+
+        Map<String, Integer> courseCodes = new LinkedHashMap<>();
+        Map<String, Integer> nameCodes = new LinkedHashMap<>();
+        int[] courseColumn = new int[rowCount];
+        int[] nameColumn = new int[rowCount];
+        for (int row = 0; row < rowCount; row++) {
+            courseColumn[row] = courseCodes.computeIfAbsent(rows[row].getCourse(), key -> courseCodes.size());
+            nameColumn[row] = nameCodes.computeIfAbsent(rows[row].getName(), key -> nameCodes.size());
+        }
+
+        // Stable sorts keep ID order between equal keys, matching StudentService listings
+        Integer[] byMarks = rowNumbers(rowCount);
+        Arrays.sort(byMarks, (r1, r2) -> Double.compare(rows[r2].getMarks(), rows[r1].getMarks()));
+        Integer[] byName = rowNumbers(rowCount);
+        Arrays.sort(byName, (r1, r2) -> rows[r1].getName().compareToIgnoreCase(rows[r2].getName()));
+
+        byte[][] sections = new byte[SECTION_COUNT][];
+        sections[IDS] = intColumn(rowCount, row -> rows[row].getId());
+        sections[MARKS] = doubleColumn(rows);
+        sections[COURSE_CODES] = intColumn(rowCount, row -> courseColumn[row]);
+        sections[NAME_CODES] = intColumn(rowCount, row -> nameColumn[row]);
+        sections[MARKS_ORDER] = intColumn(rowCount, row -> byMarks[row]);
+        sections[NAME_ORDER] = intColumn(rowCount, row -> byName[row]);
+        sections[COURSE_DICTIONARY] = dictionary(courseCodes.keySet());
+        sections[NAME_DICTIONARY] = dictionary(nameCodes.keySet());
+
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(MAGIC).putInt(VERSION).putInt(rowCount).putInt(0);
+        long offset = HEADER_SIZE;
+        for (byte[] section : sections) {
+            header.putLong(offset).putLong(section.length);
+            offset = align(offset + section.length);
+        }
+        header.flip();
+
+        try (FileChannel out = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            writeFully(out, header, 0);
+            long position = HEADER_SIZE;
+            for (byte[] section : sections) {
+                writeFully(out, ByteBuffer.wrap(section), position);
+                position = align(position + section.length);
+            }
+            out.force(true);
+        }
+    }
+
+    /**
+     * Get number of students in the file
+     * @return Row count
+     */
+    public int getStudentCount() {
+        return rowCount;
+    }
+
+    /**
+     * Check if the file has any students
+     * @return true if the file is empty
+     */
+    public boolean isEmpty() {
+        return rowCount == 0;
+    }
+
+    /**
+     * Find student by ID using binary search on the ID column
+     * @param id Student ID
+     * @return Student object if found, null otherwise
+     */
+    public Student findStudentById(int id) {
+        int low = 0;
+        int high = rowCount - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int midId = ids.get(mid);
+            if (midId < id) {
+                low = mid + 1;
+            } else if (midId > id) {
+                high = mid - 1;
+            } else {
+                return studentAt(mid);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Search students by grade (exact match, case-insensitive)
+     * Scans only the marks column
+     * @param grade Grade to search for
+     * @return List of matching students
+     */
+    public List<Student> searchByGrade(String grade) {
+        List<Student> results = new ArrayList<>();
+
+        Grade searchGrade = Grade.fromLabel(grade);
+        if (searchGrade == null) {
+            return results;
+        }
+
+        for (int row = 0; row < rowCount; row++) {
+            if (Grade.fromMarks(marks.get(row)) == searchGrade) {
+                results.add(studentAt(row));
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Compute statistics from the marks column
+     * Only the top student is materialized
+     * @return StudentStatistics object containing file stats
+     */
+    public StudentStatistics getStatistics() {
+        if (rowCount == 0) {
+            return new StudentStatistics();
+        }
+
+        double totalMarks = 0;
+        double highestMarks = Double.NEGATIVE_INFINITY;
+        double lowestMarks = Double.POSITIVE_INFINITY;
+        int topRow = 0;
+        int passingCount = 0;
+        int[] gradeCounts = new int[Grade.values().length];
+
+        for (int row = 0; row < rowCount; row++) {
+            double value = marks.get(row);
+            totalMarks += value;
+
+            if (value > highestMarks) {
+                highestMarks = value;
+                topRow = row;
+            }
+            if (value < lowestMarks) {
+                lowestMarks = value;
+            }
+            if (value >= 50.0) {
+                passingCount++;
+            }
+            gradeCounts[Grade.fromMarks(value).ordinal()]++;
+        }
+
+        Map<String, Integer> gradeDistribution = new HashMap<>();
+        for (Grade level : Grade.values()) {
+            if (gradeCounts[level.ordinal()] > 0) {
+                gradeDistribution.put(level.getLabel(), gradeCounts[level.ordinal()]);
+            }
+        }
+
+        return new StudentStatistics(
+                rowCount,
+                Math.round(totalMarks / rowCount * 100.0) / 100.0, // Round to 2 decimal places
+                highestMarks,
+                lowestMarks,
+                studentAt(topRow),
+                gradeDistribution,
+                passingCount,
+                marksPercentile(25),
+                marksPercentile(50),
+                marksPercentile(75)
+        );
+    }
+
+    // The stored marks order is descending, so ascending rank r is the (n - 1 - r)th entry
+    private double marksPercentile(double percentile) {
+        return StudentStatistics.percentile(rowCount, percentile,
+                rank -> marks.get(marksOrder.get(rowCount - 1 - rank)));
+    }
+
+    /**
+     * Get students sorted by marks (descending)
+     * @return List of students sorted by marks
+     */
+    public List<Student> getStudentsSortedByMarks() {
+        return getStudentsSortedByMarks(rowCount);
+    }
+
+    /**
+     * Get the highest scoring students using the precomputed marks order
+     * @param limit Maximum number of students to return
+     * @return Up to limit students sorted by marks (descending)
+     */
+    public List<Student> getStudentsSortedByMarks(int limit) {
+        return rowsInOrder(marksOrder, limit);
+    }
+
+    /**
+     * Get students sorted by name (ascending)
+     * @return List of students sorted by name
+     */
+    public List<Student> getStudentsSortedByName() {
+        return getStudentsSortedByName(rowCount);
+    }
+
+    /**
+     * Get the first students by name using the precomputed name order
+     * @param limit Maximum number of students to return
+     * @return Up to limit students sorted by name
+     */
+    public List<Student> getStudentsSortedByName(int limit) {
+        return rowsInOrder(nameOrder, limit);
+    }
+
+    /**
+     * Materialize a single row
+     * @param row Row number (0-based, in ID order)
+     * @return Student object for the row
+     */
+    public Student studentAt(int row) {
+        Objects.checkIndex(row, rowCount);
+        int nameCode = nameCodes.get(row);
+        String name = decode(nameBytes, nameOffsets.get(nameCode), nameOffsets.get(nameCode + 1));
+        return new Student(ids.get(row), name, marks.get(row), courses[courseCodes.get(row)]);
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private List<Student> rowsInOrder(IntBuffer order, int limit) {
+        int count = Math.max(0, Math.min(limit, rowCount));
+        List<Student> results = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            results.add(studentAt(order.get(i)));
+        }
+        return results;
+    }
+
+    private ByteBuffer section(ByteBuffer header, int section) throws IOException {
+        int entry = 16 + section * 16;
+        return map(header.getLong(entry), header.getLong(entry + 8));
+    }
+
+    // Each section is mapped on its own, so only single columns are limited to 2 GB
+    private ByteBuffer map(long offset, long length) throws IOException {
+        if (length > Integer.MAX_VALUE || offset + length > channel.size()) {
+            throw new IOException("Columnar file section is truncated or too large");
+        }
+        MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, offset, length);
+        return mapped.order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    private static ByteBuffer slice(ByteBuffer buffer, int offset, int length) {
+        return buffer.slice(offset, length).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    private static String decode(ByteBuffer bytes, int start, int end) {
+        byte[] value = new byte[end - start];
+        bytes.get(start, value);
+        return new String(value, StandardCharsets.UTF_8);
+    }
+
+    private static Integer[] rowNumbers(int rowCount) {
+        Integer[] rows = new Integer[rowCount];
+        for (int i = 0; i < rowCount; i++) {
+            rows[i] = i;
+        }
+        return rows;
+    }
+
+    private interface RowValue {
+        int get(int row);
+    }
+
+    private static byte[] intColumn(int rowCount, RowValue value) {
+        ByteBuffer column = ByteBuffer.allocate(rowCount * 4).order(ByteOrder.LITTLE_ENDIAN);
+        for (int row = 0; row < rowCount; row++) {
+            column.putInt(value.get(row));
+        }
+        return column.array();
+    }
+
+    private static byte[] doubleColumn(Student[] rows) {
+        ByteBuffer column = ByteBuffer.allocate(rows.length * 8).order(ByteOrder.LITTLE_ENDIAN);
+        for (Student student : rows) {
+            column.putDouble(student.getMarks());
+        }
+        return column.array();
+    }
+
+    // Layout: entry count, (count + 1) byte offsets, then the UTF-8 bytes of every entry
+    private static byte[] dictionary(Collection<String> entries) {
+        byte[][] encoded = new byte[entries.size()][];
+        int totalBytes = 0;
+        int i = 0;
+        for (String entry : entries) {
+            encoded[i] = entry.getBytes(StandardCharsets.UTF_8);
+            totalBytes += encoded[i].length;
+            i++;
+        }
+
+        ByteBuffer section = ByteBuffer.allocate(4 + (encoded.length + 1) * 4 + totalBytes)
+                .order(ByteOrder.LITTLE_ENDIAN);
+        section.putInt(encoded.length);
+        int offset = 0;
+        for (byte[] entry : encoded) {
+            section.putInt(offset);
+            offset += entry.length;
+        }
+        section.putInt(offset);
+        for (byte[] entry : encoded) {
+            section.put(entry);
+        }
+        return section.array();
+    }
+
+    private static long align(long offset) {
+        return (offset + 7) & ~7L;
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+    }
+}
@@ -0,0 +1,83 @@
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Process-wide dictionary of course names
+ * Each distinct name gets a small int code and one canonical String instance, so students store
+ * an int instead of their own copy of the name, and course filters compare codes instead of text
+ * Codes are never reused; there are only ever a handful of distinct courses
+ */
+public final class CourseDictionary {
+    private static final ConcurrentHashMap<String, Integer> CODES = new ConcurrentHashMap<>();
+    private static volatile String[] names = new String[16];      // Code -> canonical name
+    private static volatile String[] normalized = new String[16]; // Code -> name normalized for substring search
+    private static volatile int size;
+
+    private CourseDictionary() {
+    }
+
+    /**
+     * Get the code of a course name, adding the name if it is new
+     * @param course Course name, compared exactly
+     * @return Course code
+     */
+    public static int encode(String course) {
+        Integer code = CODES.get(course);
+        return code != null ? code : add(course);
+    }
+
+    private static synchronized int add(String course) {
+        Integer existing = CODES.get(course);
+        if (existing != null) {
+            return existing;
+        }
+
+        int code = size;
+        if (code == names.length) {
+            names = Arrays.copyOf(names, code * 2);
+            normalized = Arrays.copyOf(normalized, code * 2);
+        }
+        names[code] = course;
+        normalized[code] = TrigramIndex.normalize(course);
+        size = code + 1;
+        CODES.put(course, code); // Published last, so a code is only handed out once its name is stored
+        return code;
+    }
+
+    /**
+     * Get the canonical name of a course code
+     * @param code Code returned by {@link #encode(String)}
+     * @return Shared course name instance
+     */
+    public static String decode(int code) {
+        return names[code];
+    }
+
+    /**
+     * Get number of distinct courses seen so far
+     * @return Dictionary size
+     */
+    public static int size() {
+        return size;
+    }
+
+    /**
+     * Find the courses whose name contains the text (case-insensitive)
+     * Only the distinct names are compared, never the students
+     * @param text Substring to look for
+     * @return Matching course codes in ascending order
+     */
+    public static int[] codesContaining(String text) {
+        String query = TrigramIndex.normalize(text);
+        int count = size;
+        String[] values = normalized;
+        int[] matches = new int[count];
+        int found = 0;
+        for (int code = 0; code < count; code++) {
+            if (values[code].contains(query)) {
+                matches[found++] = code;
+            }
+        }
+        return Arrays.copyOf(matches, found);
+    }
+}
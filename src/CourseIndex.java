@@ -0,0 +1,180 @@
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Student IDs grouped by course code, with running marks totals per course
+ * Each course keeps its IDs sorted, so searches read them in ID order and can stop after a page
+ */
+public class CourseIndex {
+    private PostingList[] students; // Course code -> IDs of its students
+    private double[] totalMarks;
+    private int[] passingCounts;
+
+    public CourseIndex() {
+        this.students = new PostingList[16];
+        this.totalMarks = new double[16];
+        this.passingCounts = new int[16];
+    }
+
+    /**
+     * Add a student to its course
+     * @param student Student with the course to file it under
+     */
+    public void add(Student student) {
+        int code = student.getCourseCode();
+        ensureCapacity(code);
+        if (students[code] == null) {
+            students[code] = new PostingList();
+        }
+        students[code].add(student.getId());
+    }
+
+    /**
+     * Take a student out of its course
+     * @param student Student with the course it was added under
+     * @return true if the student was in the course
+     */
+    public boolean remove(Student student) {
+        int code = student.getCourseCode();
+        return code < students.length && students[code] != null && students[code].remove(student.getId());
+    }
+
+    /**
+     * Remove several students from their courses, filtering each course's IDs once
+     * @param removed Students in ascending ID order
+     */
+    public void removeAll(List<Student> removed) {
+        PostingList[] removals = new PostingList[students.length]; // Course code -> IDs to drop
+        for (Student student : removed) {
+            int code = student.getCourseCode();
+            if (code >= students.length || students[code] == null) continue;
+            if (removals[code] == null) {
+                removals[code] = new PostingList();
+            }
+            removals[code].add(student.getId());
+        }
+        for (int code = 0; code < removals.length; code++) {
+            if (removals[code] != null) {
+                students[code].removeAll(removals[code]);
+            }
+        }
+    }
+
+    /**
+     * Add a student's marks to its course totals
+     * @param student Student whose marks to count
+     */
+    public void addMarks(Student student) {
+        int code = student.getCourseCode();
+        ensureCapacity(code);
+        totalMarks[code] += student.getMarks();
+        if (student.isPassing()) {
+            passingCounts[code]++;
+        }
+    }
+
+    /**
+     * Take a student's marks out of its course totals
+     * Must be called before the student's marks or course change
+     * @param student Student whose marks were counted
+     */
+    public void removeMarks(Student student) {
+        int code = student.getCourseCode();
+        totalMarks[code] -= student.getMarks();
+        if (student.isPassing()) {
+            passingCounts[code]--;
+        }
+        if (count(code) == 0) {
+            totalMarks[code] = 0.0; // Drop floating point drift once the course is empty
+        }
+    }
+
+    /**
+     * Get number of students in a course
+     * @param code Course code
+     * @return Student count
+     */
+    public int count(int code) {
+        return code < students.length && students[code] != null ? students[code].size : 0;
+    }
+
+    /**
+     * Get number of students in any of several courses
+     * @param codes Course codes
+     * @return Total student count
+     */
+    public int count(int[] codes) {
+        int total = 0;
+        for (int code : codes) {
+            total += count(code);
+        }
+        return total;
+    }
+
+    public double totalMarks(int code) {
+        return code < totalMarks.length ? totalMarks[code] : 0.0;
+    }
+
+    public int passingCount(int code) {
+        return code < passingCounts.length ? passingCounts[code] : 0;
+    }
+
+    /**
+     * Get the codes of courses that have students
+     * @return Course codes in ascending order
+     */
+    public int[] codes() {
+        int[] codes = new int[students.length];
+        int found = 0;
+        for (int code = 0; code < students.length; code++) {
+            if (count(code) > 0) {
+                codes[found++] = code;
+            }
+        }
+        return Arrays.copyOf(codes, found);
+    }
+
+    /**
+     * Get one page of the IDs of students in any of several courses
+     * Merges the courses' sorted ID lists, so the work depends on the page size
+     * @param codes Course codes
+     * @param afterId Only IDs greater than this are returned
+     * @param limit Maximum number of IDs
+     * @return Up to limit IDs in ascending order
+     */
+    public int[] ids(int[] codes, int afterId, int limit) {
+        PostingList[] lists = new PostingList[codes.length];
+        int[] positions = new int[codes.length];
+        int available = 0;
+        for (int i = 0; i < codes.length; i++) {
+            lists[i] = count(codes[i]) > 0 ? students[codes[i]] : null;
+            if (lists[i] != null) {
+                positions[i] = lists[i].firstAfter(afterId);
+                available += lists[i].size - positions[i];
+            }
+        }
+
+        // A student has one course, so the lists never share an ID
+        int[] result = new int[Math.min(limit, available)];
+        for (int count = 0; count < result.length; count++) {
+            int next = -1;
+            for (int i = 0; i < lists.length; i++) {
+                if (lists[i] != null && positions[i] < lists[i].size
+                        && (next < 0 || lists[i].ids[positions[i]] < lists[next].ids[positions[next]])) {
+                    next = i;
+                }
+            }
+            result[count] = lists[next].ids[positions[next]++];
+        }
+        return result;
+    }
+
+    private void ensureCapacity(int code) {
+        if (code >= students.length) {
+            int capacity = Math.max(code + 1, students.length * 2);
+            students = Arrays.copyOf(students, capacity);
+            totalMarks = Arrays.copyOf(totalMarks, capacity);
+            passingCounts = Arrays.copyOf(passingCounts, capacity);
+        }
+    }
+}
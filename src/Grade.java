@@ -0,0 +1,64 @@
+/**
+ * Letter grades and the minimum marks needed for each
+ * Ordered from best to worst
+ */
+public enum Grade {
+    A_PLUS("A+", 90),
+    A("A", 80),
+    B("B", 70),
+    C("C", 60),
+    D("D", 50),
+    F("F", 0);
+
+    private final String label;
+    private final double minimumMarks;
+
+    Grade(String label, double minimumMarks) {
+        this.label = label;
+        this.minimumMarks = minimumMarks;
+    }
+
+    public String getLabel() {
+        return label;
+    }
+
+    public double getMinimumMarks() {
+        return minimumMarks;
+    }
+
+    /**
+     * Get the grade for a marks value
+     * @param marks Marks between 0 and 100
+     * @return Matching grade
+     */
+    public static Grade fromMarks(double marks) {
+        if (marks >= 90) return A_PLUS;
+        else if (marks >= 80) return A;
+        else if (marks >= 70) return B;
+        else if (marks >= 60) return C;
+        else if (marks >= 50) return D;
+        else return F;
+    }
+
+    /**
+     * Parse a grade label (case-insensitive, surrounding spaces ignored)
+     * @param label Grade label such as "A+" or "b"
+     * @return Matching grade, or null if the label is not a valid grade
+     */
+    public static Grade fromLabel(String label) {
+        if (label == null) return null;
+
+        String normalized = label.trim().toUpperCase();
+        for (Grade grade : values()) {
+            if (grade.label.equals(normalized)) {
+                return grade;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public String toString() {
+        return label;
+    }
+}
@@ -0,0 +1,94 @@
+import java.util.Arrays;
+
+/**
+ * Student IDs partitioned by grade
+ * Each bucket is a dense array with O(1) add and remove, so counts are always current
+ */
+public class GradeBuckets {
+    private final int[][] buckets;
+    private final int[] sizes;
+    private final StudentIdIndex positions; // ID -> position inside its grade's bucket
+
+    public GradeBuckets() {
+        int gradeCount = Grade.values().length;
+        this.buckets = new int[gradeCount][16];
+        this.sizes = new int[gradeCount];
+        this.positions = new StudentIdIndex();
+    }
+
+    /**
+     * Put a student into a grade bucket
+     * @param grade Student grade
+     * @param id Student ID (must not already be in a bucket)
+     */
+    public void add(Grade grade, int id) {
+        int bucket = grade.ordinal();
+        if (sizes[bucket] == buckets[bucket].length) {
+            buckets[bucket] = Arrays.copyOf(buckets[bucket], sizes[bucket] * 2);
+        }
+        buckets[bucket][sizes[bucket]] = id;
+        positions.put(id, sizes[bucket]);
+        sizes[bucket]++;
+    }
+
+    /**
+     * Take a student out of a grade bucket
+     * @param grade Grade the student was added with
+     * @param id Student ID
+     * @return true if the student was in the bucket
+     */
+    public boolean remove(Grade grade, int id) {
+        int bucket = grade.ordinal();
+        int position = positions.get(id);
+        if (position < 0 || position >= sizes[bucket] || buckets[bucket][position] != id) {
+            return false;
+        }
+        positions.remove(id);
+
+        // Move the last ID into the hole
+        int last = --sizes[bucket];
+        if (position != last) {
+            int moved = buckets[bucket][last];
+            buckets[bucket][position] = moved;
+            positions.put(moved, position);
+        }
+        return true;
+    }
+
+    /**
+     * Get number of students with a grade
+     * @param grade Grade to count
+     * @return Bucket size
+     */
+    public int count(Grade grade) {
+        return sizes[grade.ordinal()];
+    }
+
+    /**
+     * Get the IDs of all students with a grade
+     * @param grade Grade to look up
+     * @return IDs in ascending order
+     */
+    public int[] ids(Grade grade) {
+        int bucket = grade.ordinal();
+        int[] result = Arrays.copyOf(buckets[bucket], sizes[bucket]);
+        Arrays.sort(result);
+        return result;
+    }
+
+    /**
+     * Get one page of the IDs of students with a grade
+     * @param grade Grade to look up
+     * @param afterId Only IDs greater than this are returned
+     * @param limit Maximum number of IDs
+     * @return Up to limit IDs in ascending order
+     */
+    public int[] ids(Grade grade, int afterId, int limit) {
+        int bucket = grade.ordinal();
+        SmallestIds page = new SmallestIds(afterId, limit);
+        for (int i = 0; i < sizes[bucket]; i++) {
+            page.offer(buckets[bucket][i]);
+        }
+        return page.toSortedArray();
+    }
+}
@@ -0,0 +1,202 @@
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Repository that keeps one Student object per student in an ArrayList
+ * Stored objects are never changed in place: every change stores a new version of the student, so
+ * a reader holding an earlier version never sees one field updated and another not
+ */
+public class ListStudentRepository implements StudentRepository {
+    private static final int MIN_COMPACTION_SLOTS = 64;
+
+    private final ArrayList<Student> students; // In ID order; deleted students leave a null slot until compaction
+    private final StudentIdIndex idIndex;
+    private int deletedSlots;
+
+    public ListStudentRepository() {
+        this.students = new ArrayList<>();
+        this.idIndex = new StudentIdIndex();
+        this.deletedSlots = 0;
+    }
+
+    @Override
+    public int size() {
+        return idIndex.size();
+    }
+
+    @Override
+    public int slotCount() {
+        return students.size();
+    }
+
+    @Override
+    public boolean hasDeletedSlots() {
+        return deletedSlots > 0;
+    }
+
+    @Override
+    public int slotOf(int id) {
+        return idIndex.get(id);
+    }
+
+    @Override
+    public int firstSlotAfter(int id) {
+        int slot = idIndex.get(id);
+        if (slot >= 0) {
+            return slot + 1;
+        }
+
+        // The student was deleted: binary search the ID-ordered list, stepping over deleted slots
+        int low = 0;
+        int high = students.size();
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            int probe = middle;
+            while (probe < high && students.get(probe) == null) {
+                probe++;
+            }
+            if (probe < high && students.get(probe).getId() <= id) {
+                low = probe + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    @Override
+    public boolean isLive(int slot) {
+        return students.get(slot) != null;
+    }
+
+    @Override
+    public int idAt(int slot) {
+        return students.get(slot).getId();
+    }
+
+    @Override
+    public String nameAt(int slot) {
+        return students.get(slot).getName();
+    }
+
+    @Override
+    public double marksAt(int slot) {
+        return students.get(slot).getMarks();
+    }
+
+    @Override
+    public int courseCodeAt(int slot) {
+        return students.get(slot).getCourseCode();
+    }
+
+    @Override
+    public Student studentAt(int slot) {
+        return students.get(slot);
+    }
+
+    @Override
+    public void reserve(int additional) {
+        students.ensureCapacity(students.size() + additional);
+    }
+
+    @Override
+    public void add(Student student) {
+        idIndex.put(student.getId(), students.size());
+        students.add(student);
+    }
+
+    @Override
+    public void replace(int slot, Student student) {
+        students.set(slot, student);
+    }
+
+    @Override
+    public void setName(int slot, String name) {
+        Student old = students.get(slot);
+        students.set(slot, new Student(old.getId(), name, old.getMarks(), old.getCourseCode()));
+    }
+
+    @Override
+    public void setCourse(int slot, String course) {
+        Student old = students.get(slot);
+        students.set(slot, new Student(old.getId(), old.getName(), old.getMarks(), CourseDictionary.encode(course)));
+    }
+
+    @Override
+    public void setMarks(int slot, double marks) {
+        Student old = students.get(slot);
+        students.set(slot, new Student(old.getId(), old.getName(), marks, old.getCourseCode()));
+    }
+
+    @Override
+    public void remove(int slot) {
+        clearSlot(slot);
+        compactIfNeeded();
+    }
+
+    @Override
+    public void removeAll(int[] removedSlots) {
+        for (int slot : removedSlots) {
+            clearSlot(slot);
+        }
+        compactIfNeeded();
+    }
+
+    private void clearSlot(int slot) {
+        idIndex.remove(students.get(slot).getId());
+        students.set(slot, null);
+        deletedSlots++;
+    }
+
+    /**
+     * Drop deleted slots once they make up half the list
+     * Amortized O(1) per delete, and keeps iteration cost proportional to live students
+     */
+    private void compactIfNeeded() {
+        if (deletedSlots < MIN_COMPACTION_SLOTS || deletedSlots * 2 < students.size()) {
+            return;
+        }
+
+        int live = 0;
+        for (int slot = 0; slot < students.size(); slot++) {
+            Student student = students.get(slot);
+            if (student != null) {
+                students.set(live, student);
+                idIndex.put(student.getId(), live);
+                live++;
+            }
+        }
+        students.subList(live, students.size()).clear();
+        deletedSlots = 0;
+    }
+
+    @Override
+    public Iterator<Student> iterator() {
+        return new Iterator<Student>() {
+            private int slot = skipDeleted(0);
+
+            @Override
+            public boolean hasNext() {
+                return slot < students.size();
+            }
+
+            @Override
+            public Student next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                Student student = students.get(slot);
+                slot = skipDeleted(slot + 1);
+                return student;
+            }
+        };
+    }
+
+    private int skipDeleted(int slot) {
+        while (slot < students.size() && students.get(slot) == null) {
+            slot++;
+        }
+        return slot;
+    }
+}
@@ -1,3 +1,7 @@
+import java.net.InetSocketAddress;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
 /**
  * Main class to start the Student Management System application
  * Entry point for the CLI-based CRUD system
@@ -6,15 +10,36 @@
  * @version 1.0
  */
 public class Main {
+    private static final String DEFAULT_DATA_DIRECTORY = "data";
+    private static final int DEFAULT_PORT = 8080;
+    private static final String USAGE = "Usage: java Main [data directory] | java Main --serve [port] [data directory]";
 
     /**
      * Main method - entry point of the application
-     * @param args Command line arguments (not used)
+     * @param args Command line arguments: optional data directory (defaults to "data"),
+     *             or "--serve [port] [data directory]" to run the HTTP API instead of the menu
      */
     public static void main(String[] args) {
-        try {
+        if (args.length > 0 && args[0].equals("--serve")) {
+            int port = args.length > 1 ? parsePort(args[1]) : DEFAULT_PORT;
+            if (port < 0) {
+                System.err.println("Invalid port: " + args[1]);
+                System.err.println(USAGE);
+                return;
+            }
+            serve(port, Paths.get(args.length > 2 ? args[2] : DEFAULT_DATA_DIRECTORY));
+            return;
+        }
+
+        Path dataDirectory = Paths.get(args.length > 0 ? args[0] : DEFAULT_DATA_DIRECTORY);
+
+        // Open the persistent service; closing it flushes the journal to disk
+        try (StudentService studentService = new StudentService(dataDirectory)) {
+            // Ctrl+C skips the close above, so flush the journal from a shutdown hook as well
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> closeService(studentService)));
+
             // Create and start the menu handler
-            MenuHandler menuHandler = new MenuHandler();
+            MenuHandler menuHandler = new MenuHandler(studentService);
             menuHandler.start();
 
         } catch (Exception e) {
@@ -23,4 +48,61 @@ public class Main {
             e.printStackTrace();
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Parse a port argument
+     * @param text Port number, 0 picks a free port
+     * @return Port, or -1 if the text is not a number from 0 to 65535
+     */
+    private static int parsePort(String text) {
+        try {
+            int port = Integer.parseInt(text.trim());
+            return port >= 0 && port <= 65535 ? port : -1;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Run the HTTP API until the process is stopped
+     * @param port Port to listen on
+     * @param dataDirectory Data directory of the persistent service
+     */
+    private static void serve(int port, Path dataDirectory) {
+        // Small chunked responses otherwise wait on delayed ACKs; the JDK server reads this once, when
+        // its first instance is created, and it applies to every HttpServer in the process
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+
+        try {
+            StudentService studentService = new StudentService(dataDirectory);
+            studentService.setQueryCacheSize(StudentQueryCache.DEFAULT_MAX_STUDENTS); // Clients repeat searches
+            StudentHttpServer server = new StudentHttpServer(studentService, new InetSocketAddress(port));
+
+            // Stop serving and flush the journal on Ctrl+C
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                server.close();
+                closeService(studentService);
+            }));
+
+            server.start();
+            System.out.println("Serving student API on http://localhost:" + server.getPort() + "/students");
+        } catch (Exception e) {
+            System.err.println("Could not start the server: " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Close the service from a shutdown hook, reporting instead of throwing
+     * @param studentService Service to close; closing it again is harmless
+     */
+    private static void closeService(StudentService studentService) {
+        try {
+            studentService.close();
+        } catch (Exception e) {
+            System.err.println("Failed to close storage: " + e.getMessage());
+        }
+    }
+}
@@ -1,17 +1,28 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.List;
 import java.util.Map;
 import java.util.Scanner;
+import java.util.function.Function;
 
 /**
  * Handles all user interface operations and menu interactions
  * Separates UI logic from business logic
  */
 public class MenuHandler {
+    private static final int PAGE_SIZE = 20;
+
     private StudentService studentService;
     private Scanner scanner;
 
     public MenuHandler() {
-        this.studentService = new StudentService();
+        this(new StudentService());
+    }
+
+    public MenuHandler(StudentService studentService) {
+        this.studentService = studentService;
         this.scanner = new Scanner(System.in);
     }
 
@@ -23,7 +34,7 @@ public class MenuHandler {
 
         while (true) {
             displayMainMenu();
-            int choice = getValidChoice(1, 8);
+            int choice = getValidChoice(1, 10);
 
             if (!handleMenuChoice(choice)) {
                 break; // Exit application
@@ -56,9 +67,11 @@ public class MenuHandler {
         System.out.println("5. Delete Student");
         System.out.println("6. Search Students");
         System.out.println("7. Display Statistics");
-        System.out.println("8. Exit");
+        System.out.println("8. Import / Export Students");
+        System.out.println("9. View Metrics");
+        System.out.println("10. Exit");
         System.out.println("=".repeat(40));
-        System.out.print("Enter your choice (1-8): ");
+        System.out.print("Enter your choice (1-10): ");
     }
 
     /**
@@ -90,6 +103,12 @@ public class MenuHandler {
                 handleDisplayStatistics();
                 break;
             case 8:
+                handleImportExport();
+                break;
+            case 9:
+                handleViewMetrics();
+                break;
+            case 10:
                 displayExitMessage();
                 return false;
         }
@@ -135,15 +154,13 @@ public class MenuHandler {
         System.out.println("                           ALL STUDENTS");
         System.out.println("-".repeat(80));
 
-        List<Student> students = studentService.getAllStudents();
-
-        if (students.isEmpty()) {
+        if (studentService.isEmpty()) {
             System.out.println("No students found in the system.");
             return;
         }
 
-        displayStudentTable(students);
-        System.out.println("Total students: " + students.size());
+        displayPages(cursor -> studentService.listStudents(StudentPage.Order.ID, cursor, PAGE_SIZE));
+        System.out.println("Total students: " + studentService.getStudentCount());
     }
 
     /**
@@ -305,26 +322,32 @@ public class MenuHandler {
         System.out.println("1. Name");
         System.out.println("2. Course");
         System.out.println("3. Grade");
-        System.out.print("Enter choice (1-3): ");
+        System.out.println("4. Name starts with");
+        System.out.print("Enter choice (1-4): ");
 
-        int searchChoice = getValidChoice(1, 3);
-        List<Student> results = null;
+        int searchChoice = getValidChoice(1, 4);
+        Function<String, StudentPage> results = null;
 
         switch (searchChoice) {
             case 1:
                 System.out.print("Enter name to search: ");
                 String searchName = scanner.nextLine().trim();
-                results = studentService.searchByName(searchName);
+                results = cursor -> studentService.searchByName(searchName, cursor, PAGE_SIZE);
                 break;
             case 2:
                 System.out.print("Enter course to search: ");
                 String searchCourse = scanner.nextLine().trim();
-                results = studentService.searchByCourse(searchCourse);
+                results = cursor -> studentService.searchByCourse(searchCourse, cursor, PAGE_SIZE);
                 break;
             case 3:
                 System.out.print("Enter grade to search (A+, A, B, C, D, F): ");
                 String searchGrade = scanner.nextLine().trim();
-                results = studentService.searchByGrade(searchGrade);
+                results = cursor -> studentService.searchByGrade(searchGrade, cursor, PAGE_SIZE);
+                break;
+            case 4:
+                System.out.print("Enter start of name: ");
+                String searchPrefix = scanner.nextLine().trim();
+                results = cursor -> studentService.searchByNamePrefix(searchPrefix, cursor, PAGE_SIZE);
                 break;
         }
 
@@ -333,6 +356,68 @@ public class MenuHandler {
         }
     }
 
+    /**
+     * Handle bulk import and export
+     */
+    private void handleImportExport() {
+        System.out.println("\n" + "-".repeat(30));
+        System.out.println("   IMPORT / EXPORT STUDENTS");
+        System.out.println("-".repeat(30));
+
+        System.out.println("1. Import from file");
+        System.out.println("2. Export to file");
+        System.out.print("Enter choice (1-2): ");
+
+        if (getValidChoice(1, 2) == 1) {
+            handleImportStudents();
+        } else {
+            handleExportStudents();
+        }
+    }
+
+    /**
+     * Handle bulk import from a CSV or JSON Lines file
+     */
+    private void handleImportStudents() {
+        System.out.print("Enter file path (.csv or .jsonl): ");
+        Path file = Paths.get(scanner.nextLine().trim());
+        if (!Files.isRegularFile(file)) {
+            System.out.println("File not found: " + file);
+            return;
+        }
+
+        try {
+            StudentImporter.ImportResult result = new StudentImporter(studentService).importFile(file);
+            System.out.println("\n✓ " + result);
+            for (String error : result.getFirstErrors()) {
+                System.out.println("  " + error);
+            }
+            if (result.getRowsRejected() > result.getFirstErrors().size()) {
+                System.out.println("  ... and " + (result.getRowsRejected() - result.getFirstErrors().size()) +
+                        " more rejected row(s)");
+            }
+        } catch (IOException | IllegalArgumentException e) {
+            System.out.println("Error: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Handle export to a CSV, JSON Lines or binary file
+     */
+    private void handleExportStudents() {
+        System.out.print("Enter file path (.csv, .jsonl or .bin): ");
+        Path file = Paths.get(scanner.nextLine().trim());
+
+        try {
+            long start = System.nanoTime();
+            long rows = studentService.exportStudents(file, StudentExporter.Format.fromFileName(file));
+            System.out.println("\n✓ Exported " + rows + " student(s) to " + file + " in " +
+                    (System.nanoTime() - start) / 1_000_000 + " ms");
+        } catch (IOException e) {
+            System.out.println("Error: " + e.getMessage());
+        }
+    }
+
     /**
      * Handle displaying statistics
      */
@@ -351,6 +436,74 @@ public class MenuHandler {
         displayStatistics(stats);
     }
 
+    /**
+     * Handle viewing operation metrics, with options to reset them or toggle recording and the query cache
+     */
+    private void handleViewMetrics() {
+        ServiceMetrics metrics = studentService.getMetrics();
+        System.out.println("\n" + "-".repeat(40));
+        System.out.println("         OPERATION METRICS");
+        System.out.println("-".repeat(40));
+        System.out.println("Recording: " + (metrics.isEnabled() ? "ON" : "OFF"));
+        StudentQueryCache cache = studentService.getQueryCache();
+        if (cache == null) {
+            System.out.println("Query cache: OFF");
+        } else {
+            System.out.printf("Query cache: ON | %d hits, %d misses (%.1f%% hit rate) | %d results, %d/%d students | "
+                            + "%d evicted, %d invalidated%n", cache.getHits(), cache.getMisses(), cache.getHitRate() * 100,
+                    cache.size(), cache.getCachedStudents(), cache.getMaxStudents(), cache.getEvictions(),
+                    cache.getInvalidations());
+        }
+        displayMetrics(metrics);
+
+        System.out.println("\n1. Back to menu");
+        System.out.println("2. Reset metrics");
+        System.out.println("3. Turn recording " + (metrics.isEnabled() ? "off" : "on"));
+        System.out.println("4. Turn query cache " + (cache == null ? "on" : "off"));
+        System.out.print("Enter choice (1-4): ");
+
+        switch (getValidChoice(1, 4)) {
+            case 2:
+                metrics.reset();
+                System.out.println("\n✓ Metrics reset");
+                break;
+            case 3:
+                metrics.setEnabled(!metrics.isEnabled());
+                System.out.println("\n✓ Recording turned " + (metrics.isEnabled() ? "on" : "off"));
+                break;
+            case 4:
+                studentService.setQueryCacheSize(cache == null ? StudentQueryCache.DEFAULT_MAX_STUDENTS : 0);
+                System.out.println("\n✓ Query cache turned " + (cache == null ? "on" : "off"));
+                break;
+        }
+    }
+
+    /**
+     * Display latency (in microseconds) and result-size table of every called operation
+     */
+    private void displayMetrics(ServiceMetrics metrics) {
+        System.out.printf("%-26s | %8s | %9s | %9s | %9s | %9s | %8s%n",
+                "OPERATION", "CALLS", "MEAN µs", "P50 µs", "P99 µs", "MAX µs", "P50 ROWS");
+        System.out.println("-".repeat(100));
+
+        boolean any = false;
+        for (ServiceMetrics.Operation operation : ServiceMetrics.Operation.values()) {
+            Histogram latency = metrics.getLatency(operation);
+            if (latency.getCount() == 0) continue;
+
+            Histogram results = metrics.getResultSizes(operation);
+            System.out.printf("%-26s | %8d | %9.1f | %9.1f | %9.1f | %9.1f | %8s%n", operation.getLabel(),
+                    latency.getCount(), latency.getMean() / 1e3, latency.getValueAtPercentile(50) / 1e3,
+                    latency.getValueAtPercentile(99) / 1e3, latency.getMax() / 1e3,
+                    results == null ? "-" : String.valueOf(results.getValueAtPercentile(50)));
+            any = true;
+        }
+        if (!any) {
+            System.out.println("No operations recorded yet.");
+        }
+        System.out.println("-".repeat(100));
+    }
+
     /**
      * Display student table
      */
@@ -381,19 +534,52 @@ public class MenuHandler {
     }
 
     /**
-     * Display search results
+     * Display search results one page at a time
      */
-    private void displaySearchResults(List<Student> results) {
-        if (results.isEmpty()) {
+    private void displaySearchResults(Function<String, StudentPage> results) {
+        StudentPage firstPage = results.apply(null);
+        if (firstPage.isEmpty()) {
             System.out.println("No students found matching your search criteria.");
         } else {
             System.out.println("\nSearch results:");
             System.out.println("-".repeat(80));
-            displayStudentTable(results);
-            System.out.println("Found " + results.size() + " student(s).");
+            int shown = displayPages(firstPage, results);
+            if (firstPage.getTotalCount() >= 0) {
+                System.out.println("Found " + firstPage.getTotalCount() + " student(s).");
+            } else if (shown > 0) {
+                System.out.println("Showed " + shown + " student(s).");
+            }
         }
     }
 
+    /**
+     * Display a listing one page at a time, asking before each further page
+     * @param pages Loads the page after a cursor (null for the first page)
+     * @return Number of students shown
+     */
+    private int displayPages(Function<String, StudentPage> pages) {
+        return displayPages(pages.apply(null), pages);
+    }
+
+    private int displayPages(StudentPage page, Function<String, StudentPage> pages) {
+        int shown = 0;
+        while (!page.isEmpty()) {
+            displayStudentTable(page.getStudents());
+            shown += page.getStudents().size();
+            if (!page.hasMore()) {
+                break;
+            }
+
+            String total = page.getTotalCount() >= 0 ? " of " + page.getTotalCount() : "";
+            System.out.print("Showing " + shown + total + " - press Enter for more, or q to stop: ");
+            if (scanner.nextLine().trim().equalsIgnoreCase("q")) {
+                break;
+            }
+            page = pages.apply(page.getNextCursor());
+        }
+        return shown;
+    }
+
     /**
      * Display comprehensive statistics
      */
@@ -402,6 +588,9 @@ public class MenuHandler {
         System.out.println("Average Marks: " + String.format("%.2f", stats.getAverageMarks()));
         System.out.println("Highest Marks: " + String.format("%.2f", stats.getHighestMarks()));
         System.out.println("Lowest Marks: " + String.format("%.2f", stats.getLowestMarks()));
+        System.out.println("Median Marks: " + String.format("%.2f", stats.getMedianMarks()) +
+                " (Q1 " + String.format("%.2f", stats.getLowerQuartile()) +
+                ", Q3 " + String.format("%.2f", stats.getUpperQuartile()) + ")");
 
         Student topStudent = stats.getTopStudent();
         if (topStudent != null) {
@@ -418,9 +607,8 @@ public class MenuHandler {
 
         System.out.println("\nGrade Distribution:");
         Map<String, Integer> gradeDistribution = stats.getGradeDistribution();
-        String[] grades = {"A+", "A", "B", "C", "D", "F"};
-
-        for (String grade : grades) {
+        for (Grade level : Grade.values()) {
+            String grade = level.getLabel();
             int count = gradeDistribution.getOrDefault(grade, 0);
             if (count > 0) {
                 double percentage = stats.getGradePercentage(grade);
@@ -428,6 +616,12 @@ public class MenuHandler {
                         String.format("%.1f", percentage) + "%)");
             }
         }
+
+        System.out.println("\nCourses:");
+        for (StudentStatistics.CourseSummary course : stats.getCourseSummaries().values()) {
+            System.out.printf("  %-20s %6d student(s), average %6.2f, pass rate %5.1f%%%n",
+                    course.getCourse(), course.getStudents(), course.getAverageMarks(), course.getPassRate());
+        }
     }
 
     /**
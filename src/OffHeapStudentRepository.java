@@ -0,0 +1,402 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Repository that keeps student records outside the Java heap
+ * Records are fixed-width slots in direct (or file-mapped) buffers and names are packed as UTF-8
+ * into separate name pages, so the garbage collector only sees a few hundred buffer objects
+ * however many students are loaded
+ *
+ * Slot layout, 32 bytes: ID, course code, marks, name page, name offset, name length (-1 when deleted)
+ *
+ * With a file, pages are mapped from it and the OS may page records out under memory pressure; the
+ * file is working storage only and is truncated on open, durability stays with the StudentStorage
+ * journal and snapshots
+ */
+public class OffHeapStudentRepository implements StudentRepository {
+    private static final int MIN_COMPACTION_SLOTS = 64;
+    private static final int DELETED = -1;
+
+    private static final int SLOT_BYTES = 32;
+    private static final int ID = 0;
+    private static final int COURSE_CODE = 4;
+    private static final int MARKS = 8;
+    private static final int NAME_PAGE = 16;
+    private static final int NAME_OFFSET = 20;
+    private static final int NAME_LENGTH = 24;
+
+    private static final int SLOT_PAGE_SHIFT = 18; // 256K slots, 8 MB per slot page
+    private static final int SLOTS_PER_PAGE = 1 << SLOT_PAGE_SHIFT;
+    private static final int NAME_PAGE_BYTES = 8 << 20;
+
+    private final FileChannel file; // null when pages are plain direct buffers
+    private long fileSize;
+
+    private ByteBuffer[] slotPages = new ByteBuffer[0];
+    private int slots;
+    private int deletedSlots;
+
+    // Names are appended to the last page; renamed or deleted names leave garbage until compaction
+    private ByteBuffer[] namePages = new ByteBuffer[0];
+    private int namePageCount;
+    private int nameUsed; // Bytes used in the last name page
+    private long namesGarbage;
+    private final ArrayDeque<ByteBuffer> freeNamePages = new ArrayDeque<>(); // Emptied by compaction
+
+    private final StudentIdIndex idIndex;
+
+    /**
+     * Create a repository in direct memory
+     */
+    public OffHeapStudentRepository() {
+        this.file = null;
+        this.idIndex = new StudentIdIndex();
+    }
+
+    /**
+     * Create a repository whose pages are mapped from a file
+     * @param path Backing file, created or truncated
+     * @throws IOException if the file cannot be opened
+     */
+    public OffHeapStudentRepository(Path path) throws IOException {
+        this.file = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        this.idIndex = new StudentIdIndex();
+    }
+
+    @Override
+    public int size() {
+        return idIndex.size();
+    }
+
+    @Override
+    public int slotCount() {
+        return slots;
+    }
+
+    @Override
+    public boolean hasDeletedSlots() {
+        return deletedSlots > 0;
+    }
+
+    @Override
+    public int slotOf(int id) {
+        return idIndex.get(id);
+    }
+
+    @Override
+    public int firstSlotAfter(int id) {
+        int slot = idIndex.get(id);
+        if (slot >= 0) {
+            return slot + 1;
+        }
+
+        // IDs of empty slots are kept, so the slots stay sorted by ID and can be searched directly
+        int low = 0;
+        int high = slots;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (idAt(middle) <= id) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    @Override
+    public boolean isLive(int slot) {
+        return page(slot).getInt(offset(slot) + NAME_LENGTH) != DELETED;
+    }
+
+    @Override
+    public int idAt(int slot) {
+        return page(slot).getInt(offset(slot) + ID);
+    }
+
+    @Override
+    public String nameAt(int slot) {
+        ByteBuffer page = page(slot);
+        int offset = offset(slot);
+        byte[] name = new byte[page.getInt(offset + NAME_LENGTH)];
+        namePages[page.getInt(offset + NAME_PAGE)].get(page.getInt(offset + NAME_OFFSET), name);
+        return new String(name, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public double marksAt(int slot) {
+        return page(slot).getDouble(offset(slot) + MARKS);
+    }
+
+    @Override
+    public int courseCodeAt(int slot) {
+        return page(slot).getInt(offset(slot) + COURSE_CODE);
+    }
+
+    @Override
+    public Student studentAt(int slot) {
+        if (!isLive(slot)) {
+            return null;
+        }
+        return new Student(idAt(slot), nameAt(slot), marksAt(slot), courseCodeAt(slot));
+    }
+
+    @Override
+    public void reserve(int additional) {
+        ensureSlotPages(slots + additional);
+    }
+
+    @Override
+    public void add(Student student) {
+        ensureSlotPages(slots + 1);
+        int slot = slots++;
+        ByteBuffer page = page(slot);
+        int offset = offset(slot);
+        page.putInt(offset + ID, student.getId());
+        page.putInt(offset + COURSE_CODE, student.getCourseCode());
+        page.putDouble(offset + MARKS, student.getMarks());
+        storeName(slot, student.getName());
+        idIndex.put(student.getId(), slot);
+    }
+
+    @Override
+    public void replace(int slot, Student student) {
+        setMarks(slot, student.getMarks());
+        page(slot).putInt(offset(slot) + COURSE_CODE, student.getCourseCode());
+        setName(slot, student.getName());
+    }
+
+    @Override
+    public void setName(int slot, String name) {
+        dropName(slot);
+        storeName(slot, name);
+        compactNamesIfNeeded();
+    }
+
+    @Override
+    public void setCourse(int slot, String course) {
+        page(slot).putInt(offset(slot) + COURSE_CODE, CourseDictionary.encode(course));
+    }
+
+    @Override
+    public void setMarks(int slot, double marks) {
+        page(slot).putDouble(offset(slot) + MARKS, marks);
+    }
+
+    @Override
+    public void remove(int slot) {
+        clearSlot(slot);
+        compactIfNeeded();
+    }
+
+    @Override
+    public void removeAll(int[] removedSlots) {
+        for (int slot : removedSlots) {
+            clearSlot(slot);
+        }
+        compactIfNeeded();
+    }
+
+    private void clearSlot(int slot) {
+        idIndex.remove(idAt(slot));
+        dropName(slot);
+        page(slot).putInt(offset(slot) + NAME_LENGTH, DELETED);
+        deletedSlots++;
+    }
+
+    /**
+     * Drop deleted slots once they make up half the slots, then rewrite the names without garbage
+     * Slots move down in place and keep their pages
+     */
+    private void compactIfNeeded() {
+        if (deletedSlots < MIN_COMPACTION_SLOTS || deletedSlots * 2 < slots) {
+            return;
+        }
+
+        int live = 0;
+        for (int slot = 0; slot < slots; slot++) {
+            ByteBuffer from = page(slot);
+            int fromOffset = offset(slot);
+            if (from.getInt(fromOffset + NAME_LENGTH) == DELETED) continue;
+
+            if (live != slot) {
+                page(live).put(offset(live), from, fromOffset, SLOT_BYTES);
+                idIndex.put(from.getInt(fromOffset + ID), live);
+            }
+            live++;
+        }
+        slots = live;
+        deletedSlots = 0;
+        compactNames();
+    }
+
+    /**
+     * Move live names to fresh pages once renamed and deleted names take up half the name pages
+     * Slots keep their numbers; emptied pages are kept for reuse, so a file-backed repository
+     * stops growing once it holds about twice its live names
+     */
+    private void compactNamesIfNeeded() {
+        long stored = (long) Math.max(0, namePageCount - 1) * NAME_PAGE_BYTES + nameUsed;
+        if (namesGarbage >= NAME_PAGE_BYTES && namesGarbage * 2 >= stored) {
+            compactNames();
+        }
+    }
+
+    private void compactNames() {
+        ByteBuffer[] oldNamePages = Arrays.copyOf(namePages, namePageCount);
+        namePages = new ByteBuffer[0];
+        namePageCount = 0;
+        nameUsed = 0;
+        namesGarbage = 0;
+
+        byte[] name = new byte[64];
+        for (int slot = 0; slot < slots; slot++) {
+            ByteBuffer page = page(slot);
+            int offset = offset(slot);
+            int length = page.getInt(offset + NAME_LENGTH);
+            if (length == DELETED) continue;
+
+            if (length > name.length) {
+                name = new byte[Math.max(length, name.length * 2)];
+            }
+            oldNamePages[page.getInt(offset + NAME_PAGE)].get(page.getInt(offset + NAME_OFFSET), name, 0, length);
+            storeName(slot, name, length);
+        }
+        freeNamePages.addAll(Arrays.asList(oldNamePages));
+    }
+
+    private void storeName(int slot, String name) {
+        byte[] encoded = name.getBytes(StandardCharsets.UTF_8);
+        storeName(slot, encoded, encoded.length);
+    }
+
+    private void storeName(int slot, byte[] name, int length) {
+        if (length > NAME_PAGE_BYTES) {
+            throw new IllegalArgumentException("Name is too long for off-heap storage");
+        }
+        if (namePageCount == 0 || nameUsed + length > NAME_PAGE_BYTES) {
+            addNamePage();
+        }
+        namePages[namePageCount - 1].put(nameUsed, name, 0, length);
+
+        ByteBuffer page = page(slot);
+        int offset = offset(slot);
+        page.putInt(offset + NAME_PAGE, namePageCount - 1);
+        page.putInt(offset + NAME_OFFSET, nameUsed);
+        page.putInt(offset + NAME_LENGTH, length);
+        nameUsed += length;
+    }
+
+    private void dropName(int slot) {
+        namesGarbage += page(slot).getInt(offset(slot) + NAME_LENGTH);
+    }
+
+    private void addNamePage() {
+        ByteBuffer page = freeNamePages.isEmpty() ? allocate(NAME_PAGE_BYTES) : freeNamePages.poll();
+        if (namePageCount == namePages.length) {
+            namePages = Arrays.copyOf(namePages, Math.max(4, namePages.length * 2));
+        }
+        namePages[namePageCount++] = page;
+        nameUsed = 0;
+    }
+
+    private void ensureSlotPages(int capacity) {
+        int pages = (int) (((long) capacity + SLOTS_PER_PAGE - 1) >>> SLOT_PAGE_SHIFT);
+        if (pages <= slotPages.length) {
+            return;
+        }
+        ByteBuffer[] grown = Arrays.copyOf(slotPages, pages);
+        for (int i = slotPages.length; i < pages; i++) {
+            grown[i] = allocate(SLOTS_PER_PAGE * SLOT_BYTES);
+        }
+        slotPages = grown;
+    }
+
+    private ByteBuffer allocate(int bytes) {
+        if (file == null) {
+            return ByteBuffer.allocateDirect(bytes).order(ByteOrder.nativeOrder());
+        }
+        try {
+            ByteBuffer page = file.map(FileChannel.MapMode.READ_WRITE, fileSize, bytes).order(ByteOrder.nativeOrder());
+            fileSize += bytes;
+            return page;
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to map student storage file", e);
+        }
+    }
+
+    private ByteBuffer page(int slot) {
+        return slotPages[slot >>> SLOT_PAGE_SHIFT];
+    }
+
+    private static int offset(int slot) {
+        return (slot & (SLOTS_PER_PAGE - 1)) * SLOT_BYTES;
+    }
+
+    /**
+     * Get bytes held outside the heap
+     * @return Size of every slot and name page, including free space
+     */
+    public long getReservedBytes() {
+        return (long) slotPages.length * SLOTS_PER_PAGE * SLOT_BYTES
+                + (long) (namePageCount + freeNamePages.size()) * NAME_PAGE_BYTES;
+    }
+
+    /**
+     * Get bytes of stored names that compaction has not reclaimed yet
+     * @return Bytes of renamed and deleted names
+     */
+    public long getNameGarbageBytes() {
+        return namesGarbage;
+    }
+
+    /**
+     * Close the backing file; mapped and direct pages are released once they become unreachable
+     * @throws IOException if the file cannot be closed
+     */
+    @Override
+    public void close() throws IOException {
+        if (file != null) {
+            file.close();
+        }
+    }
+
+    @Override
+    public Iterator<Student> iterator() {
+        return new Iterator<Student>() {
+            private int slot = skipDeleted(0);
+
+            @Override
+            public boolean hasNext() {
+                return slot < slots;
+            }
+
+            @Override
+            public Student next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                Student student = studentAt(slot);
+                slot = skipDeleted(slot + 1);
+                return student;
+            }
+        };
+    }
+
+    private int skipDeleted(int slot) {
+        while (slot < slots && !isLive(slot)) {
+            slot++;
+        }
+        return slot;
+    }
+}
@@ -0,0 +1,281 @@
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Repository that keeps students as columns of primitive arrays instead of objects
+ * IDs, marks and course codes sit in parallel arrays, and names are packed as UTF-8 into one
+ * shared byte array, so a student costs a few dozen bytes and scans read contiguous memory
+ *
+ * Student objects are built on demand, so each lookup returns a new copy; like the stored students
+ * of other repositories, a copy of the current version rejects setters
+ */
+public class PackedStudentRepository implements StudentRepository {
+    private static final int MIN_COMPACTION_SLOTS = 64;
+    private static final int MIN_NAME_GARBAGE = 1 << 20;
+    private static final int DELETED = -1; // Name length marking an empty slot
+
+    private int[] ids;
+    private double[] marks;
+    private short[] courseCodes; // Course codes read as unsigned, so up to 65536 courses
+    private int[] nameOffsets;
+    private int[] nameLengths;
+    private int slots;
+    private int deletedSlots;
+
+    // Names of every slot, appended back to back; renamed or deleted names leave garbage until compaction
+    private byte[] names;
+    private int namesUsed;
+    private int namesGarbage;
+
+    private final StudentIdIndex idIndex;
+
+    public PackedStudentRepository() {
+        this(16);
+    }
+
+    public PackedStudentRepository(int expectedSize) {
+        int capacity = Math.max(16, expectedSize);
+        this.ids = new int[capacity];
+        this.marks = new double[capacity];
+        this.courseCodes = new short[capacity];
+        this.nameOffsets = new int[capacity];
+        this.nameLengths = new int[capacity];
+        this.names = new byte[capacity * 16];
+        this.idIndex = new StudentIdIndex();
+    }
+
+    @Override
+    public int size() {
+        return idIndex.size();
+    }
+
+    @Override
+    public int slotCount() {
+        return slots;
+    }
+
+    @Override
+    public boolean hasDeletedSlots() {
+        return deletedSlots > 0;
+    }
+
+    @Override
+    public int slotOf(int id) {
+        return idIndex.get(id);
+    }
+
+    @Override
+    public int firstSlotAfter(int id) {
+        int slot = idIndex.get(id);
+        if (slot >= 0) {
+            return slot + 1;
+        }
+
+        // IDs of empty slots are kept, so the ID column stays sorted and can be searched directly
+        int index = Arrays.binarySearch(ids, 0, slots, id);
+        return index >= 0 ? index + 1 : -index - 1;
+    }
+
+    @Override
+    public boolean isLive(int slot) {
+        return nameLengths[slot] != DELETED;
+    }
+
+    @Override
+    public int idAt(int slot) {
+        return ids[slot];
+    }
+
+    @Override
+    public String nameAt(int slot) {
+        return new String(names, nameOffsets[slot], nameLengths[slot], StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public double marksAt(int slot) {
+        return marks[slot];
+    }
+
+    @Override
+    public int courseCodeAt(int slot) {
+        return courseCodes[slot] & 0xFFFF;
+    }
+
+    @Override
+    public Student studentAt(int slot) {
+        if (!isLive(slot)) {
+            return null;
+        }
+        return new Student(ids[slot], nameAt(slot), marks[slot], courseCodeAt(slot));
+    }
+
+    @Override
+    public void reserve(int additional) {
+        ensureCapacity(slots + additional);
+    }
+
+    @Override
+    public void add(Student student) {
+        ensureCapacity(slots + 1);
+        int slot = slots++;
+        ids[slot] = student.getId();
+        marks[slot] = student.getMarks();
+        courseCodes[slot] = courseCode(student.getCourseCode());
+        storeName(slot, student.getName());
+        idIndex.put(student.getId(), slot);
+    }
+
+    @Override
+    public void replace(int slot, Student student) {
+        marks[slot] = student.getMarks();
+        courseCodes[slot] = courseCode(student.getCourseCode());
+        setName(slot, student.getName());
+    }
+
+    @Override
+    public void setName(int slot, String name) {
+        namesGarbage += nameLengths[slot];
+        storeName(slot, name);
+        compactNamesIfNeeded();
+    }
+
+    @Override
+    public void setCourse(int slot, String course) {
+        courseCodes[slot] = courseCode(CourseDictionary.encode(course));
+    }
+
+    @Override
+    public void setMarks(int slot, double marks) {
+        this.marks[slot] = marks;
+    }
+
+    @Override
+    public void remove(int slot) {
+        clearSlot(slot);
+        compactIfNeeded();
+    }
+
+    @Override
+    public void removeAll(int[] removedSlots) {
+        for (int slot : removedSlots) {
+            clearSlot(slot);
+        }
+        compactIfNeeded();
+    }
+
+    private void clearSlot(int slot) {
+        idIndex.remove(ids[slot]);
+        namesGarbage += nameLengths[slot];
+        nameLengths[slot] = DELETED;
+        deletedSlots++;
+    }
+
+    /**
+     * Drop deleted slots once they make up half the columns, then rewrite the names without garbage
+     * Amortized O(1) per delete, like the list repository
+     */
+    private void compactIfNeeded() {
+        if (deletedSlots < MIN_COMPACTION_SLOTS || deletedSlots * 2 < slots) {
+            return;
+        }
+
+        int live = 0;
+        for (int slot = 0; slot < slots; slot++) {
+            if (nameLengths[slot] == DELETED) continue;
+
+            ids[live] = ids[slot];
+            marks[live] = marks[slot];
+            courseCodes[live] = courseCodes[slot];
+            nameOffsets[live] = nameOffsets[slot];
+            nameLengths[live] = nameLengths[slot];
+            idIndex.put(ids[live], live);
+            live++;
+        }
+        slots = live;
+        deletedSlots = 0;
+        compactNames();
+    }
+
+    // Renames leave garbage without deleting slots, so the names are also compacted on their own
+    private void compactNamesIfNeeded() {
+        if (namesGarbage >= MIN_NAME_GARBAGE && namesGarbage * 2 >= namesUsed) {
+            compactNames();
+        }
+    }
+
+    private void compactNames() {
+        byte[] packed = new byte[Math.max(16, namesUsed - namesGarbage)];
+        int packedUsed = 0;
+        for (int slot = 0; slot < slots; slot++) {
+            if (nameLengths[slot] == DELETED) continue;
+
+            System.arraycopy(names, nameOffsets[slot], packed, packedUsed, nameLengths[slot]);
+            nameOffsets[slot] = packedUsed;
+            packedUsed += nameLengths[slot];
+        }
+        names = packed;
+        namesUsed = packedUsed;
+        namesGarbage = 0;
+    }
+
+    private void storeName(int slot, String name) {
+        byte[] encoded = name.getBytes(StandardCharsets.UTF_8);
+        if (namesUsed + encoded.length > names.length) {
+            names = Arrays.copyOf(names, Math.max(names.length * 2, namesUsed + encoded.length));
+        }
+        System.arraycopy(encoded, 0, names, namesUsed, encoded.length);
+        nameOffsets[slot] = namesUsed;
+        nameLengths[slot] = encoded.length;
+        namesUsed += encoded.length;
+    }
+
+    private static short courseCode(int code) {
+        if (code > 0xFFFF) {
+            throw new IllegalStateException("Packed repository holds at most 65536 distinct courses");
+        }
+        return (short) code;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity <= ids.length) {
+            return;
+        }
+        int newCapacity = Math.max(capacity, ids.length * 2);
+        ids = Arrays.copyOf(ids, newCapacity);
+        marks = Arrays.copyOf(marks, newCapacity);
+        courseCodes = Arrays.copyOf(courseCodes, newCapacity);
+        nameOffsets = Arrays.copyOf(nameOffsets, newCapacity);
+        nameLengths = Arrays.copyOf(nameLengths, newCapacity);
+    }
+
+    @Override
+    public Iterator<Student> iterator() {
+        return new Iterator<Student>() {
+            private int slot = skipDeleted(0);
+
+            @Override
+            public boolean hasNext() {
+                return slot < slots;
+            }
+
+            @Override
+            public Student next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                Student student = studentAt(slot);
+                slot = skipDeleted(slot + 1);
+                return student;
+            }
+        };
+    }
+
+    private int skipDeleted(int slot) {
+        while (slot < slots && nameLengths[slot] == DELETED) {
+            slot++;
+        }
+        return slot;
+    }
+}
@@ -0,0 +1,169 @@
+import java.util.function.Consumer;
+
+/**
+ * Immutable map from student ID to student, as a 32-way trie over the bits of the ID
+ * A change copies only the nodes on the path to its ID, at most seven arrays of 32 references, and
+ * shares every other node with the map it was made from, so earlier versions stay valid and cheap
+ */
+final class PersistentIdMap {
+    private static final int BITS = 5;
+    private static final int WIDTH = 1 << BITS;
+    private static final int MASK = WIDTH - 1;
+
+    static final PersistentIdMap EMPTY = new PersistentIdMap(null, 0, 0);
+
+    private final Object[] root; // Inner nodes hold child arrays, nodes at level 0 hold students
+    private final int shift;     // Bit position the root indexes by
+    private final int size;
+
+    private PersistentIdMap(Object[] root, int shift, int size) {
+        this.root = root;
+        this.shift = shift;
+        this.size = size;
+    }
+
+    /**
+     * Build a map from students in any order, without copying any path
+     * @param students Students with distinct, non-negative IDs
+     * @return New map
+     */
+    static PersistentIdMap of(Iterable<Student> students) {
+        Object[] root = null;
+        int shift = 0;
+        int size = 0;
+        for (Student student : students) {
+            int id = student.getId();
+            if (root == null) {
+                root = new Object[WIDTH];
+            }
+            while (!fits(id, shift)) {
+                Object[] grown = new Object[WIDTH];
+                grown[0] = root;
+                root = grown;
+                shift += BITS;
+            }
+
+            // Every node here is new and not shared yet, so it is filled in place
+            Object[] node = root;
+            for (int level = shift; level > 0; level -= BITS) {
+                int index = (id >>> level) & MASK;
+                if (node[index] == null) {
+                    node[index] = new Object[WIDTH];
+                }
+                node = (Object[]) node[index];
+            }
+            if (node[id & MASK] == null) {
+                size++;
+            }
+            node[id & MASK] = student;
+        }
+        return size == 0 ? EMPTY : new PersistentIdMap(root, shift, size);
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Find a student
+     * @param id Student ID
+     * @return Student, or null if the map has no student with the ID
+     */
+    Student get(int id) {
+        if (root == null || id < 0 || !fits(id, shift)) {
+            return null;
+        }
+        Object[] node = root;
+        for (int level = shift; level > 0; level -= BITS) {
+            node = (Object[]) node[(id >>> level) & MASK];
+            if (node == null) {
+                return null;
+            }
+        }
+        return (Student) node[id & MASK];
+    }
+
+    /**
+     * Get a map that also holds a student, replacing any student with the same ID
+     * @param student Student with a non-negative ID
+     * @return New map; this one is unchanged
+     */
+    PersistentIdMap with(Student student) {
+        int id = student.getId();
+        Object[] newRoot = root == null ? new Object[WIDTH] : root;
+        int newShift = shift;
+        while (!fits(id, newShift)) {
+            Object[] grown = new Object[WIDTH];
+            grown[0] = newRoot;
+            newRoot = grown;
+            newShift += BITS;
+        }
+        int newSize = get(id) == null ? size + 1 : size;
+        return new PersistentIdMap(assoc(newRoot, newShift, id, student), newShift, newSize);
+    }
+
+    private static Object[] assoc(Object[] node, int level, int id, Student student) {
+        Object[] copy = node == null ? new Object[WIDTH] : node.clone();
+        int index = (id >>> level) & MASK;
+        copy[index] = level == 0 ? student : assoc((Object[]) copy[index], level - BITS, id, student);
+        return copy;
+    }
+
+    /**
+     * Get a map without a student
+     * @param id Student ID
+     * @return New map, or this one if it has no student with the ID
+     */
+    PersistentIdMap without(int id) {
+        if (get(id) == null) {
+            return this;
+        }
+        Object[] newRoot = dissoc(root, shift, id);
+        return newRoot == null ? EMPTY : new PersistentIdMap(newRoot, shift, size - 1);
+    }
+
+    // Returns null instead of a node left without entries, so deleted ID ranges do not keep empty arrays
+    private static Object[] dissoc(Object[] node, int level, int id) {
+        int index = (id >>> level) & MASK;
+        Object child = level == 0 ? null : dissoc((Object[]) node[index], level - BITS, id);
+        if (child == null && isOnlyEntry(node, index)) {
+            return null;
+        }
+        Object[] copy = node.clone();
+        copy[index] = child;
+        return copy;
+    }
+
+    private static boolean isOnlyEntry(Object[] node, int index) {
+        for (int i = 0; i < WIDTH; i++) {
+            if (i != index && node[i] != null) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Visit every student in ascending ID order
+     * @param action Called once per student
+     */
+    void forEach(Consumer<Student> action) {
+        if (root != null) {
+            forEach(root, shift, action);
+        }
+    }
+
+    private static void forEach(Object[] node, int level, Consumer<Student> action) {
+        for (Object child : node) {
+            if (child == null) continue;
+            if (level == 0) {
+                action.accept((Student) child);
+            } else {
+                forEach((Object[]) child, level - BITS, action);
+            }
+        }
+    }
+
+    // Shifts stop at 30, where the root indexes the top bit of a non-negative int
+    private static boolean fits(int id, int shift) {
+        return (id >>> shift) >>> BITS == 0;
+    }
+}
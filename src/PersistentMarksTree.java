@@ -0,0 +1,202 @@
+/**
+ * Immutable order-statistics tree of students' marks, in the order of StudentMarksIndex:
+ * highest marks first, then lowest ID first
+ * A treap whose changes copy only the nodes on their search path and share the rest with the tree
+ * they were made from, so earlier versions stay valid. Priorities come from a hash of the ID, so
+ * the shape does not depend on the order of changes
+ */
+final class PersistentMarksTree {
+    static final PersistentMarksTree EMPTY = new PersistentMarksTree(null);
+
+    private static final class Node {
+        final double marks;
+        final int id;
+        final int priority;
+        final int size; // Nodes in this subtree
+        final Node left;
+        final Node right;
+
+        Node(double marks, int id, int priority, Node left, Node right) {
+            this.marks = marks;
+            this.id = id;
+            this.priority = priority;
+            this.left = left;
+            this.right = right;
+            this.size = 1 + sizeOf(left) + sizeOf(right);
+        }
+
+        Node withLeft(Node newLeft) {
+            return new Node(marks, id, priority, newLeft, right);
+        }
+
+        Node withRight(Node newRight) {
+            return new Node(marks, id, priority, left, newRight);
+        }
+    }
+
+    private final Node root;
+
+    private PersistentMarksTree(Node root) {
+        this.root = root;
+    }
+
+    /**
+     * Build a balanced tree from entries already in tree order, in linear time
+     * @param marks Marks, highest first
+     * @param ids IDs matching the marks, lowest first among equal marks
+     * @param count Number of entries to use
+     * @return New tree
+     */
+    static PersistentMarksTree of(double[] marks, int[] ids, int count) {
+        return new PersistentMarksTree(build(marks, ids, 0, count, 0));
+    }
+
+    // Priorities fall with depth, so the result is a valid treap whatever the hashes of later entries
+    private static Node build(double[] marks, int[] ids, int from, int to, int depth) {
+        if (from >= to) {
+            return null;
+        }
+        int middle = (from + to) >>> 1;
+        return new Node(marks[middle], ids[middle], Integer.MAX_VALUE - depth,
+                build(marks, ids, from, middle, depth + 1), build(marks, ids, middle + 1, to, depth + 1));
+    }
+
+    int size() {
+        return sizeOf(root);
+    }
+
+    /**
+     * Get a tree that also holds an entry
+     * @param marks Marks
+     * @param id Student ID, not yet in the tree
+     * @return New tree; this one is unchanged
+     */
+    PersistentMarksTree with(double marks, int id) {
+        return new PersistentMarksTree(insert(root, new Node(marks, id, priorityOf(id), null, null)));
+    }
+
+    /**
+     * Get a tree without an entry
+     * @param marks Marks the entry was added with
+     * @param id Student ID
+     * @return New tree; this one is unchanged
+     */
+    PersistentMarksTree without(double marks, int id) {
+        return new PersistentMarksTree(remove(root, marks, id));
+    }
+
+    /**
+     * Get the student ID at a rank
+     * @param rank 0 for the highest marks
+     * @return Student ID
+     */
+    int idAt(int rank) {
+        return nodeAt(rank).id;
+    }
+
+    /**
+     * Get the marks at a rank
+     * @param rank 0 for the highest marks
+     * @return Marks
+     */
+    double marksAt(int rank) {
+        return nodeAt(rank).marks;
+    }
+
+    private Node nodeAt(int rank) {
+        if (rank < 0 || rank >= size()) {
+            throw new IndexOutOfBoundsException("Rank " + rank + " of " + size());
+        }
+        Node node = root;
+        while (true) {
+            int leftSize = sizeOf(node.left);
+            if (rank < leftSize) {
+                node = node.left;
+            } else if (rank == leftSize) {
+                return node;
+            } else {
+                rank -= leftSize + 1;
+                node = node.right;
+            }
+        }
+    }
+
+    private static Node insert(Node node, Node added) {
+        if (node == null) {
+            return added;
+        }
+        if (added.priority > node.priority) {
+            Node[] parts = split(node, added.marks, added.id);
+            return new Node(added.marks, added.id, added.priority, parts[0], parts[1]);
+        }
+        return before(added.marks, added.id, node)
+                ? node.withLeft(insert(node.left, added))
+                : node.withRight(insert(node.right, added));
+    }
+
+    private static Node remove(Node node, double marks, int id) {
+        if (node == null) {
+            return null;
+        }
+        if (node.id == id && node.marks == marks) {
+            return merge(node.left, node.right);
+        }
+        return before(marks, id, node)
+                ? node.withLeft(remove(node.left, marks, id))
+                : node.withRight(remove(node.right, marks, id));
+    }
+
+    // Split into the nodes ordered before (marks, id) and the rest
+    private static Node[] split(Node node, double marks, int id) {
+        if (node == null) {
+            return new Node[2];
+        }
+        if (before(node.marks, node.id, marks, id)) {
+            Node[] parts = split(node.right, marks, id);
+            parts[0] = node.withRight(parts[0]);
+            return parts;
+        } else {
+            Node[] parts = split(node.left, marks, id);
+            parts[1] = node.withLeft(parts[1]);
+            return parts;
+        }
+    }
+
+    // Every node of 'a' is ordered before every node of 'b'
+    private static Node merge(Node a, Node b) {
+        if (a == null) return b;
+        if (b == null) return a;
+        if (a.priority > b.priority) {
+            return a.withRight(merge(a.right, b));
+        } else {
+            return b.withLeft(merge(a, b.left));
+        }
+    }
+
+    private static boolean before(double marks, int id, Node node) {
+        return before(marks, id, node.marks, node.id);
+    }
+
+    // Entry order: higher marks first, then lower ID first
+    private static boolean before(double marks, int id, double otherMarks, int otherId) {
+        if (marks != otherMarks) {
+            return marks > otherMarks;
+        }
+        return id < otherId;
+    }
+
+    private static int sizeOf(Node node) {
+        return node == null ? 0 : node.size;
+    }
+
+    // Murmur3 finalizer, spreading consecutive IDs over the whole range
+    private static int priorityOf(int id) {
+        int hash = id;
+        hash ^= hash >>> 16;
+        hash *= 0x85ebca6b;
+        hash ^= hash >>> 13;
+        hash *= 0xc2b2ae35;
+        hash ^= hash >>> 16;
+        return hash & Integer.MAX_VALUE;
+    }
+}
@@ -0,0 +1,96 @@
+import java.util.Arrays;
+
+/**
+ * Sorted, duplicate-free list of IDs
+ * Shared by the trigram and course indexes
+ */
+class PostingList {
+    int[] ids = new int[4];
+    int size;
+
+    void add(int id) {
+        // IDs are handed out in increasing order, so appending is the common case
+        if (size == 0 || ids[size - 1] < id) {
+            ensureCapacity();
+            ids[size++] = id;
+            return;
+        }
+        int index = Arrays.binarySearch(ids, 0, size, id);
+        if (index >= 0) {
+            return; // Already present, e.g. a trigram that occurs twice in one value
+        }
+        index = -index - 1;
+        ensureCapacity();
+        System.arraycopy(ids, index, ids, index + 1, size - index);
+        ids[index] = id;
+        size++;
+    }
+
+    boolean remove(int id) {
+        int index = Arrays.binarySearch(ids, 0, size, id);
+        if (index < 0) {
+            return false;
+        }
+        System.arraycopy(ids, index + 1, ids, index, size - index - 1);
+        size--;
+        return true;
+    }
+
+    // Remove every ID of another list, moving each run of kept IDs once instead of shifting once per ID
+    void removeAll(PostingList removed) {
+        int write = -1; // End of the kept IDs, set at the first removed ID
+        int read = 0;   // Start of the IDs not yet moved
+        for (int i = 0; i < removed.size; i++) {
+            int index = Arrays.binarySearch(ids, read, size, removed.ids[i]);
+            if (index < 0) continue;
+
+            if (write < 0) {
+                write = index;
+            } else {
+                System.arraycopy(ids, read, ids, write, index - read);
+                write += index - read;
+            }
+            read = index + 1;
+        }
+        if (write < 0) {
+            return;
+        }
+        System.arraycopy(ids, read, ids, write, size - read);
+        size = write + size - read;
+    }
+
+    // Position of the first ID above the given one
+    int firstAfter(int id) {
+        int index = Arrays.binarySearch(ids, 0, size, id);
+        return index >= 0 ? index + 1 : -index - 1;
+    }
+
+    // Keep only the candidates also present in this list, returns the new candidate count
+    int retainAll(int[] candidates, int candidateCount) {
+        // Binary search when the candidates are far fewer than this list, otherwise merge
+        boolean search = candidateCount * 16 < size;
+        int kept = 0;
+        int position = 0;
+        for (int i = 0; i < candidateCount && position < size; i++) {
+            int id = candidates[i];
+            if (search) {
+                int index = Arrays.binarySearch(ids, position, size, id);
+                position = index >= 0 ? index : -index - 1;
+            } else {
+                while (position < size && ids[position] < id) {
+                    position++;
+                }
+            }
+            if (position < size && ids[position] == id) {
+                candidates[kept++] = id;
+            }
+        }
+        return kept;
+    }
+
+    private void ensureCapacity() {
+        if (size == ids.length) {
+            ids = Arrays.copyOf(ids, size * 2);
+        }
+    }
+}
@@ -0,0 +1,289 @@
+import java.util.Locale;
+
+/**
+ * Latency and result-size metrics for every StudentService operation
+ * Each operation has a latency histogram in nanoseconds, and searches also record how many
+ * students they returned. Recording costs two clock reads and a few atomic increments; when
+ * disabled it costs one volatile read
+ *
+ * Snapshots can be exported as Prometheus text or JSON, with the query cache's counts while it is on
+ */
+public class ServiceMetrics {
+    private static final long DISABLED = Long.MIN_VALUE; // Start time handed out while disabled
+    private static final double[] EXPORTED_PERCENTILES = {50, 90, 99, 99.9};
+
+    /**
+     * Measured StudentService operations; searches also record their result sizes
+     */
+    public enum Operation {
+        ADD_STUDENT(false),
+        ADD_BATCH(false),
+        GET_ALL_STUDENTS(false),
+        FIND_STUDENT_BY_ID(false),
+        UPDATE_STUDENT(false),
+        UPDATE_MARKS_BATCH(false),
+        DELETE_STUDENT(false),
+        DELETE_BATCH(false),
+        SEARCH_BY_NAME(true),
+        SEARCH_BY_COURSE(true),
+        SEARCH_BY_GRADE(true),
+        SEARCH_BY_NAME_PREFIX(true),
+        SEARCH_BY_NAME_PAGE(true),
+        SEARCH_BY_COURSE_PAGE(true),
+        SEARCH_BY_GRADE_PAGE(true),
+        SEARCH_BY_NAME_PREFIX_PAGE(true),
+        QUERY(true),
+        LIST_STUDENTS(false),
+        GET_STATISTICS(false),
+        RECOMPUTE_STATISTICS(false),
+        GET_TOP_STUDENTS(false),
+        GET_BOTTOM_STUDENTS(false),
+        GET_STUDENTS_BY_MARKS_RANGE(true),
+        GET_STUDENTS_BY_NAME_RANGE(true),
+        GET_RANK(false),
+        GET_PERCENTILE_RANK(false),
+        GET_MARKS_AT_PERCENTILE(false),
+        GET_STUDENTS_SORTED_BY_MARKS(false),
+        GET_STUDENTS_SORTED_BY_NAME(false),
+        EXPORT_STUDENTS(false);
+
+        private final boolean search;
+        private final String label;
+
+        Operation(boolean search) {
+            this.search = search;
+            this.label = camelCase(name());
+        }
+
+        public boolean isSearch() {
+            return search;
+        }
+
+        /**
+         * Get the name used in exports
+         * @return Method-style name such as "findStudentById"
+         */
+        public String getLabel() {
+            return label;
+        }
+
+        private static String camelCase(String constant) {
+            StringBuilder label = new StringBuilder();
+            for (String word : constant.toLowerCase(Locale.ROOT).split("_")) {
+                label.append(label.length() == 0 ? word : Character.toUpperCase(word.charAt(0)) + word.substring(1));
+            }
+            return label.toString();
+        }
+    }
+
+    private volatile boolean enabled = true;
+    private final Histogram[] latencies = new Histogram[Operation.values().length];
+    private final Histogram[] resultSizes = new Histogram[Operation.values().length];
+    private volatile StudentQueryCache queryCache; // Exported with the operations, null while the cache is off
+
+    public ServiceMetrics() {
+        for (Operation operation : Operation.values()) {
+            latencies[operation.ordinal()] = new Histogram();
+            if (operation.isSearch()) {
+                resultSizes[operation.ordinal()] = new Histogram();
+            }
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Turn recording on or off; already recorded values are kept
+     * @param enabled true to record operations
+     */
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /**
+     * Export a query cache's counts with the operations
+     * @param queryCache The service's query cache, null when it is off
+     */
+    void setQueryCache(StudentQueryCache queryCache) {
+        this.queryCache = queryCache;
+    }
+
+    /**
+     * Start timing an operation
+     * @return Start time to pass to record
+     */
+    long start() {
+        return enabled ? System.nanoTime() : DISABLED;
+    }
+
+    /**
+     * Record the latency of an operation started with start
+     * @param operation Finished operation
+     * @param start Value returned by start
+     */
+    void record(Operation operation, long start) {
+        if (start != DISABLED) {
+            latencies[operation.ordinal()].record(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Record the result size of a search started with start; its latency is recorded separately
+     * @param operation Search
+     * @param start Value returned by start
+     * @param results Number of students returned
+     */
+    void recordResults(Operation operation, long start, int results) {
+        if (start != DISABLED) {
+            resultSizes[operation.ordinal()].record(results);
+        }
+    }
+
+    /**
+     * Get the latency histogram of an operation
+     * @param operation Operation
+     * @return Histogram of nanoseconds per call
+     */
+    public Histogram getLatency(Operation operation) {
+        return latencies[operation.ordinal()];
+    }
+
+    /**
+     * Get the result-size histogram of a search
+     * @param operation Operation
+     * @return Histogram of students returned per call, or null if the operation is not a search
+     */
+    public Histogram getResultSizes(Operation operation) {
+        return resultSizes[operation.ordinal()];
+    }
+
+    /**
+     * Forget every recorded value, including the query cache's counts
+     */
+    public void reset() {
+        StudentQueryCache cache = queryCache;
+        if (cache != null) {
+            cache.resetCounts();
+        }
+        for (Operation operation : Operation.values()) {
+            latencies[operation.ordinal()].reset();
+            if (operation.isSearch()) {
+                resultSizes[operation.ordinal()].reset();
+            }
+        }
+    }
+
+    /**
+     * Export in the Prometheus text exposition format, as summaries
+     * Latencies are in seconds; operations that were never called are left out. Query cache lookups and
+     * removals are counters while the cache is on
+     * @return Exposition text
+     */
+    public String toPrometheus() {
+        StringBuilder text = new StringBuilder();
+        text.append("# HELP student_service_operation_seconds Latency of StudentService operations\n");
+        text.append("# TYPE student_service_operation_seconds summary\n");
+        for (Operation operation : Operation.values()) {
+            appendSummary(text, "student_service_operation_seconds", operation, getLatency(operation), 1e-9);
+        }
+        text.append("# HELP student_service_search_results Students returned per search\n");
+        text.append("# TYPE student_service_search_results summary\n");
+        for (Operation operation : Operation.values()) {
+            if (operation.isSearch()) {
+                appendSummary(text, "student_service_search_results", operation, getResultSizes(operation), 1);
+            }
+        }
+
+        StudentQueryCache cache = queryCache;
+        if (cache != null) {
+            text.append("# HELP student_service_query_cache_lookups_total Query cache lookups by outcome\n");
+            text.append("# TYPE student_service_query_cache_lookups_total counter\n");
+            text.append("student_service_query_cache_lookups_total{result=\"hit\"} ").append(cache.getHits())
+                    .append('\n');
+            text.append("student_service_query_cache_lookups_total{result=\"miss\"} ").append(cache.getMisses())
+                    .append('\n');
+            text.append("# HELP student_service_query_cache_removals_total Cached results removed by cause\n");
+            text.append("# TYPE student_service_query_cache_removals_total counter\n");
+            text.append("student_service_query_cache_removals_total{cause=\"size\"} ").append(cache.getEvictions())
+                    .append('\n');
+            text.append("student_service_query_cache_removals_total{cause=\"invalidation\"} ")
+                    .append(cache.getInvalidations()).append('\n');
+            text.append("# HELP student_service_query_cache_students Students held in cached results\n");
+            text.append("# TYPE student_service_query_cache_students gauge\n");
+            text.append("student_service_query_cache_students ").append(cache.getCachedStudents()).append('\n');
+        }
+        return text.toString();
+    }
+
+    private static void appendSummary(StringBuilder text, String name, Operation operation, Histogram histogram,
+                                      double scale) {
+        long count = histogram.getCount();
+        if (count == 0) return;
+
+        String labels = "operation=\"" + operation.getLabel() + "\"";
+        for (double percentile : EXPORTED_PERCENTILES) {
+            text.append(name).append('{').append(labels).append(",quantile=\"").append(format(percentile / 100))
+                    .append("\"} ").append(format(histogram.getValueAtPercentile(percentile) * scale)).append('\n');
+        }
+        text.append(name).append("_sum{").append(labels).append("} ").append(format(histogram.getSum() * scale))
+                .append('\n');
+        text.append(name).append("_count{").append(labels).append("} ").append(count).append('\n');
+    }
+
+    /**
+     * Export as a JSON object keyed by operation, plus the query cache's counts while it is on
+     * Latencies are in microseconds; operations that were never called are left out
+     * @return JSON text
+     */
+    public String toJson() {
+        StringBuilder json = new StringBuilder("{\"enabled\":").append(enabled).append(",\"operations\":{");
+        boolean first = true;
+        for (Operation operation : Operation.values()) {
+            Histogram latency = getLatency(operation);
+            if (latency.getCount() == 0) continue;
+
+            if (!first) json.append(',');
+            json.append('"').append(operation.getLabel()).append("\":{\"count\":").append(latency.getCount());
+            json.append(",\"latencyMicros\":");
+            appendJson(json, latency, 1e-3);
+            if (operation.isSearch()) {
+                json.append(",\"results\":");
+                appendJson(json, getResultSizes(operation), 1);
+            }
+            json.append('}');
+            first = false;
+        }
+        json.append('}');
+
+        StudentQueryCache cache = queryCache;
+        if (cache != null) {
+            json.append(",\"queryCache\":{\"hits\":").append(cache.getHits())
+                    .append(",\"misses\":").append(cache.getMisses())
+                    .append(",\"hitRate\":").append(format(cache.getHitRate()))
+                    .append(",\"evictions\":").append(cache.getEvictions())
+                    .append(",\"invalidations\":").append(cache.getInvalidations())
+                    .append(",\"entries\":").append(cache.size())
+                    .append(",\"students\":").append(cache.getCachedStudents())
+                    .append(",\"maxStudents\":").append(cache.getMaxStudents()).append('}');
+        }
+        return json.append('}').toString();
+    }
+
+    private static void appendJson(StringBuilder json, Histogram histogram, double scale) {
+        json.append("{\"mean\":").append(format(histogram.getMean() * scale));
+        for (double percentile : EXPORTED_PERCENTILES) {
+            json.append(",\"p").append(format(percentile).replace('.', '_')).append("\":")
+                    .append(format(histogram.getValueAtPercentile(percentile) * scale));
+        }
+        json.append(",\"max\":").append(format(histogram.getMax() * scale)).append('}');
+    }
+
+    // Shortest plain decimal, without exponents or trailing zeros
+    private static String format(double value) {
+        String text = String.format(Locale.ROOT, "%.9f", value);
+        text = text.replaceAll("0+$", "");
+        return text.endsWith(".") ? text.substring(0, text.length() - 1) : text;
+    }
+}
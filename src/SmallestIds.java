@@ -0,0 +1,60 @@
+import java.util.Arrays;
+
+/**
+ * Keeps the smallest IDs above a lower bound out of an unordered stream of IDs
+ * Used to page through unordered ID sets in O(n log k) time and O(k) memory
+ */
+class SmallestIds {
+    private final int afterId;
+    private final int limit;
+    private int[] heap; // Max-heap, so the largest kept ID is evicted first
+    private int size;
+
+    /**
+     * @param afterId Only IDs greater than this are kept
+     * @param limit Maximum number of IDs to keep
+     */
+    SmallestIds(int afterId, int limit) {
+        this.afterId = afterId;
+        this.limit = limit;
+        this.heap = new int[Math.min(Math.max(limit, 1), 64)];
+    }
+
+    void offer(int id) {
+        if (id <= afterId || limit == 0) return;
+
+        if (size < limit) {
+            if (size == heap.length) {
+                heap = Arrays.copyOf(heap, (int) Math.min((long) size * 2, limit));
+            }
+            int child = size++;
+            while (child > 0 && heap[(child - 1) / 2] < id) {
+                heap[child] = heap[(child - 1) / 2];
+                child = (child - 1) / 2;
+            }
+            heap[child] = id;
+        } else if (id < heap[0]) {
+            // Replace the largest kept ID and sift the new one down
+            int parent = 0;
+            while (true) {
+                int child = parent * 2 + 1;
+                if (child >= size) break;
+                if (child + 1 < size && heap[child + 1] > heap[child]) child++;
+                if (heap[child] <= id) break;
+                heap[parent] = heap[child];
+                parent = child;
+            }
+            heap[parent] = id;
+        }
+    }
+
+    /**
+     * Get the kept IDs
+     * @return IDs in ascending order
+     */
+    int[] toSortedArray() {
+        int[] result = Arrays.copyOf(heap, size);
+        Arrays.sort(result);
+        return result;
+    }
+}
@@ -0,0 +1,202 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Partial statistics over a range of student slots
+ * Partials of adjacent ranges merge into the partial of the combined range, so a full recompute
+ * can split the slots across fork/join workers and combine their results
+ *
+ * Reads the repository column by column, so packed repositories never build Student objects
+ */
+class StatisticsAccumulator {
+    private static final int SLOTS_PER_TASK = 32_768; // Below this, splitting costs more than it saves
+
+    private int count;
+    private double totalMarks;
+    private double highestMarks = Double.NEGATIVE_INFINITY;
+    private double lowestMarks = Double.POSITIVE_INFINITY;
+    private int topSlot = -1;
+    private int passingCount;
+    private final int[] gradeCounts = new int[Grade.values().length];
+
+    // Indexed by course code, grown when a student with a higher code shows up
+    private int[] courseCounts = new int[CourseDictionary.size()];
+    private double[] courseMarks = new double[courseCounts.length];
+    private int[] coursePassing = new int[courseCounts.length];
+
+    /**
+     * Compute statistics over every slot on the calling thread
+     * @param students Repository to scan
+     * @return Statistics of the live students
+     */
+    static StudentStatistics sequential(StudentRepository students) {
+        double[] marks = new double[students.slotCount()];
+        StatisticsAccumulator total = accumulate(students, 0, students.slotCount(), marks);
+        Arrays.sort(marks);
+        return total.toStatistics(students, marks);
+    }
+
+    /**
+     * Compute statistics over every slot with the common fork/join pool
+     * The caller must keep the slots unchanged until this returns
+     * @param students Repository to scan
+     * @return Statistics of the live students, equal to the sequential result
+     */
+    static StudentStatistics parallel(StudentRepository students) {
+        double[] marks = new double[students.slotCount()];
+        StatisticsAccumulator total = ForkJoinPool.commonPool().invoke(
+                new Task(students, marks, 0, students.slotCount()));
+        Arrays.parallelSort(marks);
+        return total.toStatistics(students, marks);
+    }
+
+    /**
+     * Accumulate a range of slots, copying each slot's marks into the same position of the marks array
+     * Deleted slots get positive infinity so they sort after every real mark
+     */
+    private static StatisticsAccumulator accumulate(StudentRepository students, int from, int to, double[] marks) {
+        StatisticsAccumulator partial = new StatisticsAccumulator();
+        for (int slot = from; slot < to; slot++) {
+            if (students.isLive(slot)) {
+                marks[slot] = students.marksAt(slot);
+                partial.add(slot, marks[slot], students.courseCodeAt(slot));
+            } else {
+                marks[slot] = Double.POSITIVE_INFINITY;
+            }
+        }
+        return partial;
+    }
+
+    private void add(int slot, double marks, int course) {
+        count++;
+        totalMarks += marks;
+
+        // Strictly greater keeps the first student in ID order among ties
+        if (marks > highestMarks) {
+            highestMarks = marks;
+            topSlot = slot;
+        }
+        if (marks < lowestMarks) {
+            lowestMarks = marks;
+        }
+        boolean passing = Student.isPassing(marks);
+        if (passing) {
+            passingCount++;
+        }
+        gradeCounts[Grade.fromMarks(marks).ordinal()]++;
+
+        if (course >= courseCounts.length) {
+            growCourses(course + 1);
+        }
+        courseCounts[course]++;
+        courseMarks[course] += marks;
+        if (passing) {
+            coursePassing[course]++;
+        }
+    }
+
+    private void growCourses(int length) {
+        courseCounts = Arrays.copyOf(courseCounts, length);
+        courseMarks = Arrays.copyOf(courseMarks, length);
+        coursePassing = Arrays.copyOf(coursePassing, length);
+    }
+
+    /**
+     * Fold in the partial of the range that directly follows this one
+     * @param next Partial of the following slots
+     * @return This partial, now covering both ranges
+     */
+    private StatisticsAccumulator merge(StatisticsAccumulator next) {
+        count += next.count;
+        totalMarks += next.totalMarks;
+        if (next.highestMarks > highestMarks) { // Ties keep this range's student, which comes first
+            highestMarks = next.highestMarks;
+            topSlot = next.topSlot;
+        }
+        lowestMarks = Math.min(lowestMarks, next.lowestMarks);
+        passingCount += next.passingCount;
+        for (int i = 0; i < gradeCounts.length; i++) {
+            gradeCounts[i] += next.gradeCounts[i];
+        }
+        if (next.courseCounts.length > courseCounts.length) {
+            growCourses(next.courseCounts.length);
+        }
+        for (int i = 0; i < next.courseCounts.length; i++) {
+            courseCounts[i] += next.courseCounts[i];
+            courseMarks[i] += next.courseMarks[i];
+            coursePassing[i] += next.coursePassing[i];
+        }
+        return this;
+    }
+
+    private StudentStatistics toStatistics(StudentRepository students, double[] sortedMarks) {
+        if (count == 0) {
+            return new StudentStatistics();
+        }
+
+        Map<String, Integer> gradeDistribution = new HashMap<>();
+        for (Grade grade : Grade.values()) {
+            if (gradeCounts[grade.ordinal()] > 0) {
+                gradeDistribution.put(grade.getLabel(), gradeCounts[grade.ordinal()]);
+            }
+        }
+
+        List<StudentStatistics.CourseSummary> courses = new ArrayList<>();
+        for (int code = 0; code < courseCounts.length; code++) {
+            if (courseCounts[code] > 0) {
+                courses.add(new StudentStatistics.CourseSummary(CourseDictionary.decode(code), courseCounts[code],
+                        courseMarks[code], coursePassing[code]));
+            }
+        }
+
+        return new StudentStatistics(
+                count,
+                Math.round(totalMarks / count * 100.0) / 100.0, // Round to 2 decimal places
+                highestMarks,
+                lowestMarks,
+                students.studentAt(topSlot),
+                gradeDistribution,
+                passingCount,
+                StudentStatistics.percentile(count, 25, rank -> sortedMarks[rank]),
+                StudentStatistics.percentile(count, 50, rank -> sortedMarks[rank]),
+                StudentStatistics.percentile(count, 75, rank -> sortedMarks[rank]),
+                courses
+        );
+    }
+
+    /**
+     * Splits a slot range in halves until it is small enough to accumulate directly
+     */
+    @SuppressWarnings("serial") // Serializable only through ForkJoinTask; tasks never leave the pool
+    private static class Task extends RecursiveTask<StatisticsAccumulator> {
+        private final StudentRepository students;
+        private final double[] marks;
+        private final int from;
+        private final int to;
+
+        Task(StudentRepository students, double[] marks, int from, int to) {
+            this.students = students;
+            this.marks = marks;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected StatisticsAccumulator compute() {
+            if (to - from <= SLOTS_PER_TASK) {
+                return accumulate(students, from, to, marks);
+            }
+
+            int middle = (from + to) >>> 1;
+            Task first = new Task(students, marks, from, middle);
+            first.fork();
+            StatisticsAccumulator second = new Task(students, marks, middle, to).compute();
+            return first.join().merge(second);
+        }
+    }
+}
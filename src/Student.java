@@ -2,7 +2,11 @@ public class Student {
     private int id;
     private String name;
     private double marks;
-    private String course;
+    private int courseCode; // Code in CourseDictionary, which holds the one shared copy of each course name
+    private Grade grade; // Cached, recomputed whenever marks change
+
+    // Service storing this student as its current version; setters are rejected while it is set
+    private volatile StudentService owner;
 
     // Constructor with input validation
     public Student(int id, String name, double marks, String course) {
@@ -12,25 +16,44 @@ public class Student {
         if (course == null || course.trim().isEmpty()) {
             throw new IllegalArgumentException("Course cannot be empty");
         }
-        if (marks < 0 || marks > 100) {
+        if (!(marks >= 0 && marks <= 100)) { // Also rejects NaN, which would corrupt sorted indexes
             throw new IllegalArgumentException("Marks must be between 0 and 100");
         }
         this.id = id;
         this.name = name;
         this.marks = marks;
-        this.course = course;
+        this.courseCode = CourseDictionary.encode(course);
+        this.grade = Grade.fromMarks(marks);
+    }
+
+    // Rebuild a stored student from already validated fields, used by repositories that do not keep objects
+    Student(int id, String name, double marks, int courseCode) {
+        this.id = id;
+        this.name = name;
+        this.marks = marks;
+        this.courseCode = courseCode;
+        this.grade = Grade.fromMarks(marks);
     }
 
     // Getters
     public int getId() { return id; }
     public String getName() { return name; }
     public double getMarks() { return marks; }
-    public String getCourse() { return course; }
+    public String getCourse() { return CourseDictionary.decode(courseCode); }
+    public int getCourseCode() { return courseCode; }
 
     // Setters with validation
-    public void setId(int id) { this.id = id; }
+    // The current version of a stored student is read-only: its setters throw IllegalStateException,
+    // and StudentService.updateStudent stores a changed version instead. Once the service replaces or
+    // deletes it, the object is an old version and, like copies and students never stored, a plain
+    // value holder that setters change
+    public void setId(int id) {
+        checkNotStored("Cannot change the ID of a stored student");
+        this.id = id;
+    }
 
     public void setName(String name) {
+        checkNotStored("Cannot change a stored student, use StudentService.updateStudent");
         if (name == null || name.trim().isEmpty()) {
             throw new IllegalArgumentException("Name cannot be empty");
         }
@@ -38,31 +61,62 @@ public class Student {
     }
 
     public void setMarks(double marks) {
-        if (marks < 0 || marks > 100) {
+        checkNotStored("Cannot change a stored student, use StudentService.updateStudent");
+        if (!(marks >= 0 && marks <= 100)) { // Also rejects NaN, which would corrupt sorted indexes
             throw new IllegalArgumentException("Marks must be between 0 and 100");
         }
-        this.marks = marks;
+        applyMarks(marks);
     }
 
     public void setCourse(String course) {
+        checkNotStored("Cannot change a stored student, use StudentService.updateStudent");
         if (course == null || course.trim().isEmpty()) {
             throw new IllegalArgumentException("Course cannot be empty");
         }
-        this.course = course;
+        this.courseCode = CourseDictionary.encode(course);
+    }
+
+    // Packed repositories hand out copies the service cannot detach, so an attached one is checked here
+    private void checkNotStored(String message) {
+        StudentService service = owner;
+        if (service == null) return;
+        if (service.isCurrentVersion(this)) {
+            throw new IllegalStateException(message);
+        }
+        detach(); // Replaced or deleted since it was read
+    }
+
+    private void applyMarks(double marks) {
+        this.marks = marks;
+        this.grade = Grade.fromMarks(marks);
     }
 
+    void attach(StudentService service) { this.owner = service; }
+    boolean isAttachedTo(StudentService service) { return owner == service; }
+    boolean isAttached() { return owner != null; }
+    void detach() { this.owner = null; }
+
     // Grade calculation
     public String getGrade() {
-        if (marks >= 90) return "A+";
-        else if (marks >= 80) return "A";
-        else if (marks >= 70) return "B";
-        else if (marks >= 60) return "C";
-        else if (marks >= 50) return "D";
-        else return "F";
+        return grade.getLabel();
+    }
+
+    public Grade getGradeLevel() {
+        return grade;
+    }
+
+    // Grade for a marks value, shared with code that works on raw marks columns
+    public static String calculateGrade(double marks) {
+        return Grade.fromMarks(marks).getLabel();
     }
 
     // Passing check
     public boolean isPassing() {
+        return isPassing(marks);
+    }
+
+    // Passing check for a marks value, shared with code that works on raw marks columns
+    public static boolean isPassing(double marks) {
         return marks >= 50.0;
     }
 
@@ -70,7 +124,7 @@ public class Student {
     @Override
     public String toString() {
         return String.format("ID: %-5d | Name: %-20s | Course: %-15s | Marks: %-6.2f | Grade: %s",
-                id, name, course, marks, getGrade());
+                id, name, getCourse(), marks, getGrade());
     }
 
     // Equality based on ID
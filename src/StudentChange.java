@@ -0,0 +1,73 @@
+/**
+ * One change to one student, as published on a StudentService's change stream
+ * Sequence numbers start at 1 when the service starts and grow by one for every student added,
+ * updated or deleted, in the order the changes were applied. A batch gets consecutive numbers
+ *
+ * Students returned are unattached copies; changing them changes neither the event nor the service
+ */
+public final class StudentChange {
+    /**
+     * Kind of change
+     */
+    public enum Type {
+        ADD,
+        UPDATE,
+        DELETE
+    }
+
+    private final long sequence;
+    private final Type type;
+    private final Student before; // Private copies, never handed out
+    private final Student after;
+
+    /**
+     * Record a change
+     * @param sequence Sequence number of the change
+     * @param before Student before the change, null if it was added
+     * @param after Student after the change, null if it was deleted
+     */
+    StudentChange(long sequence, Student before, Student after) {
+        this.sequence = sequence;
+        this.type = before == null ? Type.ADD : after == null ? Type.DELETE : Type.UPDATE;
+        this.before = copyOf(before);
+        this.after = copyOf(after);
+    }
+
+    public long getSequence() {
+        return sequence;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public int getStudentId() {
+        return after != null ? after.getId() : before.getId();
+    }
+
+    /**
+     * Get the student as it was before the change
+     * @return Copy of the student, or null for an add
+     */
+    public Student getBefore() {
+        return copyOf(before);
+    }
+
+    /**
+     * Get the student as it is after the change
+     * @return Copy of the student, or null for a delete
+     */
+    public Student getAfter() {
+        return copyOf(after);
+    }
+
+    @Override
+    public String toString() {
+        return "#" + sequence + " " + type + " " + getStudentId();
+    }
+
+    private static Student copyOf(Student student) {
+        return student == null ? null
+                : new Student(student.getId(), student.getName(), student.getMarks(), student.getCourseCode());
+    }
+}
@@ -0,0 +1,283 @@
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Ordered stream of a StudentService's changes, from {@link StudentService#changes()}
+ * The service appends every change to a bounded log under its write lock, which costs one event and a
+ * check per subscriber; it never waits for subscribers. Each subscription reads the log on its own
+ * executor at its own pace, as fast as its demand allows, so a slow subscriber only delays itself
+ *
+ * A subscriber can resume from any sequence number the log still retains, for example one past the
+ * last change it processed, or the change sequence of a StudentSnapshot it loaded first. A subscriber
+ * that falls so far behind that the changes it needs next were overwritten gets onError with an
+ * IllegalStateException and has to reload and resubscribe. Subscribers complete when the service closes
+ */
+public class StudentChangeStream implements Flow.Publisher<StudentChange> {
+    public static final int DEFAULT_RETAINED_CHANGES = 1 << 16;
+
+    // Each run gets a virtual thread, so a subscriber that blocks holds no platform thread
+    private static final Executor DEFAULT_EXECUTOR = task -> Thread.ofVirtual().name("student-changes").start(task);
+
+    private final AtomicReferenceArray<StudentChange> log;
+    private final int mask;
+    private final long firstSequence; // First change the log has seen
+    private volatile long latestSequence;
+    private volatile boolean closed;
+    private final List<ChangeSubscription> subscriptions = new CopyOnWriteArrayList<>();
+
+    /**
+     * Create a stream whose first change will get the sequence number after startSequence
+     * @param startSequence Sequence number of the last change before the stream started
+     * @param retainedChanges Changes kept for resuming and slow subscribers, rounded up to a power of two
+     */
+    StudentChangeStream(long startSequence, int retainedChanges) {
+        if (retainedChanges < 1 || retainedChanges > 1 << 30) {
+            throw new IllegalArgumentException("Retained changes must be between 1 and 2^30");
+        }
+        int size = Integer.highestOneBit(Math.max(1, retainedChanges - 1)) << 1;
+        this.log = new AtomicReferenceArray<>(size);
+        this.mask = size - 1;
+        this.firstSequence = startSequence + 1;
+        this.latestSequence = startSequence;
+    }
+
+    /**
+     * Subscribe to changes made from now on
+     * @param subscriber Subscriber, signalled on virtual threads
+     */
+    @Override
+    public void subscribe(Flow.Subscriber<? super StudentChange> subscriber) {
+        subscribe(subscriber, latestSequence + 1, DEFAULT_EXECUTOR);
+    }
+
+    /**
+     * Subscribe starting at a sequence number, to resume where an earlier subscription stopped
+     * @param subscriber Subscriber, signalled on virtual threads
+     * @param fromSequence First change to deliver; fails the subscription if it is no longer retained
+     *                     or lies beyond the next change
+     */
+    public void subscribe(Flow.Subscriber<? super StudentChange> subscriber, long fromSequence) {
+        subscribe(subscriber, fromSequence, DEFAULT_EXECUTOR);
+    }
+
+    /**
+     * Subscribe starting at a sequence number, signalling the subscriber on a given executor
+     * @param subscriber Subscriber
+     * @param fromSequence First change to deliver; fails the subscription if it is no longer retained
+     *                     or lies beyond the next change
+     * @param executor Runs the deliveries, one task at a time per subscription
+     */
+    public void subscribe(Flow.Subscriber<? super StudentChange> subscriber, long fromSequence, Executor executor) {
+        if (subscriber == null || executor == null) {
+            throw new NullPointerException("Subscriber and executor are required");
+        }
+
+        ChangeSubscription subscription = new ChangeSubscription(subscriber, executor, fromSequence);
+        if (fromSequence > latestSequence + 1) {
+            subscription.failure = new IllegalArgumentException("Sequence " + fromSequence
+                    + " is ahead of the latest change " + latestSequence);
+        } else {
+            subscriptions.add(subscription);
+        }
+        subscription.signal(); // Calls onSubscribe on the executor
+    }
+
+    /**
+     * Get the sequence number of the latest change
+     * @return Latest sequence number, or the one before the first change if there was none yet
+     */
+    public long getLatestSequence() {
+        return latestSequence;
+    }
+
+    /**
+     * Get the lowest sequence number a new subscription can start from
+     * @return Oldest retained change
+     */
+    public long getOldestSequence() {
+        return Math.max(firstSequence, latestSequence - log.length() + 1);
+    }
+
+    /**
+     * Get number of active subscriptions
+     * @return Subscriptions not cancelled, failed or completed
+     */
+    public int getSubscriberCount() {
+        return subscriptions.size();
+    }
+
+    /**
+     * Append a change without waking subscribers, caller must hold the service's write lock
+     * @param sequence Its sequence number, one past the latest
+     * @param before Student before the change, null if it was added
+     * @param after Student after the change, null if it was deleted
+     */
+    void append(long sequence, Student before, Student after) {
+        log.set((int) sequence & mask, new StudentChange(sequence, before, after));
+        latestSequence = sequence;
+    }
+
+    /**
+     * Wake subscriptions that wait for changes appended since the last call
+     */
+    void signal() {
+        for (ChangeSubscription subscription : subscriptions) {
+            if (subscription.demand.get() > 0) {
+                subscription.signal();
+            }
+        }
+    }
+
+    /**
+     * Stop taking changes; subscribers complete once they have received every change
+     */
+    void close() {
+        closed = true;
+        for (ChangeSubscription subscription : subscriptions) {
+            subscription.signal();
+        }
+    }
+
+    // The change with a sequence number, or null once it has been overwritten
+    private StudentChange read(long sequence) {
+        StudentChange change = log.get((int) sequence & mask);
+        return change != null && change.getSequence() == sequence ? change : null;
+    }
+
+    /**
+     * One subscriber's position in the log
+     * Every signal runs the subscription on its executor unless a run is already pending, so calls to
+     * the subscriber never overlap and onSubscribe comes first. A run delivers at most MAX_RUN changes
+     * and then resubmits itself, so subscriptions sharing an executor take turns
+     */
+    private final class ChangeSubscription implements Flow.Subscription, Runnable {
+        static final int IDLE = 0;
+        static final int RUNNING = 1;
+        static final int RERUN = 2; // Signalled while running, so the run goes round once more
+        static final int MAX_RUN = 256;
+
+        final Flow.Subscriber<? super StudentChange> subscriber;
+        final Executor executor;
+        final AtomicLong demand = new AtomicLong();
+        final AtomicInteger state = new AtomicInteger(IDLE);
+        volatile boolean cancelled;
+        volatile Throwable failure; // Delivered instead of further changes
+
+        // Only touched by runs, which never overlap
+        long next;
+        boolean subscribed;
+
+        ChangeSubscription(Flow.Subscriber<? super StudentChange> subscriber, Executor executor, long fromSequence) {
+            this.subscriber = subscriber;
+            this.executor = executor;
+            this.next = fromSequence;
+        }
+
+        @Override
+        public void request(long count) {
+            if (count <= 0) {
+                failure = new IllegalArgumentException("Requested count must be positive");
+            } else {
+                demand.accumulateAndGet(count,
+                        (current, added) -> current + added < 0 ? Long.MAX_VALUE : current + added); // Saturates
+            }
+            signal();
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+            subscriptions.remove(this);
+        }
+
+        void signal() {
+            while (true) {
+                int current = state.get();
+                if (current == RERUN) return;
+                if (state.compareAndSet(current, current + 1)) {
+                    if (current == IDLE) {
+                        execute();
+                    }
+                    return;
+                }
+            }
+        }
+
+        @Override
+        public void run() {
+            do {
+                state.set(RUNNING); // Signals from here on need another round
+                if (!deliver()) {
+                    execute(); // Still running, so signals meanwhile only ask for another round
+                    return;
+                }
+            } while (!state.compareAndSet(RUNNING, IDLE));
+        }
+
+        private void execute() {
+            try {
+                executor.execute(this);
+            } catch (RejectedExecutionException e) {
+                cancel();
+            }
+        }
+
+        // Deliver what the demand allows; false if the run stopped at MAX_RUN with changes left to deliver
+        private boolean deliver() {
+            if (!subscribed) {
+                subscribed = true;
+                try {
+                    subscriber.onSubscribe(this);
+                } catch (Throwable e) {
+                    cancel();
+                }
+            }
+
+            for (int delivered = 0; !cancelled; delivered++) {
+                if (failure != null) {
+                    fail(failure);
+                    return true;
+                }
+                boolean done = closed; // Read before the sequence, so no change can follow once done
+                if (next > latestSequence) {
+                    if (done) {
+                        cancel();
+                        subscriber.onComplete();
+                    }
+                    return true;
+                }
+                long wanted = demand.get();
+                if (wanted == 0) return true;
+                if (delivered == MAX_RUN) return false;
+
+                StudentChange change = read(next);
+                if (change == null) {
+                    fail(new IllegalStateException("Change " + next + " is no longer retained, the oldest is "
+                            + getOldestSequence()));
+                    return true;
+                }
+                next++;
+                if (wanted != Long.MAX_VALUE) {
+                    demand.decrementAndGet();
+                }
+                try {
+                    subscriber.onNext(change);
+                } catch (Throwable e) {
+                    cancel(); // A subscriber that throws is treated as cancelled
+                }
+            }
+            return true;
+        }
+
+        private void fail(Throwable error) {
+            cancel();
+            subscriber.onError(error);
+        }
+    }
+}
@@ -0,0 +1,370 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Streams students to a channel as CSV, JSON Lines or a compact binary format
+ * Each row is encoded into a scratch array and bulk-copied into a pooled direct buffer,
+ * so no per-row strings are built and the channel writes straight from native memory
+ *
+ * Binary layout (big-endian): int magic "SRBX", int version, int record count, then per record
+ * int id, double marks, int name length + UTF-8 name, int course length + UTF-8 course
+ */
+public class StudentExporter {
+    public static final int BINARY_MAGIC = 0x53524258; // "SRBX"
+    public static final int BINARY_VERSION = 1;
+
+    private static final int BUFFER_BYTES = 256 * 1024;
+    private static final int MAX_POOLED_BUFFERS = 4;
+    private static final byte[] CSV_HEADER = "id,name,course,marks,grade\n".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] HEX = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+
+    // Direct buffers are expensive to allocate, so finished exports hand theirs back
+    private static final ConcurrentLinkedQueue<ByteBuffer> BUFFER_POOL = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Supported output formats
+     */
+    public enum Format {
+        CSV,
+        JSON_LINES,
+        JSON_ARRAY, // Same objects as JSON_LINES, wrapped in one array
+        BINARY;
+
+        /**
+         * Pick a format from a file extension (.json/.jsonl/.ndjson are JSON Lines, .bin binary, anything else CSV)
+         * @param file Output file
+         * @return Detected format
+         */
+        public static Format fromFileName(Path file) {
+            String name = file.getFileName().toString().toLowerCase(Locale.ROOT);
+            if (name.endsWith(".jsonl") || name.endsWith(".ndjson") || name.endsWith(".json")) {
+                return JSON_LINES;
+            }
+            if (name.endsWith(".bin")) {
+                return BINARY;
+            }
+            return CSV;
+        }
+    }
+
+    private final Format format;
+    private final WritableByteChannel channel;
+    private ByteBuffer buffer;
+    private byte[] row; // Scratch space for the row being encoded
+    private int rowLength;
+    private long rowsWritten;
+    private long bytesWritten;
+
+    /**
+     * Start an export, writing the format header if it has one
+     * @param channel Destination channel, left open when the export finishes
+     * @param format Output format
+     * @param expectedRows Number of rows that will be written (stored in the binary header)
+     * @throws IOException if the header cannot be written
+     */
+    public StudentExporter(WritableByteChannel channel, Format format, int expectedRows) throws IOException {
+        this.channel = channel;
+        this.format = format;
+        ByteBuffer pooled = BUFFER_POOL.poll();
+        this.buffer = pooled != null ? pooled : ByteBuffer.allocateDirect(BUFFER_BYTES);
+        this.row = new byte[256];
+
+        if (format == Format.CSV) {
+            buffer.put(CSV_HEADER);
+        } else if (format == Format.JSON_ARRAY) {
+            buffer.put((byte) '[');
+        } else if (format == Format.BINARY) {
+            buffer.putInt(BINARY_MAGIC).putInt(BINARY_VERSION).putInt(expectedRows);
+        }
+    }
+
+    /**
+     * Encode one student
+     * @param student Student to write
+     * @throws IOException if the channel cannot be written
+     */
+    public void write(Student student) throws IOException {
+        rowLength = 0;
+        switch (format) {
+            case CSV:
+                putInt(student.getId());
+                putByte(',');
+                putCsvField(student.getName());
+                putByte(',');
+                putCsvField(student.getCourse());
+                putByte(',');
+                putMarks(student.getMarks());
+                putByte(',');
+                putAscii(student.getGrade());
+                putByte('\n');
+                break;
+            case JSON_ARRAY:
+                if (rowsWritten > 0) {
+                    putByte(',');
+                }
+                putJsonObject(student);
+                break;
+            case JSON_LINES:
+                putJsonObject(student);
+                putByte('\n');
+                break;
+            case BINARY:
+                putBinaryInt(student.getId());
+                long marksBits = Double.doubleToLongBits(student.getMarks());
+                putBinaryInt((int) (marksBits >>> 32));
+                putBinaryInt((int) marksBits);
+                putBinaryString(student.getName());
+                putBinaryString(student.getCourse());
+                break;
+        }
+        putRow();
+        rowsWritten++;
+    }
+
+    /**
+     * Write out buffered bytes and return the buffer to the pool
+     * The exporter cannot be used afterwards
+     * @throws IOException if the channel cannot be written
+     */
+    public void finish() throws IOException {
+        if (buffer == null) return;
+        try {
+            if (format == Format.JSON_ARRAY) {
+                rowLength = 0;
+                putAscii("]\n");
+                putRow();
+            }
+            flush();
+        } finally {
+            release();
+        }
+    }
+
+    /**
+     * Return the buffer to the pool without writing pending bytes, for use after a failure
+     */
+    public void release() {
+        if (buffer == null) return;
+        buffer.clear();
+        if (BUFFER_POOL.size() < MAX_POOLED_BUFFERS) {
+            BUFFER_POOL.offer(buffer);
+        }
+        buffer = null;
+    }
+
+    /**
+     * Get number of students written so far
+     * @return Row count
+     */
+    public long getRowsWritten() {
+        return rowsWritten;
+    }
+
+    /**
+     * Get number of bytes handed to the channel so far
+     * @return Byte count
+     */
+    public long getBytesWritten() {
+        return bytesWritten;
+    }
+
+    private void flush() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            bytesWritten += channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    // Copy the encoded row into the direct buffer in one bulk put
+    private void putRow() throws IOException {
+        int offset = 0;
+        while (offset < rowLength) {
+            if (!buffer.hasRemaining()) {
+                flush();
+            }
+            int chunk = Math.min(buffer.remaining(), rowLength - offset);
+            buffer.put(row, offset, chunk);
+            offset += chunk;
+        }
+    }
+
+    // Object shared by JSON Lines and JSON arrays, without the separator
+    private void putJsonObject(Student student) {
+        putAscii("{\"id\":");
+        putInt(student.getId());
+        putAscii(",\"name\":");
+        putJsonString(student.getName());
+        putAscii(",\"course\":");
+        putJsonString(student.getCourse());
+        putAscii(",\"marks\":");
+        putMarks(student.getMarks());
+        putAscii(",\"grade\":\"");
+        putAscii(student.getGrade());
+        putAscii("\"}");
+    }
+
+    private void reserve(int bytes) {
+        if (rowLength + bytes > row.length) {
+            row = Arrays.copyOf(row, Math.max(row.length * 2, rowLength + bytes));
+        }
+    }
+
+    private void putByte(char c) {
+        reserve(1);
+        row[rowLength++] = (byte) c;
+    }
+
+    private void putAscii(String value) {
+        reserve(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            row[rowLength++] = (byte) value.charAt(i);
+        }
+    }
+
+    private void putInt(int value) {
+        reserve(11);
+        if (value < 0) {
+            row[rowLength++] = '-';
+            if (value == Integer.MIN_VALUE) {
+                putAscii("2147483648");
+                return;
+            }
+            value = -value;
+        }
+        int digits = 1;
+        for (int bound = 10; digits < 10 && value >= bound; bound *= 10) {
+            digits++;
+        }
+        for (int i = rowLength + digits - 1; i >= rowLength; i--) {
+            row[i] = (byte) ('0' + value % 10);
+            value /= 10;
+        }
+        rowLength += digits;
+    }
+
+    private void putBinaryInt(int value) {
+        reserve(4);
+        row[rowLength++] = (byte) (value >>> 24);
+        row[rowLength++] = (byte) (value >>> 16);
+        row[rowLength++] = (byte) (value >>> 8);
+        row[rowLength++] = (byte) value;
+    }
+
+    // Same text as Double.toString, built without allocating for marks with at most two decimals
+    private void putMarks(double marks) {
+        long hundredths = Math.round(marks * 100);
+        if (hundredths / 100.0 != marks) {
+            putAscii(Double.toString(marks));
+            return;
+        }
+        putInt((int) (hundredths / 100));
+        int fraction = (int) (hundredths % 100);
+        reserve(3);
+        row[rowLength++] = '.';
+        row[rowLength++] = (byte) ('0' + fraction / 10);
+        if (fraction % 10 != 0) {
+            row[rowLength++] = (byte) ('0' + fraction % 10);
+        }
+    }
+
+    private void putCsvField(String value) {
+        boolean quote = false;
+        for (int i = 0; i < value.length() && !quote; i++) {
+            char c = value.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!quote) {
+            putUtf8(value, false);
+            return;
+        }
+        putByte('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') {
+                putByte('"');
+                putByte('"');
+            } else {
+                reserve(4);
+                i = putUtf8Char(value, i, false);
+            }
+        }
+        putByte('"');
+    }
+
+    private void putJsonString(String value) {
+        putByte('"');
+        putUtf8(value, true);
+        putByte('"');
+    }
+
+    private void putBinaryString(String value) {
+        int lengthPosition = rowLength;
+        putBinaryInt(0); // Patched once the encoded length is known
+        putUtf8(value, false);
+        int length = rowLength - lengthPosition - 4;
+        row[lengthPosition] = (byte) (length >>> 24);
+        row[lengthPosition + 1] = (byte) (length >>> 16);
+        row[lengthPosition + 2] = (byte) (length >>> 8);
+        row[lengthPosition + 3] = (byte) length;
+    }
+
+    private void putUtf8(String value, boolean jsonEscape) {
+        reserve(value.length() * 6); // Worst case: every char becomes a \\u escape
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c < 0x80 && c >= 0x20 && c != '"' && c != '\\') {
+                row[rowLength++] = (byte) c; // Plain ASCII, the common case
+            } else {
+                i = putUtf8Char(value, i, jsonEscape);
+            }
+        }
+    }
+
+    // Encode the character at index, returns the index of the last char consumed
+    private int putUtf8Char(String value, int index, boolean jsonEscape) {
+        char c = value.charAt(index);
+        if (jsonEscape && (c == '"' || c == '\\' || c < 0x20)) {
+            row[rowLength++] = '\\';
+            switch (c) {
+                case '"': row[rowLength++] = '"'; break;
+                case '\\': row[rowLength++] = '\\'; break;
+                case '\n': row[rowLength++] = 'n'; break;
+                case '\r': row[rowLength++] = 'r'; break;
+                case '\t': row[rowLength++] = 't'; break;
+                default:
+                    row[rowLength++] = 'u';
+                    row[rowLength++] = '0';
+                    row[rowLength++] = '0';
+                    row[rowLength++] = HEX[c >> 4];
+                    row[rowLength++] = HEX[c & 0xF];
+            }
+        } else if (c < 0x80) {
+            row[rowLength++] = (byte) c;
+        } else if (c < 0x800) {
+            row[rowLength++] = (byte) (0xC0 | c >> 6);
+            row[rowLength++] = (byte) (0x80 | c & 0x3F);
+        } else if (Character.isHighSurrogate(c) && index + 1 < value.length()
+                && Character.isLowSurrogate(value.charAt(index + 1))) {
+            int codePoint = Character.toCodePoint(c, value.charAt(index + 1));
+            row[rowLength++] = (byte) (0xF0 | codePoint >> 18);
+            row[rowLength++] = (byte) (0x80 | codePoint >> 12 & 0x3F);
+            row[rowLength++] = (byte) (0x80 | codePoint >> 6 & 0x3F);
+            row[rowLength++] = (byte) (0x80 | codePoint & 0x3F);
+            return index + 1;
+        } else if (Character.isSurrogate(c)) {
+            row[rowLength++] = '?'; // Unpaired surrogate, same replacement String.getBytes uses
+        } else {
+            row[rowLength++] = (byte) (0xE0 | c >> 12);
+            row[rowLength++] = (byte) (0x80 | c >> 6 & 0x3F);
+            row[rowLength++] = (byte) (0x80 | c & 0x3F);
+        }
+        return index;
+    }
+}
@@ -0,0 +1,557 @@
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Embedded HTTP/JSON API in front of a StudentService
+ * Every request runs on its own virtual thread, and student lists are streamed with chunked encoding
+ * Full listings are read from the service a page at a time while they are sent, so neither the whole
+ * roster nor a lock is held while a client reads; each student is sent once, as it was when its page was read
+ *
+ * Small chunked responses otherwise wait on delayed ACKs, so run the server with
+ * -Dsun.net.httpserver.nodelay=true (Main sets it when started with --serve)
+ *
+ * Endpoints:
+ *   GET    /students?sort=id|marks|name        All students (ID order by default)
+ *   POST   /students                           Add a student from {"name", "course", "marks"}
+ *   GET    /students/{id}                      One student
+ *   PUT    /students/{id}                      Update any of name, course, marks
+ *   DELETE /students/{id}                      Delete a student
+ *   GET    /students/search?name=|prefix=|course=|grade=
+ *                                              Search (one criterion per request; prefix is name order)
+ *   GET    /students/query?name=&course=&grade=&minMarks=&maxMarks=&sort=&limit=
+ *                                              Combined filters, planned over the indexes
+ *   GET    /students/top?limit=N               Highest marks first
+ *   GET    /statistics                         System statistics
+ *   GET    /metrics?format=json                Operation metrics, Prometheus text unless JSON is asked for
+ *
+ * Listings and searches return one page when limit, offset or cursor is given; the next page's
+ * cursor comes back in the X-Next-Cursor header and, when known, the total in X-Total-Count
+ *
+ * Lists are JSON arrays; send "Accept: application/x-ndjson" or "Accept: text/csv" for JSON Lines or CSV
+ */
+public class StudentHttpServer implements AutoCloseable {
+    private static final int MAX_BODY_BYTES = 64 * 1024;
+    private static final int DEFAULT_PAGE_SIZE = 100;
+    private static final int STREAM_PAGE_SIZE = 1024; // Students read per lock while streaming a full listing
+
+    /**
+     * Failure after the response headers were sent; the connection is dropped instead of ending the
+     * response, so the client sees a truncated body rather than a complete one
+     */
+    private static final class AbortedResponse extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        AbortedResponse(Throwable cause) {
+            super("Response aborted after the headers were sent", cause);
+        }
+    }
+
+    private final StudentService studentService;
+    private final HttpServer server;
+    private final ExecutorService executor;
+
+    /**
+     * Bind the server; call {@link #start()} to begin serving
+     * @param studentService Service to expose
+     * @param address Address to listen on (port 0 picks a free port)
+     * @throws IOException if the address cannot be bound
+     */
+    public StudentHttpServer(StudentService studentService, InetSocketAddress address) throws IOException {
+        this.studentService = studentService;
+        this.server = HttpServer.create(address, 0);
+        this.executor = Executors.newVirtualThreadPerTaskExecutor();
+        server.setExecutor(executor);
+        server.createContext("/students", this::handleStudents);
+        server.createContext("/statistics", this::handleStatistics);
+        server.createContext("/metrics", this::handleMetrics);
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    /**
+     * Get the port the server listens on
+     * @return Bound port
+     */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * Stop accepting requests, give running requests a second to finish and release the executor
+     */
+    @Override
+    public void close() {
+        server.stop(1);
+        executor.close();
+    }
+
+    private void handleStudents(HttpExchange exchange) throws IOException {
+        boolean aborted = false;
+        try {
+            String path = exchange.getRequestURI().getPath();
+            String method = exchange.getRequestMethod();
+            Map<String, String> query = parseQuery(exchange.getRequestURI().getRawQuery());
+
+            if (path.equals("/students") || path.equals("/students/")) {
+                if (method.equals("GET")) {
+                    listStudents(exchange, query);
+                } else if (method.equals("POST")) {
+                    addStudent(exchange);
+                } else {
+                    sendError(exchange, 405, "Method not allowed");
+                }
+                return;
+            }
+
+            String resource = path.substring("/students/".length());
+            if (resource.equals("search") || resource.equals("query") || resource.equals("top")) {
+                if (!method.equals("GET")) {
+                    sendError(exchange, 405, "Method not allowed");
+                } else if (resource.equals("search")) {
+                    searchStudents(exchange, query);
+                } else if (resource.equals("query")) {
+                    queryStudents(exchange, query);
+                } else {
+                    sendStudents(exchange, studentService.getTopStudents(parseLimit(query, 10)));
+                }
+                return;
+            }
+
+            int id;
+            try {
+                id = Integer.parseInt(resource);
+            } catch (NumberFormatException e) {
+                sendError(exchange, 404, "Not found");
+                return;
+            }
+            switch (method) {
+                case "GET":
+                    Student student = studentService.findStudentById(id);
+                    if (student == null) {
+                        sendError(exchange, 404, "Student with ID " + id + " not found");
+                    } else {
+                        sendStudent(exchange, 200, student);
+                    }
+                    break;
+                case "PUT":
+                case "PATCH":
+                    updateStudent(exchange, id);
+                    break;
+                case "DELETE":
+                    if (studentService.deleteStudent(id)) {
+                        exchange.sendResponseHeaders(204, -1);
+                    } else {
+                        sendError(exchange, 404, "Student with ID " + id + " not found");
+                    }
+                    break;
+                default:
+                    sendError(exchange, 405, "Method not allowed");
+            }
+        } catch (AbortedResponse e) {
+            aborted = true;
+            throw e; // The JDK server closes the connection without finishing the chunked body
+        } catch (IllegalArgumentException e) {
+            sendError(exchange, 400, e.getMessage());
+        } catch (RuntimeException e) {
+            sendError(exchange, 500, "Internal error: " + e.getMessage());
+        } finally {
+            if (!aborted) {
+                exchange.close();
+            }
+        }
+    }
+
+    private void handleStatistics(HttpExchange exchange) throws IOException {
+        try {
+            if (!exchange.getRequestMethod().equals("GET")) {
+                sendError(exchange, 405, "Method not allowed");
+                return;
+            }
+            sendJson(exchange, 200, statisticsJson(studentService.getStatistics()));
+        } catch (IllegalArgumentException e) {
+            sendError(exchange, 400, e.getMessage());
+        } catch (RuntimeException e) {
+            sendError(exchange, 500, "Internal error: " + e.getMessage());
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void handleMetrics(HttpExchange exchange) throws IOException {
+        try {
+            if (!exchange.getRequestMethod().equals("GET")) {
+                sendError(exchange, 405, "Method not allowed");
+                return;
+            }
+            ServiceMetrics metrics = studentService.getMetrics();
+            if ("json".equals(parseQuery(exchange.getRequestURI().getRawQuery()).get("format"))) {
+                sendJson(exchange, 200, metrics.toJson());
+                return;
+            }
+
+            byte[] bytes = metrics.toPrometheus().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+            exchange.sendResponseHeaders(200, bytes.length);
+            try (OutputStream body = exchange.getResponseBody()) {
+                body.write(bytes);
+            }
+        } catch (IllegalArgumentException e) {
+            sendError(exchange, 400, e.getMessage()); // Such as a malformed escape in the query
+        } catch (RuntimeException e) {
+            sendError(exchange, 500, "Internal error: " + e.getMessage());
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void listStudents(HttpExchange exchange, Map<String, String> query) throws IOException {
+        StudentPage.Order order = parseOrder(query);
+
+        if (isPaged(query)) {
+            int limit = parseLimit(query, DEFAULT_PAGE_SIZE);
+            sendPage(exchange, query.containsKey("cursor")
+                    ? studentService.listStudents(order, query.get("cursor"), limit)
+                    : studentService.listStudents(order, parseOffset(query), limit));
+        } else {
+            sendAllStudents(exchange, order);
+        }
+    }
+
+    private void searchStudents(HttpExchange exchange, Map<String, String> query) throws IOException {
+        boolean paged = isPaged(query);
+        int limit = paged ? parseLimit(query, DEFAULT_PAGE_SIZE) : 0;
+        String cursor = query.get("cursor");
+        int offset = paged ? parseOffset(query) : 0;
+
+        if (query.containsKey("name")) {
+            String name = query.get("name");
+            if (!paged) {
+                sendStudents(exchange, studentService.searchByName(name));
+            } else {
+                sendPage(exchange, cursor != null ? studentService.searchByName(name, cursor, limit)
+                        : studentService.searchByName(name, offset, limit));
+            }
+        } else if (query.containsKey("course")) {
+            String course = query.get("course");
+            if (!paged) {
+                sendStudents(exchange, studentService.searchByCourse(course));
+            } else {
+                sendPage(exchange, cursor != null ? studentService.searchByCourse(course, cursor, limit)
+                        : studentService.searchByCourse(course, offset, limit));
+            }
+        } else if (query.containsKey("grade")) {
+            String grade = query.get("grade");
+            if (!paged) {
+                sendStudents(exchange, studentService.searchByGrade(grade));
+            } else {
+                sendPage(exchange, cursor != null ? studentService.searchByGrade(grade, cursor, limit)
+                        : studentService.searchByGrade(grade, offset, limit));
+            }
+        } else if (query.containsKey("prefix")) {
+            String prefix = query.get("prefix");
+            if (!paged) {
+                sendStudents(exchange, studentService.searchByNamePrefix(prefix));
+            } else {
+                sendPage(exchange, cursor != null ? studentService.searchByNamePrefix(prefix, cursor, limit)
+                        : studentService.searchByNamePrefix(prefix, offset, limit));
+            }
+        } else {
+            throw new IllegalArgumentException("Search needs a name, prefix, course or grade parameter");
+        }
+    }
+
+    private void queryStudents(HttpExchange exchange, Map<String, String> query) throws IOException {
+        StudentQuery studentQuery = StudentQuery.all().orderBy(parseOrder(query));
+        if (query.containsKey("name")) studentQuery.nameContains(query.get("name"));
+        if (query.containsKey("course")) studentQuery.courseContains(query.get("course"));
+        if (query.containsKey("grade")) studentQuery.grade(query.get("grade"));
+        if (query.containsKey("minMarks")) studentQuery.minMarks(parseMarks(query.get("minMarks"), true));
+        if (query.containsKey("maxMarks")) studentQuery.maxMarks(parseMarks(query.get("maxMarks"), true));
+        if (query.containsKey("limit")) studentQuery.limit(parseLimit(query, 0));
+
+        // The plan is informational and may differ from the one the query ran with if students change in between
+        exchange.getResponseHeaders().set("X-Query-Plan", studentService.explain(studentQuery).toString());
+        sendStudents(exchange, studentService.query(studentQuery));
+    }
+
+    // A limit, offset or cursor asks for one page instead of the full result
+    private static boolean isPaged(Map<String, String> query) {
+        return query.containsKey("limit") || query.containsKey("offset") || query.containsKey("cursor");
+    }
+
+    private void sendPage(HttpExchange exchange, StudentPage page) throws IOException {
+        if (page.getNextCursor() != null) {
+            exchange.getResponseHeaders().set("X-Next-Cursor", page.getNextCursor());
+        }
+        if (page.getTotalCount() >= 0) {
+            exchange.getResponseHeaders().set("X-Total-Count", Integer.toString(page.getTotalCount()));
+        }
+        sendStudents(exchange, page.getStudents());
+    }
+
+    private void addStudent(HttpExchange exchange) throws IOException {
+        StudentImporter.JsonFields fields = StudentImporter.parseJsonObject(readBody(exchange));
+        Student student = studentService.addStudent(fields.name, fields.course, parseMarks(fields.marks, true));
+        exchange.getResponseHeaders().set("Location", "/students/" + student.getId());
+        sendStudent(exchange, 201, student);
+    }
+
+    private void updateStudent(HttpExchange exchange, int id) throws IOException {
+        StudentImporter.JsonFields fields = StudentImporter.parseJsonObject(readBody(exchange));
+        if (!studentService.updateStudent(id, fields.name, fields.course, parseMarks(fields.marks, false))) {
+            sendError(exchange, 404, "Student with ID " + id + " not found");
+            return;
+        }
+        Student student = studentService.findStudentById(id);
+        if (student == null) {
+            sendError(exchange, 404, "Student with ID " + id + " not found"); // Deleted right after the update
+        } else {
+            sendStudent(exchange, 200, student);
+        }
+    }
+
+    // Stream a list in the format the client accepts, without building the response in memory
+    private void sendStudents(HttpExchange exchange, List<Student> students) throws IOException {
+        StudentExporter exporter = startStudents(exchange);
+        try {
+            for (Student student : students) {
+                exporter.write(student);
+            }
+            exporter.finish();
+        } catch (IOException | RuntimeException e) {
+            throw new AbortedResponse(e);
+        } finally {
+            exporter.release();
+        }
+    }
+
+    // Stream every student in an order, reading one page at a time with the cursor of the last
+    private void sendAllStudents(HttpExchange exchange, StudentPage.Order order) throws IOException {
+        StudentPage page = studentService.listStudents(order, null, STREAM_PAGE_SIZE);
+        StudentExporter exporter = startStudents(exchange);
+        try {
+            while (true) {
+                for (Student student : page.getStudents()) {
+                    exporter.write(student);
+                }
+                if (!page.hasMore()) break;
+                page = studentService.listStudents(order, page.getNextCursor(), STREAM_PAGE_SIZE);
+            }
+            exporter.finish();
+        } catch (IOException | RuntimeException e) {
+            throw new AbortedResponse(e);
+        } finally {
+            exporter.release();
+        }
+    }
+
+    // Send the headers of a streamed list in the format the client accepts
+    private static StudentExporter startStudents(HttpExchange exchange) throws IOException {
+        String accept = exchange.getRequestHeaders().getFirst("Accept");
+        StudentExporter.Format format = StudentExporter.Format.JSON_ARRAY;
+        String contentType = "application/json";
+        if (accept != null && accept.contains("application/x-ndjson")) {
+            format = StudentExporter.Format.JSON_LINES;
+            contentType = "application/x-ndjson";
+        } else if (accept != null && accept.contains("text/csv")) {
+            format = StudentExporter.Format.CSV;
+            contentType = "text/csv; charset=utf-8";
+        }
+
+        exchange.getResponseHeaders().set("Content-Type", contentType);
+        exchange.sendResponseHeaders(200, 0); // 0 selects chunked encoding
+        try {
+            // The row count is only stored by the binary format, which is not served
+            return new StudentExporter(Channels.newChannel(exchange.getResponseBody()), format, 0);
+        } catch (IOException | RuntimeException e) {
+            throw new AbortedResponse(e);
+        }
+    }
+
+    // Single objects are small, so they are sent with a fixed length instead of chunked
+    private void sendStudent(HttpExchange exchange, int status, Student student) throws IOException {
+        ByteArrayOutputStream json = new ByteArrayOutputStream(128);
+        StudentExporter exporter = new StudentExporter(Channels.newChannel(json), StudentExporter.Format.JSON_LINES, 1);
+        try {
+            exporter.write(student);
+            exporter.finish();
+        } finally {
+            exporter.release();
+        }
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, json.size());
+        try (OutputStream body = exchange.getResponseBody()) {
+            json.writeTo(body);
+        }
+    }
+
+    private static void sendError(HttpExchange exchange, int status, String message) throws IOException {
+        sendJson(exchange, status, "{\"error\":" + jsonString(message) + "}");
+    }
+
+    private static void sendJson(HttpExchange exchange, int status, String json) throws IOException {
+        byte[] bytes = (json + "\n").getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream body = exchange.getResponseBody()) {
+            body.write(bytes);
+        }
+    }
+
+    private static String statisticsJson(StudentStatistics stats) {
+        StringBuilder json = new StringBuilder("{");
+        json.append("\"totalStudents\":").append(stats.getTotalStudents());
+        json.append(",\"averageMarks\":").append(stats.getAverageMarks());
+        json.append(",\"highestMarks\":").append(stats.getHighestMarks());
+        json.append(",\"lowestMarks\":").append(stats.getLowestMarks());
+        json.append(",\"lowerQuartile\":").append(stats.getLowerQuartile());
+        json.append(",\"medianMarks\":").append(stats.getMedianMarks());
+        json.append(",\"upperQuartile\":").append(stats.getUpperQuartile());
+        json.append(",\"passingStudents\":").append(stats.getPassingStudents());
+        json.append(",\"failingStudents\":").append(stats.getFailingStudents());
+        json.append(",\"passingPercentage\":").append(stats.getPassingPercentage());
+
+        Student top = stats.getTopStudent();
+        json.append(",\"topStudent\":");
+        if (top == null) {
+            json.append("null");
+        } else {
+            json.append("{\"id\":").append(top.getId())
+                    .append(",\"name\":").append(jsonString(top.getName()))
+                    .append(",\"course\":").append(jsonString(top.getCourse()))
+                    .append(",\"marks\":").append(top.getMarks()).append('}');
+        }
+
+        json.append(",\"gradeDistribution\":{");
+        Map<String, Integer> distribution = stats.getGradeDistribution();
+        boolean first = true;
+        for (Grade grade : Grade.values()) {
+            Integer count = distribution.get(grade.getLabel());
+            if (count == null) continue;
+            if (!first) json.append(',');
+            json.append(jsonString(grade.getLabel())).append(':').append(count);
+            first = false;
+        }
+
+        json.append("},\"courses\":[");
+        first = true;
+        for (StudentStatistics.CourseSummary course : stats.getCourseSummaries().values()) {
+            if (!first) json.append(',');
+            json.append("{\"course\":").append(jsonString(course.getCourse()))
+                    .append(",\"students\":").append(course.getStudents())
+                    .append(",\"averageMarks\":").append(course.getAverageMarks())
+                    .append(",\"passRate\":").append(course.getPassRate()).append('}');
+            first = false;
+        }
+        return json.append("]}").toString();
+    }
+
+    private static String jsonString(String value) {
+        StringBuilder json = new StringBuilder(value.length() + 2).append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                json.append('\\').append(c);
+            } else if (c < 0x20) {
+                json.append(String.format("\\u%04x", (int) c));
+            } else {
+                json.append(c);
+            }
+        }
+        return json.append('"').toString();
+    }
+
+    private static String readBody(HttpExchange exchange) throws IOException {
+        try (InputStream body = exchange.getRequestBody()) {
+            byte[] bytes = body.readNBytes(MAX_BODY_BYTES + 1);
+            if (bytes.length > MAX_BODY_BYTES) {
+                throw new IllegalArgumentException("Request body is too large");
+            }
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+    }
+
+    private static StudentPage.Order parseOrder(Map<String, String> query) {
+        String sort = query.getOrDefault("sort", "");
+        if (sort.equals("marks")) {
+            return StudentPage.Order.MARKS;
+        } else if (sort.equals("name")) {
+            return StudentPage.Order.NAME;
+        } else if (sort.isEmpty() || sort.equals("id")) {
+            return StudentPage.Order.ID;
+        }
+        throw new IllegalArgumentException("Unknown sort: " + sort + " (use id, marks or name)");
+    }
+
+    private static Double parseMarks(String marks, boolean required) {
+        if (marks == null) {
+            if (required) {
+                throw new IllegalArgumentException("Marks are missing");
+            }
+            return null;
+        }
+        try {
+            return Double.parseDouble(marks.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid marks: " + marks);
+        }
+    }
+
+    private static int parseOffset(Map<String, String> query) {
+        String offset = query.get("offset");
+        if (offset == null) {
+            return 0;
+        }
+        try {
+            return Integer.parseInt(offset);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid offset: " + offset);
+        }
+    }
+
+    private static int parseLimit(Map<String, String> query, int defaultLimit) {
+        String limit = query.get("limit");
+        if (limit == null) {
+            return defaultLimit;
+        }
+        try {
+            int value = Integer.parseInt(limit);
+            if (value < 0) {
+                throw new IllegalArgumentException("Limit cannot be negative");
+            }
+            return value;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid limit: " + limit);
+        }
+    }
+
+    private static Map<String, String> parseQuery(String rawQuery) {
+        Map<String, String> query = new HashMap<>();
+        if (rawQuery == null || rawQuery.isEmpty()) {
+            return query;
+        }
+        for (String pair : rawQuery.split("&")) {
+            int equals = pair.indexOf('=');
+            String key = equals < 0 ? pair : pair.substring(0, equals);
+            String value = equals < 0 ? "" : pair.substring(equals + 1);
+            query.put(URLDecoder.decode(key, StandardCharsets.UTF_8), URLDecoder.decode(value, StandardCharsets.UTF_8));
+        }
+        return query;
+    }
+}
@@ -0,0 +1,179 @@
+import java.util.Arrays;
+
+/**
+ * Primary key index mapping student IDs to their slot in the student list
+ * Open-addressing hash table on primitive int arrays, so IDs are never boxed
+ */
+public class StudentIdIndex {
+    private static final int EMPTY = 0; // Student IDs are always positive
+    private static final int NOT_FOUND = -1;
+    private static final float LOAD_FACTOR = 0.6f;
+
+    private int[] keys;
+    private int[] values;
+    private int size;
+    private int mask;
+    private int resizeThreshold;
+
+    public StudentIdIndex() {
+        this(16);
+    }
+
+    public StudentIdIndex(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(4, (int) (expectedSize / LOAD_FACTOR)) - 1) << 1;
+        allocate(capacity);
+    }
+
+    /**
+     * Get the slot stored for an ID
+     * @param id Student ID
+     * @return Slot of the student, or -1 if the ID is not indexed
+     */
+    public int get(int id) {
+        if (id <= 0) return NOT_FOUND;
+
+        // Read fields once and bound the probe, so optimistic readers racing a writer always terminate
+        int[] keys = this.keys;
+        int[] values = this.values;
+        int mask = this.mask;
+
+        int index = hash(id) & mask;
+        for (int probes = 0; probes <= mask; probes++) {
+            int key = keys[index];
+            if (key == id) {
+                return values[index];
+            }
+            if (key == EMPTY) {
+                return NOT_FOUND;
+            }
+            index = (index + 1) & mask;
+        }
+        return NOT_FOUND;
+    }
+
+    /**
+     * Check if an ID is indexed
+     * @param id Student ID
+     * @return true if the ID is present
+     */
+    public boolean contains(int id) {
+        return get(id) != NOT_FOUND;
+    }
+
+    /**
+     * Insert or replace the slot for an ID
+     * @param id Student ID (must be positive)
+     * @param slot Slot of the student in the list
+     * @throws IllegalArgumentException if the ID is not positive
+     */
+    public void put(int id, int slot) {
+        if (id <= 0) {
+            throw new IllegalArgumentException("Student ID must be positive");
+        }
+
+        int index = hash(id) & mask;
+        while (true) {
+            int key = keys[index];
+            if (key == id) {
+                values[index] = slot;
+                return;
+            }
+            if (key == EMPTY) {
+                keys[index] = id;
+                values[index] = slot;
+                if (++size > resizeThreshold) {
+                    rehash(keys.length << 1);
+                }
+                return;
+            }
+            index = (index + 1) & mask;
+        }
+    }
+
+    /**
+     * Remove an ID from the index
+     * @param id Student ID
+     * @return Slot that was stored for the ID, or -1 if it was not indexed
+     */
+    public int remove(int id) {
+        if (id <= 0) return NOT_FOUND;
+
+        int index = hash(id) & mask;
+        while (true) {
+            int key = keys[index];
+            if (key == EMPTY) {
+                return NOT_FOUND;
+            }
+            if (key == id) {
+                int slot = values[index];
+                shiftBack(index);
+                size--;
+                return slot;
+            }
+            index = (index + 1) & mask;
+        }
+    }
+
+    /**
+     * Remove all IDs from the index
+     */
+    public void clear() {
+        Arrays.fill(keys, EMPTY);
+        size = 0;
+    }
+
+    /**
+     * Get number of indexed IDs
+     * @return Index size
+     */
+    public int size() {
+        return size;
+    }
+
+    // Backward-shift deletion keeps probe chains intact without tombstones
+    private void shiftBack(int gap) {
+        int index = (gap + 1) & mask;
+        while (keys[index] != EMPTY) {
+            int home = hash(keys[index]) & mask;
+            // Move the entry into the gap if its home slot is not between gap and index
+            if (((index - home) & mask) >= ((index - gap) & mask)) {
+                keys[gap] = keys[index];
+                values[gap] = values[index];
+                gap = index;
+            }
+            index = (index + 1) & mask;
+        }
+        keys[gap] = EMPTY;
+    }
+
+    private void rehash(int newCapacity) {
+        int[] oldKeys = keys;
+        int[] oldValues = values;
+        allocate(newCapacity);
+
+        for (int i = 0; i < oldKeys.length; i++) {
+            int key = oldKeys[i];
+            if (key != EMPTY) {
+                int index = hash(key) & mask;
+                while (keys[index] != EMPTY) {
+                    index = (index + 1) & mask;
+                }
+                keys[index] = key;
+                values[index] = oldValues[i];
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new int[capacity];
+        values = new int[capacity];
+        mask = capacity - 1;
+        resizeThreshold = (int) (capacity * LOAD_FACTOR);
+    }
+
+    // Sequential IDs would cluster badly with linear probing, so scramble the bits first
+    static int hash(int id) {
+        int h = id * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
@@ -0,0 +1,503 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.stream.IntStream;
+
+/**
+ * Streams students from CSV or JSON Lines files into a StudentService
+ * Reads fixed-size chunks, validates each batch in parallel and commits it in one step,
+ * so memory use depends on the batch size, not the file size
+ */
+public class StudentImporter {
+    private static final int READ_BUFFER_BYTES = 1 << 20;
+    private static final int MAX_KEPT_ERRORS = 100;
+    private static final int MAX_LINE_CHARS = 4 * StudentJournal.MAX_STRING_BYTES; // Longer lines are rejected unread
+
+    /**
+     * Supported input formats
+     */
+    public enum Format {
+        CSV,        // name,course,marks with an optional header row naming the columns
+        JSON_LINES; // One {"name": ..., "course": ..., "marks": ...} object per line
+
+        /**
+         * Pick a format from a file extension (.json/.jsonl/.ndjson are JSON Lines, anything else CSV)
+         * @param file Input file
+         * @return Detected format
+         */
+        public static Format fromFileName(Path file) {
+            String name = file.getFileName().toString().toLowerCase(Locale.ROOT);
+            if (name.endsWith(".jsonl") || name.endsWith(".ndjson") || name.endsWith(".json")) {
+                return JSON_LINES;
+            }
+            return CSV;
+        }
+    }
+
+    /**
+     * Summary of a finished import
+     */
+    public static class ImportResult {
+        private final long rowsRead;
+        private final long rowsImported;
+        private final long rowsRejected;
+        private final List<String> firstErrors;
+        private final long elapsedMillis;
+
+        ImportResult(long rowsRead, long rowsImported, long rowsRejected, List<String> firstErrors,
+                     long elapsedMillis) {
+            this.rowsRead = rowsRead;
+            this.rowsImported = rowsImported;
+            this.rowsRejected = rowsRejected;
+            this.firstErrors = Collections.unmodifiableList(new ArrayList<>(firstErrors));
+            this.elapsedMillis = elapsedMillis;
+        }
+
+        public long getRowsRead() { return rowsRead; }
+        public long getRowsImported() { return rowsImported; }
+        public long getRowsRejected() { return rowsRejected; }
+        public List<String> getFirstErrors() { return firstErrors; }
+        public long getElapsedMillis() { return elapsedMillis; }
+
+        @Override
+        public String toString() {
+            return String.format("Read %d row(s): %d imported, %d rejected in %d ms",
+                    rowsRead, rowsImported, rowsRejected, elapsedMillis);
+        }
+    }
+
+    private final StudentService studentService;
+    private final int batchSize;
+    private final Writer errorReport;
+
+    /**
+     * Create an importer with the default batch size (10,000 rows) and no error report file
+     * @param studentService Service receiving the students
+     */
+    public StudentImporter(StudentService studentService) {
+        this(studentService, 10_000, null);
+    }
+
+    /**
+     * Create an importer
+     * @param studentService Service receiving the students
+     * @param batchSize Rows validated and committed together
+     * @param errorReport Receives one line per rejected row (may be null)
+     */
+    public StudentImporter(StudentService studentService, int batchSize, Writer errorReport) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("Batch size must be at least 1");
+        }
+        this.studentService = studentService;
+        this.batchSize = batchSize;
+        this.errorReport = errorReport;
+    }
+
+    /**
+     * Import a file, picking the format from its extension
+     * @param file CSV or JSON Lines file
+     * @return Import summary
+     * @throws IOException if the file cannot be read or the error report cannot be written
+     */
+    public ImportResult importFile(Path file) throws IOException {
+        return importFile(file, Format.fromFileName(file));
+    }
+
+    /**
+     * Import a file in the given format
+     * Bad rows are reported and skipped; every valid row is added
+     * @param file Input file
+     * @param format Input format
+     * @return Import summary
+     * @throws IOException if the file cannot be read or the error report cannot be written
+     */
+    public ImportResult importFile(Path file, Format format) throws IOException {
+        long start = System.nanoTime();
+        ImportRun run = new ImportRun(format);
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer bytes = ByteBuffer.allocateDirect(READ_BUFFER_BYTES);
+            CharBuffer chars = CharBuffer.allocate(READ_BUFFER_BYTES);
+            CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+                    .onMalformedInput(CodingErrorAction.REPLACE)
+                    .onUnmappableCharacter(CodingErrorAction.REPLACE);
+            StringBuilder line = new StringBuilder();
+            boolean lineTooLong = false;
+
+            boolean endOfInput = false;
+            while (!endOfInput) {
+                endOfInput = channel.read(bytes) < 0;
+                bytes.flip();
+                CoderResult result = decoder.decode(bytes, chars, endOfInput);
+                if (result.isError()) {
+                    result.throwException();
+                }
+                if (endOfInput) {
+                    decoder.flush(chars);
+                }
+                bytes.compact();
+
+                chars.flip();
+                while (chars.hasRemaining()) {
+                    char c = chars.get();
+                    if (c == '\n') {
+                        run.acceptLine(line, lineTooLong);
+                        line.setLength(0);
+                        lineTooLong = false;
+                    } else if (line.length() == MAX_LINE_CHARS) {
+                        lineTooLong = true; // Keep only the start, for the error report
+                    } else if (c != '\r') {
+                        line.append(c);
+                    }
+                }
+                chars.clear();
+            }
+            if (line.length() > 0) {
+                run.acceptLine(line, lineTooLong);
+            }
+            run.flushBatch();
+        } catch (UncheckedIOException e) {
+            throw e.getCause(); // Error report failures surface from inside the batch loop
+        }
+
+        if (errorReport != null) {
+            errorReport.flush();
+        }
+        return new ImportResult(run.rowsRead, run.rowsImported, run.rowsRejected, run.firstErrors,
+                (System.nanoTime() - start) / 1_000_000);
+    }
+
+    /**
+     * Parse one data row into an unsaved student, applying the Student constructor rules
+     * @param format Input format
+     * @param line Raw line
+     * @param columns Column positions for CSV (name, course, marks)
+     * @return Validated student with a placeholder ID
+     * @throws IllegalArgumentException if the row is malformed or invalid
+     */
+    static Student parseRow(Format format, String line, int[] columns) {
+        String name;
+        String course;
+        String marksText;
+        if (format == Format.CSV) {
+            List<String> fields = splitCsv(line);
+            int needed = Math.max(columns[0], Math.max(columns[1], columns[2])) + 1;
+            if (fields.size() < needed) {
+                throw new IllegalArgumentException("Expected " + needed + " fields but found " + fields.size());
+            }
+            name = fields.get(columns[0]);
+            course = fields.get(columns[1]);
+            marksText = fields.get(columns[2]);
+        } else {
+            JsonFields fields = parseJsonObject(line);
+            name = fields.name;
+            course = fields.course;
+            marksText = fields.marks;
+        }
+        checkLength("Name", name);
+        checkLength("Course", course);
+
+        if (marksText == null || marksText.trim().isEmpty()) {
+            throw new IllegalArgumentException("Marks are missing");
+        }
+        double marks;
+        try {
+            marks = Double.parseDouble(marksText.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid marks: " + marksText);
+        }
+        return new Student(0, name == null ? null : name.trim(), marks, course == null ? null : course.trim());
+    }
+
+    // The journal cannot store longer strings, so such rows are rejected here rather than failing their batch
+    private static void checkLength(String field, String value) {
+        if (value == null || value.length() * 3 <= StudentJournal.MAX_STRING_BYTES) {
+            return; // At most three UTF-8 bytes per char
+        }
+        int bytes = value.trim().getBytes(StandardCharsets.UTF_8).length;
+        if (bytes > StudentJournal.MAX_STRING_BYTES) {
+            throw new IllegalArgumentException(field + " is longer than " + StudentJournal.MAX_STRING_BYTES
+                    + " bytes: " + bytes + " bytes");
+        }
+    }
+
+    /**
+     * State of one import: the pending batch, counters and column layout
+     */
+    private class ImportRun {
+        private final Format format;
+        private final String[] lines = new String[batchSize];
+        private final long[] lineNumbers = new long[batchSize];
+        private final boolean[] truncated = new boolean[batchSize];
+        private int pending;
+        private long lineNumber;
+        private int[] columns = {0, 1, 2}; // Default CSV layout: name,course,marks
+
+        long rowsRead;
+        long rowsImported;
+        long rowsRejected;
+        final List<String> firstErrors = new ArrayList<>();
+
+        ImportRun(Format format) {
+            this.format = format;
+        }
+
+        void acceptLine(CharSequence text, boolean tooLong) {
+            lineNumber++;
+            String line = text.toString();
+            if (lineNumber == 1 && !line.isEmpty() && line.charAt(0) == '\uFEFF') {
+                line = line.substring(1); // Byte order mark
+            }
+            if (line.trim().isEmpty()) {
+                return;
+            }
+            if (lineNumber == 1 && !tooLong && format == Format.CSV && readHeader(line)) {
+                return;
+            }
+
+            lines[pending] = line;
+            lineNumbers[pending] = lineNumber;
+            truncated[pending] = tooLong;
+            pending++;
+            rowsRead++;
+            if (pending == batchSize) {
+                flushBatch();
+            }
+        }
+
+        // A first row naming a "marks" column is a header and may reorder the columns
+        private boolean readHeader(String line) {
+            List<String> fields = splitCsv(line);
+            int[] positions = {-1, -1, -1};
+            for (int i = 0; i < fields.size(); i++) {
+                String field = fields.get(i).trim().toLowerCase(Locale.ROOT);
+                if (field.equals("name")) positions[0] = i;
+                else if (field.equals("course")) positions[1] = i;
+                else if (field.equals("marks")) positions[2] = i;
+            }
+            if (positions[2] < 0) {
+                return false;
+            }
+            if (positions[0] < 0 || positions[1] < 0) {
+                throw new IllegalArgumentException("CSV header must name the name, course and marks columns");
+            }
+            columns = positions;
+            return true;
+        }
+
+        void flushBatch() {
+            if (pending == 0) return;
+
+            // Validate in parallel; each slot holds either a Student or the error message
+            int count = pending;
+            Object[] parsed = new Object[count];
+            int[] layout = columns;
+            IntStream.range(0, count).parallel().forEach(i -> {
+                if (truncated[i]) {
+                    parsed[i] = "Line is longer than " + MAX_LINE_CHARS + " characters";
+                    return;
+                }
+                try {
+                    parsed[i] = parseRow(format, lines[i], layout);
+                } catch (IllegalArgumentException e) {
+                    parsed[i] = e.getMessage();
+                }
+            });
+
+            List<Student> valid = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                if (parsed[i] instanceof Student) {
+                    valid.add((Student) parsed[i]);
+                } else {
+                    reportError(lineNumbers[i], (String) parsed[i], lines[i]);
+                }
+                lines[i] = null;
+            }
+
+            studentService.addBatch(valid);
+            rowsImported += valid.size();
+            pending = 0;
+        }
+
+        private void reportError(long line, String message, String raw) {
+            rowsRejected++;
+            String error = "Line " + line + ": " + message;
+            if (firstErrors.size() < MAX_KEPT_ERRORS) {
+                firstErrors.add(error);
+            }
+            if (errorReport != null) {
+                try {
+                    errorReport.write(error + " | " + raw + System.lineSeparator());
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        }
+    }
+
+    // Split one CSV line, honouring double-quoted fields with "" escapes
+    static List<String> splitCsv(String line) {
+        List<String> fields = new ArrayList<>(3);
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"') {
+                    if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                        field.append('"');
+                        i++;
+                    } else {
+                        quoted = false;
+                    }
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        if (quoted) {
+            throw new IllegalArgumentException("Unterminated quoted field");
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+
+    /**
+     * Student fields read from a JSON object, null when absent
+     */
+    static class JsonFields {
+        String name;
+        String course;
+        String marks;
+    }
+
+    /**
+     * Minimal parser for a flat JSON object of string and number values
+     * Unknown keys are skipped; also used for HTTP request bodies
+     * @param line JSON object text
+     * @return Student fields found in the object
+     * @throws IllegalArgumentException if the text is not a flat JSON object
+     */
+    static JsonFields parseJsonObject(String line) {
+        JsonFields fields = new JsonFields();
+        int[] position = {skipWhitespace(line, 0)};
+        expect(line, position, '{');
+
+        position[0] = skipWhitespace(line, position[0]);
+        if (position[0] < line.length() && line.charAt(position[0]) == '}') {
+            position[0]++;
+        } else {
+            while (true) {
+                position[0] = skipWhitespace(line, position[0]);
+                String key = readJsonString(line, position);
+                position[0] = skipWhitespace(line, position[0]);
+                expect(line, position, ':');
+                position[0] = skipWhitespace(line, position[0]);
+                String value = readJsonValue(line, position);
+
+                if (key.equals("name")) fields.name = value;
+                else if (key.equals("course")) fields.course = value;
+                else if (key.equals("marks")) fields.marks = value;
+
+                position[0] = skipWhitespace(line, position[0]);
+                if (position[0] < line.length() && line.charAt(position[0]) == ',') {
+                    position[0]++;
+                    continue;
+                }
+                expect(line, position, '}');
+                break;
+            }
+        }
+        if (skipWhitespace(line, position[0]) != line.length()) {
+            throw new IllegalArgumentException("Unexpected text after JSON object");
+        }
+        return fields;
+    }
+
+    private static String readJsonValue(String line, int[] position) {
+        if (position[0] < line.length() && line.charAt(position[0]) == '"') {
+            return readJsonString(line, position);
+        }
+        int start = position[0];
+        while (position[0] < line.length() && ",} \t".indexOf(line.charAt(position[0])) < 0) {
+            position[0]++;
+        }
+        String literal = line.substring(start, position[0]);
+        if (literal.isEmpty()) {
+            throw new IllegalArgumentException("Missing JSON value at column " + (start + 1));
+        }
+        return literal.equals("null") ? null : literal;
+    }
+
+    private static String readJsonString(String line, int[] position) {
+        expect(line, position, '"');
+        StringBuilder value = new StringBuilder();
+        while (position[0] < line.length()) {
+            char c = line.charAt(position[0]++);
+            if (c == '"') {
+                return value.toString();
+            }
+            if (c != '\\') {
+                value.append(c);
+                continue;
+            }
+            if (position[0] >= line.length()) break;
+            char escaped = line.charAt(position[0]++);
+            switch (escaped) {
+                case 'n': value.append('\n'); break;
+                case 't': value.append('\t'); break;
+                case 'r': value.append('\r'); break;
+                case 'b': value.append('\b'); break;
+                case 'f': value.append('\f'); break;
+                case 'u':
+                    if (position[0] + 4 > line.length()) {
+                        throw new IllegalArgumentException("Invalid unicode escape in JSON string");
+                    }
+                    try {
+                        value.append((char) Integer.parseInt(line.substring(position[0], position[0] + 4), 16));
+                    } catch (NumberFormatException e) {
+                        throw new IllegalArgumentException("Invalid unicode escape in JSON string");
+                    }
+                    position[0] += 4;
+                    break;
+                default: value.append(escaped); // \" \\ \/
+            }
+        }
+        throw new IllegalArgumentException("Unterminated JSON string");
+    }
+
+    private static void expect(String line, int[] position, char expected) {
+        if (position[0] >= line.length() || line.charAt(position[0]) != expected) {
+            throw new IllegalArgumentException("Expected '" + expected + "' at column " + (position[0] + 1));
+        }
+        position[0]++;
+    }
+
+    private static int skipWhitespace(String line, int position) {
+        while (position < line.length() && Character.isWhitespace(line.charAt(position))) {
+            position++;
+        }
+        return position;
+    }
+}
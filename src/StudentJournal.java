@@ -0,0 +1,488 @@
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only write-ahead journal of student add/update/delete operations
+ * Records are checksummed so a torn write at the tail is detected and dropped on recovery
+ * A batch is written as one record, so recovery applies either all of its operations or none
+ *
+ * Appends and flush lock the journal, so the background flusher can sync pending records
+ * while the owner keeps writing; force runs outside that lock
+ */
+public final class StudentJournal implements AutoCloseable {
+    public static final byte OP_UPSERT = 1; // Add or update, stores the full record after the change
+    public static final byte OP_DELETE = 2;
+    public static final byte OP_BATCH = 3;  // Upserts then deletes, applied together
+
+    private static final int HEADER_SIZE = 8; // Payload length + CRC32
+    static final int MAX_STRING_BYTES = 16 * 1024; // Keeps any record well inside the write buffer
+    private static final int[] NO_IDS = new int[0];
+
+    /**
+     * Receives journal records during replay
+     */
+    public interface ReplayHandler {
+        void upsert(Student student);
+        void delete(int id);
+
+        // Deletes of one batch record, in ascending ID order
+        default void deleteAll(int[] ids) {
+            for (int id : ids) {
+                delete(id);
+            }
+        }
+    }
+
+    private final FileChannel channel;
+    private final ByteBuffer writeBuffer; // Batches larger than this are written straight to the channel
+    private final CRC32 crc;
+    private final int syncBatchSize;
+    private final long syncIntervalNanos;
+    private final ScheduledExecutorService flusher; // null when every record is synced inline or by the owner
+
+    private int unsyncedRecords;
+    private long lastSyncNanos;
+    private long recordCount; // Operations in the file, including replayed ones
+    private long syncCount;
+    private IOException flushFailure; // Error from the background flusher, rethrown to the next caller
+
+    /**
+     * Open (or create) a journal file
+     * @param file Journal file path
+     * @param syncBatchSize Maximum number of records written between two fsyncs
+     * @param syncIntervalMillis Longest a written record waits for its fsync, give or take the time the
+     *                           fsync takes; a background thread syncs pending records this often, and
+     *                           appends sync inline once this much time has passed since the last sync.
+     *                           0 syncs every record as it is written. Long.MAX_VALUE, with
+     *                           Integer.MAX_VALUE records, leaves every fsync to sync()
+     * @throws IOException if the file cannot be opened
+     */
+    public StudentJournal(Path file, int syncBatchSize, long syncIntervalMillis) throws IOException {
+        if (syncBatchSize < 1) {
+            throw new IllegalArgumentException("Sync batch size must be at least 1");
+        }
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        this.writeBuffer = ByteBuffer.allocate(64 * 1024);
+        this.crc = new CRC32();
+        this.syncBatchSize = syncBatchSize;
+        this.syncIntervalNanos = TimeUnit.MILLISECONDS.toNanos(syncIntervalMillis); // Saturates instead of overflowing
+        this.lastSyncNanos = System.nanoTime();
+
+        if (syncIntervalMillis > 0 && syncIntervalNanos < Long.MAX_VALUE) {
+            this.flusher = Executors.newSingleThreadScheduledExecutor(task -> {
+                Thread thread = new Thread(task, "student-journal-flusher");
+                thread.setDaemon(true);
+                return thread;
+            });
+            flusher.scheduleWithFixedDelay(this::syncPending, syncIntervalMillis, syncIntervalMillis,
+                    TimeUnit.MILLISECONDS);
+        } else {
+            this.flusher = null;
+        }
+    }
+
+    /**
+     * Replay every intact record from the start of the journal
+     * Truncates a torn or corrupt tail so new records are appended after the last good one
+     * An exception from the handler stops the replay and leaves the file untouched
+     * @param handler Receives the replayed operations in order
+     * @return Number of operations replayed
+     * @throws IOException if the file cannot be read
+     */
+    public synchronized long replay(ReplayHandler handler) throws IOException {
+        ByteBuffer readBuffer = ByteBuffer.allocate(64 * 1024);
+        long position = 0;
+        long replayed = 0;
+        long fileSize = channel.size();
+
+        channel.position(0);
+        readBuffer.limit(0);
+
+        while (true) {
+            if (!fill(readBuffer, HEADER_SIZE)) break;
+            int length = readBuffer.getInt();
+            int checksum = readBuffer.getInt();
+            if (length <= 0 || position + HEADER_SIZE + length > fileSize) break;
+
+            if (length > readBuffer.capacity()) {
+                readBuffer = grow(readBuffer, length);
+            }
+            if (!fill(readBuffer, length)) break;
+
+            crc.reset();
+            crc.update(readBuffer.array(), readBuffer.arrayOffset() + readBuffer.position(), length);
+            if ((int) crc.getValue() != checksum) break;
+
+            int recordEnd = readBuffer.position() + length;
+            Record record;
+            try {
+                record = decodeRecord(readBuffer.slice(readBuffer.position(), length));
+            } catch (RuntimeException e) {
+                break; // Checksum matched but content is unusable, treat like a torn tail
+            }
+            replayed += record.apply(handler); // Handler errors propagate, the file is not truncated
+            readBuffer.position(recordEnd);
+
+            position += HEADER_SIZE + length;
+        }
+
+        if (position < fileSize) {
+            channel.truncate(position);
+            channel.force(true);
+        }
+        channel.position(position);
+        recordCount = replayed;
+        return replayed;
+    }
+
+    /**
+     * Append an add or update operation
+     * @param student Student state after the change
+     * @throws IOException if the record cannot be written
+     */
+    public synchronized void appendUpsert(Student student) throws IOException {
+        throwFlushFailure();
+        byte[] name = encode(student.getName());
+        byte[] course = encode(student.getCourse());
+        int length = 1 + 4 + 2 + name.length + 2 + course.length + 8;
+
+        ensureCapacity(HEADER_SIZE + length);
+        int start = writeBuffer.position();
+        writeBuffer.position(start + HEADER_SIZE);
+        writeBuffer.put(OP_UPSERT);
+        writeBuffer.putInt(student.getId());
+        writeBuffer.putShort((short) name.length).put(name);
+        writeBuffer.putShort((short) course.length).put(course);
+        writeBuffer.putDouble(student.getMarks());
+        finishRecord(writeBuffer, start, length, 1);
+    }
+
+    /**
+     * Append a delete operation
+     * @param id ID of the deleted student
+     * @throws IOException if the record cannot be written
+     */
+    public synchronized void appendDelete(int id) throws IOException {
+        throwFlushFailure();
+        int length = 1 + 4;
+
+        ensureCapacity(HEADER_SIZE + length);
+        int start = writeBuffer.position();
+        writeBuffer.position(start + HEADER_SIZE);
+        writeBuffer.put(OP_DELETE);
+        writeBuffer.putInt(id);
+        finishRecord(writeBuffer, start, length, 1);
+    }
+
+    /**
+     * Append several operations as a single record
+     * Upserts are replayed before deletes
+     * @param upserts Student states after the changes
+     * @param deletedIds IDs of deleted students
+     * @throws IOException if the record cannot be written
+     * @throws IllegalArgumentException if a value or the whole batch is too large to store
+     */
+    public synchronized void appendBatch(List<Student> upserts, int[] deletedIds) throws IOException {
+        throwFlushFailure();
+        // Encode every value first, so an oversized one rejects the batch before anything is written
+        byte[][] names = new byte[upserts.size()][];
+        byte[][] courses = new byte[upserts.size()][];
+        long length = 1 + 4 + 4 + 4L * deletedIds.length;
+        for (int i = 0; i < upserts.size(); i++) {
+            names[i] = encode(upserts.get(i).getName());
+            courses[i] = encode(upserts.get(i).getCourse());
+            length += 4 + 2 + names[i].length + 2 + courses[i].length + 8;
+        }
+        if (HEADER_SIZE + length > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Batch is too large to store: " + length + " bytes");
+        }
+
+        ByteBuffer buffer;
+        if (HEADER_SIZE + length <= writeBuffer.capacity()) {
+            ensureCapacity(HEADER_SIZE + (int) length);
+            buffer = writeBuffer;
+        } else {
+            flushBuffer(); // Keep records in order ahead of the oversized one
+            buffer = ByteBuffer.allocate(HEADER_SIZE + (int) length);
+        }
+        int start = buffer.position();
+        buffer.position(start + HEADER_SIZE);
+        buffer.put(OP_BATCH);
+        buffer.putInt(upserts.size());
+        buffer.putInt(deletedIds.length);
+        for (int i = 0; i < upserts.size(); i++) {
+            Student student = upserts.get(i);
+            buffer.putInt(student.getId());
+            buffer.putShort((short) names[i].length).put(names[i]);
+            buffer.putShort((short) courses[i].length).put(courses[i]);
+            buffer.putDouble(student.getMarks());
+        }
+        for (int id : deletedIds) {
+            buffer.putInt(id);
+        }
+        finishRecord(buffer, start, (int) length, upserts.size() + deletedIds.length);
+    }
+
+    /**
+     * Write buffered records and fsync the journal
+     * @throws IOException if the journal cannot be written
+     */
+    public void sync() throws IOException {
+        if (flush()) {
+            force();
+        }
+    }
+
+    /**
+     * First half of sync: write buffered records to the file and count them as synced
+     * Force may then run without holding any lock
+     * @return true if records were written since the last sync and force is needed
+     * @throws IOException if the journal cannot be written, or the background flusher failed
+     */
+    public synchronized boolean flush() throws IOException {
+        throwFlushFailure();
+        flushBuffer();
+        boolean pending = unsyncedRecords > 0;
+        if (pending) {
+            syncCount++;
+        }
+        unsyncedRecords = 0;
+        lastSyncNanos = System.nanoTime();
+        return pending;
+    }
+
+    /**
+     * Second half of sync: fsync records already written by flush
+     * Safe to run while other threads append, so an fsync does not block writers
+     * @throws IOException if the journal cannot be forced
+     */
+    public void force() throws IOException {
+        channel.force(false);
+    }
+
+    // Background flusher: sync whatever was appended since the last sync
+    private void syncPending() {
+        boolean written;
+        synchronized (this) {
+            if (unsyncedRecords == 0 || flushFailure != null) return;
+            try {
+                written = flush();
+            } catch (IOException e) {
+                flushFailure = e;
+                return;
+            }
+        }
+        try {
+            if (written) {
+                force();
+            }
+        } catch (IOException e) {
+            synchronized (this) {
+                if (channel.isOpen()) {
+                    flushFailure = e;
+                }
+            }
+        }
+    }
+
+    /**
+     * Get number of records currently in the journal
+     * @return Record count
+     */
+    public synchronized long getRecordCount() {
+        return recordCount;
+    }
+
+    /**
+     * Get number of fsyncs issued since the journal was opened
+     * @return Sync count
+     */
+    public synchronized long getSyncCount() {
+        return syncCount;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (flusher != null) {
+            flusher.shutdown(); // A sync in flight finishes, sync() below covers the rest
+            boolean interrupted = false;
+            while (!flusher.isTerminated()) {
+                try {
+                    flusher.awaitTermination(1, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        try {
+            sync();
+        } finally {
+            channel.close();
+        }
+    }
+
+    private void finishRecord(ByteBuffer buffer, int start, int length, int operations) throws IOException {
+        crc.reset();
+        crc.update(buffer.array(), buffer.arrayOffset() + start + HEADER_SIZE, length);
+        buffer.putInt(start, length);
+        buffer.putInt(start + 4, (int) crc.getValue());
+        if (buffer != writeBuffer) {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+
+        recordCount += operations;
+        unsyncedRecords++;
+        if (unsyncedRecords >= syncBatchSize || System.nanoTime() - lastSyncNanos >= syncIntervalNanos) {
+            sync();
+        }
+    }
+
+    private void throwFlushFailure() throws IOException {
+        if (flushFailure != null) {
+            throw new IOException("Background journal sync failed", flushFailure);
+        }
+    }
+
+    private void ensureCapacity(int recordSize) throws IOException {
+        if (writeBuffer.remaining() < recordSize) {
+            flushBuffer();
+        }
+    }
+
+    private void flushBuffer() throws IOException {
+        writeBuffer.flip();
+        while (writeBuffer.hasRemaining()) {
+            channel.write(writeBuffer);
+        }
+        writeBuffer.clear();
+    }
+
+    /**
+     * Decoded journal record, kept apart from applying it so only decoding errors count as corruption
+     */
+    private static final class Record {
+        final byte op;
+        final int[] ids;       // Upserted students
+        final String[] names;
+        final String[] courses;
+        final double[] marks;
+        final int[] deletedIds;
+
+        Record(byte op, int upsertCount, int[] deletedIds) {
+            this.op = op;
+            this.ids = new int[upsertCount];
+            this.names = new String[upsertCount];
+            this.courses = new String[upsertCount];
+            this.marks = new double[upsertCount];
+            this.deletedIds = deletedIds;
+        }
+
+        // Returns the number of operations in the record
+        int apply(ReplayHandler handler) {
+            // Build every student first, so a batch that fails validation applies none of it
+            Student[] upserts = new Student[ids.length];
+            for (int i = 0; i < ids.length; i++) {
+                upserts[i] = new Student(ids[i], names[i], marks[i], courses[i]);
+            }
+            for (Student student : upserts) {
+                handler.upsert(student);
+            }
+            if (op == OP_DELETE) {
+                handler.delete(deletedIds[0]);
+            } else if (deletedIds.length > 0) {
+                handler.deleteAll(deletedIds);
+            }
+            return upserts.length + deletedIds.length;
+        }
+    }
+
+    // Throws a RuntimeException if the record is malformed
+    private static Record decodeRecord(ByteBuffer buffer) {
+        byte op = buffer.get();
+        Record record;
+        if (op == OP_UPSERT) {
+            record = new Record(op, 1, NO_IDS);
+        } else if (op == OP_DELETE) {
+            return new Record(op, 0, new int[] {buffer.getInt()});
+        } else if (op == OP_BATCH) {
+            int upsertCount = buffer.getInt();
+            int deleteCount = buffer.getInt();
+            if (upsertCount < 0 || upsertCount > buffer.remaining() / 16
+                    || deleteCount < 0 || deleteCount > buffer.remaining() / 4) {
+                throw new IllegalStateException("Corrupt journal batch");
+            }
+            record = new Record(op, upsertCount, new int[deleteCount]);
+        } else {
+            throw new IllegalStateException("Unknown journal operation: " + op);
+        }
+
+        for (int i = 0; i < record.ids.length; i++) {
+            record.ids[i] = buffer.getInt();
+            record.names[i] = decode(buffer);
+            record.courses[i] = decode(buffer);
+            record.marks[i] = buffer.getDouble();
+        }
+        for (int i = 0; i < record.deletedIds.length; i++) {
+            record.deletedIds[i] = buffer.getInt();
+        }
+        return record;
+    }
+
+    // Make sure at least 'needed' unread bytes are in the buffer, refilling from the channel
+    private boolean fill(ByteBuffer buffer, int needed) throws IOException {
+        if (buffer.remaining() >= needed) return true;
+
+        buffer.compact();
+        while (buffer.position() < needed) {
+            if (channel.read(buffer) < 0) {
+                buffer.flip();
+                return false;
+            }
+        }
+        buffer.flip();
+        return true;
+    }
+
+    private static ByteBuffer grow(ByteBuffer buffer, int minCapacity) {
+        ByteBuffer larger = ByteBuffer.allocate(Math.max(minCapacity, buffer.capacity() * 2));
+        larger.put(buffer);
+        larger.flip();
+        return larger;
+    }
+
+    static byte[] encode(String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > MAX_STRING_BYTES) {
+            throw new IllegalArgumentException("Value is too long to store: " + bytes.length + " bytes");
+        }
+        return bytes;
+    }
+
+    static String decode(ByteBuffer buffer) {
+        int length = buffer.getShort() & 0xFFFF;
+        if (length > buffer.remaining()) {
+            throw new IllegalStateException(new EOFException("String runs past end of record"));
+        }
+        String value = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), length,
+                StandardCharsets.UTF_8);
+        buffer.position(buffer.position() + length);
+        return value;
+    }
+}
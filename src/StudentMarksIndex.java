@@ -0,0 +1,373 @@
+import java.util.Arrays;
+
+/**
+ * Sorted index of students by marks, highest first, with ties broken by ID
+ * Treap stored in primitive arrays, so entries are never boxed
+ */
+public class StudentMarksIndex {
+    private static final int NIL = 0; // Node 0 is a sentinel with size 0
+
+    private double[] marks;
+    private int[] ids;
+    private int[] left;
+    private int[] right;
+    private int[] size;
+    private int[] priority;
+    private int root;
+    private int freeList; // Freed nodes are chained through 'left'
+    private int allocated;
+    private int seed;
+
+    public StudentMarksIndex() {
+        this(16);
+    }
+
+    public StudentMarksIndex(int expectedSize) {
+        int capacity = Math.max(2, expectedSize + 1);
+        marks = new double[capacity];
+        ids = new int[capacity];
+        left = new int[capacity];
+        right = new int[capacity];
+        size = new int[capacity];
+        priority = new int[capacity];
+        root = NIL;
+        freeList = NIL;
+        allocated = 1;
+        seed = 0x2545F491;
+    }
+
+    /**
+     * Add a student to the index
+     * @param studentMarks Student marks
+     * @param id Student ID
+     */
+    public void insert(double studentMarks, int id) {
+        int node = allocate(studentMarks, id);
+        long parts = split(root, studentMarks, id);
+        root = merge(merge(lower(parts), node), upper(parts));
+    }
+
+    /**
+     * Remove a student from the index
+     * @param studentMarks Marks the student was indexed with
+     * @param id Student ID
+     * @return true if the entry was found and removed
+     */
+    public boolean remove(double studentMarks, int id) {
+        long parts = split(root, studentMarks, id);
+        int after = upper(parts);
+
+        // The entry, if present, is the first node of the upper part
+        int node = after;
+        while (node != NIL && left[node] != NIL) {
+            node = left[node];
+        }
+        if (node == NIL || marks[node] != studentMarks || ids[node] != id) {
+            root = merge(lower(parts), after);
+            return false;
+        }
+
+        after = removeFirst(after);
+        release(node);
+        root = merge(lower(parts), after);
+        return true;
+    }
+
+    /**
+     * Remove every entry
+     */
+    public void clear() {
+        root = NIL;
+        freeList = NIL;
+        allocated = 1;
+    }
+
+    /**
+     * Get number of indexed students
+     * @return Index size
+     */
+    public int size() {
+        return size[root];
+    }
+
+    /**
+     * Get ID of the top student (highest marks, lowest ID among ties)
+     * @return Student ID, or -1 if the index is empty
+     */
+    public int firstId() {
+        int node = firstNode();
+        return node == NIL ? -1 : ids[node];
+    }
+
+    /**
+     * Get the highest marks in the index
+     * @return Highest marks, or 0 if the index is empty
+     */
+    public double highestMarks() {
+        int node = firstNode();
+        return node == NIL ? 0.0 : marks[node];
+    }
+
+    /**
+     * Get the lowest marks in the index
+     * @return Lowest marks, or 0 if the index is empty
+     */
+    public double lowestMarks() {
+        int node = root;
+        while (node != NIL && right[node] != NIL) {
+            node = right[node];
+        }
+        return node == NIL ? 0.0 : marks[node];
+    }
+
+    /**
+     * Get ID of the student at a rank
+     * @param rank 0-based position, 0 is the top student
+     * @return Student ID
+     * @throws IndexOutOfBoundsException if rank is outside the index
+     */
+    public int idAt(int rank) {
+        return ids[nodeAt(rank)];
+    }
+
+    /**
+     * Get marks of the student at a rank
+     * @param rank 0-based position, 0 is the top student
+     * @return Marks at that rank
+     * @throws IndexOutOfBoundsException if rank is outside the index
+     */
+    public double marksAt(int rank) {
+        return marks[nodeAt(rank)];
+    }
+
+    /**
+     * Get number of entries ordered before a student
+     * @param studentMarks Marks the student is indexed with
+     * @param id Student ID
+     * @return 0-based rank the entry has (or would have) in the index
+     */
+    public int rankOf(double studentMarks, int id) {
+        int rank = 0;
+        int node = root;
+        while (node != NIL) {
+            if (before(node, studentMarks, id)) {
+                rank += size[left[node]] + 1;
+                node = right[node];
+            } else {
+                node = left[node];
+            }
+        }
+        return rank;
+    }
+
+    /**
+     * Count students with marks strictly above a value
+     * @param value Marks threshold
+     * @return Number of entries with higher marks
+     */
+    public int countAbove(double value) {
+        int count = 0;
+        int node = root;
+        while (node != NIL) {
+            if (marks[node] > value) {
+                count += size[left[node]] + 1;
+                node = right[node];
+            } else {
+                node = left[node];
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Count students with marks at or above a value
+     * @param value Marks threshold
+     * @return Number of entries with equal or higher marks
+     */
+    public int countAtLeast(double value) {
+        int count = 0;
+        int node = root;
+        while (node != NIL) {
+            if (marks[node] >= value) {
+                count += size[left[node]] + 1;
+                node = right[node];
+            } else {
+                node = left[node];
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Get IDs for a range of ranks in index order
+     * Visits O(log n + k) nodes for k returned IDs
+     * @param fromRank First rank (inclusive)
+     * @param toRank Last rank (exclusive)
+     * @return IDs ordered by marks (descending), then ID
+     */
+    public int[] idsInRankRange(int fromRank, int toRank) {
+        int from = Math.max(0, fromRank);
+        int to = Math.min(size(), toRank);
+        if (from >= to) {
+            return new int[0];
+        }
+
+        int[] result = new int[to - from];
+        collect(root, 0, from, to, result);
+        return result;
+    }
+
+    private void collect(int node, int firstRank, int from, int to, int[] result) {
+        if (node == NIL) return;
+
+        int nodeRank = firstRank + size[left[node]];
+        if (from < nodeRank) {
+            collect(left[node], firstRank, from, to, result);
+        }
+        if (nodeRank >= from && nodeRank < to) {
+            result[nodeRank - from] = ids[node];
+        }
+        if (nodeRank + 1 < to) {
+            collect(right[node], nodeRank + 1, from, to, result);
+        }
+    }
+
+    private int nodeAt(int rank) {
+        if (rank < 0 || rank >= size()) {
+            throw new IndexOutOfBoundsException("Rank " + rank + " outside index of size " + size());
+        }
+
+        int node = root;
+        while (true) {
+            int leftSize = size[left[node]];
+            if (rank < leftSize) {
+                node = left[node];
+            } else if (rank == leftSize) {
+                return node;
+            } else {
+                rank -= leftSize + 1;
+                node = right[node];
+            }
+        }
+    }
+
+    private int firstNode() {
+        int node = root;
+        while (node != NIL && left[node] != NIL) {
+            node = left[node];
+        }
+        return node;
+    }
+
+    // Entry order: higher marks first, then lower ID first
+    private boolean before(int node, double otherMarks, int otherId) {
+        if (marks[node] != otherMarks) {
+            return marks[node] > otherMarks;
+        }
+        return ids[node] < otherId;
+    }
+
+    // Split into nodes ordered before (marks, id) and the rest, packed as two ints in a long
+    private long split(int node, double keyMarks, int keyId) {
+        if (node == NIL) {
+            return pack(NIL, NIL);
+        }
+        if (before(node, keyMarks, keyId)) {
+            long parts = split(right[node], keyMarks, keyId);
+            right[node] = lower(parts);
+            update(node);
+            return pack(node, upper(parts));
+        } else {
+            long parts = split(left[node], keyMarks, keyId);
+            left[node] = upper(parts);
+            update(node);
+            return pack(lower(parts), node);
+        }
+    }
+
+    // Every node of 'a' is ordered before every node of 'b'
+    private int merge(int a, int b) {
+        if (a == NIL) return b;
+        if (b == NIL) return a;
+        if (priority[a] > priority[b]) {
+            right[a] = merge(right[a], b);
+            update(a);
+            return a;
+        } else {
+            left[b] = merge(a, left[b]);
+            update(b);
+            return b;
+        }
+    }
+
+    private int removeFirst(int node) {
+        if (left[node] == NIL) {
+            return right[node];
+        }
+        left[node] = removeFirst(left[node]);
+        update(node);
+        return node;
+    }
+
+    private void update(int node) {
+        size[node] = size[left[node]] + size[right[node]] + 1;
+    }
+
+    private int allocate(double studentMarks, int id) {
+        int node;
+        if (freeList != NIL) {
+            node = freeList;
+            freeList = left[node];
+        } else {
+            if (allocated == marks.length) {
+                grow();
+            }
+            node = allocated++;
+        }
+        marks[node] = studentMarks;
+        ids[node] = id;
+        left[node] = NIL;
+        right[node] = NIL;
+        size[node] = 1;
+        priority[node] = nextPriority();
+        return node;
+    }
+
+    private void release(int node) {
+        right[node] = NIL;
+        left[node] = freeList;
+        freeList = node;
+    }
+
+    private void grow() {
+        int capacity = marks.length * 2;
+        marks = Arrays.copyOf(marks, capacity);
+        ids = Arrays.copyOf(ids, capacity);
+        left = Arrays.copyOf(left, capacity);
+        right = Arrays.copyOf(right, capacity);
+        size = Arrays.copyOf(size, capacity);
+        priority = Arrays.copyOf(priority, capacity);
+    }
+
+    // Xorshift keeps priorities random without a shared Random instance
+    private int nextPriority() {
+        int x = seed;
+        x ^= x << 13;
+        x ^= x >>> 17;
+        x ^= x << 5;
+        seed = x;
+        return x;
+    }
+
+    private static long pack(int lower, int upper) {
+        return ((long) lower << 32) | (upper & 0xFFFFFFFFL);
+    }
+
+    private static int lower(long parts) {
+        return (int) (parts >>> 32);
+    }
+
+    private static int upper(long parts) {
+        return (int) parts;
+    }
+}
@@ -0,0 +1,326 @@
+import java.util.Arrays;
+
+/**
+ * Sorted index of students by name ignoring case, with ties broken by ID
+ * Each name is case-folded once into a collation key when it is indexed, so ordering compares plain
+ * strings instead of folding both names on every comparison. Treap stored in arrays like
+ * StudentMarksIndex; ranks, prefixes and ranges are found in O(log n)
+ *
+ * Folding matches String.CASE_INSENSITIVE_ORDER character by character, so the index agrees with
+ * StudentPage.Order.NAME
+ */
+public class StudentNameIndex {
+    private static final int NIL = 0; // Node 0 is a sentinel with size 0
+
+    private String[] keys;
+    private int[] ids;
+    private int[] left;
+    private int[] right;
+    private int[] size;
+    private int[] priority;
+    private int root;
+    private int freeList; // Freed nodes are chained through 'left'
+    private int allocated;
+    private int seed;
+
+    public StudentNameIndex() {
+        this(16);
+    }
+
+    public StudentNameIndex(int expectedSize) {
+        int capacity = Math.max(2, expectedSize + 1);
+        keys = new String[capacity];
+        ids = new int[capacity];
+        left = new int[capacity];
+        right = new int[capacity];
+        size = new int[capacity];
+        priority = new int[capacity];
+        root = NIL;
+        freeList = NIL;
+        allocated = 1;
+        seed = 0x2545F491;
+    }
+
+    /**
+     * Get the collation key of a name
+     * @param name Name or name prefix
+     * @return Name with every character case-folded, the name itself if it is already folded
+     */
+    public static String collationKey(String name) {
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            if (fold(c) != c) {
+                char[] folded = name.toCharArray();
+                for (int j = i; j < folded.length; j++) {
+                    folded[j] = fold(folded[j]);
+                }
+                return new String(folded);
+            }
+        }
+        return name;
+    }
+
+    // The same two steps String.CASE_INSENSITIVE_ORDER takes to compare characters
+    private static char fold(char c) {
+        return Character.toLowerCase(Character.toUpperCase(c));
+    }
+
+    /**
+     * Add a student to the index
+     * @param name Student name
+     * @param id Student ID
+     */
+    public void insert(String name, int id) {
+        String key = collationKey(name);
+        int node = allocate(key, id);
+        long parts = split(root, key, id);
+        root = merge(merge(lower(parts), node), upper(parts));
+    }
+
+    /**
+     * Remove a student from the index
+     * @param name Name the student was indexed with
+     * @param id Student ID
+     * @return true if the entry was found and removed
+     */
+    public boolean remove(String name, int id) {
+        String key = collationKey(name);
+        long parts = split(root, key, id);
+        int after = upper(parts);
+
+        // The entry, if present, is the first node of the upper part
+        int node = after;
+        while (node != NIL && left[node] != NIL) {
+            node = left[node];
+        }
+        if (node == NIL || ids[node] != id || !keys[node].equals(key)) {
+            root = merge(lower(parts), after);
+            return false;
+        }
+
+        after = removeFirst(after);
+        release(node);
+        root = merge(lower(parts), after);
+        return true;
+    }
+
+    /**
+     * Get number of indexed students
+     * @return Index size
+     */
+    public int size() {
+        return size[root];
+    }
+
+    /**
+     * Count entries ordered at or before a student, which is the rank a listing continues from
+     * @param name Student name
+     * @param id Student ID
+     * @return Number of entries with a lower name, or the same name and an ID up to id
+     */
+    public int rankAfter(String name, int id) {
+        String key = collationKey(name);
+        int rank = 0;
+        int node = root;
+        while (node != NIL) {
+            int comparison = keys[node].compareTo(key);
+            if (comparison < 0 || (comparison == 0 && ids[node] <= id)) {
+                rank += size[left[node]] + 1;
+                node = right[node];
+            } else {
+                node = left[node];
+            }
+        }
+        return rank;
+    }
+
+    /**
+     * Count entries whose name sorts before a value, ignoring case
+     * @param name Name or name prefix
+     * @return Rank of the first entry at or after the value
+     */
+    public int countBefore(String name) {
+        String key = collationKey(name);
+        int count = 0;
+        int node = root;
+        while (node != NIL) {
+            if (keys[node].compareTo(key) < 0) {
+                count += size[left[node]] + 1;
+                node = right[node];
+            } else {
+                node = left[node];
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Count entries whose name sorts before a prefix or starts with it, ignoring case
+     * Names starting with the prefix sort right after it, so they take the ranks from
+     * countBefore(prefix) up to this count
+     * @param prefix Name prefix
+     * @return Rank of the first entry after every name with the prefix
+     */
+    public int countThroughPrefix(String prefix) {
+        String key = collationKey(prefix);
+        int count = 0;
+        int node = root;
+        while (node != NIL) {
+            if (keys[node].compareTo(key) < 0 || keys[node].startsWith(key)) {
+                count += size[left[node]] + 1;
+                node = right[node];
+            } else {
+                node = left[node];
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Get IDs for a range of ranks in index order
+     * Visits O(log n + k) nodes for k returned IDs
+     * @param fromRank First rank (inclusive)
+     * @param toRank Last rank (exclusive)
+     * @return IDs ordered by name ignoring case, then ID
+     */
+    public int[] idsInRankRange(int fromRank, int toRank) {
+        int from = Math.max(0, fromRank);
+        int to = Math.min(size(), toRank);
+        if (from >= to) {
+            return new int[0];
+        }
+
+        int[] result = new int[to - from];
+        collect(root, 0, from, to, result);
+        return result;
+    }
+
+    private void collect(int node, int firstRank, int from, int to, int[] result) {
+        if (node == NIL) return;
+
+        int nodeRank = firstRank + size[left[node]];
+        if (from < nodeRank) {
+            collect(left[node], firstRank, from, to, result);
+        }
+        if (nodeRank >= from && nodeRank < to) {
+            result[nodeRank - from] = ids[node];
+        }
+        if (nodeRank + 1 < to) {
+            collect(right[node], nodeRank + 1, from, to, result);
+        }
+    }
+
+    // Entry order: lower collation key first, then lower ID first
+    private boolean before(int node, String otherKey, int otherId) {
+        int comparison = keys[node].compareTo(otherKey);
+        if (comparison != 0) {
+            return comparison < 0;
+        }
+        return ids[node] < otherId;
+    }
+
+    // Split into nodes ordered before (key, id) and the rest, packed as two ints in a long
+    private long split(int node, String key, int id) {
+        if (node == NIL) {
+            return pack(NIL, NIL);
+        }
+        if (before(node, key, id)) {
+            long parts = split(right[node], key, id);
+            right[node] = lower(parts);
+            update(node);
+            return pack(node, upper(parts));
+        } else {
+            long parts = split(left[node], key, id);
+            left[node] = upper(parts);
+            update(node);
+            return pack(lower(parts), node);
+        }
+    }
+
+    // Every node of 'a' is ordered before every node of 'b'
+    private int merge(int a, int b) {
+        if (a == NIL) return b;
+        if (b == NIL) return a;
+        if (priority[a] > priority[b]) {
+            right[a] = merge(right[a], b);
+            update(a);
+            return a;
+        } else {
+            left[b] = merge(a, left[b]);
+            update(b);
+            return b;
+        }
+    }
+
+    private int removeFirst(int node) {
+        if (left[node] == NIL) {
+            return right[node];
+        }
+        left[node] = removeFirst(left[node]);
+        update(node);
+        return node;
+    }
+
+    private void update(int node) {
+        size[node] = size[left[node]] + size[right[node]] + 1;
+    }
+
+    private int allocate(String key, int id) {
+        int node;
+        if (freeList != NIL) {
+            node = freeList;
+            freeList = left[node];
+        } else {
+            if (allocated == keys.length) {
+                grow();
+            }
+            node = allocated++;
+        }
+        keys[node] = key;
+        ids[node] = id;
+        left[node] = NIL;
+        right[node] = NIL;
+        size[node] = 1;
+        priority[node] = nextPriority();
+        return node;
+    }
+
+    private void release(int node) {
+        keys[node] = null; // Let the key be collected while the node waits for reuse
+        right[node] = NIL;
+        left[node] = freeList;
+        freeList = node;
+    }
+
+    private void grow() {
+        int capacity = keys.length * 2;
+        keys = Arrays.copyOf(keys, capacity);
+        ids = Arrays.copyOf(ids, capacity);
+        left = Arrays.copyOf(left, capacity);
+        right = Arrays.copyOf(right, capacity);
+        size = Arrays.copyOf(size, capacity);
+        priority = Arrays.copyOf(priority, capacity);
+    }
+
+    // Xorshift keeps priorities random without a shared Random instance
+    private int nextPriority() {
+        int x = seed;
+        x ^= x << 13;
+        x ^= x >>> 17;
+        x ^= x << 5;
+        seed = x;
+        return x;
+    }
+
+    private static long pack(int lower, int upper) {
+        return ((long) lower << 32) | (upper & 0xFFFFFFFFL);
+    }
+
+    private static int lower(long parts) {
+        return (int) (parts >>> 32);
+    }
+
+    private static int upper(long parts) {
+        return (int) parts;
+    }
+}
@@ -0,0 +1,137 @@
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * One page of a student listing or search
+ * Pass {@link #getNextCursor()} back to the same listing to continue after the last student of this page
+ */
+public class StudentPage {
+    /**
+     * Orders a listing can be paged in
+     */
+    public enum Order {
+        ID,    // Ascending ID, which is also insertion order
+        MARKS, // Highest marks first, ties by ID
+        NAME;  // Name ignoring case, ties by ID
+
+        private static final Comparator<Student> BY_ID = Comparator.comparingInt(Student::getId);
+        private static final Comparator<Student> BY_MARKS =
+                Comparator.comparingDouble(Student::getMarks).reversed().thenComparingInt(Student::getId);
+        private static final Comparator<Student> BY_NAME =
+                Comparator.comparing(Student::getName, String.CASE_INSENSITIVE_ORDER).thenComparingInt(Student::getId);
+
+        /**
+         * Get the comparator that sorts students in this order
+         * @return Comparator consistent with the order's tie-breaking by ID
+         */
+        Comparator<Student> comparator() {
+            return this == MARKS ? BY_MARKS : this == NAME ? BY_NAME : BY_ID;
+        }
+    }
+
+    private final List<Student> students;
+    private final String nextCursor;
+    private final int totalCount;
+
+    public StudentPage(List<Student> students, String nextCursor, int totalCount) {
+        this.students = Collections.unmodifiableList(students);
+        this.nextCursor = nextCursor;
+        this.totalCount = totalCount;
+    }
+
+    public List<Student> getStudents() {
+        return students;
+    }
+
+    /**
+     * Get the cursor for the following page
+     * @return Opaque cursor, or null if this is the last page
+     */
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public boolean hasMore() {
+        return nextCursor != null;
+    }
+
+    /**
+     * Get the number of students in the whole listing
+     * @return Total count, or -1 when it is not known without extra work (substring searches)
+     */
+    public int getTotalCount() {
+        return totalCount;
+    }
+
+    public boolean isEmpty() {
+        return students.isEmpty();
+    }
+
+    /**
+     * Build the cursor that continues after a student
+     * @param order Order of the listing
+     * @param last Last student on the current page
+     * @return Opaque, URL-safe cursor
+     */
+    static String cursorAfter(Order order, Student last) {
+        String key;
+        switch (order) {
+            case MARKS: key = "M" + last.getId() + ":" + last.getMarks(); break;
+            case NAME: key = "N" + last.getId() + ":" + last.getName(); break;
+            default: key = "I" + last.getId();
+        }
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(key.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Decoded cursor: the position of the last student of the previous page
+     */
+    static class Cursor {
+        final int id;
+        final double marks; // Set for MARKS cursors
+        final String name;  // Set for NAME cursors
+
+        private Cursor(int id, double marks, String name) {
+            this.id = id;
+            this.marks = marks;
+            this.name = name;
+        }
+
+        /**
+         * Decode a cursor produced for the given order
+         * @param order Order of the listing
+         * @param cursor Cursor from a previous page, or null for the first page
+         * @return Decoded cursor, or null for the first page
+         * @throws IllegalArgumentException if the cursor is malformed or belongs to another order
+         */
+        static Cursor parse(Order order, String cursor) {
+            if (cursor == null || cursor.isEmpty()) {
+                return null;
+            }
+            String key;
+            try {
+                key = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+            try {
+                char expected = order == Order.MARKS ? 'M' : order == Order.NAME ? 'N' : 'I';
+                if (key.isEmpty() || key.charAt(0) != expected) {
+                    throw new IllegalArgumentException("Cursor does not belong to a listing in " + order + " order");
+                }
+                if (order == Order.ID) {
+                    return new Cursor(Integer.parseInt(key.substring(1)), 0.0, null);
+                }
+                int separator = key.indexOf(':');
+                int id = Integer.parseInt(key.substring(1, separator));
+                String rest = key.substring(separator + 1);
+                return order == Order.MARKS ? new Cursor(id, Double.parseDouble(rest), null) : new Cursor(id, 0.0, rest);
+            } catch (NumberFormatException | IndexOutOfBoundsException e) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+        }
+    }
+}
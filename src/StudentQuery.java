@@ -0,0 +1,320 @@
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Filters, order and limit for a student query, run with {@link StudentService#query(StudentQuery)}
+ * Filters are combined with AND, for example
+ *   StudentQuery.all().courseContains("Physics").marksBetween(60, 80).orderBy(StudentPage.Order.NAME).limit(20)
+ */
+public class StudentQuery {
+    /**
+     * Where a query reads its candidate students from
+     */
+    public enum Access {
+        NAME_INDEX,   // Trigram posting lists of the name filter, in ID order
+        COURSE_INDEX, // Students of the courses matching the course filter, in ID order
+        GRADE_BUCKET, // The grade's bucket, sorted into ID order
+        MARKS_INDEX,  // Rank range of the marks and grade filters, highest marks first
+        SCAN          // Every student, in ID order
+    }
+
+    private String name;   // Normalized like the trigram index
+    private String course; // Normalized like the trigram index
+    private Grade grade;
+    private double minMarks = 0.0;
+    private double maxMarks = 100.0;
+    private StudentPage.Order order = StudentPage.Order.ID;
+    private int limit = Integer.MAX_VALUE;
+
+    /**
+     * Start a query that matches every student
+     * @return New query in ID order without a limit
+     */
+    public static StudentQuery all() {
+        return new StudentQuery();
+    }
+
+    /**
+     * Keep students whose name contains the text (case-insensitive)
+     * @param text Substring to look for
+     * @return This query
+     */
+    public StudentQuery nameContains(String text) {
+        this.name = normalizeFilter(text, "Name");
+        return this;
+    }
+
+    /**
+     * Keep students whose course contains the text (case-insensitive)
+     * @param text Substring to look for
+     * @return This query
+     */
+    public StudentQuery courseContains(String text) {
+        this.course = normalizeFilter(text, "Course");
+        return this;
+    }
+
+    /**
+     * Keep students with a grade
+     * @param label Grade label such as "A+" or "b"
+     * @return This query
+     */
+    public StudentQuery grade(String label) {
+        Grade parsed = Grade.fromLabel(label);
+        if (parsed == null) {
+            throw new IllegalArgumentException("Invalid grade: " + label);
+        }
+        return grade(parsed);
+    }
+
+    public StudentQuery grade(Grade grade) {
+        if (grade == null) {
+            throw new IllegalArgumentException("Grade cannot be empty");
+        }
+        this.grade = grade;
+        return this;
+    }
+
+    /**
+     * Keep students whose marks fall within a range
+     * @param min Lowest marks to include
+     * @param max Highest marks to include
+     * @return This query
+     */
+    public StudentQuery marksBetween(double min, double max) {
+        if (!(min <= max)) { // Also rejects NaN
+            throw new IllegalArgumentException("Minimum marks cannot be above maximum marks");
+        }
+        this.minMarks = min;
+        this.maxMarks = max;
+        return this;
+    }
+
+    public StudentQuery minMarks(double min) {
+        return marksBetween(min, maxMarks);
+    }
+
+    public StudentQuery maxMarks(double max) {
+        return marksBetween(minMarks, max);
+    }
+
+    public StudentQuery orderBy(StudentPage.Order order) {
+        if (order == null) {
+            throw new IllegalArgumentException("Order cannot be empty");
+        }
+        this.order = order;
+        return this;
+    }
+
+    /**
+     * Stop after a number of matches
+     * @param limit Maximum number of students to return
+     * @return This query
+     */
+    public StudentQuery limit(int limit) {
+        if (limit < 1) {
+            throw new IllegalArgumentException("Limit must be at least 1");
+        }
+        this.limit = limit;
+        return this;
+    }
+
+    public String getName() { return name; }
+    public String getCourse() { return course; }
+    public Grade getGrade() { return grade; }
+    public double getMinMarks() { return minMarks; }
+    public double getMaxMarks() { return maxMarks; }
+    public StudentPage.Order getOrder() { return order; }
+    public int getLimit() { return limit; }
+
+    /**
+     * Check whether the marks or grade filters narrow the query
+     * @return true if some marks are excluded
+     */
+    boolean hasMarksFilter() {
+        return grade != null || minMarks > 0.0 || maxMarks < 100.0;
+    }
+
+    // The grade is a marks range too, so both filters fold into one range of the marks index
+    double lowestMarks() {
+        return grade == null ? minMarks : Math.max(minMarks, grade.getMinimumMarks());
+    }
+
+    double highestMarks() {
+        return Math.min(maxMarks, gradeCeiling());
+    }
+
+    // false when the highest marks themselves belong to the next grade up
+    boolean includesHighestMarks() {
+        return maxMarks < gradeCeiling();
+    }
+
+    // Minimum marks of the next better grade, unbounded for A+ or when no grade is set
+    private double gradeCeiling() {
+        if (grade == null || grade.ordinal() == 0) {
+            return Double.POSITIVE_INFINITY;
+        }
+        return Grade.values()[grade.ordinal() - 1].getMinimumMarks();
+    }
+
+    /**
+     * Check the filters the access path has not already applied
+     * Cheap numeric checks run before substring checks
+     * @param student Candidate student
+     * @param access Access path the candidate came from
+     * @param courseCodes Codes of the courses matching the course filter, resolved once per run
+     * @return true if the student matches the query
+     */
+    boolean matches(Student student, Access access, int[] courseCodes) {
+        return matches(student.getMarks(), student.getCourseCode(), access, courseCodes)
+                && (access == Access.NAME_INDEX || matchesName(student.getName()));
+    }
+
+    // Numeric and course filters only, so a scan can reject most slots without reading the name
+    boolean matches(double marks, int courseCode, Access access, int[] courseCodes) {
+        if (access != Access.MARKS_INDEX) {
+            if (marks < minMarks || marks > maxMarks) return false;
+            if (grade != null && access != Access.GRADE_BUCKET && Grade.fromMarks(marks) != grade) return false;
+        }
+        return course == null || access == Access.COURSE_INDEX || contains(courseCodes, courseCode);
+    }
+
+    boolean matchesName(String studentName) {
+        return name == null || containsIgnoreCase(studentName, name);
+    }
+
+    private static boolean contains(int[] codes, int code) {
+        for (int candidate : codes) {
+            if (candidate == code) return true;
+        }
+        return false;
+    }
+
+    // Substring test against a normalized needle without lower-casing (and copying) the haystack
+    private static boolean containsIgnoreCase(String haystack, String needle) {
+        for (int i = 0; i + needle.length() <= haystack.length(); i++) {
+            if (haystack.regionMatches(true, i, needle, 0, needle.length())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String normalizeFilter(String text, String field) {
+        if (text == null || text.trim().isEmpty()) {
+            throw new IllegalArgumentException(field + " filter cannot be empty");
+        }
+        return TrigramIndex.normalize(text);
+    }
+
+    @Override
+    public String toString() {
+        List<String> filters = new ArrayList<>();
+        if (name != null) filters.add("name contains \"" + name + "\"");
+        if (course != null) filters.add("course contains \"" + course + "\"");
+        if (grade != null) filters.add("grade " + grade);
+        if (minMarks > 0.0 || maxMarks < 100.0) filters.add("marks " + minMarks + "-" + maxMarks);
+        return (filters.isEmpty() ? "all students" : String.join(" and ", filters)) + " by " + order
+                + (limit == Integer.MAX_VALUE ? "" : " limit " + limit);
+    }
+
+    /**
+     * Access path the planner picked for a query, with its estimates
+     */
+    public static class Plan {
+        private final Access access;
+        private final int candidateRows;
+        private final double estimatedRowsRead;
+        private final double estimatedMatches;
+        private final boolean sorted;
+
+        Plan(Access access, int candidateRows, double estimatedRowsRead, double estimatedMatches, boolean sorted) {
+            this.access = access;
+            this.candidateRows = candidateRows;
+            this.estimatedRowsRead = estimatedRowsRead;
+            this.estimatedMatches = estimatedMatches;
+            this.sorted = sorted;
+        }
+
+        public Access getAccess() { return access; }
+
+        /**
+         * Get the number of candidates the access path holds
+         * @return Row count (an upper bound for trigram indexes)
+         */
+        public int getCandidateRows() { return candidateRows; }
+
+        /**
+         * Get the number of candidates expected to be read before the limit is met
+         * @return Estimated rows read
+         */
+        public double getEstimatedRowsRead() { return estimatedRowsRead; }
+
+        /**
+         * Get the expected number of matches, assuming the filters are independent
+         * @return Estimated matching students
+         */
+        public double getEstimatedMatches() { return estimatedMatches; }
+
+        /**
+         * Check whether matches have to be sorted because the access path reads in another order
+         * @return true if every candidate is read and the best ones are kept in a bounded heap
+         */
+        public boolean isSorted() { return sorted; }
+
+        @Override
+        public String toString() {
+            return String.format("%s (%d candidates, ~%.0f read, ~%.0f matches)%s", access, candidateRows,
+                    estimatedRowsRead, estimatedMatches, sorted ? ", then sort" : ", stops at limit");
+        }
+    }
+
+    /**
+     * Collects matches in the query's order, up to its limit
+     * Matches arriving in order are appended and the caller stops once the limit is met;
+     * otherwise only the best limit matches are kept in a heap
+     */
+    static class Results {
+        private final int limit;
+        private final Comparator<Student> comparator;
+        private final List<Student> inOrder;
+        private final PriorityQueue<Student> best;
+
+        Results(StudentQuery query, boolean sorted) {
+            this.limit = query.limit;
+            this.comparator = query.order.comparator();
+            this.inOrder = sorted ? null : new ArrayList<>(Math.min(limit, 1024));
+            this.best = sorted ? new PriorityQueue<>(Math.min(limit, 1024), comparator.reversed()) : null;
+        }
+
+        /**
+         * Add a matching student
+         * @param student Match
+         * @return true once no later match can change the result
+         */
+        boolean add(Student student) {
+            if (inOrder != null) {
+                inOrder.add(student);
+                return inOrder.size() >= limit;
+            }
+            if (best.size() < limit) {
+                best.add(student);
+            } else if (comparator.compare(student, best.peek()) < 0) {
+                best.poll();
+                best.add(student);
+            }
+            return false;
+        }
+
+        List<Student> toList() {
+            if (inOrder != null) {
+                return inOrder;
+            }
+            List<Student> sorted = new ArrayList<>(best);
+            sorted.sort(comparator);
+            return sorted;
+        }
+    }
+}
@@ -0,0 +1,300 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Bounded cache of StudentService search and statistics results, evicting the least recently used
+ * The bound is the number of students held across all cached results, so one large search cannot
+ * crowd out memory unnoticed; a result larger than the whole bound is not cached
+ *
+ * Invalidation is exact rather than time based: every change passes the student as it was before and
+ * after, and only results whose predicate either version matches are dropped. A course search is
+ * dropped when a student of a matching course changes, a grade search when the student had or gets
+ * that grade, and so on; statistics survive renames of anyone but the top student
+ *
+ * The service reads and fills the cache under its read lock and invalidates it under its write lock,
+ * so a result computed before a change can never be cached after it
+ */
+public class StudentQueryCache {
+    public static final long DEFAULT_MAX_STUDENTS = 100_000; // Bound used by the menu and the HTTP server
+
+    /**
+     * Cached queries, each with the rule that decides whether a student can appear in its result
+     */
+    enum Kind {
+        NAME,        // Normalized name contains the argument
+        NAME_PREFIX, // Collation key of the name starts with the argument
+        COURSE,      // Normalized course contains the argument
+        GRADE,       // Grade constant name equals the argument
+        STATISTICS   // Every student; the argument is empty
+    }
+
+    /**
+     * Query kind with its normalized argument
+     */
+    private static final class Key {
+        final Kind kind;
+        final String argument;
+
+        Key(Kind kind, String argument) {
+            this.kind = kind;
+            this.argument = argument;
+        }
+
+        // Could the student appear in this query's result
+        boolean matches(Student student) {
+            if (student == null) return false;
+
+            switch (kind) {
+                case NAME: return TrigramIndex.normalize(student.getName()).contains(argument);
+                case NAME_PREFIX: return StudentNameIndex.collationKey(student.getName()).startsWith(argument);
+                case COURSE: return TrigramIndex.normalize(student.getCourse()).contains(argument);
+                case GRADE: return student.getGradeLevel().name().equals(argument);
+                default: return true;
+            }
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof Key)) return false;
+            Key key = (Key) other;
+            return kind == key.kind && argument.equals(key.argument);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(kind, argument);
+        }
+    }
+
+    /**
+     * Cached result with its weight in students
+     */
+    private static final class Entry {
+        final Student[] students;          // Search results, null for statistics
+        final StudentStatistics statistics;
+        final int weight;
+
+        Entry(Student[] students, StudentStatistics statistics, int weight) {
+            this.students = students;
+            this.statistics = statistics;
+            this.weight = weight;
+        }
+    }
+
+    private final long maxStudents;
+    private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true); // Access order
+    private long cachedStudents;
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long invalidations;
+
+    /**
+     * Create an empty cache
+     * @param maxStudents Most students held across all cached results
+     * @throws IllegalArgumentException if the bound is not positive
+     */
+    public StudentQueryCache(long maxStudents) {
+        if (maxStudents < 1) {
+            throw new IllegalArgumentException("Query cache size must be at least 1");
+        }
+        this.maxStudents = maxStudents;
+    }
+
+    /**
+     * Get a cached search result, counting a hit or a miss
+     * @param kind Query kind
+     * @param argument Normalized argument
+     * @return New list of the cached students, or null if not cached
+     */
+    synchronized List<Student> getStudents(Kind kind, String argument) {
+        Entry entry = lookup(new Key(kind, argument));
+        return entry == null ? null : new ArrayList<>(Arrays.asList(entry.students));
+    }
+
+    /**
+     * Cache a search result
+     * @param kind Query kind
+     * @param argument Normalized argument
+     * @param students Result; later changes to the list do not reach the cache
+     */
+    synchronized void putStudents(Kind kind, String argument, List<Student> students) {
+        Student[] copy = students.toArray(new Student[0]);
+        store(new Key(kind, argument), new Entry(copy, null, Math.max(1, copy.length)));
+    }
+
+    /**
+     * Get the cached statistics, counting a hit or a miss
+     * @return Cached statistics, or null if not cached
+     */
+    synchronized StudentStatistics getStatistics() {
+        Entry entry = lookup(new Key(Kind.STATISTICS, ""));
+        return entry == null ? null : entry.statistics;
+    }
+
+    /**
+     * Cache the statistics
+     * @param statistics Statistics of the current students
+     */
+    synchronized void putStatistics(StudentStatistics statistics) {
+        store(new Key(Kind.STATISTICS, ""), new Entry(null, statistics, 1));
+    }
+
+    /**
+     * Drop every result one change can affect
+     * @param before Student before the change, null if it was added
+     * @param after Student after the change, null if it was deleted
+     */
+    synchronized void invalidate(Student before, Student after) {
+        if (entries.isEmpty()) return;
+
+        // Statistics hold the top student, so only its renames reach them
+        boolean renameOnly = before != null && after != null && before.getMarks() == after.getMarks()
+                && before.getCourseCode() == after.getCourseCode();
+        Iterator<Map.Entry<Key, Entry>> iterator = entries.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<Key, Entry> entry = iterator.next();
+            boolean affected;
+            if (entry.getKey().kind == Kind.STATISTICS) {
+                Student top = entry.getValue().statistics.getTopStudent();
+                affected = !renameOnly || (top != null && top.getId() == before.getId());
+            } else {
+                affected = entry.getKey().matches(before) || entry.getKey().matches(after);
+            }
+            if (affected) {
+                drop(iterator, entry.getValue());
+            }
+        }
+    }
+
+    /**
+     * Drop every result a batch of changes can affect; statistics are always dropped
+     * Each cached result stops checking at the first student that affects it
+     * @param changed Every changed student, both before and after its change
+     */
+    synchronized void invalidate(List<Student> changed) {
+        if (entries.isEmpty() || changed.isEmpty()) return;
+
+        Iterator<Map.Entry<Key, Entry>> iterator = entries.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<Key, Entry> entry = iterator.next();
+            for (Student student : changed) {
+                if (entry.getKey().matches(student)) {
+                    drop(iterator, entry.getValue());
+                    break;
+                }
+            }
+        }
+    }
+
+    /**
+     * Drop every cached result; hit and miss counts are kept
+     */
+    public synchronized void clear() {
+        entries.clear();
+        cachedStudents = 0;
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    /**
+     * Get the share of lookups answered from the cache
+     * @return Hits divided by lookups, 0 before the first lookup
+     */
+    public synchronized double getHitRate() {
+        long lookups = hits + misses;
+        return lookups == 0 ? 0.0 : (double) hits / lookups;
+    }
+
+    /**
+     * Get number of results dropped to stay within the size bound
+     * @return Size evictions
+     */
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    /**
+     * Get number of results dropped because a change could affect them
+     * @return Invalidated results
+     */
+    public synchronized long getInvalidations() {
+        return invalidations;
+    }
+
+    /**
+     * Get number of cached results
+     * @return Cached results
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * Get number of students held across all cached results
+     * @return Cached students, counting at least one per result
+     */
+    public synchronized long getCachedStudents() {
+        return cachedStudents;
+    }
+
+    public long getMaxStudents() {
+        return maxStudents;
+    }
+
+    /**
+     * Reset hit, miss, eviction and invalidation counts; cached results are kept
+     */
+    public synchronized void resetCounts() {
+        hits = 0;
+        misses = 0;
+        evictions = 0;
+        invalidations = 0;
+    }
+
+    private Entry lookup(Key key) {
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            misses++;
+        } else {
+            hits++;
+        }
+        return entry;
+    }
+
+    private void store(Key key, Entry entry) {
+        if (entry.weight > maxStudents) return;
+
+        Entry replaced = entries.put(key, entry);
+        if (replaced != null) {
+            cachedStudents -= replaced.weight;
+        }
+        cachedStudents += entry.weight;
+
+        // Least recently used first
+        Iterator<Entry> iterator = entries.values().iterator();
+        while (cachedStudents > maxStudents) {
+            Entry eldest = iterator.next();
+            iterator.remove();
+            cachedStudents -= eldest.weight;
+            evictions++;
+        }
+    }
+
+    private void drop(Iterator<?> iterator, Entry entry) {
+        iterator.remove();
+        cachedStudents -= entry.weight;
+        invalidations++;
+    }
+}
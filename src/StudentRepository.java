@@ -0,0 +1,97 @@
+import java.io.IOException;
+
+/**
+ * Storage backend of a StudentService
+ * Students live in numbered slots in ascending ID order; a deleted student leaves an empty slot
+ * until the repository compacts itself during a later remove, which renumbers the slots
+ *
+ * Implementations are not thread-safe: StudentService calls them only while holding its lock,
+ * and slot numbers are only valid until the next remove
+ */
+public interface StudentRepository extends Iterable<Student> {
+    /**
+     * Get number of stored students
+     * @return Live student count
+     */
+    int size();
+
+    /**
+     * Get number of slots, including empty ones
+     * @return One past the last slot
+     */
+    int slotCount();
+
+    boolean hasDeletedSlots();
+
+    /**
+     * Find the slot of a student
+     * @param id Student ID
+     * @return Slot, or -1 if no student has the ID
+     */
+    int slotOf(int id);
+
+    /**
+     * Find the first slot holding a student with an ID above the given one
+     * Works whether or not the ID itself is still stored
+     * @param id Student ID
+     * @return Slot to continue an ID-ordered scan from
+     */
+    int firstSlotAfter(int id);
+
+    // Column access for scans; only valid for live slots
+    boolean isLive(int slot);
+    int idAt(int slot);
+    String nameAt(int slot);
+    double marksAt(int slot);
+    int courseCodeAt(int slot);
+
+    /**
+     * Get the student in a slot
+     * Repositories that do not keep Student objects build a new one on every call
+     * @param slot Slot number
+     * @return Student, or null if the slot is empty
+     */
+    Student studentAt(int slot);
+
+    /**
+     * Make room for more students
+     * @param additional Number of students about to be added
+     */
+    void reserve(int additional);
+
+    /**
+     * Append a student
+     * @param student Student with an ID above every stored ID
+     */
+    void add(Student student);
+
+    /**
+     * Replace every field of the student in a slot
+     * @param slot Slot of a student with the same ID
+     * @param student New version of the student
+     */
+    void replace(int slot, Student student);
+
+    void setName(int slot, String name);
+    void setCourse(int slot, String course);
+    void setMarks(int slot, double marks);
+
+    /**
+     * Delete the student in a slot, compacting the slots when enough of them are empty
+     * @param slot Slot of a live student
+     */
+    void remove(int slot);
+
+    /**
+     * Delete the students in several slots, compacting at most once at the end
+     * @param slots Slots of live students, as numbered before the call
+     */
+    void removeAll(int[] slots);
+
+    /**
+     * Release resources held outside the heap, called when the owning service closes
+     * @throws IOException if a backing file cannot be closed
+     */
+    default void close() throws IOException {
+    }
+}
@@ -1,29 +1,147 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.IntSupplier;
+import java.util.function.Supplier;
 
 /**
  * Service class to handle all student-related operations
  * Contains business logic for CRUD operations and data management
+ *
+ * Thread-safe: writes are exclusive, scans share a read lock and ID lookups
+ * run optimistically without taking any lock. Readers that need several results to agree
+ * can take an immutable {@link StudentSnapshot} instead, which never locks at all
+ *
+ * Final: the constructors attach sample and recovered students to the service before they return
  */
-public class StudentService {
-    private ArrayList<Student> students;
-    private int nextId;
+public final class StudentService implements AutoCloseable {
+    private static final int QUERY_CHUNK = 64;         // First batch of candidates a query reads from an index
+    private static final int MAX_QUERY_CHUNK = 16_384;
+    private static final int PARALLEL_STATISTICS_SLOTS = 100_000; // Smaller scans finish before the workers pay off
+    private static final int[] NO_IDS = new int[0];
+
+    private final StampedLock lock = new StampedLock(); // Not reentrant, public methods never call each other under it
+    private final StudentRepository repository; // Students in ID order, with the ID index
+    private final AtomicInteger nextId;
+    private StudentStorage storage; // null when running in memory only
+    private final Object syncMonitor = new Object(); // Orders sync calls, so an fsync in flight is waited for
+    private final ServiceMetrics metrics = new ServiceMetrics();
+    private volatile StudentSnapshot snapshot; // Latest published version, null until snapshot() is first called
+    private volatile StudentQueryCache queryCache; // null until setQueryCacheSize turns it on
+    private volatile StudentChangeStream changeStream; // null until changes() is first called
+    private long changeSequence; // Sequence number of the latest change, guarded by the write lock
+
+    // Search indexes: name substrings, names in order, and students grouped by course code
+    private TrigramIndex nameIndex;
+    private StudentNameIndex nameOrder;
+    private CourseIndex courseIndex;
+
+    // Statistics maintained on every add/update/delete
+    private StudentMarksIndex marksIndex;
+    private double totalMarks;
+    private int passingCount;
+    private GradeBuckets gradeBuckets;
 
     public StudentService() {
-        this.students = new ArrayList<>();
-        this.nextId = 1001; // Starting ID for students
+        this(new ListStudentRepository());
+    }
+
+    /**
+     * Create an in-memory service on a given storage backend
+     * @param repository Empty repository, owned by the service from now on
+     */
+    public StudentService(StudentRepository repository) {
+        this.repository = repository;
+        this.nameIndex = new TrigramIndex();
+        this.nameOrder = new StudentNameIndex();
+        this.courseIndex = new CourseIndex();
+        this.marksIndex = new StudentMarksIndex();
+        this.gradeBuckets = new GradeBuckets();
+        this.nextId = new AtomicInteger(1001); // Starting ID for students
         initializeSampleData();
     }
 
+    /**
+     * Create a service backed by durable storage
+     * Loads the latest snapshot and replays the journal; sample data is only added to a new directory
+     * @param dataDirectory Directory holding the snapshot and journal files
+     * @throws IOException if the storage cannot be opened or recovered
+     */
+    public StudentService(Path dataDirectory) throws IOException {
+        this(dataDirectory, new ListStudentRepository());
+    }
+
+    /**
+     * Create a service backed by durable storage on a given storage backend
+     * @param dataDirectory Directory holding the snapshot and journal files
+     * @param repository Empty repository, owned by the service from now on
+     * @throws IOException if the storage cannot be opened or recovered
+     */
+    public StudentService(Path dataDirectory, StudentRepository repository) throws IOException {
+        this(new StudentStorage(dataDirectory), repository);
+    }
+
+    /**
+     * Create a service on storage opened with custom sync settings, such as StudentStorage.withManualSync
+     * @param openedStorage Storage that has not been recovered yet, owned by the service from now on
+     * @param repository Empty repository, owned by the service from now on
+     * @throws IOException if the storage cannot be recovered
+     */
+    public StudentService(StudentStorage openedStorage, StudentRepository repository) throws IOException {
+        this.repository = repository;
+        this.nameIndex = new TrigramIndex();
+        this.nameOrder = new StudentNameIndex();
+        this.courseIndex = new CourseIndex();
+        this.marksIndex = new StudentMarksIndex();
+        this.gradeBuckets = new GradeBuckets();
+        this.nextId = new AtomicInteger(1001);
+
+        try {
+            openedStorage.recover(new StudentJournal.ReplayHandler() {
+                @Override
+                public void upsert(Student student) {
+                    restoreStudent(student);
+                }
+
+                @Override
+                public void delete(int id) {
+                    removeStudent(id);
+                }
+
+                @Override
+                public void deleteAll(int[] ids) {
+                    removeStudents(ids);
+                }
+            });
+        } catch (IOException | RuntimeException e) {
+            openedStorage.close();
+            throw e;
+        }
+        this.nextId.accumulateAndGet(openedStorage.getRecoveredNextId(), Math::max);
+        this.storage = openedStorage;
+
+        if (!openedStorage.hasExistingData()) {
+            initializeSampleData();
+        }
+    }
+
     /**
      * Initialize system with sample student data
      */
     private void initializeSampleData() {
         try {
-            students.add(new Student(nextId++, "Alice Johnson", 92.5, "Computer Science"));
-            students.add(new Student(nextId++, "Bob Smith", 78.0, "Mathematics"));
-            students.add(new Student(nextId++, "Carol Davis", 85.5, "Physics"));
-            students.add(new Student(nextId++, "David Wilson", 67.0, "Chemistry"));
-            students.add(new Student(nextId++, "Emma Brown", 44.5, "Biology"));
+            addStudent("Alice Johnson", "Computer Science", 92.5);
+            addStudent("Bob Smith", "Mathematics", 78.0);
+            addStudent("Carol Davis", "Physics", 85.5);
+            addStudent("David Wilson", "Chemistry", 67.0);
+            addStudent("Emma Brown", "Biology", 44.5);
         } catch (Exception e) {
             System.err.println("Error initializing sample data: " + e.getMessage());
         }
@@ -38,10 +156,76 @@ public class StudentService {
      * @throws IllegalArgumentException if invalid data provided
      */
     public Student addStudent(String name, String course, double marks) {
-        // Validation is now handled in Student constructor
-        Student student = new Student(nextId++, name, marks, course);
-        students.add(student);
-        return student;
+        long start = metrics.start();
+        try {
+            // Validation is now handled in Student constructor, outside the lock
+            Student student = new Student(0, name, marks, course);
+
+            StudentStorage.Compaction compaction;
+            long stamp = lock.writeLock();
+            try {
+                student.setId(nextId.getAndIncrement()); // Under the lock, so the list stays in ID order
+                logUpsert(student);
+                insertStudent(student);
+                changed(null, student);
+                publish(Collections.singletonList(student), NO_IDS);
+                compaction = beginCompactionIfNeeded();
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+            finishCompaction(compaction);
+            return student;
+        } finally {
+            metrics.record(ServiceMetrics.Operation.ADD_STUDENT, start);
+        }
+    }
+
+    /**
+     * Add a batch of new students atomically, under a single write lock
+     * IDs are assigned from one contiguous block, and the batch is journaled as one record that
+     * recovery applies whole or not at all, synced once
+     * @param newStudents Validated students not yet stored anywhere; their IDs are replaced
+     * @return The stored students, in the same order
+     * @throws IllegalStateException if a student already belongs to a service; nothing is added then
+     */
+    public List<Student> addBatch(List<Student> newStudents) {
+        long start = metrics.start();
+        try {
+            if (newStudents.isEmpty()) {
+                return newStudents;
+            }
+
+            StudentStorage.Compaction compaction;
+            long stamp = lock.writeLock();
+            try {
+                for (Student student : newStudents) {
+                    if (student.isAttached()) {
+                        throw new IllegalStateException("Cannot change the ID of a stored student");
+                    }
+                }
+                int firstId = nextId.get();
+                for (int i = 0; i < newStudents.size(); i++) {
+                    newStudents.get(i).setId(firstId + i);
+                }
+                logBatch(newStudents, new int[0]);
+                nextId.set(firstId + newStudents.size()); // Only once the batch is journaled
+
+                repository.reserve(newStudents.size());
+                for (Student student : newStudents) {
+                    insertStudent(student);
+                }
+                changed(null, newStudents);
+                publish(newStudents, NO_IDS);
+                syncStorage();
+                compaction = beginCompactionIfNeeded();
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+            finishCompaction(compaction);
+            return newStudents;
+        } finally {
+            metrics.record(ServiceMetrics.Operation.ADD_BATCH, start);
+        }
     }
 
     /**
@@ -49,7 +233,17 @@ public class StudentService {
      * @return List of all students
      */
     public List<Student> getAllStudents() {
-        return new ArrayList<>(students);
+        long start = metrics.start();
+        try {
+            long stamp = lock.readLock();
+            try {
+                return copyStudents();
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        } finally {
+            metrics.record(ServiceMetrics.Operation.GET_ALL_STUDENTS, start);
+        }
     }
 
     /**
@@ -58,14 +252,180 @@ public class StudentService {
      * @return Student object if found, null otherwise
      */
     public Student findStudentById(int id) {
-        if (id <= 0) return null; // Invalid ID
+        long start = metrics.start();
+        try {
+            if (id <= 0) return null; // Invalid ID
+
+            long stamp = lock.tryOptimisticRead();
+            if (stamp != 0) {
+                try {
+                    Student student = lookup(id);
+                    if (lock.validate(stamp)) {
+                        return student;
+                    }
+                } catch (RuntimeException e) {
+                    // Raced with a writer resizing the index or repository, retry under the read lock
+                }
+            }
+
+            stamp = lock.readLock();
+            try {
+                return lookup(id);
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        } finally {
+            metrics.record(ServiceMetrics.Operation.FIND_STUDENT_BY_ID, start);
+        }
+    }
+
+    /**
+     * Get an immutable view of every student as of now, for reads that must agree with each other
+     * The first call copies every student under the write lock; from then on each write publishes
+     * a new snapshot that shares its unchanged structure with the previous one, so this returns
+     * the latest one without locking. Later writes never change a snapshot already returned
+     * @return Latest published snapshot
+     */
+    public StudentSnapshot snapshot() {
+        StudentSnapshot current = snapshot;
+        if (current != null) {
+            return current;
+        }
+
+        long stamp = lock.writeLock();
+        try {
+            if (snapshot == null) {
+                snapshot = StudentSnapshot.of(repository, marksIndex.idsInRankRange(0, marksIndex.size()),
+                        changeSequence);
+            }
+            return snapshot;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Get the ordered stream of changes, for subscribers that follow every add, update and delete
+     * The first call starts recording; changes made before it have sequence numbers but are not in the
+     * stream. To load every student and then follow the changes, take a snapshot and subscribe from its
+     * change sequence plus one
+     * @return Change stream, the same one on every call
+     */
+    public StudentChangeStream changes() {
+        StudentChangeStream current = changeStream;
+        if (current != null) {
+            return current;
+        }
 
-        for (Student student : students) {
-            if (student.getId() == id) {
-                return student;
+        long stamp = lock.writeLock();
+        try {
+            if (changeStream == null) {
+                changeStream = new StudentChangeStream(changeSequence, StudentChangeStream.DEFAULT_RETAINED_CHANGES);
+            }
+            return changeStream;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Publish a write to snapshot readers as one new version, caller must hold the write lock
+     * Does nothing until the first snapshot is taken, so services without snapshot readers pay nothing
+     * @param upserts New versions of added or changed students
+     * @param deletedIds IDs of deleted students
+     */
+    private void publish(List<Student> upserts, int[] deletedIds) {
+        StudentSnapshot current = snapshot;
+        if (current != null) {
+            snapshot = current.apply(upserts, deletedIds, changeSequence);
+        }
+    }
+
+    /**
+     * Number a change to one student, drop the cached results it affects and append it to the change
+     * stream, caller must hold the write lock
+     * @param before Student before the change, null if it was added
+     * @param after Student after the change, null if it was deleted
+     */
+    private void changed(Student before, Student after) {
+        changeSequence++;
+        StudentQueryCache cache = queryCache;
+        if (cache != null) {
+            cache.invalidate(before, after);
+        }
+        StudentChangeStream stream = changeStream;
+        if (stream != null) {
+            stream.append(changeSequence, before, after);
+            stream.signal();
+        }
+    }
+
+    /**
+     * Number the changes of a batch in order and record them like changed(before, after), caller must
+     * hold the write lock
+     * @param before Students before the changes, null if they were all added
+     * @param after Students after the changes in the same order, null if they were all deleted
+     */
+    private void changed(List<Student> before, List<Student> after) {
+        int count = before != null ? before.size() : after.size();
+        StudentQueryCache cache = queryCache;
+        if (cache != null) {
+            List<Student> affected = new ArrayList<>(count * 2);
+            if (before != null) affected.addAll(before);
+            if (after != null) affected.addAll(after);
+            cache.invalidate(affected);
+        }
+        StudentChangeStream stream = changeStream;
+        for (int i = 0; i < count; i++) {
+            changeSequence++;
+            if (stream != null) {
+                stream.append(changeSequence, before != null ? before.get(i) : null,
+                        after != null ? after.get(i) : null);
             }
         }
-        return null;
+        if (stream != null) {
+            stream.signal(); // Once per batch
+        }
+    }
+
+    /**
+     * Find student by ID without locking, caller must hold the lock or validate afterwards
+     * @param id Student ID
+     * @return Student object if found, null otherwise
+     */
+    private Student lookup(int id) {
+        int slot = repository.slotOf(id);
+        return slot < 0 ? null : stored(slot);
+    }
+
+    /**
+     * Get the student in a slot, attached so its setters reject changes
+     * @param slot Live slot
+     * @return Stored student, or a copy for repositories that do not keep objects
+     */
+    private Student stored(int slot) {
+        Student student = repository.studentAt(slot);
+        if (!student.isAttachedTo(this)) {
+            student.attach(this);
+        }
+        return student;
+    }
+
+    /**
+     * Check whether a student handed out by this service still has the stored values of its ID
+     * @param student Stored student or a copy of one
+     * @return true if it is the current version, false once it was replaced or deleted
+     */
+    boolean isCurrentVersion(Student student) {
+        long stamp = lock.readLock();
+        try {
+            int slot = repository.slotOf(student.getId());
+            return slot >= 0 && repository.marksAt(slot) == student.getMarks()
+                    && repository.courseCodeAt(slot) == student.getCourseCode()
+                    && repository.nameAt(slot).equals(student.getName());
+        } finally {
+            lock.unlockRead(stamp);
+        }
     }
 
     /**
@@ -78,25 +438,143 @@ public class StudentService {
      * @throws IllegalArgumentException if invalid data provided
      */
     public boolean updateStudent(int id, String name, String course, Double marks) {
-        Student student = findStudentById(id);
-        if (student == null) {
-            return false;
+        long start = metrics.start();
+        try {
+            StudentStorage.Compaction compaction;
+            long stamp = lock.writeLock();
+            try {
+                int slot = repository.slotOf(id);
+                if (slot < 0) {
+                    return false;
+                }
+                Student student = stored(slot);
+
+                String newName = (name != null && !name.trim().isEmpty()) ? name : student.getName();
+                String newCourse = (course != null && !course.trim().isEmpty()) ? course : student.getCourse();
+                double newMarks = (marks != null) ? marks : student.getMarks();
+
+                // Validate and journal the whole change before touching the stored student
+                logUpsert(new Student(id, newName, newMarks, newCourse));
+
+                // Only touch the indexes of fields that actually change; the old values are
+                // unindexed first, then the repository is updated and the new values indexed
+                boolean nameChanged = !newName.equals(student.getName());
+                boolean courseChanged = !newCourse.equals(student.getCourse());
+                boolean marksChanged = newMarks != student.getMarks();
+                if (marksChanged) {
+                    unindexMarks(student);
+                } else if (courseChanged) {
+                    courseIndex.removeMarks(student);
+                }
+                if (courseChanged) {
+                    courseIndex.remove(student);
+                }
+
+                // Each changed field stores a new version; the previous one is left as it was
+                if (nameChanged) {
+                    repository.setName(slot, newName);
+                }
+                if (courseChanged) {
+                    repository.setCourse(slot, newCourse);
+                }
+                if (marksChanged) {
+                    repository.setMarks(slot, newMarks);
+                }
+                Student updated = stored(slot);
+                if (updated != student) {
+                    student.detach(); // An old version from now on, which its holders may change freely
+                }
+
+                if (nameChanged) {
+                    nameIndex.add(id, newName);
+                    nameOrder.remove(student.getName(), id);
+                    nameOrder.insert(newName, id);
+                }
+                if (courseChanged) {
+                    courseIndex.add(updated);
+                }
+                if (marksChanged) {
+                    indexMarks(updated);
+                } else if (courseChanged) {
+                    courseIndex.addMarks(updated);
+                }
+                changed(student, updated);
+                publish(Collections.singletonList(updated), NO_IDS);
+                compaction = beginCompactionIfNeeded();
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+            finishCompaction(compaction);
+            return true;
+        } finally {
+            metrics.record(ServiceMetrics.Operation.UPDATE_STUDENT, start);
         }
+    }
 
+    /**
+     * Change the marks of a batch of students atomically, under a single write lock
+     * Every ID and mark is checked before anything changes, and the batch is journaled as one
+     * record that recovery applies whole or not at all, synced once
+     * @param marksById New marks by student ID
+     * @return Number of students whose marks changed
+     * @throws IllegalArgumentException if an ID is unknown or marks are invalid; nothing is changed then
+     */
+    public int updateMarksBatch(Map<Integer, Double> marksById) {
+        long start = metrics.start();
         try {
-            // Use setters which have validation
-            if (name != null && !name.trim().isEmpty()) {
-                student.setName(name);
-            }
-            if (course != null && !course.trim().isEmpty()) {
-                student.setCourse(course);
-            }
-            if (marks != null) {
-                student.setMarks(marks);
+            StudentStorage.Compaction compaction;
+            int changedCount;
+            long stamp = lock.writeLock();
+            try {
+                int[] slots = new int[marksById.size()];
+                List<Student> updated = new ArrayList<>(marksById.size());
+                for (Map.Entry<Integer, Double> entry : marksById.entrySet()) {
+                    int slot = entry.getKey() == null ? -1 : repository.slotOf(entry.getKey());
+                    if (slot < 0) {
+                        throw new IllegalArgumentException("Student not found: " + entry.getKey());
+                    }
+                    if (entry.getValue() == null) {
+                        throw new IllegalArgumentException("Marks must be between 0 and 100");
+                    }
+                    if (entry.getValue() == repository.marksAt(slot)) continue;
+
+                    // Validates the marks and is the full record the journal needs
+                    updated.add(new Student(entry.getKey(), repository.nameAt(slot), entry.getValue(),
+                            CourseDictionary.decode(repository.courseCodeAt(slot))));
+                    slots[updated.size() - 1] = slot;
+                }
+                if (updated.isEmpty()) {
+                    return 0;
+                }
+
+                logBatch(updated, new int[0]);
+                List<Student> before = new ArrayList<>(updated.size());
+                List<Student> after = new ArrayList<>(updated.size());
+                for (int i = 0; i < updated.size(); i++) {
+                    int slot = slots[i];
+                    Student student = stored(slot);
+                    unindexMarks(student);
+                    repository.setMarks(slot, updated.get(i).getMarks());
+                    Student current = stored(slot);
+                    if (current != student) {
+                        student.detach(); // An old version from now on, like in updateStudent
+                    }
+                    indexMarks(current);
+                    before.add(student);
+                    after.add(current);
+                }
+                changed(before, after);
+                publish(after, NO_IDS);
+                syncStorage();
+                compaction = beginCompactionIfNeeded();
+                changedCount = updated.size();
+            } finally {
+                lock.unlockWrite(stamp);
             }
-            return true;
-        } catch (IllegalArgumentException e) {
-            throw e; // Re-throw validation errors
+            finishCompaction(compaction);
+            return changedCount;
+        } finally {
+            metrics.record(ServiceMetrics.Operation.UPDATE_MARKS_BATCH, start);
         }
     }
 
@@ -106,12 +584,209 @@ public class StudentService {
      * @return true if deleted successfully, false if student not found
      */
     public boolean deleteStudent(int id) {
-        Student student = findStudentById(id);
-        if (student != null) {
-            students.remove(student);
+        long start = metrics.start();
+        try {
+            StudentStorage.Compaction compaction;
+            long stamp = lock.writeLock();
+            try {
+                int slot = repository.slotOf(id);
+                if (slot < 0) {
+                    return false;
+                }
+
+                logDelete(id);
+                changed(repository.studentAt(slot), null);
+                removeStudent(id);
+                publish(Collections.emptyList(), new int[] {id});
+                compaction = beginCompactionIfNeeded();
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+            finishCompaction(compaction);
             return true;
+        } finally {
+            metrics.record(ServiceMetrics.Operation.DELETE_STUDENT, start);
         }
-        return false;
+    }
+
+    /**
+     * Delete a batch of students atomically, under a single write lock
+     * The batch is journaled as one record, every posting list drops its deleted IDs in one pass,
+     * and the repository compacts at most once
+     * @param ids IDs of the students to delete; duplicates are ignored
+     * @return Number of students deleted
+     * @throws IllegalArgumentException if an ID is unknown; nothing is deleted then
+     */
+    public int deleteBatch(Collection<Integer> ids) {
+        long start = metrics.start();
+        try {
+            int[] sortedIds = ids.stream().mapToInt(Integer::intValue).sorted().distinct().toArray();
+            if (sortedIds.length == 0) {
+                return 0;
+            }
+
+            StudentStorage.Compaction compaction;
+            long stamp = lock.writeLock();
+            try {
+                for (int id : sortedIds) {
+                    if (repository.slotOf(id) < 0) {
+                        throw new IllegalArgumentException("Student not found: " + id);
+                    }
+                }
+
+                logBatch(Collections.emptyList(), sortedIds);
+                changed(removeStudents(sortedIds), null);
+                publish(Collections.emptyList(), sortedIds);
+                syncStorage();
+                compaction = beginCompactionIfNeeded();
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+            finishCompaction(compaction);
+            return sortedIds.length;
+        } finally {
+            metrics.record(ServiceMetrics.Operation.DELETE_BATCH, start);
+        }
+    }
+
+    /**
+     * Remove several students from the repository and the indexes
+     * @param sortedIds Student IDs in ascending order; unknown IDs are skipped
+     * @return The removed students, as they were stored
+     */
+    private List<Student> removeStudents(int[] sortedIds) {
+        int[] slots = new int[sortedIds.length];
+        List<Student> removed = new ArrayList<>(sortedIds.length);
+        for (int id : sortedIds) {
+            int slot = repository.slotOf(id);
+            if (slot < 0) continue;
+
+            Student student = repository.studentAt(slot);
+            student.detach();
+            slots[removed.size()] = slot;
+            removed.add(student);
+        }
+        nameIndex.removeAll(sortedIds);
+        courseIndex.removeAll(removed);
+        for (Student student : removed) {
+            nameOrder.remove(student.getName(), student.getId());
+            unindexMarks(student);
+        }
+        repository.removeAll(removed.size() == slots.length ? slots : Arrays.copyOf(slots, removed.size()));
+        return removed;
+    }
+
+    /**
+     * Remove a student from the repository and the indexes
+     * @param id Student ID
+     */
+    private void removeStudent(int id) {
+        int slot = repository.slotOf(id);
+        if (slot < 0) {
+            return;
+        }
+
+        unindexStudent(repository.studentAt(slot));
+        repository.remove(slot);
+    }
+
+    /**
+     * Store a student recovered from disk, replacing any earlier version with the same ID
+     * @param student Recovered student
+     */
+    private void restoreStudent(Student student) {
+        int slot = repository.slotOf(student.getId());
+        if (slot >= 0) {
+            unindexStudent(repository.studentAt(slot));
+            repository.replace(slot, student);
+            indexStudent(student);
+        } else {
+            insertStudent(student);
+        }
+        nextId.accumulateAndGet(student.getId() + 1, Math::max);
+    }
+
+    /**
+     * Append a student to the repository and the indexes
+     * @param student Student to store
+     */
+    private void insertStudent(Student student) {
+        repository.add(student);
+        indexStudent(student);
+    }
+
+    /**
+     * Add a student to the search indexes and running statistics
+     * @param student Stored student
+     */
+    private void indexStudent(Student student) {
+        student.attach(this);
+        nameIndex.add(student.getId(), student.getName());
+        nameOrder.insert(student.getName(), student.getId());
+        courseIndex.add(student);
+        indexMarks(student);
+    }
+
+    /**
+     * Remove a student from the search indexes and running statistics
+     * @param student Stored student
+     */
+    private void unindexStudent(Student student) {
+        student.detach();
+        nameIndex.remove(student.getId());
+        nameOrder.remove(student.getName(), student.getId());
+        courseIndex.remove(student);
+        unindexMarks(student);
+    }
+
+    /**
+     * Add a student's marks to the running statistics
+     * @param student Stored student
+     */
+    private void indexMarks(Student student) {
+        double marks = student.getMarks();
+        marksIndex.insert(marks, student.getId());
+        totalMarks += marks;
+        if (student.isPassing()) {
+            passingCount++;
+        }
+        gradeBuckets.add(student.getGradeLevel(), student.getId());
+        courseIndex.addMarks(student);
+    }
+
+    /**
+     * Take a student's marks out of the running statistics
+     * Must be called before the student's marks change
+     * @param student Stored student
+     */
+    private void unindexMarks(Student student) {
+        double marks = student.getMarks();
+        marksIndex.remove(marks, student.getId());
+        totalMarks -= marks;
+        if (student.isPassing()) {
+            passingCount--;
+        }
+        gradeBuckets.remove(student.getGradeLevel(), student.getId());
+        courseIndex.removeMarks(student);
+
+        if (marksIndex.size() == 0) {
+            totalMarks = 0.0; // Drop floating point drift once the system is empty
+        }
+    }
+
+
+    /**
+     * Copy live students in insertion order, caller must hold the lock
+     * @return New list of students
+     */
+    private List<Student> copyStudents() {
+        List<Student> allStudents = new ArrayList<>(repository.size());
+        for (int slot = 0; slot < repository.slotCount(); slot++) {
+            if (repository.isLive(slot)) {
+                allStudents.add(stored(slot));
+            }
+        }
+        return allStudents;
     }
 
     /**
@@ -120,20 +795,26 @@ public class StudentService {
      * @return List of matching students
      */
     public List<Student> searchByName(String name) {
-        List<Student> results = new ArrayList<>();
-
-        if (name == null || name.trim().isEmpty()) {
-            return results; // Return empty list for invalid search
-        }
+        long start = metrics.start();
+        try {
+            List<Student> results = new ArrayList<>();
 
-        String searchName = name.toLowerCase().trim();
+            if (name == null || name.trim().isEmpty()) {
+                // Return empty list for invalid search
+                return counted(ServiceMetrics.Operation.SEARCH_BY_NAME, start, results);
+            }
 
-        for (Student student : students) {
-            if (student.getName().toLowerCase().contains(searchName)) {
-                results.add(student);
+            long stamp = lock.readLock();
+            try {
+                return counted(ServiceMetrics.Operation.SEARCH_BY_NAME, start,
+                        cachedSearch(StudentQueryCache.Kind.NAME, TrigramIndex.normalize(name),
+                                () -> studentsForIds(nameIndex.search(name))));
+            } finally {
+                lock.unlockRead(stamp);
             }
+        } finally {
+            metrics.record(ServiceMetrics.Operation.SEARCH_BY_NAME, start);
         }
-        return results;
     }
 
     /**
@@ -142,151 +823,1265 @@ public class StudentService {
      * @return List of matching students
      */
     public List<Student> searchByCourse(String course) {
-        List<Student> results = new ArrayList<>();
-
-        if (course == null || course.trim().isEmpty()) {
-            return results; // Return empty list for invalid search
-        }
+        long start = metrics.start();
+        try {
+            List<Student> results = new ArrayList<>();
 
-        String searchCourse = course.toLowerCase().trim();
+            if (course == null || course.trim().isEmpty()) {
+                // Return empty list for invalid search
+                return counted(ServiceMetrics.Operation.SEARCH_BY_COURSE, start, results);
+            }
 
-        for (Student student : students) {
-            if (student.getCourse().toLowerCase().contains(searchCourse)) {
-                results.add(student);
+            long stamp = lock.readLock();
+            try {
+                return counted(ServiceMetrics.Operation.SEARCH_BY_COURSE, start,
+                        cachedSearch(StudentQueryCache.Kind.COURSE, TrigramIndex.normalize(course),
+                                () -> studentsForIds(courseIndex.ids(CourseDictionary.codesContaining(course),
+                                        Integer.MIN_VALUE, Integer.MAX_VALUE))));
+            } finally {
+                lock.unlockRead(stamp);
             }
+        } finally {
+            metrics.record(ServiceMetrics.Operation.SEARCH_BY_COURSE, start);
         }
-        return results;
     }
 
     /**
      * Search students by grade (exact match, case-insensitive)
+     * Reads the grade's bucket instead of scanning every student
      * @param grade Grade to search for
      * @return List of matching students
      */
     public List<Student> searchByGrade(String grade) {
-        List<Student> results = new ArrayList<>();
-
-        if (grade == null || grade.trim().isEmpty()) {
-            return results; // Return empty list for invalid search
-        }
-
-        String searchGrade = grade.toUpperCase().trim();
+        long start = metrics.start();
+        try {
+            Grade searchGrade = Grade.fromLabel(grade);
+            if (searchGrade == null) {
+                // Return empty for invalid grade
+                return counted(ServiceMetrics.Operation.SEARCH_BY_GRADE, start, new ArrayList<>());
+            }
 
-        // Validate grade format
-        Set<String> validGrades = new HashSet<>(Arrays.asList("A+", "A", "B", "C", "D", "F"));
-        if (!validGrades.contains(searchGrade)) {
-            return results; // Return empty for invalid grade
+            long stamp = lock.readLock();
+            try {
+                return counted(ServiceMetrics.Operation.SEARCH_BY_GRADE, start,
+                        cachedSearch(StudentQueryCache.Kind.GRADE, searchGrade.name(),
+                                () -> studentsForIds(gradeBuckets.ids(searchGrade))));
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        } finally {
+            metrics.record(ServiceMetrics.Operation.SEARCH_BY_GRADE, start);
         }
+    }
 
-        for (Student student : students) {
-            if (student.getGrade().equals(searchGrade)) {
-                results.add(student);
+    /**
+     * Get system statistics from the incrementally maintained counters, or the query cache when it is on
+     * O(log n) for the highest/lowest marks, O(1) for everything else
+     * @return StudentStatistics object containing system stats
+     */
+    public StudentStatistics getStatistics() {
+        long start = metrics.start();
+        try {
+            long stamp = lock.readLock();
+            try {
+                StudentQueryCache cache = queryCache;
+                StudentStatistics statistics = cache == null ? null : cache.getStatistics();
+                if (statistics == null) {
+                    statistics = statistics();
+                    if (cache != null) {
+                        cache.putStatistics(statistics);
+                    }
+                }
+                return statistics;
+            } finally {
+                lock.unlockRead(stamp);
             }
+        } finally {
+            metrics.record(ServiceMetrics.Operation.GET_STATISTICS, start);
         }
-        return results;
     }
 
     /**
-     * Get system statistics
+     * Build statistics from the running counters, caller must hold the lock
      * @return StudentStatistics object containing system stats
      */
-    public StudentStatistics getStatistics() {
-        if (students.isEmpty()) {
+    private StudentStatistics statistics() {
+        int studentCount = repository.size();
+        if (studentCount == 0) {
             return new StudentStatistics();
         }
 
-        double totalMarks = 0;
-        double highestMarks = students.get(0).getMarks();
-        double lowestMarks = students.get(0).getMarks();
-        Student topStudent = students.get(0);
-
         Map<String, Integer> gradeDistribution = new HashMap<>();
-        int passingCount = 0;
-
-        for (Student student : students) {
-            double marks = student.getMarks();
-            totalMarks += marks;
-
-            if (marks > highestMarks) {
-                highestMarks = marks;
-                topStudent = student;
-            }
-
-            if (marks < lowestMarks) {
-                lowestMarks = marks;
-            }
-
-            if (student.isPassing()) {
-                passingCount++;
+        for (Grade grade : Grade.values()) {
+            if (gradeBuckets.count(grade) > 0) {
+                gradeDistribution.put(grade.getLabel(), gradeBuckets.count(grade));
             }
-
-            String grade = student.getGrade();
-            gradeDistribution.put(grade, gradeDistribution.getOrDefault(grade, 0) + 1);
         }
 
-        double averageMarks = totalMarks / students.size();
-
         return new StudentStatistics(
-                students.size(),
-                Math.round(averageMarks * 100.0) / 100.0, // Round to 2 decimal places
-                highestMarks,
-                lowestMarks,
-                topStudent,
+                studentCount,
+                Math.round(totalMarks / studentCount * 100.0) / 100.0, // Round to 2 decimal places
+                marksIndex.highestMarks(),
+                marksIndex.lowestMarks(),
+                lookup(marksIndex.firstId()),
                 gradeDistribution,
-                passingCount
+                passingCount,
+                marksPercentile(25),
+                marksPercentile(50),
+                marksPercentile(75),
+                courseSummaries()
         );
     }
 
     /**
-     * Check if system has any students
-     * @return true if system is empty, false otherwise
+     * Summarize every course from the running per-course counters, caller must hold the lock
+     * @return One summary per course that has students
      */
-    public boolean isEmpty() {
-        return students.isEmpty();
+    private List<StudentStatistics.CourseSummary> courseSummaries() {
+        List<StudentStatistics.CourseSummary> courses = new ArrayList<>();
+        for (int code : courseIndex.codes()) {
+            courses.add(new StudentStatistics.CourseSummary(CourseDictionary.decode(code), courseIndex.count(code),
+                    courseIndex.totalMarks(code), courseIndex.passingCount(code)));
+        }
+        return courses;
     }
 
     /**
-     * Get total number of students
-     * @return Total student count
+     * Recompute statistics with a full scan, ignoring the running counters
+     * Useful to verify the incremental statistics; large datasets are scanned in parallel
+     * @return StudentStatistics object containing system stats
      */
-    public int getStudentCount() {
-        return students.size();
+    public StudentStatistics recomputeStatistics() {
+        long start = metrics.start();
+        try {
+            long stamp = lock.readLock();
+            try {
+                boolean parallel = repository.slotCount() >= PARALLEL_STATISTICS_SLOTS
+                        && ForkJoinPool.getCommonPoolParallelism() > 1;
+                return recompute(parallel);
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        } finally {
+            metrics.record(ServiceMetrics.Operation.RECOMPUTE_STATISTICS, start);
+        }
     }
 
     /**
-     * Get students sorted by marks (descending)
-     * @return List of students sorted by marks
+     * Recompute statistics with a full scan on the calling thread or across the common fork/join pool
+     * Both give the same statistics; the read lock is held until every worker is done
+     * @param parallel true to split the scan across fork/join workers
+     * @return StudentStatistics object containing system stats
      */
-    public List<Student> getStudentsSortedByMarks() {
-        List<Student> sortedStudents = new ArrayList<>(students);
-        sortedStudents.sort((s1, s2) -> Double.compare(s2.getMarks(), s1.getMarks()));
-        return sortedStudents;
+    public StudentStatistics recomputeStatistics(boolean parallel) {
+        long start = metrics.start();
+        try {
+            long stamp = lock.readLock();
+            try {
+                return recompute(parallel);
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        } finally {
+            metrics.record(ServiceMetrics.Operation.RECOMPUTE_STATISTICS, start);
+        }
+    }
+
+    // The accumulator returns copies of packed students, so the top student is re-attached here
+    private StudentStatistics recompute(boolean parallel) {
+        StudentStatistics statistics = parallel
+                ? StatisticsAccumulator.parallel(repository) : StatisticsAccumulator.sequential(repository);
+        Student top = statistics.getTopStudent();
+        if (top != null && !top.isAttachedTo(this)) {
+            top.attach(this);
+        }
+        return statistics;
     }
 
     /**
-     * Get students sorted by name (ascending)
-     * @return List of students sorted by name
+     * Get the highest scoring students
+     * @param count Maximum number of students to return
+     * @return Up to count students sorted by marks (descending)
      */
-    public List<Student> getStudentsSortedByName() {
-        List<Student> sortedStudents = new ArrayList<>(students);
-        sortedStudents.sort((s1, s2) -> s1.getName().compareToIgnoreCase(s2.getName()));
-        return sortedStudents;
+    public List<Student> getTopStudents(int count) {
+        long start = metrics.start();
+        try {
+            long stamp = lock.readLock();
+            try {
+                return studentsForIds(marksIndex.idsInRankRange(0, count));
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        } finally {
+            metrics.record(ServiceMetrics.Operation.GET_TOP_STUDENTS, start);
+        }
     }
 
     /**
-     * Check if a student ID already exists
-     * @param id Student ID to check
-     * @return true if ID exists, false otherwise
+     * Get the lowest scoring students
+     * @param count Maximum number of students to return
+     * @return Up to count students sorted by marks (ascending)
      */
-    public boolean studentExists(int id) {
-        return findStudentById(id) != null;
+    public List<Student> getBottomStudents(int count) {
+        long start = metrics.start();
+        try {
+            long stamp = lock.readLock();
+            try {
+                int size = marksIndex.size();
+                List<Student> bottom = studentsForIds(marksIndex.idsInRankRange(size - Math.max(0, count), size));
+                Collections.reverse(bottom);
+                return bottom;
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        } finally {
+            metrics.record(ServiceMetrics.Operation.GET_BOTTOM_STUDENTS, start);
+        }
     }
 
     /**
-     * Get next available student ID
-     * @return Next student ID
+     * Get students whose marks fall within a range
+     * @param minMarks Lowest marks to include
+     * @param maxMarks Highest marks to include
+     * @return Matching students sorted by marks (descending)
      */
-    public int getNextStudentId() {
-        return nextId;
+    public List<Student> getStudentsByMarksRange(double minMarks, double maxMarks) {
+        long start = metrics.start();
+        try {
+            long stamp = lock.readLock();
+            try {
+                return counted(ServiceMetrics.Operation.GET_STUDENTS_BY_MARKS_RANGE, start,
+                        studentsForIds(marksIndex.idsInRankRange(marksIndex.countAbove(maxMarks),
+                                marksIndex.countAtLeast(minMarks))));
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        } finally {
+            metrics.record(ServiceMetrics.Operation.GET_STUDENTS_BY_MARKS_RANGE, start);
+        }
+    }
+
+    /**
+     * Get a student's rank by marks
+     * @param id Student ID
+     * @return 1 for the top student, or -1 if the student is not found
+     */
+    public int getRank(int id) {
+        long start = metrics.start();
+        try {
+            long stamp = lock.readLock();
+            try {
+                Student student = lookup(id);
+                if (student == null) {
+                    return -1;
+                }
+                // Students sharing the same marks share the best rank among them
+                return marksIndex.countAbove(student.getMarks()) + 1;
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        } finally {
+            metrics.record(ServiceMetrics.Operation.GET_RANK, start);
+        }
+    }
+
+    /**
+     * Get a student's percentile rank
+     * @param id Student ID
+     * @return Percentage of students with lower marks, or -1 if the student is not found
+     */
+    public double getPercentileRank(int id) {
+        long start = metrics.start();
+        try {
+            long stamp = lock.readLock();
+            try {
+                Student student = lookup(id);
+                if (student == null) {
+                    return -1.0;
+                }
+                int lower = marksIndex.size() - marksIndex.countAtLeast(student.getMarks());
+                return Math.round(lower * 1000.0 / marksIndex.size()) / 10.0; // Round to 1 decimal
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        } finally {
+            metrics.record(ServiceMetrics.Operation.GET_PERCENTILE_RANK, start);
+        }
+    }
+
+    /**
+     * Get the marks at a percentile of all students
+     * @param percentile Percentile between 0 and 100
+     * @return Marks at that percentile, or 0 if the system is empty
+     * @throws IllegalArgumentException if percentile is outside 0-100
+     */
+    public double getMarksAtPercentile(double percentile) {
+        long start = metrics.start();
+        try {
+            long stamp = lock.readLock();
+            try {
+                return marksPercentile(percentile);
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        } finally {
+            metrics.record(ServiceMetrics.Operation.GET_MARKS_AT_PERCENTILE, start);
+        }
+    }
+
+    // The marks index is descending, so ascending rank r is index rank (n - 1 - r)
+    private double marksPercentile(double percentile) {
+        int size = marksIndex.size();
+        return StudentStatistics.percentile(size, percentile, rank -> marksIndex.marksAt(size - 1 - rank));
+    }
+
+    /**
+     * Resolve IDs to stored students, caller must hold the lock
+     * @param ids Student IDs
+     * @return Students in the same order
+     */
+    private List<Student> studentsForIds(int[] ids) {
+        List<Student> result = new ArrayList<>(ids.length);
+        for (int id : ids) {
+            result.add(lookup(id));
+        }
+        return result;
+    }
+
+    /**
+     * Answer a search from the query cache when it is on, caller must hold the read lock
+     * @param kind Query kind
+     * @param argument Query argument, normalized the way the cache matches students against it
+     * @param search Runs the search on a miss
+     * @return Results the caller may change freely
+     */
+    private List<Student> cachedSearch(StudentQueryCache.Kind kind, String argument, Supplier<List<Student>> search) {
+        StudentQueryCache cache = queryCache;
+        if (cache == null) {
+            return search.get();
+        }
+
+        List<Student> results = cache.getStudents(kind, argument);
+        if (results == null) {
+            results = search.get();
+            cache.putStudents(kind, argument, results);
+        }
+        return results;
+    }
+
+    // Record a search's result size and pass the results through
+    private List<Student> counted(ServiceMetrics.Operation operation, long start, List<Student> results) {
+        metrics.recordResults(operation, start, results.size());
+        return results;
+    }
+
+    private StudentPage counted(ServiceMetrics.Operation operation, long start, StudentPage page) {
+        metrics.recordResults(operation, start, page.getStudents().size());
+        return page;
+    }
+
+    /**
+     * Check if system has any students
+     * @return true if system is empty, false otherwise
+     */
+    public boolean isEmpty() {
+        return getStudentCount() == 0;
+    }
+
+    /**
+     * Get total number of students
+     * @return Total student count
+     */
+    public int getStudentCount() {
+        long stamp = lock.tryOptimisticRead();
+        int count = repository.size();
+        if (lock.validate(stamp)) {
+            return count;
+        }
+
+        stamp = lock.readLock();
+        try {
+            return repository.size();
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Get students sorted by marks (descending)
+     * Reads the marks index in order, so no sort is needed
+     * @return List of students sorted by marks
+     */
+    public List<Student> getStudentsSortedByMarks() {
+        long start = metrics.start();
+        try {
+            long stamp = lock.readLock();
+            try {
+                return studentsForIds(marksIndex.idsInRankRange(0, marksIndex.size()));
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        } finally {
+            metrics.record(ServiceMetrics.Operation.GET_STUDENTS_SORTED_BY_MARKS, start);
+        }
+    }
+
+    /**
+     * Get students sorted by name (ascending, ignoring case, then ID)
+     * Read in order from the name index, so nothing is sorted
+     * @return List of students sorted by name
+     */
+    public List<Student> getStudentsSortedByName() {
+        long start = metrics.start();
+        try {
+            long stamp = lock.readLock();
+            try {
+                return studentsForIds(nameOrder.idsInRankRange(0, nameOrder.size()));
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        } finally {
+            metrics.record(ServiceMetrics.Operation.GET_STUDENTS_SORTED_BY_NAME, start);
+        }
+    }
+
+    /**
+     * Get students whose name starts with a prefix, ignoring case
+     * O(log n) to find the first match, plus the matches themselves
+     * @param prefix Start of the name, such as "Jo"
+     * @return Matching students sorted by name, then ID; empty for a blank prefix
+     */
+    public List<Student> searchByNamePrefix(String prefix) {
+        long start = metrics.start();
+        try {
+            if (prefix == null || prefix.trim().isEmpty()) {
+                return counted(ServiceMetrics.Operation.SEARCH_BY_NAME_PREFIX, start, new ArrayList<>());
+            }
+
+            long stamp = lock.readLock();
+            try {
+                return counted(ServiceMetrics.Operation.SEARCH_BY_NAME_PREFIX, start,
+                        cachedSearch(StudentQueryCache.Kind.NAME_PREFIX, StudentNameIndex.collationKey(prefix),
+                                () -> studentsForIds(nameOrder.idsInRankRange(nameOrder.countBefore(prefix),
+                                        nameOrder.countThroughPrefix(prefix)))));
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        } finally {
+            metrics.record(ServiceMetrics.Operation.SEARCH_BY_NAME_PREFIX, start);
+        }
+    }
+
+    /**
+     * Get students whose name falls within a range, ignoring case
+     * O(log n) to find the range, plus the students in it
+     * @param from Lowest name to include, or null to start at the first name
+     * @param to Name to stop before, or null to run to the last name
+     * @return Matching students sorted by name, then ID
+     */
+    public List<Student> getStudentsByNameRange(String from, String to) {
+        long start = metrics.start();
+        try {
+            long stamp = lock.readLock();
+            try {
+                int fromRank = from == null ? 0 : nameOrder.countBefore(from);
+                int toRank = to == null ? nameOrder.size() : nameOrder.countBefore(to);
+                return counted(ServiceMetrics.Operation.GET_STUDENTS_BY_NAME_RANGE, start,
+                        studentsForIds(nameOrder.idsInRankRange(fromRank, toRank)));
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        } finally {
+            metrics.record(ServiceMetrics.Operation.GET_STUDENTS_BY_NAME_RANGE, start);
+        }
+    }
+
+    /**
+     * Get one page of all students, continuing after a cursor
+     * The cursor pins the position, so paging stays consistent while students are added or deleted
+     * Every order reads only the page, from the list, the marks index or the name index
+     * @param order Listing order
+     * @param cursor Cursor from the previous page, or null for the first page
+     * @param limit Maximum number of students on the page
+     * @return Page of students
+     * @throws IllegalArgumentException if the cursor is invalid or limit is below 1
+     */
+    public StudentPage listStudents(StudentPage.Order order, String cursor, int limit) {
+        long start = metrics.start();
+        try {
+            checkPageLimit(limit);
+            StudentPage.Cursor after = StudentPage.Cursor.parse(order, cursor);
+
+            long stamp = lock.readLock();
+            try {
+                switch (order) {
+                    case MARKS:
+                        int rank = 0;
+                        if (after != null) {
+                            Student last = lookup(after.id);
+                            boolean unchanged = last != null && last.getMarks() == after.marks;
+                            rank = marksIndex.rankOf(after.marks, after.id) + (unchanged ? 1 : 0);
+                        }
+                        return marksPage(rank, limit);
+                    case NAME:
+                        return page(order, studentsByName(after, fetchCount(0, limit)), limit, repository.size());
+                    default:
+                        return idPage(after == null ? 0 : repository.firstSlotAfter(after.id), 0, limit);
+                }
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        } finally {
+            metrics.record(ServiceMetrics.Operation.LIST_STUDENTS, start);
+        }
+    }
+
+    /**
+     * Get one page of all students by position
+     * Prefer the cursor variant for deep paging: skipping students costs O(offset) in ID order
+     * @param order Listing order
+     * @param offset Number of students to skip
+     * @param limit Maximum number of students on the page
+     * @return Page of students; its cursor continues after the page
+     * @throws IllegalArgumentException if offset is negative or limit is below 1
+     */
+    public StudentPage listStudents(StudentPage.Order order, int offset, int limit) {
+        long start = metrics.start();
+        try {
+            checkPageLimit(limit);
+            checkPageOffset(offset);
+
+            long stamp = lock.readLock();
+            try {
+                switch (order) {
+                    case MARKS:
+                        return marksPage(offset, limit);
+                    case NAME:
+                        return page(order, studentsByName(offset, fetchCount(0, limit)), limit, repository.size());
+                    default:
+                        // Without deleted slots the offset maps straight to a slot
+                        return !repository.hasDeletedSlots() ? idPage(offset, 0, limit) : idPage(0, offset, limit);
+                }
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        } finally {
+            metrics.record(ServiceMetrics.Operation.LIST_STUDENTS, start);
+        }
+    }
+
+    /**
+     * Get one page of students whose name contains the text, in ID order
+     * @param name Name to search for
+     * @param cursor Cursor from the previous page, or null for the first page
+     * @param limit Maximum number of students on the page
+     * @return Page of students (total count is not computed)
+     */
+    public StudentPage searchByName(String name, String cursor, int limit) {
+        long start = metrics.start();
+        try {
+            return counted(ServiceMetrics.Operation.SEARCH_BY_NAME_PAGE, start,
+                    searchPage(name, cursor, limit, (afterId, count) -> nameIndex.search(name, afterId, count),
+                            () -> -1));
+        } finally {
+            metrics.record(ServiceMetrics.Operation.SEARCH_BY_NAME_PAGE, start);
+        }
+    }
+
+    /**
+     * Get one page of students whose name contains the text, by position in ID order
+     * @param name Name to search for
+     * @param offset Number of matches to skip
+     * @param limit Maximum number of students on the page
+     * @return Page of students
+     */
+    public StudentPage searchByName(String name, int offset, int limit) {
+        long start = metrics.start();
+        try {
+            return counted(ServiceMetrics.Operation.SEARCH_BY_NAME_PAGE, start,
+                    searchPage(name, offset, limit, (afterId, count) -> nameIndex.search(name, afterId, count),
+                            () -> -1));
+        } finally {
+            metrics.record(ServiceMetrics.Operation.SEARCH_BY_NAME_PAGE, start);
+        }
+    }
+
+    /**
+     * Get one page of students whose name starts with a prefix, ignoring case, in name order
+     * @param prefix Start of the name, such as "Jo"
+     * @param cursor Cursor from the previous page, or null for the first page
+     * @param limit Maximum number of students on the page
+     * @return Page of students
+     * @throws IllegalArgumentException if the cursor is invalid or limit is below 1
+     */
+    public StudentPage searchByNamePrefix(String prefix, String cursor, int limit) {
+        long start = metrics.start();
+        try {
+            checkPageLimit(limit);
+            StudentPage.Cursor after = StudentPage.Cursor.parse(StudentPage.Order.NAME, cursor);
+            return counted(ServiceMetrics.Operation.SEARCH_BY_NAME_PREFIX_PAGE, start,
+                    prefixPage(prefix, after, 0, limit));
+        } finally {
+            metrics.record(ServiceMetrics.Operation.SEARCH_BY_NAME_PREFIX_PAGE, start);
+        }
+    }
+
+    /**
+     * Get one page of students whose name starts with a prefix, by position in name order
+     * Skipping matches is O(log n), so deep pages cost no more than the first
+     * @param prefix Start of the name, such as "Jo"
+     * @param offset Number of matches to skip
+     * @param limit Maximum number of students on the page
+     * @return Page of students
+     * @throws IllegalArgumentException if offset is negative or limit is below 1
+     */
+    public StudentPage searchByNamePrefix(String prefix, int offset, int limit) {
+        long start = metrics.start();
+        try {
+            checkPageLimit(limit);
+            checkPageOffset(offset);
+            return counted(ServiceMetrics.Operation.SEARCH_BY_NAME_PREFIX_PAGE, start,
+                    prefixPage(prefix, null, offset, limit));
+        } finally {
+            metrics.record(ServiceMetrics.Operation.SEARCH_BY_NAME_PREFIX_PAGE, start);
+        }
+    }
+
+    // Names with the prefix take one run of ranks in the name index, counted without reading them
+    private StudentPage prefixPage(String prefix, StudentPage.Cursor after, int offset, int limit) {
+        if (prefix == null || prefix.trim().isEmpty()) {
+            return new StudentPage(new ArrayList<>(), null, 0);
+        }
+
+        long stamp = lock.readLock();
+        try {
+            int first = nameOrder.countBefore(prefix);
+            int end = nameOrder.countThroughPrefix(prefix);
+            long rank = after == null ? (long) first + offset
+                    : Math.max(first, nameOrder.rankAfter(after.name, after.id));
+            int[] ids = nameOrder.idsInRankRange((int) Math.min(rank, end), (int) Math.min(rank + limit + 1, end));
+            return page(StudentPage.Order.NAME, studentsForIds(ids), limit, end - first);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Get one page of students whose course contains the text, in ID order
+     * @param course Course to search for
+     * @param cursor Cursor from the previous page, or null for the first page
+     * @param limit Maximum number of students on the page
+     * @return Page of students
+     */
+    public StudentPage searchByCourse(String course, String cursor, int limit) {
+        long start = metrics.start();
+        try {
+            int[] codes = course == null ? new int[0] : CourseDictionary.codesContaining(course);
+            return counted(ServiceMetrics.Operation.SEARCH_BY_COURSE_PAGE, start,
+                    searchPage(course, cursor, limit, (afterId, count) -> courseIndex.ids(codes, afterId, count),
+                            () -> courseIndex.count(codes)));
+        } finally {
+            metrics.record(ServiceMetrics.Operation.SEARCH_BY_COURSE_PAGE, start);
+        }
+    }
+
+    /**
+     * Get one page of students whose course contains the text, by position in ID order
+     * @param course Course to search for
+     * @param offset Number of matches to skip
+     * @param limit Maximum number of students on the page
+     * @return Page of students
+     */
+    public StudentPage searchByCourse(String course, int offset, int limit) {
+        long start = metrics.start();
+        try {
+            int[] codes = course == null ? new int[0] : CourseDictionary.codesContaining(course);
+            return counted(ServiceMetrics.Operation.SEARCH_BY_COURSE_PAGE, start,
+                    searchPage(course, offset, limit, (afterId, count) -> courseIndex.ids(codes, afterId, count),
+                            () -> courseIndex.count(codes)));
+        } finally {
+            metrics.record(ServiceMetrics.Operation.SEARCH_BY_COURSE_PAGE, start);
+        }
+    }
+
+    /**
+     * Get one page of students with a grade, in ID order
+     * @param grade Grade to search for
+     * @param cursor Cursor from the previous page, or null for the first page
+     * @param limit Maximum number of students on the page
+     * @return Page of students
+     */
+    public StudentPage searchByGrade(String grade, String cursor, int limit) {
+        long start = metrics.start();
+        try {
+            checkPageLimit(limit);
+            StudentPage.Cursor after = StudentPage.Cursor.parse(StudentPage.Order.ID, cursor);
+            Grade searchGrade = Grade.fromLabel(grade);
+            if (searchGrade == null) {
+                return counted(ServiceMetrics.Operation.SEARCH_BY_GRADE_PAGE, start,
+                        new StudentPage(new ArrayList<>(), null, 0));
+            }
+
+            long stamp = lock.readLock();
+            try {
+                int[] ids = gradeBuckets.ids(searchGrade, after == null ? Integer.MIN_VALUE : after.id,
+                        fetchCount(0, limit));
+                return counted(ServiceMetrics.Operation.SEARCH_BY_GRADE_PAGE, start,
+                        page(StudentPage.Order.ID, studentsForIds(ids), limit, gradeBuckets.count(searchGrade)));
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        } finally {
+            metrics.record(ServiceMetrics.Operation.SEARCH_BY_GRADE_PAGE, start);
+        }
+    }
+
+    /**
+     * Get one page of students with a grade, by position in ID order
+     * @param grade Grade to search for
+     * @param offset Number of matches to skip
+     * @param limit Maximum number of students on the page
+     * @return Page of students
+     */
+    public StudentPage searchByGrade(String grade, int offset, int limit) {
+        long start = metrics.start();
+        try {
+            checkPageLimit(limit);
+            checkPageOffset(offset);
+            Grade searchGrade = Grade.fromLabel(grade);
+            if (searchGrade == null) {
+                return counted(ServiceMetrics.Operation.SEARCH_BY_GRADE_PAGE, start,
+                        new StudentPage(new ArrayList<>(), null, 0));
+            }
+
+            long stamp = lock.readLock();
+            try {
+                int[] ids = gradeBuckets.ids(searchGrade, Integer.MIN_VALUE, fetchCount(offset, limit));
+                return counted(ServiceMetrics.Operation.SEARCH_BY_GRADE_PAGE, start,
+                        page(StudentPage.Order.ID, studentsForIds(Arrays.copyOfRange(ids, Math.min(offset, ids.length),
+                                ids.length)), limit, gradeBuckets.count(searchGrade)));
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        } finally {
+            metrics.record(ServiceMetrics.Operation.SEARCH_BY_GRADE_PAGE, start);
+        }
+    }
+
+    /**
+     * Source of ID-ordered search matches, called with the lock held
+     */
+    private interface IdSearch {
+        int[] ids(int afterId, int limit);
+    }
+
+    private StudentPage searchPage(String text, String cursor, int limit, IdSearch search, IntSupplier totalCount) {
+        checkPageLimit(limit);
+        StudentPage.Cursor after = StudentPage.Cursor.parse(StudentPage.Order.ID, cursor);
+        if (text == null || text.trim().isEmpty()) {
+            return new StudentPage(new ArrayList<>(), null, 0);
+        }
+
+        long stamp = lock.readLock();
+        try {
+            int[] ids = search.ids(after == null ? Integer.MIN_VALUE : after.id, fetchCount(0, limit));
+            return page(StudentPage.Order.ID, studentsForIds(ids), limit, totalCount.getAsInt());
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    private StudentPage searchPage(String text, int offset, int limit, IdSearch search, IntSupplier totalCount) {
+        checkPageLimit(limit);
+        checkPageOffset(offset);
+        if (text == null || text.trim().isEmpty()) {
+            return new StudentPage(new ArrayList<>(), null, 0);
+        }
+
+        long stamp = lock.readLock();
+        try {
+            int[] ids = search.ids(Integer.MIN_VALUE, fetchCount(offset, limit));
+            return page(StudentPage.Order.ID, studentsForIds(Arrays.copyOfRange(ids, Math.min(offset, ids.length),
+                    ids.length)), limit, totalCount.getAsInt());
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Page of students starting at a slot of the ID-ordered list, caller must hold the lock
+     * @param slot First slot to look at
+     * @param skip Live students to skip before the page starts
+     * @param limit Page size
+     * @return Page of students
+     */
+    private StudentPage idPage(int slot, int skip, int limit) {
+        List<Student> fetched = new ArrayList<>(Math.min(limit, 1024) + 1);
+        for (; slot < repository.slotCount() && fetched.size() <= limit; slot++) {
+            if (repository.isLive(slot) && skip-- <= 0) {
+                fetched.add(stored(slot));
+            }
+        }
+        return page(StudentPage.Order.ID, fetched, limit, repository.size());
+    }
+
+    private StudentPage marksPage(int rank, int limit) {
+        int end = (int) Math.min((long) rank + fetchCount(0, limit), marksIndex.size());
+        return page(StudentPage.Order.MARKS, studentsForIds(marksIndex.idsInRankRange(rank, end)), limit,
+                repository.size());
+    }
+
+    // Turn up to limit + 1 fetched students into a page; the extra student only signals that more follow
+    private static StudentPage page(StudentPage.Order order, List<Student> fetched, int limit, int totalCount) {
+        if (fetched.size() <= limit) {
+            return new StudentPage(fetched, null, totalCount);
+        }
+        List<Student> students = new ArrayList<>(fetched.subList(0, limit));
+        return new StudentPage(students, StudentPage.cursorAfter(order, students.get(limit - 1)), totalCount);
+    }
+
+    /**
+     * Get the first students in name order after a cursor, caller must hold the lock
+     * The name index finds the cursor's rank in O(log n), so no other student is read
+     * @param after Position to continue after, or null to start at the beginning
+     * @param count Number of students to return
+     * @return Students sorted by name, then ID
+     */
+    private List<Student> studentsByName(StudentPage.Cursor after, int count) {
+        return studentsByName(after == null ? 0 : nameOrder.rankAfter(after.name, after.id), count);
+    }
+
+    private List<Student> studentsByName(int rank, int count) {
+        return studentsForIds(nameOrder.idsInRankRange(rank, (int) Math.min((long) rank + count, Integer.MAX_VALUE)));
+    }
+
+    // Students to fetch for a page: the skipped ones, the page and one more to detect a following page
+    private static int fetchCount(int offset, int limit) {
+        return (int) Math.min((long) offset + limit + 1, Integer.MAX_VALUE);
+    }
+
+    private static void checkPageLimit(int limit) {
+        if (limit < 1) {
+            throw new IllegalArgumentException("Page size must be at least 1");
+        }
+    }
+
+    private static void checkPageOffset(int offset) {
+        if (offset < 0) {
+            throw new IllegalArgumentException("Offset cannot be negative");
+        }
+    }
+
+    /**
+     * Run a query with any combination of filters, an order and a limit
+     * The planner reads candidates from the most selective index, checks the remaining filters
+     * on each candidate and stops as soon as the limit is met when the index already yields the
+     * requested order; otherwise it keeps the best matches in a heap bounded by the limit
+     * @param query Filters, order and limit
+     * @return Matching students in the query's order
+     */
+    public List<Student> query(StudentQuery query) {
+        long start = metrics.start();
+        try {
+            long stamp = lock.readLock();
+            try {
+                StudentQuery.Plan plan = plan(query);
+                return counted(ServiceMetrics.Operation.QUERY, start, execute(query, plan));
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        } finally {
+            metrics.record(ServiceMetrics.Operation.QUERY, start);
+        }
+    }
+
+    /**
+     * Get the plan a query would run with, without running it
+     * @param query Filters, order and limit
+     * @return Chosen access path and its estimates
+     */
+    public StudentQuery.Plan explain(StudentQuery query) {
+        long stamp = lock.readLock();
+        try {
+            return plan(query);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Pick the access path expected to read the fewest candidates, caller must hold the lock
+     * Index sizes are exact (marks, grade, course) or upper bounds (trigrams), and filters are assumed
+     * to be independent when estimating how many candidates match
+     * @param query Query to plan
+     * @return Cheapest plan
+     */
+    private StudentQuery.Plan plan(StudentQuery query) {
+        int total = repository.size();
+        int nameRows = query.getName() == null ? -1 : nameIndex.estimateMatches(query.getName());
+        int courseRows = query.getCourse() == null
+                ? -1 : courseIndex.count(CourseDictionary.codesContaining(query.getCourse()));
+        int gradeRows = query.getGrade() == null ? -1 : gradeBuckets.count(query.getGrade());
+        int marksRows = marksRankTo(query) - marksRankFrom(query);
+
+        // The grade is folded into the marks range, so it is not counted a second time
+        double matches = total;
+        for (int rows : new int[] {nameRows, courseRows, query.hasMarksFilter() ? marksRows : -1}) {
+            if (rows >= 0) {
+                matches = total == 0 ? 0.0 : matches * rows / total;
+            }
+        }
+
+        StudentQuery.Plan best = candidatePlan(query, StudentQuery.Access.SCAN, repository.slotCount(), matches);
+        if (nameRows >= 0) {
+            best = cheaper(best, candidatePlan(query, StudentQuery.Access.NAME_INDEX, nameRows, matches));
+        }
+        if (courseRows >= 0) {
+            best = cheaper(best, candidatePlan(query, StudentQuery.Access.COURSE_INDEX, courseRows, matches));
+        }
+        if (gradeRows >= 0) {
+            best = cheaper(best, candidatePlan(query, StudentQuery.Access.GRADE_BUCKET, gradeRows, matches));
+        }
+        if (query.hasMarksFilter() || query.getOrder() == StudentPage.Order.MARKS) {
+            best = cheaper(best, candidatePlan(query, StudentQuery.Access.MARKS_INDEX, marksRows, matches));
+        }
+        return best;
+    }
+
+    private static StudentQuery.Plan candidatePlan(StudentQuery query, StudentQuery.Access access, int rows,
+                                                   double matches) {
+        StudentPage.Order readOrder = access == StudentQuery.Access.MARKS_INDEX
+                ? StudentPage.Order.MARKS : StudentPage.Order.ID;
+        boolean sorted = readOrder != query.getOrder();
+
+        // Reading in the query's order stops after about limit / (matches per candidate) candidates;
+        // the grade bucket is sorted into ID order up front, so it always costs its full size
+        double read = rows;
+        if (!sorted && access != StudentQuery.Access.GRADE_BUCKET) {
+            read = Math.min(rows, (double) query.getLimit() * rows / Math.max(matches, 1.0));
+        }
+        return new StudentQuery.Plan(access, rows, read, Math.min(matches, rows), sorted);
+    }
+
+    // Ties go to the plan that was found first, the scan is only kept when nothing beats it
+    private static StudentQuery.Plan cheaper(StudentQuery.Plan current, StudentQuery.Plan candidate) {
+        return candidate.getEstimatedRowsRead() < current.getEstimatedRowsRead() ? candidate : current;
+    }
+
+    /**
+     * Read the plan's candidates and collect the matches, caller must hold the lock
+     * @param query Query being run
+     * @param plan Access path to read
+     * @return Matches in the query's order, at most the query's limit
+     */
+    private List<Student> execute(StudentQuery query, StudentQuery.Plan plan) {
+        StudentQuery.Access access = plan.getAccess();
+        StudentQuery.Results results = new StudentQuery.Results(query, plan.isSorted());
+        int[] courseCodes = query.getCourse() == null ? null : CourseDictionary.codesContaining(query.getCourse());
+
+        switch (access) {
+            case NAME_INDEX:
+            case COURSE_INDEX:
+                // Read the ID lists a growing chunk at a time, so a small limit reads little
+                int afterId = Integer.MIN_VALUE;
+                for (int chunk = QUERY_CHUNK; ; chunk = Math.min(chunk * 2, MAX_QUERY_CHUNK)) {
+                    int[] ids = access == StudentQuery.Access.NAME_INDEX
+                            ? nameIndex.search(query.getName(), afterId, chunk)
+                            : courseIndex.ids(courseCodes, afterId, chunk);
+                    if (collect(query, access, courseCodes, ids, results) || ids.length < chunk) break;
+                    afterId = ids[ids.length - 1];
+                }
+                break;
+            case GRADE_BUCKET:
+                collect(query, access, courseCodes, gradeBuckets.ids(query.getGrade()), results);
+                break;
+            case MARKS_INDEX:
+                int to = marksRankTo(query);
+                for (int rank = marksRankFrom(query), chunk = QUERY_CHUNK; rank < to;
+                     rank += chunk, chunk = Math.min(chunk * 2, MAX_QUERY_CHUNK)) {
+                    int[] ids = marksIndex.idsInRankRange(rank, (int) Math.min((long) rank + chunk, to));
+                    if (collect(query, access, courseCodes, ids, results)) break;
+                }
+                break;
+            default:
+                // Filter on the repository columns, a Student is only built for a match
+                for (int slot = 0; slot < repository.slotCount(); slot++) {
+                    if (repository.isLive(slot)
+                            && query.matches(repository.marksAt(slot), repository.courseCodeAt(slot), access, courseCodes)
+                            && query.matchesName(repository.nameAt(slot))
+                            && results.add(stored(slot))) break;
+                }
+        }
+        return results.toList();
+    }
+
+    // Check candidates by ID, returns true once the results are complete
+    private boolean collect(StudentQuery query, StudentQuery.Access access, int[] courseCodes, int[] ids,
+                            StudentQuery.Results results) {
+        for (int id : ids) {
+            Student student = lookup(id);
+            if (query.matches(student, access, courseCodes) && results.add(student)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Rank range of the marks index holding the query's marks and grade range
+    private int marksRankFrom(StudentQuery query) {
+        double highest = query.highestMarks();
+        return query.includesHighestMarks() ? marksIndex.countAbove(highest) : marksIndex.countAtLeast(highest);
+    }
+
+    private int marksRankTo(StudentQuery query) {
+        return Math.max(marksRankFrom(query), marksIndex.countAtLeast(query.lowestMarks()));
+    }
+
+    /**
+     * Check if a student ID already exists
+     * @param id Student ID to check
+     * @return true if ID exists, false otherwise
+     */
+    public boolean studentExists(int id) {
+        return findStudentById(id) != null;
+    }
+
+    /**
+     * Get next available student ID
+     * @return Next student ID
+     */
+    public int getNextStudentId() {
+        return nextId.get();
+    }
+
+    /**
+     * Stream all students to a channel in insertion order
+     * Reads the store directly under the read lock, so the output is a consistent snapshot
+     * and writers wait until the export finishes
+     * @param channel Destination channel, left open
+     * @param format Output format
+     * @return Number of students written
+     * @throws IOException if the channel cannot be written
+     */
+    public long exportStudents(WritableByteChannel channel, StudentExporter.Format format) throws IOException {
+        long start = metrics.start();
+        try {
+            long stamp = lock.readLock();
+            try {
+                StudentExporter exporter = new StudentExporter(channel, format, repository.size());
+                try {
+                    for (Student student : repository) {
+                        exporter.write(student);
+                    }
+                    exporter.finish();
+                } finally {
+                    exporter.release();
+                }
+                return exporter.getRowsWritten();
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        } finally {
+            metrics.record(ServiceMetrics.Operation.EXPORT_STUDENTS, start);
+        }
+    }
+
+    /**
+     * Stream all students to a file, replacing its contents
+     * @param file Target file
+     * @param format Output format
+     * @return Number of students written
+     * @throws IOException if the file cannot be written
+     */
+    public long exportStudents(Path file, StudentExporter.Format format) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            return exportStudents(channel, format);
+        }
+    }
+
+    /**
+     * Write all students to a memory-mappable columnar file
+     * @param file Target file
+     * @throws IOException if the file cannot be written
+     */
+    public void exportColumnar(Path file) throws IOException {
+        ColumnarStudentFile.write(file, getAllStudents()); // Copy under the read lock, write without it
+    }
+
+    /**
+     * Open a columnar file for read-only queries without loading Student objects
+     * @param file File written by {@link #exportColumnar(Path)}
+     * @return Mapped file supporting grade search, statistics and sorted listings
+     * @throws IOException if the file cannot be mapped
+     */
+    public static ColumnarStudentFile openColumnar(Path file) throws IOException {
+        return ColumnarStudentFile.open(file);
+    }
+
+    /**
+     * Get the latency and result-size metrics of this service's operations
+     * @return Metrics registry, enabled by default
+     */
+    public ServiceMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Turn the query cache on with a new size bound, or off
+     * searchByName, searchByNamePrefix, searchByCourse, searchByGrade and getStatistics are then
+     * answered from it until a change drops the affected results; paged and combined queries are not
+     * cached. Any results cached so far are discarded
+     * @param maxStudents Most students held across all cached results, 0 to turn the cache off
+     * @throws IllegalArgumentException if the size is negative
+     */
+    public void setQueryCacheSize(long maxStudents) {
+        if (maxStudents < 0) {
+            throw new IllegalArgumentException("Query cache size cannot be negative");
+        }
+
+        long stamp = lock.writeLock();
+        try {
+            queryCache = maxStudents == 0 ? null : new StudentQueryCache(maxStudents);
+            metrics.setQueryCache(queryCache);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Get the query cache, with its hit and miss counts
+     * @return Query cache, or null while it is off
+     */
+    public StudentQueryCache getQueryCache() {
+        return queryCache;
+    }
+
+    /**
+     * Get the storage engine behind this service
+     * @return Storage engine, or null if the service only keeps data in memory
+     */
+    public StudentStorage getStorage() {
+        return storage;
+    }
+
+    /**
+     * Make every change made so far durable
+     * The journal is written under the write lock but forced without it, so reads and writes go on
+     * during the fsync. Concurrent callers wait for each other, so none returns before its changes
+     * are on disk
+     * @throws UncheckedIOException if the journal cannot be written
+     */
+    public void sync() {
+        synchronized (syncMonitor) {
+            StudentStorage current;
+            boolean written;
+            long stamp = lock.writeLock();
+            try {
+                current = storage;
+                written = current != null && current.flush();
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to sync student journal", e);
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+
+            if (written) {
+                try {
+                    current.force();
+                } catch (IOException e) {
+                    throw new UncheckedIOException("Failed to sync student journal", e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Flush pending journal records, close the storage and release the repository
+     * @throws IOException if the journal cannot be written
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized (syncMonitor) { // Lets an fsync in flight finish before the journal closes
+            long stamp = lock.writeLock();
+            try {
+                try {
+                    if (storage != null) {
+                        storage.close();
+                        storage = null;
+                    }
+                } finally {
+                    repository.close();
+                    if (changeStream != null) {
+                        changeStream.close(); // Subscribers complete once they have every change
+                    }
+                }
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+    }
+
+    private void logUpsert(Student student) {
+        if (storage == null) return;
+        try {
+            storage.logUpsert(student);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to write student journal", e);
+        }
+    }
+
+    private void logDelete(int id) {
+        if (storage == null) return;
+        try {
+            storage.logDelete(id);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to write student journal", e);
+        }
+    }
+
+    private void logBatch(List<Student> upserts, int[] deletedIds) {
+        if (storage == null) return;
+        try {
+            storage.logBatch(upserts, deletedIds);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to write student journal", e);
+        }
+    }
+
+    private void syncStorage() {
+        if (storage == null) return;
+        try {
+            storage.sync();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to sync student journal", e);
+        }
+    }
+
+    // Fold the journal into a fresh snapshot so recovery time stays proportional to the dataset
+    // Caller must hold the write lock; only the copy is taken under it, finishCompaction writes it
+    private StudentStorage.Compaction beginCompactionIfNeeded() {
+        if (storage == null || !storage.shouldCompact(repository.size())) return null;
+        List<Student> students = new ArrayList<>(repository.size());
+        for (Student student : repository) {
+            if (student != null) {
+                students.add(student);
+            }
+        }
+        try {
+            return storage.beginSnapshot(students, nextId.get());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to write student snapshot", e);
+        }
+    }
+
+    // Write a snapshot started under the write lock, after releasing it
+    private void finishCompaction(StudentStorage.Compaction compaction) {
+        if (compaction == null) return;
+        try {
+            compaction.finish();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to write student snapshot", e);
+        }
     }
 }
\ No newline at end of file
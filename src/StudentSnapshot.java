@@ -0,0 +1,251 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable point-in-time view of every student, from {@link StudentService#snapshot()}
+ * Reads never lock and never see part of a change: every write to the service publishes a new
+ * snapshot in one step, sharing all unchanged structure with the previous one, and a snapshot never
+ * changes once published. Holding an old snapshot keeps only the nodes later changes replaced alive
+ *
+ * Students returned are unattached copies; changing them changes neither the snapshot nor the service
+ */
+public final class StudentSnapshot {
+    private final long version;
+    private final long changeSequence;
+    private final PersistentIdMap students; // Private copies, never handed out
+    private final PersistentMarksTree marks;
+
+    // Running statistics, copied once per published change
+    private final double totalMarks;
+    private final int passingCount;
+    private final int[] gradeCounts;  // By grade ordinal
+    private final int[] courseCounts; // By course code
+    private final double[] courseTotals;
+    private final int[] coursePassing;
+
+    private StudentSnapshot(long version, long changeSequence, PersistentIdMap students, PersistentMarksTree marks,
+                            double totalMarks, int passingCount, int[] gradeCounts, int[] courseCounts,
+                            double[] courseTotals, int[] coursePassing) {
+        this.version = version;
+        this.changeSequence = changeSequence;
+        this.students = students;
+        this.marks = marks;
+        this.totalMarks = totalMarks;
+        this.passingCount = passingCount;
+        this.gradeCounts = gradeCounts;
+        this.courseCounts = courseCounts;
+        this.courseTotals = courseTotals;
+        this.coursePassing = coursePassing;
+    }
+
+    /**
+     * Build the first snapshot of a service, in linear time
+     * @param stored Every stored student
+     * @param idsByMarks Their IDs, highest marks first and then lowest ID first
+     * @param changeSequence Sequence number of the latest change the students include
+     * @return Snapshot with version 1
+     */
+    static StudentSnapshot of(Iterable<Student> stored, int[] idsByMarks, long changeSequence) {
+        List<Student> copies = new ArrayList<>(idsByMarks.length);
+        for (Student student : stored) {
+            copies.add(copyOf(student));
+        }
+        PersistentIdMap students = PersistentIdMap.of(copies);
+
+        double[] marksByRank = new double[idsByMarks.length];
+        for (int rank = 0; rank < idsByMarks.length; rank++) {
+            marksByRank[rank] = students.get(idsByMarks[rank]).getMarks();
+        }
+        PersistentMarksTree marks = PersistentMarksTree.of(marksByRank, idsByMarks, idsByMarks.length);
+
+        Aggregates totals = new Aggregates(new int[Grade.values().length], new int[CourseDictionary.size()],
+                new double[CourseDictionary.size()], new int[CourseDictionary.size()]);
+        for (Student student : copies) {
+            totals.add(student, 1);
+        }
+        return new StudentSnapshot(1, changeSequence, students, marks, copies.isEmpty() ? 0.0 : totals.totalMarks,
+                totals.passingCount, totals.gradeCounts, totals.courseCounts, totals.courseTotals,
+                totals.coursePassing);
+    }
+
+    /**
+     * Get the snapshot after a write, published as one version
+     * @param upserts New or changed students
+     * @param deletedIds Deleted student IDs
+     * @param changeSequence Sequence number of the write's last change
+     * @return Next version; this one is unchanged
+     */
+    StudentSnapshot apply(List<Student> upserts, int[] deletedIds, long changeSequence) {
+        PersistentIdMap newStudents = students;
+        PersistentMarksTree newMarks = marks;
+        int courses = Math.max(courseCounts.length, CourseDictionary.size());
+        Aggregates totals = new Aggregates(gradeCounts.clone(), Arrays.copyOf(courseCounts, courses),
+                Arrays.copyOf(courseTotals, courses), Arrays.copyOf(coursePassing, courses));
+        totals.totalMarks = totalMarks;
+        totals.passingCount = passingCount;
+
+        for (Student upsert : upserts) {
+            Student copy = copyOf(upsert);
+            Student old = newStudents.get(copy.getId());
+            if (old != null) {
+                totals.add(old, -1);
+                newMarks = newMarks.without(old.getMarks(), old.getId());
+            }
+            totals.add(copy, 1);
+            newMarks = newMarks.with(copy.getMarks(), copy.getId());
+            newStudents = newStudents.with(copy);
+        }
+        for (int id : deletedIds) {
+            Student old = newStudents.get(id);
+            if (old == null) continue;
+
+            totals.add(old, -1);
+            newMarks = newMarks.without(old.getMarks(), id);
+            newStudents = newStudents.without(id);
+        }
+
+        return new StudentSnapshot(version + 1, changeSequence, newStudents, newMarks,
+                newStudents.size() == 0 ? 0.0 : totals.totalMarks, // Drop floating point drift once empty
+                totals.passingCount, totals.gradeCounts, totals.courseCounts, totals.courseTotals,
+                totals.coursePassing);
+    }
+
+    /**
+     * Get the version of this snapshot
+     * @return 1 for the first snapshot of a service, one more for every change published after it
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Get the sequence number of the latest change this snapshot includes
+     * Subscribing to StudentService.changes from the next number continues exactly where it stops
+     * @return Change sequence number, 0 if no change was made since the service started
+     */
+    public long getChangeSequence() {
+        return changeSequence;
+    }
+
+    public int size() {
+        return students.size();
+    }
+
+    /**
+     * Find student by ID
+     * @param id Student ID
+     * @return Copy of the student as of this snapshot, or null if not found
+     */
+    public Student findStudentById(int id) {
+        Student student = students.get(id);
+        return student == null ? null : copyOf(student);
+    }
+
+    /**
+     * Get all students
+     * @return Copies of every student in ascending ID order
+     */
+    public List<Student> getAllStudents() {
+        List<Student> all = new ArrayList<>(students.size());
+        students.forEach(student -> all.add(copyOf(student)));
+        return all;
+    }
+
+    /**
+     * Get the highest scoring students
+     * @param count Maximum number of students to return
+     * @return Up to count students sorted by marks (descending), then ID
+     */
+    public List<Student> getTopStudents(int count) {
+        int found = Math.max(0, Math.min(count, marks.size()));
+        List<Student> top = new ArrayList<>(found);
+        for (int rank = 0; rank < found; rank++) {
+            top.add(copyOf(students.get(marks.idAt(rank))));
+        }
+        return top;
+    }
+
+    /**
+     * Get statistics as of this snapshot, the same as StudentService.getStatistics would have returned
+     * Built from the running totals and the marks tree, so the cost does not grow with the students
+     * @return StudentStatistics object containing system stats
+     */
+    public StudentStatistics getStatistics() {
+        int studentCount = students.size();
+        if (studentCount == 0) {
+            return new StudentStatistics();
+        }
+
+        Map<String, Integer> gradeDistribution = new HashMap<>();
+        for (Grade grade : Grade.values()) {
+            if (gradeCounts[grade.ordinal()] > 0) {
+                gradeDistribution.put(grade.getLabel(), gradeCounts[grade.ordinal()]);
+            }
+        }
+        List<StudentStatistics.CourseSummary> courses = new ArrayList<>();
+        for (int code = 0; code < courseCounts.length; code++) {
+            if (courseCounts[code] > 0) {
+                courses.add(new StudentStatistics.CourseSummary(CourseDictionary.decode(code), courseCounts[code],
+                        courseTotals[code], coursePassing[code]));
+            }
+        }
+
+        return new StudentStatistics(
+                studentCount,
+                Math.round(totalMarks / studentCount * 100.0) / 100.0, // Round to 2 decimal places
+                marks.marksAt(0),
+                marks.marksAt(studentCount - 1),
+                findStudentById(marks.idAt(0)),
+                gradeDistribution,
+                passingCount,
+                marksPercentile(25),
+                marksPercentile(50),
+                marksPercentile(75),
+                courses
+        );
+    }
+
+    // The marks tree is descending, so ascending rank r is tree rank (n - 1 - r)
+    private double marksPercentile(double percentile) {
+        int size = marks.size();
+        return StudentStatistics.percentile(size, percentile, rank -> marks.marksAt(size - 1 - rank));
+    }
+
+    // Unattached copy, so nothing outside the snapshot can reach the students it holds
+    private static Student copyOf(Student student) {
+        return new Student(student.getId(), student.getName(), student.getMarks(), student.getCourseCode());
+    }
+
+    /**
+     * Running statistics being carried from one snapshot to the next
+     */
+    private static final class Aggregates {
+        double totalMarks;
+        int passingCount;
+        final int[] gradeCounts;
+        final int[] courseCounts;
+        final double[] courseTotals;
+        final int[] coursePassing;
+
+        Aggregates(int[] gradeCounts, int[] courseCounts, double[] courseTotals, int[] coursePassing) {
+            this.gradeCounts = gradeCounts;
+            this.courseCounts = courseCounts;
+            this.courseTotals = courseTotals;
+            this.coursePassing = coursePassing;
+        }
+
+        // Count a student in (sign 1) or out (sign -1)
+        void add(Student student, int sign) {
+            int passing = student.isPassing() ? sign : 0;
+            totalMarks += sign * student.getMarks();
+            passingCount += passing;
+            gradeCounts[student.getGradeLevel().ordinal()] += sign;
+            courseCounts[student.getCourseCode()] += sign;
+            courseTotals[student.getCourseCode()] += sign * student.getMarks();
+            coursePassing[student.getCourseCode()] += passing;
+        }
+    }
+}
@@ -1,5 +1,8 @@
+import java.util.Collections;
 import java.util.Map;
 import java.util.HashMap;
+import java.util.TreeMap;
+import java.util.function.IntToDoubleFunction;
 
 /**
  * Data class to hold student statistics
@@ -13,6 +16,10 @@ public class StudentStatistics {
     private Student topStudent;
     private Map<String, Integer> gradeDistribution;
     private int passingStudents;
+    private double lowerQuartile;
+    private double medianMarks;
+    private double upperQuartile;
+    private Map<String, CourseSummary> courseSummaries; // By course name
 
     // Default constructor for empty system
     public StudentStatistics() {
@@ -23,12 +30,25 @@ public class StudentStatistics {
         this.topStudent = null;
         this.gradeDistribution = new HashMap<>();
         this.passingStudents = 0;
+        this.lowerQuartile = 0.0;
+        this.medianMarks = 0.0;
+        this.upperQuartile = 0.0;
+        this.courseSummaries = new TreeMap<>();
+    }
+
+    // Constructor without per-course figures
+    public StudentStatistics(int totalStudents, double averageMarks, double highestMarks,
+                             double lowestMarks, Student topStudent, Map<String, Integer> gradeDistribution,
+                             int passingStudents, double lowerQuartile, double medianMarks, double upperQuartile) {
+        this(totalStudents, averageMarks, highestMarks, lowestMarks, topStudent, gradeDistribution, passingStudents,
+                lowerQuartile, medianMarks, upperQuartile, Collections.emptyList());
     }
 
     // Constructor with all parameters
     public StudentStatistics(int totalStudents, double averageMarks, double highestMarks,
                              double lowestMarks, Student topStudent, Map<String, Integer> gradeDistribution,
-                             int passingStudents) {
+                             int passingStudents, double lowerQuartile, double medianMarks, double upperQuartile,
+                             Iterable<CourseSummary> courses) {
         // Validation for parameters
         if (totalStudents < 0) {
             throw new IllegalArgumentException("Total students cannot be negative");
@@ -39,6 +59,9 @@ public class StudentStatistics {
         if (gradeDistribution == null) {
             throw new IllegalArgumentException("Grade distribution cannot be null");
         }
+        if (courses == null) {
+            throw new IllegalArgumentException("Course summaries cannot be null");
+        }
 
         this.totalStudents = totalStudents;
         this.averageMarks = averageMarks;
@@ -47,6 +70,37 @@ public class StudentStatistics {
         this.topStudent = topStudent;
         this.gradeDistribution = new HashMap<>(gradeDistribution); // Defensive copy
         this.passingStudents = passingStudents;
+        this.lowerQuartile = lowerQuartile;
+        this.medianMarks = medianMarks;
+        this.upperQuartile = upperQuartile;
+        this.courseSummaries = new TreeMap<>();
+        for (CourseSummary course : courses) {
+            courseSummaries.put(course.getCourse(), course);
+        }
+    }
+
+    /**
+     * Percentile of a sorted set of marks, interpolating linearly between the closest ranks
+     * @param count Number of values
+     * @param percentile Percentile between 0 and 100
+     * @param ascendingMarks Marks at a 0-based rank in ascending order
+     * @return Marks at the percentile, or 0 if there are no values
+     */
+    public static double percentile(int count, double percentile, IntToDoubleFunction ascendingMarks) {
+        if (percentile < 0 || percentile > 100) {
+            throw new IllegalArgumentException("Percentile must be between 0 and 100");
+        }
+        if (count == 0) return 0.0;
+
+        double position = percentile / 100.0 * (count - 1);
+        int lowerRank = (int) Math.floor(position);
+        int upperRank = (int) Math.ceil(position);
+        double lower = ascendingMarks.applyAsDouble(lowerRank);
+        if (upperRank == lowerRank) {
+            return lower;
+        }
+        double upper = ascendingMarks.applyAsDouble(upperRank);
+        return lower + (position - lowerRank) * (upper - lower);
     }
 
     // Getters
@@ -78,6 +132,26 @@ public class StudentStatistics {
         return passingStudents;
     }
 
+    public double getLowerQuartile() {
+        return lowerQuartile;
+    }
+
+    public double getMedianMarks() {
+        return medianMarks;
+    }
+
+    public double getUpperQuartile() {
+        return upperQuartile;
+    }
+
+    /**
+     * Get count, average marks and pass rate of every course
+     * @return Unmodifiable map from course name to its summary, sorted by name
+     */
+    public Map<String, CourseSummary> getCourseSummaries() {
+        return Collections.unmodifiableMap(courseSummaries);
+    }
+
     public int getFailingStudents() {
         return totalStudents - passingStudents;
     }
@@ -146,9 +220,51 @@ public class StudentStatistics {
         sb.append(String.format("Average Marks: %.2f\n", averageMarks));
         sb.append(String.format("Highest Marks: %.2f\n", highestMarks));
         sb.append(String.format("Lowest Marks: %.2f\n", lowestMarks));
+        sb.append(String.format("Median Marks: %.2f (Q1 %.2f, Q3 %.2f)\n", medianMarks, lowerQuartile, upperQuartile));
         sb.append(String.format("Passing: %d (%.1f%%)\n", passingStudents, getPassingPercentage()));
         sb.append(String.format("Failing: %d (%.1f%%)", getFailingStudents(), getFailingPercentage()));
 
         return sb.toString();
     }
+
+    /**
+     * Statistics of the students taking one course
+     */
+    public static class CourseSummary {
+        private final String course;
+        private final int students;
+        private final double averageMarks;
+        private final int passingStudents;
+
+        public CourseSummary(String course, int students, double totalMarks, int passingStudents) {
+            if (students < 0 || passingStudents < 0 || passingStudents > students) {
+                throw new IllegalArgumentException("Course counts are invalid");
+            }
+            this.course = course;
+            this.students = students;
+            this.averageMarks = students == 0 ? 0.0 : Math.round(totalMarks / students * 100.0) / 100.0;
+            this.passingStudents = passingStudents;
+        }
+
+        public String getCourse() {
+            return course;
+        }
+
+        public int getStudents() {
+            return students;
+        }
+
+        public double getAverageMarks() {
+            return averageMarks;
+        }
+
+        public int getPassingStudents() {
+            return passingStudents;
+        }
+
+        public double getPassRate() {
+            if (students == 0) return 0.0;
+            return Math.round((passingStudents * 100.0) / students * 10.0) / 10.0; // Round to 1 decimal
+        }
+    }
 }
@@ -0,0 +1,438 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Durable storage engine for student records
+ * Combines a compacted snapshot file with a write-ahead journal of later changes
+ *
+ * Journals are numbered generations. A snapshot starts a new generation and records the first one
+ * it does not cover, so writes go on into the new journal while the snapshot is written, and a crash
+ * at any point recovers from the previous snapshot and every journal after it
+ */
+public class StudentStorage implements AutoCloseable {
+    private static final String SNAPSHOT_FILE = "students.snapshot";
+    private static final String JOURNAL_FILE = "students.journal"; // Generation 0; later ones add ".<generation>"
+    private static final int SNAPSHOT_MAGIC = 0x53524D53; // "SRMS"
+    private static final int SNAPSHOT_VERSION = 2;
+    private static final int MIN_SNAPSHOT_RECORD_BYTES = 16; // ID, two empty strings and marks
+
+    // Compact once the journal outgrows this floor or the live dataset, whichever is larger
+    private static final long MIN_COMPACTION_RECORDS = 10_000;
+
+    private final Path directory;
+    private final int syncBatchSize;
+    private final long syncIntervalMillis;
+    private final boolean existingData;
+    private final long[] olderGenerations; // Journals before the current one, replayed then left to the next snapshot
+    private volatile StudentJournal journal; // Replaced under the owner's write lock when a snapshot starts
+    private long generation;
+    private volatile boolean compacting;
+
+    private int recoveredNextId;
+    private long recoveredSnapshotRecords;
+    private long replayedJournalRecords;
+    private long lastRecoveryMillis;
+    private long snapshotCount;
+    private long lastSnapshotMillis;
+
+    /**
+     * Snapshot started by beginSnapshot, to be written by finish without the owner's lock
+     */
+    public final class Compaction {
+        private final List<Student> students;
+        private final int nextId;
+        private final long journalGeneration; // First journal the snapshot does not cover
+        private final long start;
+
+        private Compaction(List<Student> students, int nextId, long journalGeneration, long start) {
+            this.students = students;
+            this.nextId = nextId;
+            this.journalGeneration = journalGeneration;
+            this.start = start;
+        }
+
+        /**
+         * Store the students and delete the journals the snapshot covers
+         * The snapshot is written to a temporary file and atomically renamed into place
+         * @throws IOException if the snapshot cannot be written; the journals are kept then
+         */
+        public void finish() throws IOException {
+            try {
+                writeSnapshotFile(this);
+                for (long older : journalGenerations()) {
+                    if (older < journalGeneration) {
+                        Files.deleteIfExists(journalFile(older));
+                    }
+                }
+                snapshotCount++;
+                lastSnapshotMillis = (System.nanoTime() - start) / 1_000_000;
+            } finally {
+                compacting = false;
+            }
+        }
+    }
+
+    /**
+     * Open the storage directory, creating it if needed
+     * @param directory Directory holding the snapshot and journal files
+     * @param syncBatchSize Maximum journal records between two fsyncs
+     * @param syncIntervalMillis Longest a journal record waits for its fsync, see StudentJournal
+     * @throws IOException if the files cannot be opened
+     */
+    public StudentStorage(Path directory, int syncBatchSize, long syncIntervalMillis) throws IOException {
+        Files.createDirectories(directory);
+        this.directory = directory;
+        this.syncBatchSize = syncBatchSize;
+        this.syncIntervalMillis = syncIntervalMillis;
+
+        long[] generations = journalGenerations();
+        this.existingData = Files.exists(snapshotFile()) || generations.length > 0;
+        this.generation = generations.length == 0 ? 0 : generations[generations.length - 1];
+        this.olderGenerations = generations.length == 0
+                ? generations : Arrays.copyOf(generations, generations.length - 1);
+        this.journal = new StudentJournal(journalFile(generation), syncBatchSize, syncIntervalMillis);
+    }
+
+    /**
+     * Open the storage directory with default sync settings (fsync every 64 records or 50 ms)
+     * @param directory Directory holding the snapshot and journal files
+     * @throws IOException if the files cannot be opened
+     */
+    public StudentStorage(Path directory) throws IOException {
+        this(directory, 64, 50);
+    }
+
+    /**
+     * Open the storage directory without automatic fsyncs
+     * Changes only become durable when sync (or flush and force) is called, for callers such as
+     * StudentWriteQueue that commit groups of changes themselves
+     * @param directory Directory holding the snapshot and journal files
+     * @return Opened storage
+     * @throws IOException if the files cannot be opened
+     */
+    public static StudentStorage withManualSync(Path directory) throws IOException {
+        return new StudentStorage(directory, Integer.MAX_VALUE, Long.MAX_VALUE);
+    }
+
+    /**
+     * Load the latest snapshot and replay the journals written after it on top of it
+     * @param handler Receives every recovered student and delete in order
+     * @throws IOException if the snapshot is unreadable
+     */
+    public void recover(StudentJournal.ReplayHandler handler) throws IOException {
+        long start = System.nanoTime();
+
+        recoveredNextId = 0;
+        recoveredSnapshotRecords = 0;
+        long firstGeneration = 0;
+        if (Files.exists(snapshotFile())) {
+            firstGeneration = readSnapshot(handler);
+        }
+
+        // Journals the snapshot covers are left over from a crash after it was renamed into place
+        replayedJournalRecords = 0;
+        for (long older : olderGenerations) {
+            if (older < firstGeneration) {
+                Files.deleteIfExists(journalFile(older));
+                continue;
+            }
+            try (StudentJournal olderJournal = new StudentJournal(journalFile(older), Integer.MAX_VALUE,
+                    Long.MAX_VALUE)) {
+                replayedJournalRecords += olderJournal.replay(handler);
+            }
+        }
+        if (generation >= firstGeneration) {
+            replayedJournalRecords += journal.replay(handler);
+        }
+
+        lastRecoveryMillis = (System.nanoTime() - start) / 1_000_000;
+    }
+
+    /**
+     * Check whether the directory held data before it was opened
+     * @return true if a snapshot or journal was found
+     */
+    public boolean hasExistingData() {
+        return existingData;
+    }
+
+    /**
+     * Log an added or updated student
+     * @param student Student state after the change
+     * @throws IOException if the journal cannot be written
+     */
+    public void logUpsert(Student student) throws IOException {
+        journal.appendUpsert(student);
+    }
+
+    /**
+     * Log a deleted student
+     * @param id ID of the deleted student
+     * @throws IOException if the journal cannot be written
+     */
+    public void logDelete(int id) throws IOException {
+        journal.appendDelete(id);
+    }
+
+    /**
+     * Log a batch of changes that recovery must apply all together or not at all
+     * @param upserts Added or updated students, after the changes
+     * @param deletedIds IDs of deleted students
+     * @throws IOException if the journal cannot be written
+     */
+    public void logBatch(List<Student> upserts, int[] deletedIds) throws IOException {
+        journal.appendBatch(upserts, deletedIds);
+    }
+
+    /**
+     * Check if the journal has grown enough to be folded into a new snapshot
+     * @param liveStudents Current number of students
+     * @return true if a snapshot should be written and none is being written already
+     */
+    public boolean shouldCompact(int liveStudents) {
+        return !compacting && journal.getRecordCount() >= Math.max(MIN_COMPACTION_RECORDS, liveStudents);
+    }
+
+    /**
+     * Start writing a snapshot: sync and close the current journal and start the next one
+     * Must be called under the same lock as the appends, with a copy of the students taken under it;
+     * Compaction.finish then writes them without the lock while new changes go to the next journal
+     * @param students Copy of every stored student, not changed afterwards
+     * @param nextId Next ID to hand out after recovery
+     * @return Snapshot to finish
+     * @throws IOException if the journal cannot be synced or the next one created
+     */
+    public Compaction beginSnapshot(List<Student> students, int nextId) throws IOException {
+        long start = System.nanoTime();
+        journal.sync(); // Everything acknowledged so far is durable in the old generation
+        StudentJournal next = new StudentJournal(journalFile(generation + 1), syncBatchSize, syncIntervalMillis);
+        syncDirectory(); // The new journal's records are only durable once its directory entry is
+
+        StudentJournal previous = journal;
+        journal = next;
+        generation++;
+        previous.close();
+        compacting = true;
+        return new Compaction(students, nextId, generation, start);
+    }
+
+    private void writeSnapshotFile(Compaction compaction) throws IOException {
+        Path tempFile = directory.resolve(SNAPSHOT_FILE + ".tmp");
+        try (FileChannel channel = FileChannel.open(tempFile, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            CheckedOutputStream checked = new CheckedOutputStream(
+                    new BufferedOutputStream(Channels.newOutputStream(channel), 64 * 1024), new CRC32());
+            DataOutputStream out = new DataOutputStream(checked);
+
+            out.writeInt(SNAPSHOT_MAGIC);
+            out.writeInt(SNAPSHOT_VERSION);
+            out.writeInt(compaction.nextId);
+            out.writeLong(compaction.journalGeneration);
+            out.writeInt(compaction.students.size());
+
+            for (Student student : compaction.students) {
+                out.writeInt(student.getId());
+                out.writeUTF(student.getName());
+                out.writeUTF(student.getCourse());
+                out.writeDouble(student.getMarks());
+            }
+
+            out.writeLong(checked.getChecksum().getValue());
+            out.flush();
+            channel.force(true);
+        }
+
+        Files.move(tempFile, snapshotFile(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        syncDirectory(); // Otherwise a power loss could bring back the old snapshot after the journals are gone
+    }
+
+    // Make file creations, renames and deletes in the directory durable
+    private void syncDirectory() throws IOException {
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        }
+    }
+
+    /**
+     * Force buffered journal records to disk
+     * @throws IOException if the journal cannot be written
+     */
+    public void sync() throws IOException {
+        journal.sync();
+    }
+
+    /**
+     * Write buffered journal records to the file, so force can make them durable without the caller's lock
+     * @return true if there are records to force
+     * @throws IOException if the journal cannot be written
+     */
+    public boolean flush() throws IOException {
+        return journal.flush();
+    }
+
+    /**
+     * Force records written by flush to disk
+     * @throws IOException if the journal cannot be forced
+     */
+    public void force() throws IOException {
+        StudentJournal current = journal;
+        try {
+            current.force();
+        } catch (ClosedChannelException e) {
+            if (current == journal) throw e; // Otherwise beginSnapshot synced and closed it meanwhile
+        }
+    }
+
+    /**
+     * Get the next ID recorded by the snapshot (0 if there was none)
+     * @return Next ID from the snapshot header
+     */
+    public int getRecoveredNextId() {
+        return recoveredNextId;
+    }
+
+    /**
+     * Get number of students loaded from the snapshot during recovery
+     * @return Snapshot record count
+     */
+    public long getRecoveredSnapshotRecords() {
+        return recoveredSnapshotRecords;
+    }
+
+    /**
+     * Get number of journal records replayed during recovery
+     * @return Replayed record count
+     */
+    public long getReplayedJournalRecords() {
+        return replayedJournalRecords;
+    }
+
+    /**
+     * Get time spent in the last recovery
+     * @return Recovery time in milliseconds
+     */
+    public long getLastRecoveryMillis() {
+        return lastRecoveryMillis;
+    }
+
+    /**
+     * Get number of records in the journal since the last snapshot
+     * @return Journal record count
+     */
+    public long getJournalRecords() {
+        return journal.getRecordCount();
+    }
+
+    /**
+     * Get number of fsyncs issued on the journal
+     * @return Journal sync count
+     */
+    public long getJournalSyncCount() {
+        return journal.getSyncCount();
+    }
+
+    /**
+     * Get number of snapshots written since the storage was opened
+     * @return Snapshot count
+     */
+    public long getSnapshotCount() {
+        return snapshotCount;
+    }
+
+    /**
+     * Get time spent writing the last snapshot
+     * @return Snapshot time in milliseconds
+     */
+    public long getLastSnapshotMillis() {
+        return lastSnapshotMillis;
+    }
+
+    @Override
+    public void close() throws IOException {
+        journal.close();
+    }
+
+    // Returns the first journal generation the snapshot does not cover
+    private long readSnapshot(StudentJournal.ReplayHandler handler) throws IOException {
+        try (InputStream fileIn = Files.newInputStream(snapshotFile())) {
+            CheckedInputStream checked = new CheckedInputStream(
+                    new BufferedInputStream(fileIn, 64 * 1024), new CRC32());
+            DataInputStream in = new DataInputStream(checked);
+
+            if (in.readInt() != SNAPSHOT_MAGIC) {
+                throw new IOException("Not a student snapshot file: " + snapshotFile());
+            }
+            int version = in.readInt();
+            if (version != SNAPSHOT_VERSION) {
+                throw new IOException("Unsupported snapshot version: " + version);
+            }
+            int nextId = in.readInt();
+            long journalGeneration = in.readLong();
+            int count = in.readInt();
+            if (count < 0 || count > Files.size(snapshotFile()) / MIN_SNAPSHOT_RECORD_BYTES) {
+                throw new IOException("Snapshot record count " + count + " does not fit the file: " + snapshotFile());
+            }
+
+            // Nothing reaches the handler until the checksum shows the whole file is intact
+            int[] ids = new int[count];
+            String[] names = new String[count];
+            String[] courses = new String[count];
+            double[] marks = new double[count];
+            for (int i = 0; i < count; i++) {
+                ids[i] = in.readInt();
+                names[i] = in.readUTF();
+                courses[i] = in.readUTF();
+                marks[i] = in.readDouble();
+            }
+
+            long expected = checked.getChecksum().getValue();
+            if (in.readLong() != expected) {
+                throw new IOException("Snapshot checksum mismatch: " + snapshotFile());
+            }
+            for (int i = 0; i < count; i++) {
+                handler.upsert(new Student(ids[i], names[i], marks[i], courses[i]));
+            }
+
+            recoveredNextId = nextId;
+            recoveredSnapshotRecords = count;
+            return journalGeneration;
+        }
+    }
+
+    private Path snapshotFile() {
+        return directory.resolve(SNAPSHOT_FILE);
+    }
+
+    private Path journalFile(long journalGeneration) {
+        return directory.resolve(journalGeneration == 0 ? JOURNAL_FILE : JOURNAL_FILE + "." + journalGeneration);
+    }
+
+    // Generations of the journal files in the directory, in ascending order
+    private long[] journalGenerations() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.map(file -> file.getFileName().toString())
+                    .filter(name -> name.equals(JOURNAL_FILE) || name.matches("students\\.journal\\.\\d{1,18}"))
+                    .mapToLong(name -> name.equals(JOURNAL_FILE)
+                            ? 0 : Long.parseLong(name.substring(JOURNAL_FILE.length() + 1)))
+                    .sorted()
+                    .toArray();
+        }
+    }
+}
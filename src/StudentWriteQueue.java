@@ -0,0 +1,340 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Function;
+
+/**
+ * Asynchronous write path in front of a StudentService that commits changes in groups
+ * Callers queue changes on a lock-free ring buffer and get a future back at once. A single writer
+ * thread takes the queued changes in order, applies up to maxBatchSize of them to the service, makes
+ * them all durable with one StudentService.sync and only then completes their futures. Changes that
+ * arrive while a group is being forced make up the next group, so one fsync serves many writes
+ *
+ * Open the service on StudentStorage.withManualSync so the journal does not also fsync on its own.
+ * Changes are visible to readers once applied, shortly before their futures complete; on a service
+ * without storage the futures complete as soon as the changes are applied. Dependent actions added
+ * without an async method run on the writer thread, so they should be short
+ *
+ * A change that throws fails only its own future. If the writer thread itself dies, every queued
+ * change fails and the queue closes, so no caller waits forever
+ */
+public final class StudentWriteQueue implements AutoCloseable {
+    private static final long FULL_WAIT_NANOS = 10_000; // Producer back-off while the ring is full
+
+    private final StudentService service;
+    private final int maxBatchSize;
+    private final long maxDelayNanos;
+
+    // Ring buffer: a producer claims a position by advancing 'tail', fills the slot and publishes it
+    // by setting the slot's sequence to position + 1; only the writer thread reads slots and moves 'head'
+    private final Write<?>[] slots;
+    private final AtomicLongArray sequences;
+    private final int mask;
+    private final AtomicLong tail = new AtomicLong();
+    private long head;
+
+    private final Thread writer;
+    private final AtomicInteger activeProducers = new AtomicInteger(); // Between the closed check and publishing
+    private volatile boolean writerParked;
+    private volatile boolean closed;
+    private volatile Throwable writerFailure; // Why the writer thread died, if it did
+
+    private final Histogram commitLatency = new Histogram(); // Nanoseconds from queueing to durable
+    private final Histogram groupSizes = new Histogram();
+
+    /**
+     * One queued change and the future its caller waits on
+     */
+    private static final class Write<T> {
+        final Function<StudentService, T> change;
+        final CompletableFuture<T> future = new CompletableFuture<>();
+        final long queuedNanos = System.nanoTime();
+        T result;
+        Throwable failure;
+
+        Write(Function<StudentService, T> change) {
+            this.change = change;
+        }
+
+        void apply(StudentService service) {
+            try {
+                result = change.apply(service);
+            } catch (Throwable e) { // Even an Error only fails this change, the writer goes on
+                failure = e;
+            }
+        }
+
+        // A rejected change fails with its own error, an applied one with the sync error if any
+        void complete(Throwable syncFailure) {
+            if (failure != null) {
+                future.completeExceptionally(failure);
+            } else if (syncFailure != null) {
+                future.completeExceptionally(syncFailure);
+            } else {
+                future.complete(result);
+            }
+        }
+    }
+
+    /**
+     * Start a queue with room for 4096 changes that commits up to 256 changes per group as soon as
+     * the writer is free
+     * @param service Service to write to
+     */
+    public StudentWriteQueue(StudentService service) {
+        this(service, 4096, 256, 0);
+    }
+
+    /**
+     * Start a queue and its writer thread
+     * @param service Service to write to
+     * @param capacity Maximum queued changes, rounded up to a power of two; callers wait while it is full
+     * @param maxBatchSize Maximum changes committed with one sync
+     * @param maxDelayMicros Longest the first change of a group waits for more to join it; 0 commits
+     *                       whatever is queued once the writer is free
+     * @throws IllegalArgumentException if a setting is out of range
+     */
+    public StudentWriteQueue(StudentService service, int capacity, int maxBatchSize, long maxDelayMicros) {
+        if (capacity < 1 || capacity > 1 << 30) {
+            throw new IllegalArgumentException("Capacity must be between 1 and 2^30");
+        }
+        if (maxBatchSize < 1) {
+            throw new IllegalArgumentException("Batch size must be at least 1");
+        }
+        if (maxDelayMicros < 0) {
+            throw new IllegalArgumentException("Delay cannot be negative");
+        }
+        int size = Integer.highestOneBit(Math.max(1, capacity - 1)) << 1;
+        this.service = service;
+        this.maxBatchSize = maxBatchSize;
+        this.maxDelayNanos = TimeUnit.MICROSECONDS.toNanos(maxDelayMicros);
+        this.slots = new Write<?>[size];
+        this.sequences = new AtomicLongArray(size);
+        this.mask = size - 1;
+        for (int i = 0; i < size; i++) {
+            sequences.set(i, i);
+        }
+
+        this.writer = new Thread(this::run, "student-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Queue adding a new student
+     * @param name Student name
+     * @param course Student course
+     * @param marks Student marks
+     * @return Future of the created student, completed once the add is durable; fails with
+     *         IllegalArgumentException for invalid data
+     * @throws IllegalStateException if the queue is closed
+     */
+    public CompletableFuture<Student> addStudent(String name, String course, double marks) {
+        return submit(target -> target.addStudent(name, course, marks));
+    }
+
+    /**
+     * Queue a student update
+     * @param id Student ID
+     * @param name New name (null to keep existing)
+     * @param course New course (null to keep existing)
+     * @param marks New marks (null to keep existing)
+     * @return Future of true once the update is durable, or false if the student was not found
+     * @throws IllegalStateException if the queue is closed
+     */
+    public CompletableFuture<Boolean> updateStudent(int id, String name, String course, Double marks) {
+        return submit(target -> target.updateStudent(id, name, course, marks));
+    }
+
+    /**
+     * Queue deleting a student
+     * @param id Student ID
+     * @return Future of true once the delete is durable, or false if the student was not found
+     * @throws IllegalStateException if the queue is closed
+     */
+    public CompletableFuture<Boolean> deleteStudent(int id) {
+        return submit(target -> target.deleteStudent(id));
+    }
+
+    /**
+     * Get the time from queueing a change to its future completing
+     * @return Histogram of nanoseconds per change
+     */
+    public Histogram getCommitLatency() {
+        return commitLatency;
+    }
+
+    /**
+     * Get the number of changes committed together
+     * @return Histogram of changes per sync
+     */
+    public Histogram getGroupSizes() {
+        return groupSizes;
+    }
+
+    /**
+     * Stop taking changes, commit everything already queued and stop the writer thread
+     * Does not close the service
+     */
+    @Override
+    public void close() {
+        closed = true;
+        LockSupport.unpark(writer);
+        boolean interrupted = false;
+        while (writer.isAlive()) {
+            try {
+                writer.join();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private <T> CompletableFuture<T> submit(Function<StudentService, T> change) {
+        Write<T> write = new Write<>(change);
+        activeProducers.incrementAndGet();
+        try {
+            if (closed) {
+                Throwable failure = writerFailure;
+                throw failure == null ? new IllegalStateException("Write queue is closed")
+                        : new IllegalStateException("Write queue writer failed", failure);
+            }
+
+            long position;
+            while (true) {
+                position = tail.get();
+                long sequence = sequences.get((int) position & mask);
+                if (sequence == position) {
+                    if (tail.compareAndSet(position, position + 1)) break;
+                } else if (sequence < position) {
+                    LockSupport.parkNanos(FULL_WAIT_NANOS); // Full: the writer has not freed this slot yet
+                }
+                // Otherwise another producer claimed the position first, try the next one
+            }
+            int index = (int) position & mask;
+            slots[index] = write;
+            sequences.set(index, position + 1);
+        } finally {
+            activeProducers.decrementAndGet();
+        }
+
+        if (writerParked) {
+            LockSupport.unpark(writer);
+        }
+        return write.future;
+    }
+
+    // Take the next published change, writer thread only
+    private Write<?> poll() {
+        int index = (int) head & mask;
+        if (sequences.get(index) != head + 1) {
+            return null;
+        }
+        Write<?> write = slots[index];
+        slots[index] = null;
+        sequences.set(index, head + slots.length); // Free the slot for the producer one lap ahead
+        head++;
+        return write;
+    }
+
+    private void run() {
+        List<Write<?>> group = new ArrayList<>(Math.min(maxBatchSize, 1024));
+        try {
+            writeGroups(group);
+        } catch (Throwable e) {
+            writerFailure = e;
+            closed = true;
+            IllegalStateException failure = new IllegalStateException("Write queue writer failed", e);
+            for (Write<?> write : group) {
+                write.future.completeExceptionally(failure); // No effect on futures already completed
+            }
+            failQueued(failure);
+            throw e;
+        }
+    }
+
+    private void writeGroups(List<Write<?>> group) {
+        while (true) {
+            Write<?> first = poll();
+            if (first == null) {
+                if (closed && activeProducers.get() == 0 && head == tail.get()) {
+                    return;
+                }
+                await(0);
+                continue;
+            }
+
+            group.add(first);
+            long deadline = first.queuedNanos + maxDelayNanos;
+            while (group.size() < maxBatchSize) {
+                Write<?> next = poll();
+                if (next != null) {
+                    group.add(next);
+                    continue;
+                }
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0 || closed) break;
+                await(remaining);
+            }
+            commit(group);
+            group.clear();
+        }
+    }
+
+    // Fail every change queued after the writer died, including ones producers are still publishing
+    private void failQueued(RuntimeException failure) {
+        while (true) {
+            Write<?> write = poll();
+            if (write != null) {
+                write.future.completeExceptionally(failure);
+            } else if (activeProducers.get() == 0 && head == tail.get()) {
+                return;
+            } else {
+                Thread.onSpinWait();
+            }
+        }
+    }
+
+    // Park until a producer publishes, the queue closes or the timeout passes (0 waits without a timeout)
+    private void await(long nanos) {
+        writerParked = true;
+        if (sequences.get((int) head & mask) != head + 1 && !closed) {
+            if (nanos > 0) {
+                LockSupport.parkNanos(this, nanos);
+            } else {
+                LockSupport.park(this);
+            }
+        }
+        writerParked = false;
+    }
+
+    private void commit(List<Write<?>> group) {
+        for (Write<?> write : group) {
+            write.apply(service);
+        }
+        Throwable syncFailure = null;
+        try {
+            service.sync();
+        } catch (Throwable e) {
+            syncFailure = e;
+        }
+
+        long now = System.nanoTime();
+        for (Write<?> write : group) {
+            write.complete(syncFailure);
+            commitLatency.record(now - write.queuedNanos);
+        }
+        groupSizes.record(group.size());
+        if (syncFailure instanceof Error) {
+            throw (Error) syncFailure; // The group is failed; run fails whatever is still queued
+        }
+    }
+}
@@ -0,0 +1,272 @@
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Inverted trigram index for case-insensitive substring search over one text field
+ * Each three-character sequence of a normalized value maps to the sorted IDs that contain it
+ */
+public class TrigramIndex {
+    private final Map<Long, PostingList> postings;
+
+    // Normalized values stored densely so short queries can scan without allocating
+    private final StudentIdIndex positions;
+    private int[] ids;
+    private String[] values;
+    private int size;
+
+    public TrigramIndex() {
+        this.postings = new HashMap<>();
+        this.positions = new StudentIdIndex();
+        this.ids = new int[16];
+        this.values = new String[16];
+        this.size = 0;
+    }
+
+    /**
+     * Normalize a value the way the index stores it
+     * @param value Raw value
+     * @return Lower-cased, trimmed value
+     */
+    public static String normalize(String value) {
+        return value.trim().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Index a value for an ID, replacing any value already stored for it
+     * @param id Student ID
+     * @param value Text to index
+     */
+    public void add(int id, String value) {
+        remove(id);
+
+        String normalized = normalize(value);
+        if (size == ids.length) {
+            ids = Arrays.copyOf(ids, size * 2);
+            values = Arrays.copyOf(values, size * 2);
+        }
+        ids[size] = id;
+        values[size] = normalized;
+        positions.put(id, size);
+        size++;
+
+        for (int i = 0; i + 3 <= normalized.length(); i++) {
+            postings.computeIfAbsent(trigram(normalized, i), key -> new PostingList()).add(id);
+        }
+    }
+
+    /**
+     * Remove the value indexed for an ID
+     * @param id Student ID
+     * @return true if the ID was indexed
+     */
+    public boolean remove(int id) {
+        int position = positions.remove(id);
+        if (position < 0) {
+            return false;
+        }
+
+        String normalized = values[position];
+        for (int i = 0; i + 3 <= normalized.length(); i++) {
+            Long key = trigram(normalized, i);
+            PostingList list = postings.get(key);
+            if (list != null && list.remove(id) && list.size == 0) {
+                postings.remove(key);
+            }
+        }
+
+        removeValue(position);
+        return true;
+    }
+
+    /**
+     * Remove the values indexed for several IDs
+     * Each posting list is filtered once for the whole batch, rather than shifted once per ID
+     * @param sortedIds Student IDs in ascending order
+     */
+    public void removeAll(int[] sortedIds) {
+        Map<Long, PostingList> removals = new HashMap<>(); // Trigram -> IDs to drop from its list, ascending
+        for (int id : sortedIds) {
+            int position = positions.remove(id);
+            if (position < 0) continue;
+
+            String normalized = values[position];
+            for (int i = 0; i + 3 <= normalized.length(); i++) {
+                removals.computeIfAbsent(trigram(normalized, i), key -> new PostingList()).add(id);
+            }
+            removeValue(position);
+        }
+
+        for (Map.Entry<Long, PostingList> removal : removals.entrySet()) {
+            PostingList list = postings.get(removal.getKey());
+            if (list != null) {
+                list.removeAll(removal.getValue());
+                if (list.size == 0) {
+                    postings.remove(removal.getKey());
+                }
+            }
+        }
+    }
+
+    // Move the last entry into the hole to keep the value arrays dense
+    private void removeValue(int position) {
+        size--;
+        if (position != size) {
+            ids[position] = ids[size];
+            values[position] = values[size];
+            positions.put(ids[position], position);
+        }
+        values[size] = null;
+    }
+
+    /**
+     * Find IDs whose value contains the query (case-insensitive)
+     * Queries of three or more characters only read the posting lists of their trigrams
+     * @param query Substring to look for
+     * @return Matching IDs in ascending order
+     */
+    public int[] search(String query) {
+        String normalized = normalize(query);
+        if (normalized.isEmpty()) {
+            return new int[0];
+        }
+        if (normalized.length() < 3) {
+            return scan(normalized);
+        }
+
+        // Intersect posting lists, smallest first so the candidate set shrinks fastest
+        int gramCount = normalized.length() - 2;
+        PostingList[] lists = new PostingList[gramCount];
+        for (int i = 0; i < gramCount; i++) {
+            lists[i] = postings.get(trigram(normalized, i));
+            if (lists[i] == null) {
+                return new int[0];
+            }
+        }
+        Arrays.sort(lists, (a, b) -> Integer.compare(a.size, b.size));
+
+        int[] candidates = Arrays.copyOf(lists[0].ids, lists[0].size);
+        int candidateCount = candidates.length;
+        for (int i = 1; i < lists.length && candidateCount > 0; i++) {
+            candidateCount = lists[i].retainAll(candidates, candidateCount);
+        }
+
+        // Trigrams can match out of order, so confirm each candidate against its value
+        int matches = 0;
+        for (int i = 0; i < candidateCount; i++) {
+            int id = candidates[i];
+            if (gramCount == 1 || values[positions.get(id)].contains(normalized)) {
+                candidates[matches++] = id;
+            }
+        }
+        return Arrays.copyOf(candidates, matches);
+    }
+
+    /**
+     * Find one page of IDs whose value contains the query (case-insensitive)
+     * Walks the smallest posting list from the cursor and stops once the page is full,
+     * so the work depends on the page size rather than on the number of matches
+     * @param query Substring to look for
+     * @param afterId Only IDs greater than this are returned
+     * @param limit Maximum number of IDs
+     * @return Up to limit matching IDs in ascending order
+     */
+    public int[] search(String query, int afterId, int limit) {
+        String normalized = normalize(query);
+        if (normalized.isEmpty() || limit <= 0) {
+            return new int[0];
+        }
+        if (normalized.length() < 3) {
+            SmallestIds page = new SmallestIds(afterId, limit);
+            for (int i = 0; i < size; i++) {
+                if (values[i].contains(normalized)) {
+                    page.offer(ids[i]);
+                }
+            }
+            return page.toSortedArray();
+        }
+
+        int gramCount = normalized.length() - 2;
+        PostingList[] lists = new PostingList[gramCount];
+        for (int i = 0; i < gramCount; i++) {
+            lists[i] = postings.get(trigram(normalized, i));
+            if (lists[i] == null) {
+                return new int[0];
+            }
+        }
+        Arrays.sort(lists, (a, b) -> Integer.compare(a.size, b.size));
+
+        int[] cursors = new int[gramCount]; // Search position in each list, only ever moves forward
+        int[] matches = new int[Math.min(limit, 64)];
+        int count = 0;
+        int start = Arrays.binarySearch(lists[0].ids, 0, lists[0].size, afterId);
+        for (int i = start >= 0 ? start + 1 : -start - 1; i < lists[0].size && count < limit; i++) {
+            int id = lists[0].ids[i];
+            boolean inAll = true;
+            for (int j = 1; j < gramCount && inAll; j++) {
+                int index = Arrays.binarySearch(lists[j].ids, cursors[j], lists[j].size, id);
+                cursors[j] = index >= 0 ? index : -index - 1;
+                inAll = index >= 0;
+            }
+            if (inAll && (gramCount == 1 || values[positions.get(id)].contains(normalized))) {
+                if (count == matches.length) {
+                    matches = Arrays.copyOf(matches, Math.min(count * 2, limit));
+                }
+                matches[count++] = id;
+            }
+        }
+        return Arrays.copyOf(matches, count);
+    }
+
+    /**
+     * Get an upper bound on the number of IDs a search would return, without running it
+     * @param query Substring to look for
+     * @return Size of the smallest posting list of the query's trigrams, or -1 if the query is
+     *         shorter than a trigram and a search would have to scan every value
+     */
+    public int estimateMatches(String query) {
+        String normalized = normalize(query);
+        if (normalized.length() < 3) {
+            return normalized.isEmpty() ? 0 : -1;
+        }
+
+        int smallest = Integer.MAX_VALUE;
+        for (int i = 0; i + 3 <= normalized.length(); i++) {
+            PostingList list = postings.get(trigram(normalized, i));
+            if (list == null) {
+                return 0;
+            }
+            smallest = Math.min(smallest, list.size);
+        }
+        return smallest;
+    }
+
+    /**
+     * Get number of indexed IDs
+     * @return Index size
+     */
+    public int size() {
+        return size;
+    }
+
+    private int[] scan(String normalized) {
+        int[] matches = new int[16];
+        int count = 0;
+        for (int i = 0; i < size; i++) {
+            if (values[i].contains(normalized)) {
+                if (count == matches.length) {
+                    matches = Arrays.copyOf(matches, count * 2);
+                }
+                matches[count++] = ids[i];
+            }
+        }
+        int[] result = Arrays.copyOf(matches, count);
+        Arrays.sort(result);
+        return result;
+    }
+
+    private static Long trigram(String value, int start) {
+        return ((long) value.charAt(start) << 32) | ((long) value.charAt(start + 1) << 16) | value.charAt(start + 2);
+    }
+}
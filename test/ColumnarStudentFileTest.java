@@ -0,0 +1,118 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Round trips through the memory-mapped columnar file
+ */
+class ColumnarStudentFileTest {
+    @TempDir
+    Path directory;
+
+    private static List<String> describe(List<Student> students) {
+        return students.stream()
+                .map(s -> s.getId() + "|" + s.getName() + "|" + s.getCourse() + "|" + s.getMarks())
+                .toList();
+    }
+
+    private static List<Student> students() {
+        List<Student> students = new ArrayList<>();
+        students.add(new Student(1003, "Zoë Müller", 88.5, "Physics"));
+        students.add(new Student(1001, "alice", 45.0, "Computer Science"));
+        students.add(new Student(1002, "Bob", 72.25, "Mathematics"));
+        students.add(new Student(1005, "Bob", 99.0, "Physics")); // Names repeat, sharing one dictionary entry
+        students.add(new Student(1004, "李雷", 60.0, "Chemistry"));
+        return students;
+    }
+
+    @Test
+    void writeThenOpenKeepsEveryStudent() throws IOException {
+        Path file = directory.resolve("students.col");
+        List<Student> students = students();
+        ColumnarStudentFile.write(file, students);
+
+        try (ColumnarStudentFile columnar = ColumnarStudentFile.open(file)) {
+            assertEquals(5, columnar.getStudentCount());
+            for (Student student : students) {
+                assertEquals(describe(List.of(student)), describe(List.of(columnar.findStudentById(student.getId()))));
+            }
+            assertNull(columnar.findStudentById(1000));
+            assertNull(columnar.findStudentById(1006));
+
+            List<Student> byId = new ArrayList<>(students);
+            byId.sort(Comparator.comparingInt(Student::getId));
+            for (int row = 0; row < byId.size(); row++) {
+                assertEquals(byId.get(row).getId(), columnar.studentAt(row).getId());
+            }
+        }
+    }
+
+    @Test
+    void precomputedOrdersMatchSorting() throws IOException {
+        Path file = directory.resolve("students.col");
+        List<Student> students = students();
+        ColumnarStudentFile.write(file, students);
+
+        try (ColumnarStudentFile columnar = ColumnarStudentFile.open(file)) {
+            assertEquals(List.of(1005, 1003, 1002, 1004, 1001),
+                    columnar.getStudentsSortedByMarks().stream().map(Student::getId).toList());
+            assertEquals(List.of(1005, 1003), columnar.getStudentsSortedByMarks(2).stream().map(Student::getId).toList());
+            assertEquals(List.of("alice", "Bob", "Bob", "Zoë Müller", "李雷"),
+                    columnar.getStudentsSortedByName().stream().map(Student::getName).toList());
+            assertEquals(List.of(1003), columnar.searchByGrade("A").stream().map(Student::getId).toList());
+        }
+    }
+
+    @Test
+    void statisticsMatchTheService() throws IOException {
+        StudentService service = new StudentService();
+        for (int i = 0; i < 500; i++) {
+            service.addStudent("Student " + i, "Course " + i % 7, (i * 37) % 101);
+        }
+        Path file = directory.resolve("students.col");
+        service.exportColumnar(file);
+
+        StudentStatistics expected = service.recomputeStatistics();
+        try (ColumnarStudentFile columnar = StudentService.openColumnar(file)) {
+            StudentStatistics actual = columnar.getStatistics();
+            assertEquals(expected.getTotalStudents(), actual.getTotalStudents());
+            assertEquals(expected.getAverageMarks(), actual.getAverageMarks());
+            assertEquals(expected.getHighestMarks(), actual.getHighestMarks());
+            assertEquals(expected.getLowestMarks(), actual.getLowestMarks());
+            assertEquals(expected.getPassingStudents(), actual.getPassingStudents());
+            assertEquals(expected.getGradeDistribution(), actual.getGradeDistribution());
+            assertEquals(expected.getMedianMarks(), actual.getMedianMarks());
+            assertEquals(describe(service.getAllStudents()),
+                    describe(columnar.getStudentsSortedByMarks().stream()
+                            .sorted(Comparator.comparingInt(Student::getId)).toList()));
+        }
+    }
+
+    @Test
+    void emptyFileRoundTrips() throws IOException {
+        Path file = directory.resolve("empty.col");
+        ColumnarStudentFile.write(file, List.of());
+
+        try (ColumnarStudentFile columnar = ColumnarStudentFile.open(file)) {
+            assertTrue(columnar.isEmpty());
+            assertTrue(columnar.getStatistics().isEmpty());
+            assertTrue(columnar.getStudentsSortedByName().isEmpty());
+            assertNull(columnar.findStudentById(1001));
+        }
+    }
+
+    @Test
+    void rejectsOtherFiles() throws IOException {
+        Path file = directory.resolve("students.csv");
+        Files.write(file, new byte[1024]);
+        assertThrows(IOException.class, () -> ColumnarStudentFile.open(file));
+    }
+}
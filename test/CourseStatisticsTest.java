@@ -0,0 +1,103 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Course dictionary encoding and the per-course statistics built on it
+ */
+class CourseStatisticsTest {
+    @Test
+    void dictionaryHandsOutOneCodePerName() {
+        String course = "Astronomy " + System.nanoTime(); // Unique, the dictionary is process-wide
+        int code = CourseDictionary.encode(course);
+
+        assertEquals(code, CourseDictionary.encode(new String(course)));
+        assertSame(course, CourseDictionary.decode(code));
+        assertNotEquals(code, CourseDictionary.encode(course.toUpperCase()), "Names are compared exactly");
+        assertTrue(code < CourseDictionary.size());
+
+        Student first = new Student(1, "First", 70, new String(course));
+        Student second = new Student(2, "Second", 80, new String(course));
+        assertSame(first.getCourse(), second.getCourse());
+        assertEquals(code, first.getCourseCode());
+    }
+
+    @Test
+    void substringSearchIgnoresCase() {
+        String suffix = Long.toString(System.nanoTime());
+        int quantum = CourseDictionary.encode("Quantum Physics " + suffix);
+        int classical = CourseDictionary.encode("Classical physics " + suffix);
+        CourseDictionary.encode("Biology " + suffix);
+
+        int[] codes = CourseDictionary.codesContaining("PHYSICS " + suffix);
+        assertArrayEquals(new int[]{Math.min(quantum, classical), Math.max(quantum, classical)}, codes);
+    }
+
+    @Test
+    void courseSummariesFollowChanges() {
+        StudentService service = new StudentService();
+        Student ada = service.addStudent("Ada", "Statistics", 90);
+        service.addStudent("Ben", "Statistics", 40);
+        Student cy = service.addStudent("Cy", "Geology", 55);
+
+        StudentStatistics.CourseSummary statistics = service.getStatistics().getCourseSummaries().get("Statistics");
+        assertEquals(2, statistics.getStudents());
+        assertEquals(65.0, statistics.getAverageMarks());
+        assertEquals(1, statistics.getPassingStudents());
+        assertEquals(50.0, statistics.getPassRate());
+
+        // Moving a student moves their marks between the two courses
+        service.updateStudent(ada.getId(), null, "Geology", 95.0);
+        Map<String, StudentStatistics.CourseSummary> courses = service.getStatistics().getCourseSummaries();
+        assertEquals(1, courses.get("Statistics").getStudents());
+        assertEquals(40.0, courses.get("Statistics").getAverageMarks());
+        assertEquals(2, courses.get("Geology").getStudents());
+        assertEquals(75.0, courses.get("Geology").getAverageMarks());
+        assertEquals(2, courses.get("Geology").getPassingStudents());
+
+        // A course without students drops out of the summaries
+        service.deleteStudent(cy.getId());
+        service.deleteStudent(ada.getId());
+        assertFalse(service.getStatistics().getCourseSummaries().containsKey("Geology"));
+    }
+
+    @Test
+    void incrementalSummariesMatchRecomputed() {
+        StudentService service = new StudentService();
+        String[] courses = {"Physics", "Chemistry", "Biology", "History"};
+        for (int i = 0; i < 2_000; i++) {
+            service.addStudent("Student " + i, courses[i % courses.length], (i * 31) % 101);
+        }
+        for (int id = 1010; id < 3000; id += 7) {
+            service.updateStudent(id, null, courses[id % 3], null);
+        }
+        for (int id = 1003; id < 3000; id += 11) {
+            service.deleteStudent(id);
+        }
+
+        Map<String, StudentStatistics.CourseSummary> incremental = service.getStatistics().getCourseSummaries();
+        for (boolean parallel : List.of(false, true)) {
+            Map<String, StudentStatistics.CourseSummary> recomputed =
+                    service.recomputeStatistics(parallel).getCourseSummaries();
+            assertEquals(incremental.keySet(), recomputed.keySet());
+            for (String course : incremental.keySet()) {
+                StudentStatistics.CourseSummary expected = recomputed.get(course);
+                StudentStatistics.CourseSummary actual = incremental.get(course);
+                assertEquals(expected.getStudents(), actual.getStudents(), course);
+                assertEquals(expected.getAverageMarks(), actual.getAverageMarks(), course);
+                assertEquals(expected.getPassingStudents(), actual.getPassingStudents(), course);
+            }
+        }
+        assertEquals(service.searchByCourse("Chemistry").size(), incremental.get("Chemistry").getStudents());
+    }
+
+    @Test
+    void summaryRejectsInvalidCounts() {
+        assertThrows(IllegalArgumentException.class, () -> new StudentStatistics.CourseSummary("X", 1, 50, 2));
+        assertThrows(IllegalArgumentException.class, () -> new StudentStatistics.CourseSummary("X", -1, 0, 0));
+        assertEquals(0.0, new StudentStatistics.CourseSummary("X", 0, 0, 0).getPassRate());
+    }
+}
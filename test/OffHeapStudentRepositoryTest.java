@@ -0,0 +1,149 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Slot and name pages of the off-heap repository, its compactions and the file-mapped mode
+ */
+class OffHeapStudentRepositoryTest {
+    private static final long PAGE_BYTES = 8L << 20; // Slot pages hold 256K slots of 32 bytes, name pages 8 MB
+
+    @TempDir
+    Path directory;
+
+    private static List<Integer> ids(StudentRepository repository) {
+        List<Integer> ids = new ArrayList<>();
+        for (Student student : repository) {
+            ids.add(student.getId());
+        }
+        return ids;
+    }
+
+    @Test
+    void slotsAndNamesFillWholePages() {
+        OffHeapStudentRepository repository = new OffHeapStudentRepository();
+        assertEquals(0, repository.getReservedBytes());
+
+        repository.add(new Student(1, "Ada Lovelace", 91.5, "Mathematics"));
+        assertEquals(2 * PAGE_BYTES, repository.getReservedBytes(), "One slot page and one name page");
+
+        // A second slot page starts with slot 262,144
+        for (int id = 2; id <= 262_144; id++) {
+            repository.add(new Student(id, "S" + id, id % 101, "Physics"));
+        }
+        assertEquals(2 * PAGE_BYTES, repository.getReservedBytes());
+        repository.add(new Student(262_145, "Last", 12.25, "Biology"));
+        assertEquals(3 * PAGE_BYTES, repository.getReservedBytes());
+
+        int slot = repository.slotOf(262_145);
+        assertEquals(262_144, slot);
+        assertEquals(262_145, repository.idAt(slot));
+        assertEquals("Last", repository.nameAt(slot));
+        assertEquals(12.25, repository.marksAt(slot));
+        assertEquals("Biology", CourseDictionary.decode(repository.courseCodeAt(slot)));
+        assertEquals("Ada Lovelace", repository.studentAt(0).getName());
+    }
+
+    @Test
+    void namesAreStoredAsUtf8AndCanChange() {
+        OffHeapStudentRepository repository = new OffHeapStudentRepository();
+        repository.add(new Student(1, "Zoë Ødegård", 70, "Physics"));
+        repository.add(new Student(2, "Bob", 60, "Physics"));
+
+        repository.setName(0, "Renée");
+        repository.setCourse(1, "History");
+        repository.setMarks(1, 65.5);
+        assertEquals("Renée", repository.nameAt(0));
+        assertEquals("Zoë Ødegård".getBytes(StandardCharsets.UTF_8).length,
+                repository.getNameGarbageBytes());
+        assertEquals("Bob|History|65.5", repository.studentAt(1).getName() + "|"
+                + repository.studentAt(1).getCourse() + "|" + repository.studentAt(1).getMarks());
+    }
+
+    @Test
+    void nameCompactionKeepsSlotNumbers() {
+        OffHeapStudentRepository repository = new OffHeapStudentRepository();
+        for (int id = 1; id <= 100; id++) {
+            repository.add(new Student(id, "Student " + id, 50, "Physics"));
+        }
+
+        // Renaming one student again and again turns most of the name pages into garbage
+        String longName = "n".repeat(100_000);
+        boolean compacted = false;
+        for (int i = 0; i < 200; i++) {
+            long garbage = repository.getNameGarbageBytes();
+            repository.setName(repository.slotOf(50), longName + i);
+            compacted |= repository.getNameGarbageBytes() < garbage;
+        }
+        assertTrue(compacted);
+        assertTrue(repository.getNameGarbageBytes() < PAGE_BYTES);
+        assertTrue(repository.getReservedBytes() <= 5 * PAGE_BYTES, "Emptied name pages are reused");
+
+        for (int id = 1; id <= 100; id++) {
+            assertEquals(id - 1, repository.slotOf(id));
+            assertEquals(id == 50 ? longName + 199 : "Student " + id, repository.nameAt(id - 1));
+        }
+    }
+
+    @Test
+    void deletesCompactSlots() {
+        OffHeapStudentRepository repository = new OffHeapStudentRepository();
+        for (int id = 1; id <= 200; id++) {
+            repository.add(new Student(id, "Student " + id, id % 101, "Physics"));
+        }
+        repository.remove(repository.slotOf(7));
+        assertTrue(repository.hasDeletedSlots());
+        assertFalse(repository.isLive(6));
+        assertNull(repository.studentAt(6));
+        assertEquals(7, repository.firstSlotAfter(7));
+
+        int[] slots = new int[99];
+        for (int i = 0; i < slots.length; i++) {
+            slots[i] = repository.slotOf(2 * (i + 1)); // Even IDs up to 198
+        }
+        repository.removeAll(slots);
+
+        assertFalse(repository.hasDeletedSlots());
+        assertEquals(100, repository.size());
+        assertEquals(100, repository.slotCount());
+        assertEquals(0, repository.getNameGarbageBytes());
+        for (int slot = 0; slot < repository.slotCount(); slot++) {
+            Student student = repository.studentAt(slot);
+            assertEquals(slot, repository.slotOf(student.getId()));
+            assertEquals("Student " + student.getId(), student.getName());
+        }
+        assertEquals(List.of(1, 3, 5), ids(repository).subList(0, 3));
+        assertEquals(List.of(197, 199, 200), ids(repository).subList(97, 100));
+    }
+
+    @Test
+    void fileMappedPagesLiveInTheFile() throws IOException {
+        Path file = directory.resolve("students.pages");
+        Files.writeString(file, "left over from an earlier run");
+
+        OffHeapStudentRepository repository = new OffHeapStudentRepository(file);
+        assertEquals(0, Files.size(file), "Truncated on open");
+        try (StudentService service = new StudentService(repository)) {
+            List<Student> students = new ArrayList<>();
+            for (int i = 0; i < 1_000; i++) {
+                students.add(new Student(0, "Student " + i, i % 101, "Chemistry"));
+            }
+            service.addBatch(students);
+            service.updateStudent(1010, "Renamed", null, 99.0);
+
+            assertEquals(repository.getReservedBytes(), Files.size(file));
+            assertEquals(2 * PAGE_BYTES, Files.size(file));
+            assertEquals(1_005, service.getStudentCount());
+            assertEquals("Renamed", service.findStudentById(1010).getName());
+            assertEquals("Student 500", repository.nameAt(repository.slotOf(1506)));
+        }
+    }
+}
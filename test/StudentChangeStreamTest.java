@@ -0,0 +1,241 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Ordering, resuming and back-pressure of the change stream
+ */
+class StudentChangeStreamTest {
+    private static final Executor DIRECT = Runnable::run; // Delivers on the signalling thread
+
+    /**
+     * Subscriber that records everything and requests a fixed number of changes up front
+     */
+    private static class Recorder implements Flow.Subscriber<StudentChange> {
+        final List<StudentChange> changes = new ArrayList<>();
+        final CountDownLatch done = new CountDownLatch(1);
+        final long initialRequest;
+        Flow.Subscription subscription;
+        Throwable error;
+        boolean completed;
+
+        Recorder(long initialRequest) {
+            this.initialRequest = initialRequest;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            if (initialRequest > 0) {
+                subscription.request(initialRequest);
+            }
+        }
+
+        @Override
+        public synchronized void onNext(StudentChange change) {
+            changes.add(change);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            error = throwable;
+            done.countDown();
+        }
+
+        @Override
+        public void onComplete() {
+            completed = true;
+            done.countDown();
+        }
+
+        synchronized List<Long> sequences() {
+            return changes.stream().map(StudentChange::getSequence).toList();
+        }
+    }
+
+    private static List<Long> range(long from, long to) {
+        List<Long> sequences = new ArrayList<>();
+        for (long sequence = from; sequence <= to; sequence++) {
+            sequences.add(sequence);
+        }
+        return sequences;
+    }
+
+    @Test
+    void deliversEveryChangeInOrder() throws Exception {
+        StudentService service = new StudentService();
+        StudentChangeStream stream = service.changes();
+        long start = stream.getLatestSequence();
+        Recorder recorder = new Recorder(Long.MAX_VALUE);
+        stream.subscribe(recorder); // On virtual threads
+
+        Student added = service.addStudent("Grace Hopper", "Mathematics", 97);
+        service.updateStudent(added.getId(), null, null, 88.0);
+        service.deleteStudent(1001);
+        service.addBatch(List.of(new Student(0, "Batch One", 50, "Physics"), new Student(0, "Batch Two", 60, "Physics")));
+        service.close();
+
+        assertTrue(recorder.done.await(10, TimeUnit.SECONDS));
+        assertTrue(recorder.completed);
+        assertNull(recorder.error);
+        assertEquals(range(start + 1, start + 5), recorder.sequences());
+
+        StudentChange add = recorder.changes.get(0);
+        assertEquals(StudentChange.Type.ADD, add.getType());
+        assertNull(add.getBefore());
+        assertEquals("Grace Hopper", add.getAfter().getName());
+
+        StudentChange update = recorder.changes.get(1);
+        assertEquals(StudentChange.Type.UPDATE, update.getType());
+        assertEquals(97.0, update.getBefore().getMarks());
+        assertEquals(88.0, update.getAfter().getMarks());
+
+        StudentChange delete = recorder.changes.get(2);
+        assertEquals(StudentChange.Type.DELETE, delete.getType());
+        assertEquals(1001, delete.getStudentId());
+        assertNull(delete.getAfter());
+        assertEquals(0, stream.getSubscriberCount());
+    }
+
+    @Test
+    void snapshotPlusChangesRebuildsTheService() {
+        StudentService service = new StudentService();
+        StudentChangeStream stream = service.changes();
+        service.addStudent("Before Snapshot", "Physics", 40);
+
+        StudentSnapshot snapshot = service.snapshot();
+        service.updateStudent(1002, "Changed", null, 99.0);
+        service.deleteStudent(1003);
+        service.addStudent("After Snapshot", "Biology", 70);
+
+        // Load the snapshot, then replay the changes it does not include
+        Map<Integer, String> rebuilt = new TreeMap<>();
+        for (Student student : snapshot.getAllStudents()) {
+            rebuilt.put(student.getId(), student.getName() + "|" + student.getMarks());
+        }
+        Recorder recorder = new Recorder(Long.MAX_VALUE);
+        stream.subscribe(recorder, snapshot.getChangeSequence() + 1, DIRECT);
+        for (StudentChange change : recorder.changes) {
+            Student after = change.getAfter();
+            if (after == null) {
+                rebuilt.remove(change.getStudentId());
+            } else {
+                rebuilt.put(after.getId(), after.getName() + "|" + after.getMarks());
+            }
+        }
+
+        Map<Integer, String> expected = new TreeMap<>();
+        for (Student student : service.getAllStudents()) {
+            expected.put(student.getId(), student.getName() + "|" + student.getMarks());
+        }
+        assertEquals(3, recorder.changes.size());
+        assertEquals(expected, rebuilt);
+    }
+
+    @Test
+    void resumesFromAnyRetainedSequence() {
+        StudentChangeStream stream = new StudentChangeStream(0, 4);
+        for (int id = 1; id <= 10; id++) {
+            stream.append(id, null, new Student(id, "Student " + id, 50, "Physics"));
+        }
+        assertEquals(7, stream.getOldestSequence());
+        assertEquals(10, stream.getLatestSequence());
+
+        Recorder resumed = new Recorder(Long.MAX_VALUE);
+        stream.subscribe(resumed, 7, DIRECT);
+        assertEquals(range(7, 10), resumed.sequences());
+        assertNull(resumed.error);
+
+        // Anything older was overwritten, so the subscriber has to reload
+        Recorder behind = new Recorder(Long.MAX_VALUE);
+        stream.subscribe(behind, 6, DIRECT);
+        assertInstanceOf(IllegalStateException.class, behind.error);
+        assertTrue(behind.changes.isEmpty());
+
+        Recorder ahead = new Recorder(Long.MAX_VALUE);
+        stream.subscribe(ahead, 12, DIRECT);
+        assertInstanceOf(IllegalArgumentException.class, ahead.error);
+    }
+
+    @Test
+    void slowSubscriberFallsBehindWithoutBlockingWriters() {
+        StudentChangeStream stream = new StudentChangeStream(0, 4);
+        Recorder slow = new Recorder(1);
+        stream.subscribe(slow, 1, DIRECT);
+
+        for (int id = 1; id <= 10; id++) {
+            stream.append(id, null, new Student(id, "Student " + id, 50, "Physics"));
+            stream.signal();
+        }
+        assertEquals(List.of(1L), slow.sequences());
+
+        slow.subscription.request(5);
+        assertEquals(List.of(1L), slow.sequences());
+        assertInstanceOf(IllegalStateException.class, slow.error, "Change 2 was overwritten");
+    }
+
+    @Test
+    void deliversOnlyWhatWasRequested() {
+        StudentChangeStream stream = new StudentChangeStream(0, 64);
+        Recorder recorder = new Recorder(0);
+        stream.subscribe(recorder, 1, DIRECT);
+        for (int id = 1; id <= 5; id++) {
+            stream.append(id, null, new Student(id, "Student " + id, 50, "Physics"));
+            stream.signal();
+        }
+        assertTrue(recorder.changes.isEmpty());
+
+        recorder.subscription.request(2);
+        assertEquals(List.of(1L, 2L), recorder.sequences());
+        recorder.subscription.request(10);
+        assertEquals(range(1, 5), recorder.sequences());
+
+        stream.append(6, null, new Student(6, "Student 6", 50, "Physics"));
+        stream.signal();
+        assertEquals(range(1, 6), recorder.sequences());
+
+        stream.close();
+        assertTrue(recorder.completed);
+    }
+
+    @Test
+    void badRequestsAndThrowingSubscribersEndTheSubscription() {
+        StudentChangeStream stream = new StudentChangeStream(0, 64);
+        Recorder invalid = new Recorder(0);
+        stream.subscribe(invalid, 1, DIRECT);
+        invalid.subscription.request(0);
+        assertInstanceOf(IllegalArgumentException.class, invalid.error);
+
+        Recorder throwing = new Recorder(Long.MAX_VALUE) {
+            @Override
+            public synchronized void onNext(StudentChange change) {
+                super.onNext(change);
+                throw new IllegalStateException("subscriber failed");
+            }
+        };
+        stream.subscribe(throwing, 1, DIRECT);
+        assertEquals(1, stream.getSubscriberCount());
+        stream.append(1, null, new Student(1, "Student 1", 50, "Physics"));
+        stream.append(2, null, new Student(2, "Student 2", 50, "Physics"));
+        stream.signal();
+
+        assertEquals(List.of(1L), throwing.sequences(), "Cancelled after the first change threw");
+        assertEquals(0, stream.getSubscriberCount());
+    }
+
+    @Test
+    void changeCopiesAreNotShared() {
+        StudentChange change = new StudentChange(1, null, new Student(1, "Original", 50, "Physics"));
+        change.getAfter().setName("Changed");
+        assertEquals("Original", change.getAfter().getName());
+    }
+}
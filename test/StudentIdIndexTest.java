@@ -0,0 +1,131 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Probing, backward-shift deletion and resizing of the ID index, and lookups after list compaction
+ */
+class StudentIdIndexTest {
+    // IDs whose home slot in a table of the given capacity is the given index
+    private static List<Integer> idsWithHome(int home, int capacity, int count) {
+        List<Integer> ids = new ArrayList<>();
+        for (int id = 1; ids.size() < count; id++) {
+            if ((StudentIdIndex.hash(id) & (capacity - 1)) == home) {
+                ids.add(id);
+            }
+        }
+        return ids;
+    }
+
+    @Test
+    void deleteInsideWrappedChainKeepsLaterEntries() {
+        StudentIdIndex index = new StudentIdIndex(4); // 8 slots, resizes after 4 IDs
+        List<Integer> last = idsWithHome(7, 8, 3);   // Probe 7, 0, 1
+        int first = idsWithHome(0, 8, 1).get(0);     // Home 0, pushed to slot 2
+
+        for (int i = 0; i < last.size(); i++) {
+            index.put(last.get(i), i);
+        }
+        index.put(first, 3);
+
+        // Deleting the head of the chain shifts every later entry back across the wrap
+        assertEquals(0, index.remove(last.get(0)));
+        assertEquals(-1, index.get(last.get(0)));
+        assertEquals(1, index.get(last.get(1)));
+        assertEquals(2, index.get(last.get(2)));
+        assertEquals(3, index.get(first));
+
+        // So does deleting an entry in the middle of the chain
+        assertEquals(1, index.remove(last.get(1)));
+        assertEquals(2, index.get(last.get(2)));
+        assertEquals(3, index.get(first));
+        assertEquals(2, index.size());
+        assertEquals(-1, index.remove(last.get(1)));
+    }
+
+    @Test
+    void reinsertAfterDeleteFindsNewSlot() {
+        StudentIdIndex index = new StudentIdIndex(4);
+        List<Integer> ids = idsWithHome(5, 8, 3);
+        for (int i = 0; i < ids.size(); i++) {
+            index.put(ids.get(i), i);
+        }
+
+        index.remove(ids.get(1));
+        index.put(ids.get(1), 10);
+        index.put(ids.get(0), 11); // Replaces, does not add
+        assertEquals(11, index.get(ids.get(0)));
+        assertEquals(10, index.get(ids.get(1)));
+        assertEquals(2, index.get(ids.get(2)));
+        assertEquals(3, index.size());
+    }
+
+    @Test
+    void resizeKeepsEveryEntry() {
+        StudentIdIndex index = new StudentIdIndex(1);
+        for (int id = 1; id <= 10_000; id++) {
+            index.put(id, id * 2);
+        }
+        assertEquals(10_000, index.size());
+        for (int id = 1; id <= 10_000; id++) {
+            assertEquals(id * 2, index.get(id));
+        }
+        assertFalse(index.contains(10_001));
+        assertEquals(-1, index.get(0));
+        assertThrows(IllegalArgumentException.class, () -> index.put(0, 1));
+    }
+
+    @Test
+    void matchesHashMapUnderRandomChanges() {
+        StudentIdIndex index = new StudentIdIndex(4);
+        Map<Integer, Integer> expected = new HashMap<>();
+        Random random = new Random(7);
+        for (int step = 0; step < 50_000; step++) {
+            int id = 1 + random.nextInt(300); // Few IDs, so chains collide, wrap and shrink often
+            if (random.nextInt(3) == 0) {
+                assertEquals(expected.getOrDefault(id, -1), index.remove(id));
+                expected.remove(id);
+            } else {
+                index.put(id, step);
+                expected.put(id, step);
+            }
+        }
+        assertEquals(expected.size(), index.size());
+        for (int id = 1; id <= 300; id++) {
+            assertEquals(expected.getOrDefault(id, -1), index.get(id));
+        }
+    }
+
+    @Test
+    void lookupsFollowListCompaction() {
+        ListStudentRepository repository = new ListStudentRepository();
+        for (int id = 1; id <= 200; id++) {
+            repository.add(new Student(id, "Student " + id, id % 101, "Physics"));
+        }
+
+        // Deleting every other student reaches half the slots and compacts the list
+        for (int id = 2; id <= 200; id += 2) {
+            repository.remove(repository.slotOf(id));
+        }
+        assertFalse(repository.hasDeletedSlots());
+        assertEquals(100, repository.slotCount());
+        for (int id = 1; id <= 200; id++) {
+            int slot = repository.slotOf(id);
+            if (id % 2 == 0) {
+                assertEquals(-1, slot);
+            } else {
+                assertEquals(id / 2, slot);
+                assertEquals(id, repository.studentAt(slot).getId());
+            }
+        }
+
+        repository.add(new Student(201, "Student 201", 50, "Physics"));
+        assertEquals(100, repository.slotOf(201));
+    }
+}
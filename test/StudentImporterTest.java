@@ -0,0 +1,56 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.StringWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Rows the journal cannot store are rejected like any other bad row
+ */
+class StudentImporterTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    void overlongFieldsAndLinesAreRejected() throws Exception {
+        String longName = "é".repeat(9_000); // 18,000 UTF-8 bytes, over the journal limit
+        String longLine = "x".repeat(200_000) + ",Physics,50"; // Longer than any valid row
+        Path file = directory.resolve("students.csv");
+        Files.writeString(file, String.join("\n", List.of(
+                "name,course,marks",
+                "Valid One,Physics,70",
+                longName + ",Physics,60",
+                "Valid Two," + "c".repeat(100) + ",80",
+                longLine,
+                "Valid Three,Biology,90")));
+
+        StringWriter report = new StringWriter();
+        try (StudentService service = new StudentService(StudentStorage.withManualSync(directory.resolve("data")),
+                new ListStudentRepository())) {
+            StudentImporter.ImportResult result = new StudentImporter(service, 2, report).importFile(file);
+
+            assertEquals(5, result.getRowsRead());
+            assertEquals(3, result.getRowsImported());
+            assertEquals(2, result.getRowsRejected());
+            assertTrue(result.getFirstErrors().get(0).startsWith("Line 3: Name is longer than"));
+            assertTrue(result.getFirstErrors().get(1).startsWith("Line 5: Line is longer than"));
+            assertEquals(8, service.getStudentCount());
+            assertEquals(1, service.searchByName("Valid Three").size());
+        }
+        assertEquals(2, report.toString().lines().count());
+    }
+
+    @Test
+    void parseRowChecksStoredLength() {
+        int[] columns = {0, 1, 2};
+        assertThrows(IllegalArgumentException.class,
+                () -> StudentImporter.parseRow(StudentImporter.Format.CSV, "Name," + "c".repeat(20_000) + ",50", columns));
+        Student student = StudentImporter.parseRow(StudentImporter.Format.CSV,
+                "a".repeat(16 * 1024) + ",Physics,50", columns);
+        assertEquals(16 * 1024, student.getName().length());
+    }
+}
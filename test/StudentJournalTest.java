@@ -0,0 +1,207 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Recovery of the write-ahead journal after torn writes, corruption and crashes
+ */
+class StudentJournalTest {
+    @TempDir
+    Path directory;
+
+    /**
+     * Replay handler that records what it receives
+     */
+    private static class Recorder implements StudentJournal.ReplayHandler {
+        final List<Student> upserts = new ArrayList<>();
+        final List<Integer> deletes = new ArrayList<>();
+
+        @Override
+        public void upsert(Student student) {
+            upserts.add(student);
+        }
+
+        @Override
+        public void delete(int id) {
+            deletes.add(id);
+        }
+    }
+
+    private Path journalFile() {
+        return directory.resolve("students.journal");
+    }
+
+    // Journal that syncs every record as it is written
+    private StudentJournal openSynced() throws IOException {
+        return new StudentJournal(journalFile(), 1, 0);
+    }
+
+    private static Student student(int id) {
+        return new Student(id, "Student " + id, 50 + id % 50, "Physics");
+    }
+
+    private void writeRecords(int count) throws IOException {
+        try (StudentJournal journal = openSynced()) {
+            for (int i = 1; i <= count; i++) {
+                journal.appendUpsert(student(i));
+            }
+        }
+    }
+
+    private Recorder replay() throws IOException {
+        Recorder recorder = new Recorder();
+        try (StudentJournal journal = openSynced()) {
+            journal.replay(recorder);
+        }
+        return recorder;
+    }
+
+    @Test
+    void replaysRecordsInOrder() throws IOException {
+        try (StudentJournal journal = openSynced()) {
+            journal.appendUpsert(student(1));
+            journal.appendBatch(List.of(student(2), student(3)), new int[]{1});
+            journal.appendDelete(2);
+        }
+
+        Recorder recorder = replay();
+        assertEquals(List.of(1, 2, 3), recorder.upserts.stream().map(Student::getId).toList());
+        assertEquals(List.of(1, 2), recorder.deletes);
+        assertEquals("Student 3", recorder.upserts.get(2).getName());
+        assertEquals("Physics", recorder.upserts.get(2).getCourse());
+    }
+
+    @Test
+    void tornTailIsTruncated() throws IOException {
+        writeRecords(3);
+        long intactSize = Files.size(journalFile());
+
+        // A record header that promises more bytes than were written, as after a crash mid-write
+        ByteBuffer torn = ByteBuffer.allocate(12).putInt(100).putInt(0).putInt(42).flip();
+        try (FileChannel channel = FileChannel.open(journalFile(), StandardOpenOption.APPEND)) {
+            channel.write(torn);
+        }
+
+        assertEquals(3, replay().upserts.size());
+        assertEquals(intactSize, Files.size(journalFile()));
+
+        // New records go after the last intact one
+        try (StudentJournal journal = openSynced()) {
+            journal.replay(new Recorder());
+            journal.appendUpsert(student(4));
+        }
+        assertEquals(List.of(1, 2, 3, 4), replay().upserts.stream().map(Student::getId).toList());
+    }
+
+    @Test
+    void tornBatchIsDroppedWhole() throws IOException {
+        writeRecords(1);
+        long intactSize = Files.size(journalFile());
+        try (StudentJournal journal = openSynced()) {
+            journal.replay(new Recorder());
+            journal.appendBatch(List.of(student(2), student(3)), new int[]{1});
+        }
+
+        // Cut the batch record short, as after a crash while writing it
+        try (FileChannel channel = FileChannel.open(journalFile(), StandardOpenOption.WRITE)) {
+            channel.truncate(Files.size(journalFile()) - 5);
+        }
+
+        Recorder recorder = replay();
+        assertEquals(List.of(1), recorder.upserts.stream().map(Student::getId).toList());
+        assertTrue(recorder.deletes.isEmpty());
+        assertEquals(intactSize, Files.size(journalFile()));
+    }
+
+    @Test
+    void checksumMismatchStopsReplay() throws IOException {
+        writeRecords(1);
+        long firstRecordEnd = Files.size(journalFile());
+        try (StudentJournal journal = openSynced()) {
+            journal.replay(new Recorder());
+            journal.appendUpsert(student(2));
+            journal.appendUpsert(student(3));
+        }
+
+        // Flip a payload byte of the second record; its checksum no longer matches
+        try (FileChannel channel = FileChannel.open(journalFile(), StandardOpenOption.READ,
+                StandardOpenOption.WRITE)) {
+            ByteBuffer value = ByteBuffer.allocate(1);
+            channel.read(value, firstRecordEnd + 10);
+            value.put(0, (byte) ~value.get(0)).rewind();
+            channel.write(value, firstRecordEnd + 10);
+        }
+
+        Recorder recorder = replay();
+        assertEquals(List.of(1), recorder.upserts.stream().map(Student::getId).toList());
+        assertEquals(firstRecordEnd, Files.size(journalFile()));
+    }
+
+    @Test
+    void crashBeforeSyncKeepsSyncedRecords() throws IOException {
+        StudentJournal writer = new StudentJournal(journalFile(), Integer.MAX_VALUE, Long.MAX_VALUE);
+        try {
+            writer.appendUpsert(student(1));
+            writer.appendUpsert(student(2));
+            writer.sync();
+            writer.appendUpsert(student(3)); // Buffered only, lost if the process dies now
+
+            // Recover from the file as it is, without closing the writer
+            assertEquals(List.of(1, 2), replay().upserts.stream().map(Student::getId).toList());
+        } finally {
+            writer.close();
+        }
+        assertEquals(3, replay().upserts.size());
+    }
+
+    @Test
+    void backgroundFlusherSyncsAfterInterval() throws Exception {
+        StudentJournal writer = new StudentJournal(journalFile(), Integer.MAX_VALUE, 20);
+        try {
+            writer.appendUpsert(student(1));
+
+            // No further append and no close: only the flusher can write the record out
+            long deadline = System.nanoTime() + 5_000_000_000L;
+            while (writer.getSyncCount() == 0 && System.nanoTime() < deadline) {
+                Thread.sleep(10);
+            }
+            assertEquals(1, writer.getSyncCount());
+            assertEquals(1, replay().upserts.size());
+        } finally {
+            writer.close();
+        }
+    }
+
+    @Test
+    void handlerFailurePropagatesWithoutTruncating() throws IOException {
+        writeRecords(3);
+        long size = Files.size(journalFile());
+
+        try (StudentJournal journal = openSynced()) {
+            IllegalStateException failure = assertThrows(IllegalStateException.class,
+                    () -> journal.replay(new Recorder() {
+                        @Override
+                        public void upsert(Student student) {
+                            if (student.getId() == 2) {
+                                throw new IllegalStateException("handler failed");
+                            }
+                            super.upsert(student);
+                        }
+                    }));
+            assertEquals("handler failed", failure.getMessage());
+        }
+
+        assertEquals(size, Files.size(journalFile()));
+        assertEquals(3, replay().upserts.size());
+    }
+}
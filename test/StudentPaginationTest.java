@@ -0,0 +1,144 @@
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.BiFunction;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Offset and cursor paging of listings and searches
+ */
+class StudentPaginationTest {
+    private static final String[] NAMES = {"alice", "Alice", "Bob", "bobby", "Carol", "Dave", "Eve"};
+    private static final String[] COURSES = {"Physics", "Mathematics", "Biology"};
+
+    private StudentService service;
+
+    @BeforeEach
+    void createService() {
+        service = new StudentService(); // Starts with five sample students
+        for (int i = 0; i < 200; i++) {
+            // Few distinct marks and names, so every order has ties broken by ID
+            service.addStudent(NAMES[i % NAMES.length], COURSES[i % COURSES.length], 40 + (i % 13) * 5);
+        }
+        for (int id = 1010; id < 1200; id += 9) {
+            service.deleteStudent(id);
+        }
+    }
+
+    private static List<Integer> ids(List<Student> students) {
+        return students.stream().map(Student::getId).toList();
+    }
+
+    private List<Student> sorted(StudentPage.Order order) {
+        List<Student> all = new ArrayList<>(service.getAllStudents());
+        all.sort(order.comparator());
+        return all;
+    }
+
+    // Follow cursors from the first page to the last
+    private static List<Integer> pageThrough(BiFunction<String, Integer, StudentPage> listing, int limit) {
+        List<Integer> seen = new ArrayList<>();
+        String cursor = null;
+        do {
+            StudentPage page = listing.apply(cursor, limit);
+            assertTrue(page.getStudents().size() <= limit);
+            seen.addAll(ids(page.getStudents()));
+            cursor = page.getNextCursor();
+        } while (cursor != null);
+        return seen;
+    }
+
+    @Test
+    void cursorPagesCoverEveryOrder() {
+        for (StudentPage.Order order : StudentPage.Order.values()) {
+            List<Integer> expected = ids(sorted(order));
+            assertEquals(expected, pageThrough((cursor, limit) -> service.listStudents(order, cursor, limit), 17),
+                    order.name());
+            assertEquals(expected.size(), service.listStudents(order, (String) null, 5).getTotalCount());
+        }
+    }
+
+    @Test
+    void offsetPagesMatchSlices() {
+        for (StudentPage.Order order : StudentPage.Order.values()) {
+            List<Integer> expected = ids(sorted(order));
+            for (int offset : new int[]{0, 1, 50, expected.size() - 3, expected.size(), expected.size() + 10}) {
+                StudentPage page = service.listStudents(order, offset, 10);
+                int from = Math.min(offset, expected.size());
+                assertEquals(expected.subList(from, Math.min(from + 10, expected.size())), ids(page.getStudents()),
+                        order + " at " + offset);
+                assertEquals(from + 10 < expected.size(), page.hasMore());
+            }
+        }
+    }
+
+    @Test
+    void offsetPageCursorContinuesAfterIt() {
+        for (StudentPage.Order order : StudentPage.Order.values()) {
+            List<Integer> expected = ids(sorted(order));
+            StudentPage page = service.listStudents(order, 30, 10);
+            StudentPage next = service.listStudents(order, page.getNextCursor(), 10);
+            assertEquals(expected.subList(40, 50), ids(next.getStudents()), order.name());
+        }
+    }
+
+    @Test
+    void cursorSurvivesChangesBetweenPages() {
+        for (StudentPage.Order order : StudentPage.Order.values()) {
+            createService();
+            List<Integer> before = ids(sorted(order));
+            StudentPage first = service.listStudents(order, (String) null, 20);
+            Student last = first.getStudents().get(19);
+
+            // Delete the student the cursor points at and others on both sides of it, then add one
+            service.deleteStudent(last.getId());
+            service.deleteStudent(before.get(5));
+            service.deleteStudent(before.get(100));
+            Student added = service.addStudent("Zed", "Physics", 41);
+
+            Set<Integer> seen = new HashSet<>(ids(first.getStudents()));
+            List<Integer> rest = pageThrough((cursor, limit) -> service.listStudents(order,
+                    cursor == null ? first.getNextCursor() : cursor, limit), 20);
+            for (Integer id : rest) {
+                assertTrue(seen.add(id), order + ": " + id + " returned twice");
+            }
+            for (int id : before.subList(20, before.size())) {
+                assertTrue(seen.contains(id) || id == before.get(100), order + ": " + id + " skipped");
+            }
+            assertTrue(seen.contains(added.getId()), order + ": new student after the cursor missing");
+        }
+    }
+
+    @Test
+    void searchPagesMatchFullSearches() {
+        assertEquals(ids(service.searchByGrade("B")),
+                pageThrough((cursor, limit) -> service.searchByGrade("B", cursor, limit), 7));
+        assertEquals(ids(service.searchByCourse("Bio")),
+                pageThrough((cursor, limit) -> service.searchByCourse("Bio", cursor, limit), 7));
+        assertEquals(ids(service.searchByName("ob")),
+                pageThrough((cursor, limit) -> service.searchByName("ob", cursor, limit), 7));
+
+        List<Student> prefixed = new ArrayList<>(service.searchByNamePrefix("bo"));
+        prefixed.sort(StudentPage.Order.NAME.comparator());
+        assertEquals(ids(prefixed), pageThrough((cursor, limit) -> service.searchByNamePrefix("bo", cursor, limit), 7));
+        assertEquals(prefixed.size(), service.searchByNamePrefix("bo", 0, 1).getTotalCount());
+        assertEquals(ids(prefixed).subList(3, 8), ids(service.searchByNamePrefix("bo", 3, 5).getStudents()));
+    }
+
+    @Test
+    void rejectsBadArguments() {
+        assertThrows(IllegalArgumentException.class, () -> service.listStudents(StudentPage.Order.ID, (String) null, 0));
+        assertThrows(IllegalArgumentException.class, () -> service.listStudents(StudentPage.Order.ID, -1, 10));
+        assertThrows(IllegalArgumentException.class,
+                () -> service.listStudents(StudentPage.Order.MARKS, "not a cursor", 10));
+
+        // A cursor only continues the order it was made for
+        String idCursor = service.listStudents(StudentPage.Order.ID, (String) null, 5).getNextCursor();
+        assertThrows(IllegalArgumentException.class, () -> service.listStudents(StudentPage.Order.NAME, idCursor, 5));
+    }
+}
@@ -0,0 +1,170 @@
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Query cache hits and exact invalidation through the service
+ */
+class StudentQueryCacheTest {
+    private StudentService service;
+    private StudentQueryCache cache;
+
+    @BeforeEach
+    void createService() {
+        service = new StudentService();
+        service.setQueryCacheSize(1_000);
+        cache = service.getQueryCache();
+    }
+
+    private static List<Integer> ids(List<Student> students) {
+        return students.stream().map(Student::getId).sorted().toList();
+    }
+
+    @Test
+    void repeatedSearchesHitTheCache() {
+        List<Student> first = service.searchByCourse("physics");
+        List<Student> second = service.searchByCourse("PHYSICS"); // Same normalized argument
+        assertEquals(ids(first), ids(second));
+        assertEquals(1, cache.getMisses());
+        assertEquals(1, cache.getHits());
+
+        second.clear(); // Callers get their own list
+        assertEquals(ids(first), ids(service.searchByCourse("physics")));
+    }
+
+    @Test
+    void changesDropOnlyAffectedResults() {
+        service.searchByCourse("Physics");
+        service.searchByGrade("A+");
+        service.searchByName("bob");
+        assertEquals(3, cache.size());
+
+        // Bob moves from B to A+; the physics search cannot contain him before or after
+        service.updateStudent(1002, null, null, 95.0);
+        assertEquals(2, cache.getInvalidations());
+        assertEquals(1, cache.size());
+
+        assertTrue(ids(service.searchByGrade("A+")).contains(1002));
+        assertEquals(95.0, service.searchByName("bob").get(0).getMarks());
+        assertEquals(0, cache.getHits());
+        service.searchByCourse("Physics");
+        assertEquals(1, cache.getHits(), "Only the physics search was still cached");
+    }
+
+    @Test
+    void addsAndDeletesReachMatchingResults() {
+        service.searchByCourse("Biology");
+        service.addStudent("New Biologist", "Biology", 61);
+        assertEquals(2, service.searchByCourse("Biology").size());
+
+        service.searchByName("emma");
+        service.deleteStudent(1005);
+        assertTrue(service.searchByName("emma").isEmpty());
+        assertEquals(3, cache.getInvalidations(), "Emma also took the biology search with her");
+        assertEquals(0, cache.getHits());
+    }
+
+    @Test
+    void statisticsSurviveRenamesOfOtherStudents() {
+        StudentStatistics statistics = service.getStatistics();
+        service.updateStudent(1002, "Robert Smith", null, null);
+        assertSame(statistics, service.getStatistics());
+
+        // The top student is held by the statistics, so renaming them drops it
+        service.updateStudent(1001, "Alice Cooper", null, null);
+        assertEquals("Alice Cooper", service.getStatistics().getTopStudent().getName());
+
+        StudentStatistics renamed = service.getStatistics();
+        service.updateStudent(1004, null, null, 68.0);
+        assertNotSame(renamed, service.getStatistics());
+    }
+
+    @Test
+    void batchesDropMatchingResults() {
+        service.searchByGrade("F");
+        service.searchByCourse("Mathematics");
+        service.getStatistics();
+
+        service.updateMarksBatch(Map.of(1005, 90.0, 1003, 86.0));
+        assertTrue(service.searchByGrade("F").isEmpty());
+        assertEquals(List.of(1002), ids(service.searchByCourse("Mathematics")));
+        assertEquals(67.0, service.getStatistics().getLowestMarks());
+        assertEquals(1, cache.getHits(), "Only the mathematics search survives");
+
+        service.deleteBatch(List.of(1002));
+        assertTrue(service.searchByCourse("Mathematics").isEmpty());
+    }
+
+    @Test
+    void evictsLeastRecentlyUsedWithinBound() {
+        service.setQueryCacheSize(3);
+        cache = service.getQueryCache();
+
+        service.searchByCourse("Physics");   // 1 student
+        service.searchByCourse("Chemistry"); // 1 student
+        service.searchByCourse("Biology");   // 1 student
+        service.searchByCourse("Physics");   // Hit, now most recently used
+        service.searchByCourse("Mathematics");
+
+        assertEquals(1, cache.getEvictions());
+        assertEquals(3, cache.getCachedStudents());
+        service.searchByCourse("Physics");
+        assertEquals(2, cache.getHits());
+        service.searchByCourse("Chemistry");
+        assertEquals(2, cache.getHits(), "Chemistry was the least recently used");
+
+        service.searchByName("o"); // Larger than the whole bound, so never cached
+        service.searchByName("o");
+        assertEquals(2, cache.getHits());
+    }
+
+    @Test
+    void cachedResultsMatchUncachedService() {
+        StudentService uncached = new StudentService();
+        Random random = new Random(42);
+        String[] courses = {"Physics", "Chemistry", "Biology", "Mathematics"};
+        String[] names = {"Ann", "Anna", "Bo", "Bob", "Cleo"};
+
+        for (int step = 0; step < 2_000; step++) {
+            int id = 1001 + random.nextInt(60);
+            switch (random.nextInt(5)) {
+                case 0:
+                    String name = names[random.nextInt(names.length)];
+                    String course = courses[random.nextInt(courses.length)];
+                    double marks = random.nextInt(101);
+                    service.addStudent(name, course, marks);
+                    uncached.addStudent(name, course, marks);
+                    break;
+                case 1:
+                    double newMarks = random.nextInt(101);
+                    assertEquals(uncached.updateStudent(id, null, null, newMarks),
+                            service.updateStudent(id, null, null, newMarks));
+                    break;
+                case 2:
+                    String newName = names[random.nextInt(names.length)];
+                    String newCourse = courses[random.nextInt(courses.length)];
+                    assertEquals(uncached.updateStudent(id, newName, newCourse, null),
+                            service.updateStudent(id, newName, newCourse, null));
+                    break;
+                case 3:
+                    assertEquals(uncached.deleteStudent(id), service.deleteStudent(id));
+                    break;
+                default:
+                    String grade = Grade.values()[random.nextInt(Grade.values().length)].getLabel();
+                    String text = names[random.nextInt(names.length)].substring(0, 2);
+                    assertEquals(ids(uncached.searchByGrade(grade)), ids(service.searchByGrade(grade)));
+                    assertEquals(ids(uncached.searchByName(text)), ids(service.searchByName(text)));
+                    assertEquals(ids(uncached.searchByNamePrefix(text)), ids(service.searchByNamePrefix(text)));
+                    assertEquals(ids(uncached.searchByCourse("o")), ids(service.searchByCourse("o")));
+                    assertEquals(uncached.getStatistics().toString(), service.getStatistics().toString());
+            }
+        }
+        assertTrue(cache.getHits() > 0);
+        assertTrue(cache.getInvalidations() > 0);
+    }
+}
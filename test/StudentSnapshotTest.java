@@ -0,0 +1,205 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Snapshot isolation and the versioning of stored students
+ */
+class StudentSnapshotTest {
+    private static double totalMarks(List<Student> students) {
+        double total = 0;
+        for (Student student : students) {
+            total += student.getMarks();
+        }
+        return total;
+    }
+
+    // Every backend, so behavior that must not depend on it is checked on each
+    private static List<StudentRepository> repositories() {
+        return List.of(new ListStudentRepository(), new PackedStudentRepository(), new OffHeapStudentRepository());
+    }
+
+    @Test
+    void snapshotDoesNotChangeAfterWrites() {
+        StudentService service = new StudentService();
+        StudentSnapshot before = service.snapshot();
+        List<Student> students = before.getAllStudents();
+
+        service.updateStudent(1001, "Changed", "History", 12.0);
+        service.deleteStudent(1002);
+        service.addStudent("New Student", "Physics", 77);
+
+        assertEquals(5, before.size());
+        assertEquals(students.toString(), before.getAllStudents().toString());
+        assertEquals("Alice Johnson", before.findStudentById(1001).getName());
+        assertNotNull(before.findStudentById(1002));
+
+        StudentSnapshot after = service.snapshot();
+        assertEquals(before.getVersion() + 3, after.getVersion());
+        assertEquals("Changed", after.findStudentById(1001).getName());
+        assertNull(after.findStudentById(1002));
+        assertEquals(service.getStatistics().toString(), after.getStatistics().toString());
+    }
+
+    @Test
+    void snapshotCopiesAreNotStored() {
+        StudentService service = new StudentService();
+        Student copy = service.snapshot().findStudentById(1001);
+        copy.setMarks(1.0);
+
+        assertEquals(92.5, service.findStudentById(1001).getMarks());
+        assertEquals(92.5, service.snapshot().findStudentById(1001).getMarks());
+    }
+
+    @Test
+    void readersSeeOnlyWholeChanges() throws Exception {
+        StudentService service = new StudentService();
+        for (int i = 0; i < 500; i++) {
+            service.addStudent("Student " + i, "Physics", 50);
+        }
+        service.snapshot(); // Start publishing
+        double expectedTotal = totalMarks(service.getAllStudents());
+        int studentCount = service.getStudentCount();
+
+        AtomicBoolean running = new AtomicBoolean(true);
+        ConcurrentLinkedQueue<String> violations = new ConcurrentLinkedQueue<>();
+        CountDownLatch started = new CountDownLatch(3);
+
+        // Moves marks between two students in one batch, so the total never changes
+        Thread mover = new Thread(() -> {
+            started.countDown();
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            while (running.get()) {
+                int from = 1006 + random.nextInt(500);
+                int to = 1006 + random.nextInt(500);
+                double fromMarks = service.findStudentById(from).getMarks();
+                double toMarks = service.findStudentById(to).getMarks();
+                if (from == to || fromMarks < 1 || toMarks > 99) continue;
+                service.updateMarksBatch(Map.of(from, fromMarks - 1, to, toMarks + 1));
+            }
+        });
+        // Adds students with zero marks two at a time, so the count stays odd with the five samples
+        Thread adder = new Thread(() -> {
+            started.countDown();
+            while (running.get()) {
+                service.addBatch(List.of(new Student(0, "Pair A", 0, "Biology"),
+                        new Student(0, "Pair B", 0, "Biology")));
+            }
+        });
+        Thread reader = new Thread(() -> {
+            started.countDown();
+            long lastVersion = 0;
+            while (running.get()) {
+                StudentSnapshot snapshot = service.snapshot();
+                List<Student> all = snapshot.getAllStudents();
+                if (totalMarks(all) != expectedTotal) {
+                    violations.add("Total " + totalMarks(all) + " at version " + snapshot.getVersion());
+                }
+                if (all.size() % 2 != studentCount % 2 || all.size() != snapshot.size()
+                        || snapshot.getStatistics().getTotalStudents() != all.size()) {
+                    violations.add("Count " + all.size() + " at version " + snapshot.getVersion());
+                }
+                if (snapshot.getVersion() < lastVersion) {
+                    violations.add("Version went back from " + lastVersion + " to " + snapshot.getVersion());
+                }
+                lastVersion = snapshot.getVersion();
+            }
+        });
+
+        List<Thread> threads = List.of(mover, adder, reader);
+        threads.forEach(Thread::start);
+        assertTrue(started.await(10, TimeUnit.SECONDS));
+        Thread.sleep(500);
+        running.set(false);
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(List.of(), new ArrayList<>(violations));
+        assertEquals(expectedTotal, totalMarks(service.snapshot().getAllStudents()));
+    }
+
+    @Test
+    void setterOnStoredStudentIsRejected() {
+        for (StudentRepository repository : repositories()) {
+            StudentService service = new StudentService(repository);
+            Student stored = service.findStudentById(1001);
+
+            IllegalStateException failure = assertThrows(IllegalStateException.class, () -> stored.setMarks(55.0));
+            assertTrue(failure.getMessage().contains("updateStudent"));
+            assertThrows(IllegalStateException.class, () -> stored.setName("Changed"));
+            assertThrows(IllegalStateException.class, () -> stored.setCourse("History"));
+            assertThrows(IllegalStateException.class, () -> stored.setId(1));
+
+            // Neither the object nor the service changed
+            assertEquals(92.5, stored.getMarks());
+            assertEquals("Alice Johnson", stored.getName());
+            assertEquals(92.5, service.findStudentById(1001).getMarks());
+        }
+    }
+
+    @Test
+    void setterOnReplacedVersionLeavesServiceAlone() {
+        for (StudentRepository repository : repositories()) {
+            StudentService service = new StudentService(repository);
+            Student stale = service.findStudentById(1001);
+            service.updateStudent(1001, null, null, 70.0);
+
+            // An old version is a plain value holder; the newer marks stay stored
+            stale.setMarks(20.0);
+            stale.setName("Stale Name");
+            assertEquals(20.0, stale.getMarks());
+            assertEquals(70.0, service.findStudentById(1001).getMarks());
+            assertEquals("Alice Johnson", service.findStudentById(1001).getName());
+
+            Student deleted = service.findStudentById(1002);
+            service.deleteStudent(1002);
+            deleted.setMarks(10.0);
+            assertFalse(service.studentExists(1002));
+            assertEquals(10.0, deleted.getMarks());
+        }
+    }
+
+    @Test
+    void failedBatchesChangeNothing() {
+        StudentService service = new StudentService();
+        StudentSnapshot before = service.snapshot();
+        List<Student> students = service.getAllStudents();
+
+        assertThrows(IllegalArgumentException.class, () -> service.updateMarksBatch(Map.of(1001, 10.0, 9999, 20.0)));
+        assertThrows(IllegalArgumentException.class, () -> service.updateMarksBatch(Map.of(1001, 10.0, 1002, 101.0)));
+        assertThrows(IllegalArgumentException.class, () -> service.deleteBatch(List.of(1001, 9999)));
+        assertThrows(IllegalStateException.class, () -> service.addBatch(List.of(
+                new Student(0, "Valid", 50, "Physics"), service.findStudentById(1003))));
+
+        assertEquals(students.toString(), service.getAllStudents().toString());
+        assertEquals(before.getVersion(), service.snapshot().getVersion());
+        assertEquals(5, service.getStudentCount());
+        assertEquals(1006, service.getNextStudentId());
+    }
+
+    @Test
+    void marksBatchReplacesStoredVersions() {
+        for (StudentRepository repository : repositories()) {
+            StudentService service = new StudentService(repository);
+            Student old = service.findStudentById(1001);
+            service.updateMarksBatch(Map.of(1001, 40.0, 1002, 45.0));
+
+            // The replaced version is a plain value holder, the new one is read-only
+            old.setMarks(1.0);
+            assertEquals(1.0, old.getMarks());
+            assertEquals(40.0, service.findStudentById(1001).getMarks());
+            assertThrows(IllegalStateException.class, () -> service.findStudentById(1001).setMarks(2.0));
+            assertEquals(40.0, service.snapshot().findStudentById(1001).getMarks());
+        }
+    }
+}
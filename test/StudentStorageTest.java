@@ -0,0 +1,149 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Recovery of a service from its snapshot and journal generations
+ */
+class StudentStorageTest {
+    @TempDir
+    Path directory;
+
+    private static List<String> contents(StudentService service) {
+        return service.getAllStudents().stream()
+                .map(s -> s.getId() + "|" + s.getName() + "|" + s.getCourse() + "|" + s.getMarks())
+                .sorted()
+                .toList();
+    }
+
+    private List<String> journalFiles() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.map(file -> file.getFileName().toString())
+                    .filter(name -> name.startsWith("students.journal"))
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    @Test
+    void recoversJournalWithoutSnapshot() throws IOException {
+        List<String> expected;
+        int nextId;
+        try (StudentService service = new StudentService(directory)) {
+            Student added = service.addStudent("Grace Hopper", "Mathematics", 97);
+            service.updateStudent(added.getId(), null, "Computer Science", 98.5);
+            service.deleteStudent(1001);
+            expected = contents(service);
+            nextId = service.getNextStudentId();
+        }
+
+        try (StudentService service = new StudentService(directory)) {
+            assertEquals(expected, contents(service));
+            assertEquals(0, service.getStorage().getRecoveredSnapshotRecords());
+            assertEquals(nextId, service.getNextStudentId());
+        }
+    }
+
+    @Test
+    void recoversSnapshotAndLaterJournal() throws IOException {
+        List<String> expected;
+        int nextId;
+        try (StudentService service = new StudentService(directory)) {
+            for (int i = 0; i < 12_000; i++) {
+                service.addStudent("Student " + i, i % 2 == 0 ? "Physics" : "Biology", i % 101);
+            }
+            assertEquals(1, service.getStorage().getSnapshotCount());
+
+            // Changes after the snapshot go to the next journal generation
+            service.updateStudent(1005, "Renamed", null, 12.5);
+            service.deleteStudent(1010);
+            service.addStudent("Late Student", "Chemistry", 64);
+            expected = contents(service);
+            nextId = service.getNextStudentId();
+        }
+        assertEquals(List.of("students.journal.1"), journalFiles());
+
+        try (StudentService service = new StudentService(directory)) {
+            assertEquals(expected, contents(service));
+            assertEquals(10_000, service.getStorage().getRecoveredSnapshotRecords());
+            assertEquals(2_005 + 3, service.getStorage().getReplayedJournalRecords());
+            assertEquals(nextId, service.getNextStudentId());
+        }
+    }
+
+    @Test
+    void deletesJournalsCoveredBySnapshot() throws IOException {
+        try (StudentService service = new StudentService(directory)) {
+            for (int i = 0; i < 12_000; i++) {
+                service.addStudent("Student " + i, "Physics", 70);
+            }
+        }
+
+        // As if the process died after renaming the snapshot but before deleting the old journal
+        try (StudentJournal stale = new StudentJournal(directory.resolve("students.journal"), 1, 0)) {
+            stale.appendUpsert(new Student(99_999, "Stale Student", 50, "Physics"));
+        }
+
+        try (StudentService service = new StudentService(directory)) {
+            assertEquals(12_000 + 5, service.getStudentCount(), "Sample students plus the added ones");
+            assertFalse(service.studentExists(99_999));
+        }
+        assertEquals(List.of("students.journal.1"), journalFiles());
+    }
+
+    @Test
+    void damagedSnapshotRecoversNothing() throws IOException {
+        try (StudentStorage storage = new StudentStorage(directory)) {
+            storage.beginSnapshot(List.of(new Student(1, "Ada", 90, "Physics"), new Student(2, "Bob", 80, "Physics")), 3)
+                    .finish();
+        }
+        Path snapshot = directory.resolve("students.snapshot");
+        byte[] intact = Files.readAllBytes(snapshot);
+        List<Integer> upserted = new ArrayList<>();
+        StudentJournal.ReplayHandler handler = new StudentJournal.ReplayHandler() {
+            @Override
+            public void upsert(Student student) {
+                upserted.add(student.getId());
+            }
+
+            @Override
+            public void delete(int id) {
+            }
+        };
+
+        // A flipped byte in the last record fails the checksum before any record is handed over
+        byte[] flipped = intact.clone();
+        flipped[flipped.length - 12] ^= 0x01;
+        Files.write(snapshot, flipped);
+        try (StudentStorage storage = new StudentStorage(directory)) {
+            IOException failure = assertThrows(IOException.class, () -> storage.recover(handler));
+            assertTrue(failure.getMessage().contains("checksum"));
+        }
+        assertTrue(upserted.isEmpty());
+
+        // A record count the file cannot hold is rejected before anything is read
+        byte[] counted = intact.clone();
+        ByteBuffer.wrap(counted).putInt(20, Integer.MAX_VALUE);
+        Files.write(snapshot, counted);
+        try (StudentStorage storage = new StudentStorage(directory)) {
+            IOException failure = assertThrows(IOException.class, () -> storage.recover(handler));
+            assertTrue(failure.getMessage().contains("record count"));
+        }
+        assertTrue(upserted.isEmpty());
+
+        Files.write(snapshot, intact);
+        try (StudentStorage storage = new StudentStorage(directory)) {
+            storage.recover(handler);
+        }
+        assertEquals(List.of(1, 2), upserted);
+    }
+}
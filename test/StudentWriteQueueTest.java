@@ -0,0 +1,143 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Group commit through the write queue: ordering, durability, failures and closing
+ */
+class StudentWriteQueueTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    void closeDrainsQueuedChanges() throws Exception {
+        StudentService service = new StudentService();
+        List<CompletableFuture<Student>> futures = new ArrayList<>();
+        try (StudentWriteQueue queue = new StudentWriteQueue(service, 64, 16, 1_000)) {
+            for (int i = 0; i < 1_000; i++) {
+                futures.add(queue.addStudent("Student " + i, "Physics", i % 101));
+            }
+        }
+
+        // Close waited for every queued change, applied in the order it was queued
+        for (int i = 0; i < futures.size(); i++) {
+            CompletableFuture<Student> future = futures.get(i);
+            assertTrue(future.isDone());
+            assertEquals("Student " + i, future.get().getName());
+            if (i > 0) {
+                assertTrue(future.get().getId() > futures.get(i - 1).get().getId());
+            }
+        }
+        assertEquals(1_005, service.getStudentCount());
+    }
+
+    @Test
+    void submitAfterCloseFails() {
+        StudentService service = new StudentService();
+        StudentWriteQueue queue = new StudentWriteQueue(service);
+        queue.close();
+        queue.close(); // Closing again is harmless
+
+        IllegalStateException failure = assertThrows(IllegalStateException.class, () -> queue.deleteStudent(1001));
+        assertEquals("Write queue is closed", failure.getMessage());
+        assertTrue(service.studentExists(1001));
+    }
+
+    @Test
+    void invalidChangeFailsOnlyItsFuture() throws Exception {
+        StudentService service = new StudentService();
+        try (StudentWriteQueue queue = new StudentWriteQueue(service, 16, 16, 10_000)) {
+            CompletableFuture<Student> valid = queue.addStudent("Valid", "Physics", 60);
+            CompletableFuture<Student> invalid = queue.addStudent("", "Physics", 60);
+            CompletableFuture<Boolean> deleted = queue.deleteStudent(1001);
+
+            assertEquals("Valid", valid.get(10, TimeUnit.SECONDS).getName());
+            ExecutionException failure = assertThrows(ExecutionException.class,
+                    () -> invalid.get(10, TimeUnit.SECONDS));
+            assertInstanceOf(IllegalArgumentException.class, failure.getCause());
+            assertTrue(deleted.get(10, TimeUnit.SECONDS));
+            assertFalse(queue.deleteStudent(1001).get(10, TimeUnit.SECONDS));
+        }
+    }
+
+    @Test
+    void groupsShareOneSync() throws Exception {
+        try (StudentService service = new StudentService(StudentStorage.withManualSync(directory),
+                new ListStudentRepository())) {
+            long syncsBefore = service.getStorage().getJournalSyncCount();
+            List<CompletableFuture<Student>> futures = new ArrayList<>();
+            Histogram latency;
+            try (StudentWriteQueue queue = new StudentWriteQueue(service, 1024, 256, 50_000)) {
+                for (int i = 0; i < 200; i++) {
+                    futures.add(queue.addStudent("Student " + i, "Physics", 70));
+                }
+                CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).get(10, TimeUnit.SECONDS);
+
+                long syncs = service.getStorage().getJournalSyncCount() - syncsBefore;
+                assertTrue(syncs >= 1 && syncs < 200, "Syncs: " + syncs);
+                latency = queue.getCommitLatency();
+            }
+            assertEquals(200, latency.getCount()); // Recorded once the futures complete, final after close
+        }
+
+        // Every acknowledged change was made durable by the queue's syncs
+        try (StudentService recovered = new StudentService(directory)) {
+            assertEquals(205, recovered.getStudentCount());
+        }
+    }
+
+    @Test
+    void concurrentProducersAllComplete() throws Exception {
+        StudentService service = new StudentService();
+        List<CompletableFuture<Student>> futures = new ArrayList<>();
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> producers = new ArrayList<>();
+        try (StudentWriteQueue queue = new StudentWriteQueue(service, 8, 4, 0)) { // Small ring, so producers wait
+            for (int p = 0; p < 4; p++) {
+                List<CompletableFuture<Student>> own = new ArrayList<>();
+                Thread producer = new Thread(() -> {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    for (int i = 0; i < 500; i++) {
+                        own.add(queue.addStudent("Student " + i, "Physics", 50));
+                    }
+                    synchronized (futures) {
+                        futures.addAll(own);
+                    }
+                });
+                producers.add(producer);
+                producer.start();
+            }
+            start.countDown();
+            for (Thread producer : producers) {
+                producer.join();
+            }
+        }
+
+        assertEquals(2_000, futures.size());
+        for (CompletableFuture<Student> future : futures) {
+            assertTrue(future.isDone() && !future.isCompletedExceptionally());
+        }
+        assertEquals(2_005, service.getStudentCount());
+    }
+
+    @Test
+    void rejectsInvalidSettings() {
+        StudentService service = new StudentService();
+        assertThrows(IllegalArgumentException.class, () -> new StudentWriteQueue(service, 0, 1, 0));
+        assertThrows(IllegalArgumentException.class, () -> new StudentWriteQueue(service, 16, 0, 0));
+        assertThrows(IllegalArgumentException.class, () -> new StudentWriteQueue(service, 16, 1, -1));
+    }
+}